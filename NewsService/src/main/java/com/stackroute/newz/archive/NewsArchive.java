@@ -0,0 +1,296 @@
+package com.stackroute.newz.archive;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.UpdateResult;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArchiveBucket;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.service.NewsChangeListener;
+
+/*
+ * The cold tier of the embedded layout: aged news in NewsArchiveBucket documents
+ * of the newsArchive collection. The NewsServiceImpl falls through to it for a
+ * news that is not in the UserNews document and for the pages behind the last
+ * news in it, since every archived news is older than the news left in the
+ * document. PUT, PATCH and DELETE of an archived news change it in its bucket,
+ * see change, so it keeps its place in time; all archived news of a user are
+ * removed with all news of the user. The list of all news of a user only holds
+ * the news in the document. An archived news keeps the id of its offloaded
+ * content, which clients can not set, so the buckets are written with the
+ * ContentIdMixIn.
+ *
+ * A newsId stays taken once its news is archived: the NewsIdAllocator starts
+ * above the highest archived newsId and the NewsServiceImpl does not add a news
+ * with an archived newsId, see archivedNewsIds.
+ */
+@Component
+public class NewsArchive implements NewsChangeListener {
+
+	/* the order of NewsService.getNewsPage */
+	static final Comparator<News> NEWEST_FIRST = Comparator.comparing(News::getPublishedAt)
+			.thenComparing(News::getNewsId).reversed();
+
+	private static final TypeReference<List<News>> NEWS_LIST = new TypeReference<List<News>>() {
+	};
+
+	private MongoOperations mongoOperations;
+	private ObjectMapper objectMapper;
+	private int bucketSize;
+
+	@Autowired
+	public NewsArchive(MongoOperations mongoOperations, ObjectMapper objectMapper, NewsProperties newsProperties) {
+		this.mongoOperations = mongoOperations;
+		this.objectMapper = objectMapper.copy().addMixIn(News.class, ContentIdMixIn.class);
+		this.bucketSize = newsProperties.getArchive().getBucketSize();
+	}
+
+	/*
+	 * Writes news of a user to new buckets, newest first, skipping the news that
+	 * are archived already. Returns the newsIds that are archived now, including
+	 * the skipped ones.
+	 *
+	 * A news is archived already if an archiving was interrupted before the news
+	 * left the UserNews document. Its archived copy is only kept if it is the same
+	 * news; a copy that differs is an older version, written before the news was
+	 * changed once more, and is replaced in its bucket by the news.
+	 */
+	public List<Integer> archive(String userId, List<News> aged) {
+		List<Integer> newsIds = aged.stream().map(News::getNewsId).collect(Collectors.toList());
+		Map<Integer, News> byNewsId = aged.stream().collect(Collectors.toMap(News::getNewsId, Function.identity(),
+				(first, second) -> first));
+		Query archived = query(where("userId").is(userId).and("newsIds").in(newsIds));
+		Set<Integer> skipped = new HashSet<>();
+		for (NewsArchiveBucket bucket : mongoOperations.find(archived, NewsArchiveBucket.class)) {
+			List<News> bucketNews = decompress(bucket.getContent());
+			boolean replaced = false;
+			for (int i = 0; i < bucketNews.size(); i++) {
+				News current = byNewsId.get(bucketNews.get(i).getNewsId());
+				if (current == null) {
+					continue;
+				}
+				if (!isSame(bucketNews.get(i), current)) {
+					bucketNews.set(i, current);
+					replaced = true;
+				}
+				skipped.add(current.getNewsId());
+			}
+			if (replaced) {
+				rewrite(query(where("_id").is(bucket.getId())), bucketNews);
+			}
+		}
+		List<News> sorted = aged.stream()
+				.filter(news -> !skipped.contains(news.getNewsId()))
+				.sorted(NEWEST_FIRST)
+				.collect(Collectors.toList());
+		List<NewsArchiveBucket> buckets = new ArrayList<>();
+		for (int from = 0; from < sorted.size(); from += bucketSize) {
+			List<News> news = sorted.subList(from, Math.min(sorted.size(), from + bucketSize));
+			buckets.add(new NewsArchiveBucket(userId, news.stream().map(News::getNewsId).collect(Collectors.toList()),
+					news.get(0).getPublishedAt(), news.get(news.size() - 1).getPublishedAt(), compress(news)));
+		}
+		if (!buckets.isEmpty()) {
+			mongoOperations.insert(buckets, NewsArchiveBucket.class);
+		}
+		return newsIds;
+	}
+
+	/* Returns the given newsIds of a user that are archived. */
+	public Set<Integer> archivedNewsIds(String userId, Collection<Integer> newsIds) {
+		Query archived = query(where("userId").is(userId).and("newsIds").in(newsIds));
+		archived.fields().include("newsIds");
+		Set<Integer> found = new HashSet<>();
+		mongoOperations.find(archived, NewsArchiveBucket.class).forEach(bucket -> found.addAll(bucket.getNewsIds()));
+		found.retainAll(newsIds);
+		return found;
+	}
+
+	/*
+	 * Returns the highest archived newsId of a user, 0 if none is archived. A
+	 * descending sort on an array sorts by its largest element.
+	 */
+	public int highestNewsId(String userId) {
+		Query highest = query(where("userId").is(userId)).with(Sort.by(Sort.Direction.DESC, "newsIds")).limit(1);
+		highest.fields().include("newsIds");
+		NewsArchiveBucket bucket = mongoOperations.findOne(highest, NewsArchiveBucket.class);
+		if (bucket == null || bucket.getNewsIds() == null) {
+			return 0;
+		}
+		return bucket.getNewsIds().stream().mapToInt(Integer::intValue).max().orElse(0);
+	}
+
+	/* Returns an archived news, or null. */
+	public News find(String userId, int newsId) {
+		NewsArchiveBucket bucket = mongoOperations.findOne(query(where("userId").is(userId).and("newsIds").is(newsId)),
+				NewsArchiveBucket.class);
+		if (bucket == null) {
+			return null;
+		}
+		return decompress(bucket.getContent()).stream()
+				.filter(news -> news.getNewsId() == newsId)
+				.findFirst()
+				.orElse(null);
+	}
+
+	/*
+	 * Replaces an archived news of a user with what the change returns, or removes
+	 * it when the change returns null. Returns false if the news is not archived.
+	 * The bucket is only written if its content is still the one that was read;
+	 * otherwise another write came in between, and the change is run again on the
+	 * news as it is now. A change can not move a news in time, since PUT and PATCH
+	 * do not set publishedAt.
+	 */
+	public boolean change(String userId, int newsId, UnaryOperator<News> change) {
+		while (true) {
+			NewsArchiveBucket bucket = mongoOperations.findOne(
+					query(where("userId").is(userId).and("newsIds").is(newsId)), NewsArchiveBucket.class);
+			if (bucket == null) {
+				return false;
+			}
+			List<News> news = decompress(bucket.getContent());
+			for (int i = 0; i < news.size(); i++) {
+				if (news.get(i).getNewsId() == newsId) {
+					News changed = change.apply(news.get(i));
+					if (changed == null) {
+						news.remove(i);
+					} else {
+						news.set(i, changed);
+					}
+					break;
+				}
+			}
+			Query unchanged = query(where("_id").is(bucket.getId()).and("content").is(bucket.getContent()));
+			if (news.isEmpty() ? mongoOperations.remove(unchanged, NewsArchiveBucket.class).getDeletedCount() == 1
+					: rewrite(unchanged, news).getMatchedCount() == 1) {
+				return true;
+			}
+		}
+	}
+
+	/*
+	 * Returns up to limit archived news of a user after the cursor, newest first.
+	 * Only the buckets holding them are read and unpacked. Archived news all have a
+	 * publishedAt, so none come after a cursor without one.
+	 */
+	public List<News> newsAfter(String userId, NewsCursor after, int limit) {
+		List<News> found = new ArrayList<>(limit);
+		if (limit <= 0 || after != null && after.getPublishedAt() == null) {
+			return found;
+		}
+		Query buckets = query(where("userId").is(userId));
+		if (after != null) {
+			buckets.addCriteria(where("oldest").lte(after.getPublishedAt()));
+		}
+		buckets.with(Sort.by(Sort.Direction.DESC, "newest"));
+		try (CloseableIterator<NewsArchiveBucket> iterator = mongoOperations.stream(buckets, NewsArchiveBucket.class)) {
+			while (iterator.hasNext() && found.size() < limit) {
+				for (News news : decompress(iterator.next().getContent())) {
+					if (found.size() < limit && (after == null || isAfter(news, after))) {
+						found.add(news);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/* Passes every archived news of a user to the action, one bucket at a time. */
+	public void forEach(String userId, Consumer<News> action) {
+		Query buckets = query(where("userId").is(userId));
+		try (CloseableIterator<NewsArchiveBucket> iterator = mongoOperations.stream(buckets, NewsArchiveBucket.class)) {
+			while (iterator.hasNext()) {
+				decompress(iterator.next().getContent()).forEach(action);
+			}
+		}
+	}
+
+	@Override
+	public void userNewsDeleted(String userId) {
+		mongoOperations.remove(query(where("userId").is(userId)), NewsArchiveBucket.class);
+	}
+
+	/*
+	 * Writes the news of the bucket matched by the query again, in case the
+	 * replaced ones moved in time.
+	 */
+	private UpdateResult rewrite(Query bucket, List<News> news) {
+		news.sort(NEWEST_FIRST);
+		return mongoOperations.updateFirst(bucket, new Update()
+				.set("newsIds", news.stream().map(News::getNewsId).collect(Collectors.toList()))
+				.set("newest", news.get(0).getPublishedAt())
+				.set("oldest", news.get(news.size() - 1).getPublishedAt())
+				.set("content", compress(news)), NewsArchiveBucket.class);
+	}
+
+	/* News have no equals; two copies are the same news if they are archived alike. */
+	private boolean isSame(News archived, News news) {
+		try {
+			return Arrays.equals(objectMapper.writeValueAsBytes(archived), objectMapper.writeValueAsBytes(news));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	byte[] compress(List<News> news) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(bytes)) {
+			objectMapper.writeValue(out, news);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	List<News> decompress(byte[] content) {
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+			return objectMapper.readValue(in, NEWS_LIST);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private abstract static class ContentIdMixIn {
+
+		@JsonProperty
+		private String contentId;
+	}
+
+	private static boolean isAfter(News news, NewsCursor cursor) {
+		int compared = news.getPublishedAt().compareTo(cursor.getPublishedAt());
+		return compared < 0 || (compared == 0 && news.getNewsId() < cursor.getNewsId());
+	}
+}
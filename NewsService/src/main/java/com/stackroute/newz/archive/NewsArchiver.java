@@ -0,0 +1,144 @@
+package com.stackroute.newz.archive;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.cache.UserNewsCache;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.service.OptimisticRetry;
+
+/*
+ * Background job that moves the news older than news.archive.max-age out of the
+ * UserNews documents into the NewsArchive, every news.archive.interval. Only the
+ * users holding such news are read. The news of a user are first written to the
+ * archive and then pulled from the document, so a run that stops in between
+ * leaves them in both places, and the next run only pulls them. The pull only
+ * matches the version of the document that was read; when a write came in
+ * between, the user is read and archived again by the OptimisticRetry, and a
+ * user whose news keep changing is left to the next run.
+ *
+ * PUT, PATCH and DELETE of a single archived news change it in its bucket, see
+ * NewsArchive.change; it is not moved back into the document, so archived news
+ * stay older than the news in the document. They are also removed with all news
+ * of their user.
+ *
+ * It is enabled with news.archive.enabled=true and has nothing to do in the
+ * article layout, which has no UserNews documents.
+ */
+@Component
+@ConditionalOnProperty(name = "news.archive.enabled", havingValue = "true")
+public class NewsArchiver implements ApplicationRunner, DisposableBean {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private MongoOperations mongoOperations;
+	private NewsArchive newsArchive;
+	private UserNewsCache userNewsCache;
+	private OptimisticRetry optimisticRetry;
+	private NewsProperties.Archive properties;
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public NewsArchiver(MongoOperations mongoOperations, NewsArchive newsArchive, UserNewsCache userNewsCache,
+			OptimisticRetry optimisticRetry, NewsProperties newsProperties) {
+		this.mongoOperations = mongoOperations;
+		this.newsArchive = newsArchive;
+		this.userNewsCache = userNewsCache;
+		this.optimisticRetry = optimisticRetry;
+		this.properties = newsProperties.getArchive();
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "news-archiver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = properties.getInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				archiveOlderThan(LocalDateTime.now().minus(properties.getMaxAge()));
+			} catch (RuntimeException e) {
+				logger.error("In archive - {}", "Archiving failed", e);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/*
+	 * Archives the news published before the cutoff and returns their number.
+	 */
+	public int archiveOlderThan(LocalDateTime cutoff) {
+		Query aged = query(where("newslist.publishedAt").lt(cutoff));
+		aged.fields().include("_id");
+		int archived = 0;
+		try (CloseableIterator<UserNews> users = mongoOperations.stream(aged, UserNews.class)) {
+			while (users.hasNext()) {
+				String userId = users.next().getUserId();
+				try {
+					archived += optimisticRetry.run(() -> archiveUser(userId, cutoff));
+				} catch (OptimisticLockingFailureException e) {
+					logger.warn("In archive - {}", "The news of user " + userId + " kept changing, they are archived in the next run.");
+				}
+			}
+		}
+		if (archived > 0) {
+			logger.info("In archive - {}", "Archived " + archived + " news published before " + cutoff + ".");
+		}
+		return archived;
+	}
+
+	private int archiveUser(String userId, LocalDateTime cutoff) {
+		UserNews userNews = mongoOperations.findById(userId, UserNews.class);
+		if (userNews == null || userNews.getNewslist() == null) {
+			return 0;
+		}
+		List<News> aged = userNews.getNewslist().stream()
+				.filter(news -> news.getPublishedAt() != null && news.getPublishedAt().isBefore(cutoff))
+				.collect(Collectors.toList());
+		if (aged.isEmpty()) {
+			return 0;
+		}
+		List<Integer> newsIds = newsArchive.archive(userId, aged);
+		// a document without a version matches null as well
+		Query unchanged = query(where("_id").is(userId).and("version").is(userNews.getVersion()));
+		if (mongoOperations.updateFirst(unchanged,
+				new Update().pull("newslist", new Document("_id", new Document("$in", newsIds))).inc("version", 1L),
+				UserNews.class).getModifiedCount() == 0) {
+			throw new OptimisticLockingFailureException("The news of user " + userId + " changed while they were archived");
+		}
+		userNewsCache.invalidate(userId);
+		return newsIds.size();
+	}
+}
@@ -0,0 +1,90 @@
+package com.stackroute.newz.cache;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.UserNews;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/*
+ * In-process cache of UserNews documents by userId, used for the read paths of the
+ * embedded storage layout. Caffeine evicts by W-TinyLFU, so a burst of one-off
+ * reads does not push out the users that are read all the time.
+ *
+ * Each entry weighs the number of news in its newslist plus one, which keeps the
+ * bound proportional to memory use rather than to the number of users. Writers
+ * invalidate or replace the entry of the user they changed. Other instances see
+ * the change once their entry expires after news.cache.ttl, or once they read
+ * the version of the user's news for an ETag, whichever comes first.
+ *
+ * Hit, miss, eviction and size metrics are published as cache.* meters with
+ * cache=userNews.
+ */
+@Component
+public class UserNewsCache implements MeterBinder {
+
+	public static final String NAME = "userNews";
+
+	private final Cache<String, UserNews> cache;
+
+	@Autowired
+	public UserNewsCache(NewsProperties newsProperties) {
+		NewsProperties.Cache config = newsProperties.getCache();
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(config.getMaxWeight())
+				.weigher(UserNewsCache::weigh)
+				.expireAfterWrite(config.getTtl())
+				.recordStats()
+				.build();
+	}
+
+	/*
+	 * Returns the cached UserNews of a user, loading it on a miss. Users the loader
+	 * does not find are not cached.
+	 */
+	public Optional<UserNews> get(String userId, Function<String, Optional<UserNews>> loader) {
+		return Optional.ofNullable(cache.get(userId, key -> loader.apply(key).orElse(null)));
+	}
+
+	/* Replaces the entry of a user with a document that was just written. */
+	public void put(UserNews userNews) {
+		cache.put(userNews.getUserId(), userNews);
+	}
+
+	/*
+	 * Drops the entry of a user unless it has the given version, which was just
+	 * read from Mongo, so that a change written by another instance is not served
+	 * from here until the entry expires.
+	 */
+	public void invalidateUnless(String userId, Long version) {
+		UserNews cached = cache.getIfPresent(userId);
+		if (cached != null && !Objects.equals(cached.getVersion(), version)) {
+			cache.invalidate(userId);
+		}
+	}
+
+	public void invalidate(String userId) {
+		if (userId != null) {
+			cache.invalidate(userId);
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cache, NAME);
+	}
+
+	private static int weigh(String userId, UserNews userNews) {
+		return userNews.getNewslist() == null ? 1 : userNews.getNewslist().size() + 1;
+	}
+}
@@ -0,0 +1,100 @@
+package com.stackroute.newz.cache;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.UserNewsVersion;
+
+/*
+ * Monotonic version of the news of every user in the article layout, which has
+ * no UserNews document to keep one with the news. NewsArticleServiceImpl
+ * increments it in the userNewsVersion collection after every write, so a
+ * response may carry an older version than its news but never a newer one.
+ *
+ * Versions are read from Mongo on every call, so all instances see a change as
+ * soon as it is written.
+ *
+ * A write with an expected version increments it before the write and only if it
+ * is still the expected one, so of two writes that expect the same version only
+ * one goes ahead.
+ */
+@Component
+@ConditionalOnProperty(name = "news.storage", havingValue = "article")
+public class UserNewsVersions {
+
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	public UserNewsVersions(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	/*
+	 * Returns the current version of the news of a user, 0 before their first change.
+	 */
+	public long version(String userId) {
+		UserNewsVersion version = mongoOperations.findById(userId, UserNewsVersion.class);
+		return version == null ? 0L : version.getVersion();
+	}
+
+	public long increment(String userId) {
+		UserNewsVersion version = mongoOperations.findAndModify(query(where("_id").is(userId)),
+				new Update().inc("version", 1L), FindAndModifyOptions.options().upsert(true).returnNew(true),
+				UserNewsVersion.class);
+		return version.getVersion();
+	}
+
+	/*
+	 * Increments the version of the news of a user only if it is the expected one.
+	 * Returns false when it is not. A user without a version has version 0, so only
+	 * version 0 is upserted; the upsert of the first version fails on the _id index
+	 * if another write created it. Any other version of such a user is not current.
+	 */
+	public boolean increment(String userId, long expectedVersion) {
+		Criteria version = expectedVersion == 0 ? where("version").in(0L, null) : where("version").is(expectedVersion);
+		try {
+			return mongoOperations.findAndModify(query(where("_id").is(userId)).addCriteria(version),
+					new Update().inc("version", 1L),
+					FindAndModifyOptions.options().upsert(expectedVersion == 0).returnNew(true),
+					UserNewsVersion.class) != null;
+		} catch (DuplicateKeyException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Takes back the increment of an expected version whose write found nothing to
+	 * write, as long as no other write incremented the version since.
+	 */
+	public void restore(String userId, long expectedVersion) {
+		mongoOperations.updateFirst(query(where("_id").is(userId).and("version").is(expectedVersion + 1)),
+				new Update().inc("version", -1L), UserNewsVersion.class);
+	}
+
+	/*
+	 * Increments the version of every given user once, with a single bulk write.
+	 */
+	public void increment(Collection<String> userIds) {
+		if (userIds.isEmpty()) {
+			return;
+		}
+		BulkOperations bulk = mongoOperations.bulkOps(BulkMode.UNORDERED, UserNewsVersion.class);
+		for (String userId : userIds) {
+			bulk.upsert(query(where("_id").is(userId)), new Update().inc("version", 1L));
+		}
+		bulk.execute();
+	}
+}
@@ -0,0 +1,89 @@
+package com.stackroute.newz.config;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+
+/*
+ * ObjectMappers for the binary representations of the API, Smile
+ * (application/x-jackson-smile) and CBOR (application/cbor). They map the same
+ * properties as the JSON mapper, except that LocalDateTime values are written as
+ * epoch milliseconds in the system time zone instead of the ISO strings that the
+ * ToStringSerializer annotations of the model produce for JSON. ISO strings are
+ * still accepted when reading.
+ */
+public final class BinaryFormats {
+
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+	public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+	private BinaryFormats() {
+	}
+
+	public static ObjectMapper smileMapper() {
+		return epochMillis(Jackson2ObjectMapperBuilder.smile()).build();
+	}
+
+	public static ObjectMapper cborMapper() {
+		return epochMillis(Jackson2ObjectMapperBuilder.cbor()).build();
+	}
+
+	private static Jackson2ObjectMapperBuilder epochMillis(Jackson2ObjectMapperBuilder builder) {
+		return builder
+				.annotationIntrospector(new DateSerializerIntrospector())
+				.serializerByType(LocalDateTime.class, new EpochMillisSerializer())
+				.deserializerByType(LocalDateTime.class, new EpochMillisDeserializer());
+	}
+
+	/*
+	 * Ignores serializers declared with @JsonSerialize on LocalDateTime properties,
+	 * so that the mapper's own serializer for the type is used.
+	 */
+	static class DateSerializerIntrospector extends JacksonAnnotationIntrospector {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Object findSerializer(Annotated annotated) {
+			if (annotated.getRawType() == LocalDateTime.class) {
+				return null;
+			}
+			return super.findSerializer(annotated);
+		}
+	}
+
+	static class EpochMillisSerializer extends JsonSerializer<LocalDateTime> {
+
+		@Override
+		public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider)
+				throws IOException {
+			generator.writeNumber(value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+		}
+	}
+
+	static class EpochMillisDeserializer extends JsonDeserializer<LocalDateTime> {
+
+		@Override
+		public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+			if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+				return LocalDateTime.ofInstant(Instant.ofEpochMilli(parser.getLongValue()), ZoneId.systemDefault());
+			}
+			return LocalDateTimeDeserializer.INSTANCE.deserialize(parser, context);
+		}
+	}
+}
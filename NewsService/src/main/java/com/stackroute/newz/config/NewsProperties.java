@@ -0,0 +1,670 @@
+package com.stackroute.newz.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/*
+ * Tunables of the NewsService, bound from the "news" section of application.yml.
+ */
+@Component
+@ConfigurationProperties(prefix = "news")
+public class NewsProperties {
+
+	private Page page = new Page();
+	private Batch batch = new Batch();
+	private Cache cache = new Cache();
+	private Search search = new Search();
+	private Reminder reminder = new Reminder();
+	private Dedup dedup = new Dedup();
+	private Outbox outbox = new Outbox();
+	private Trending trending = new Trending();
+	private Archive archive = new Archive();
+	private WriteBehind writeBehind = new WriteBehind();
+	private Concurrency concurrency = new Concurrency();
+	private Content content = new Content();
+	private Ids ids = new Ids();
+	private Stats stats = new Stats();
+
+	public Page getPage() {
+		return page;
+	}
+
+	public void setPage(Page page) {
+		this.page = page;
+	}
+
+	public Batch getBatch() {
+		return batch;
+	}
+
+	public void setBatch(Batch batch) {
+		this.batch = batch;
+	}
+
+	public Cache getCache() {
+		return cache;
+	}
+
+	public void setCache(Cache cache) {
+		this.cache = cache;
+	}
+
+	public Search getSearch() {
+		return search;
+	}
+
+	public void setSearch(Search search) {
+		this.search = search;
+	}
+
+	public Reminder getReminder() {
+		return reminder;
+	}
+
+	public void setReminder(Reminder reminder) {
+		this.reminder = reminder;
+	}
+
+	public Dedup getDedup() {
+		return dedup;
+	}
+
+	public void setDedup(Dedup dedup) {
+		this.dedup = dedup;
+	}
+
+	public Outbox getOutbox() {
+		return outbox;
+	}
+
+	public void setOutbox(Outbox outbox) {
+		this.outbox = outbox;
+	}
+
+	public Trending getTrending() {
+		return trending;
+	}
+
+	public void setTrending(Trending trending) {
+		this.trending = trending;
+	}
+
+	public Archive getArchive() {
+		return archive;
+	}
+
+	public void setArchive(Archive archive) {
+		this.archive = archive;
+	}
+
+	public WriteBehind getWriteBehind() {
+		return writeBehind;
+	}
+
+	public void setWriteBehind(WriteBehind writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	public Concurrency getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(Concurrency concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public Content getContent() {
+		return content;
+	}
+
+	public void setContent(Content content) {
+		this.content = content;
+	}
+
+	public Ids getIds() {
+		return ids;
+	}
+
+	public void setIds(Ids ids) {
+		this.ids = ids;
+	}
+
+	public Stats getStats() {
+		return stats;
+	}
+
+	public void setStats(Stats stats) {
+		this.stats = stats;
+	}
+
+	public static class Page {
+
+		/* Page size used when the client does not send one. */
+		private int defaultSize = 20;
+		/* Upper bound for client supplied page sizes. */
+		private int maxSize = 100;
+		/* Upper bound for the number of users merged into one timeline. */
+		private int maxTimelineUsers = 50;
+
+		public int getDefaultSize() {
+			return defaultSize;
+		}
+
+		public void setDefaultSize(int defaultSize) {
+			this.defaultSize = defaultSize;
+		}
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public int getMaxTimelineUsers() {
+			return maxTimelineUsers;
+		}
+
+		public void setMaxTimelineUsers(int maxTimelineUsers) {
+			this.maxTimelineUsers = maxTimelineUsers;
+		}
+
+		/*
+		 * Returns the page size to use for a client supplied value, which may be null.
+		 */
+		public int resolve(Integer size) {
+			if (size == null || size <= 0) {
+				return defaultSize;
+			}
+			return Math.min(size, maxSize);
+		}
+	}
+
+	public static class Batch {
+
+		/* Number of news written with one bulk operation by the batch ingest. */
+		private int chunkSize = 500;
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		public void setChunkSize(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+	}
+
+	public static class Cache {
+
+		/* Upper bound of the cache, counted in news (each user adds one). 0 disables it. */
+		private long maxWeight = 100_000;
+		/* Time after which a cached user is read from Mongo again. */
+		private Duration ttl = Duration.ofMinutes(10);
+
+		public long getMaxWeight() {
+			return maxWeight;
+		}
+
+		public void setMaxWeight(long maxWeight) {
+			this.maxWeight = maxWeight;
+		}
+
+		public Duration getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(Duration ttl) {
+			this.ttl = ttl;
+		}
+	}
+
+	public static class Search {
+
+		/* Estimated share of common word triples from which two news are near duplicates. */
+		private double nearDuplicateThreshold = 0.7;
+
+		public double getNearDuplicateThreshold() {
+			return nearDuplicateThreshold;
+		}
+
+		public void setNearDuplicateThreshold(double nearDuplicateThreshold) {
+			this.nearDuplicateThreshold = nearDuplicateThreshold;
+		}
+	}
+
+	public static class Reminder {
+
+		/* Resolution of the reminder timing wheel. */
+		private Duration tick = Duration.ofSeconds(1);
+		private Mail mail = new Mail();
+
+		public Duration getTick() {
+			return tick;
+		}
+
+		public void setTick(Duration tick) {
+			this.tick = tick;
+		}
+
+		public Mail getMail() {
+			return mail;
+		}
+
+		public void setMail(Mail mail) {
+			this.mail = mail;
+		}
+	}
+
+	/*
+	 * Reminder email delivery. The templates may use {userId}, {newsId},
+	 * {reminderId}, {title} and {schedule}.
+	 */
+	public static class Mail {
+
+		/* Number of SMTP connections, each kept open by one sender thread. */
+		private int poolSize = 2;
+		/* Reminders waiting for a sender; the scheduler waits when it is full. */
+		private int queueCapacity = 10_000;
+		/* Time an idle connection is kept open. */
+		private Duration keepAlive = Duration.ofSeconds(30);
+		/* Attempts per email before it is given up. */
+		private int maxAttempts = 5;
+		/* Wait after the first failed attempt, doubled up to maxBackoff. */
+		private Duration backoff = Duration.ofMillis(500);
+		private Duration maxBackoff = Duration.ofSeconds(30);
+		private String from = "reminders@newz.local";
+		private String to = "{userId}@newz.local";
+		private String subject = "Reminder: {title}";
+		private String text = "Hello {userId},\n\nthis is your reminder for \"{title}\", scheduled at {schedule}.\n";
+
+		public int getPoolSize() {
+			return poolSize;
+		}
+
+		public void setPoolSize(int poolSize) {
+			this.poolSize = poolSize;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public Duration getKeepAlive() {
+			return keepAlive;
+		}
+
+		public void setKeepAlive(Duration keepAlive) {
+			this.keepAlive = keepAlive;
+		}
+
+		public int getMaxAttempts() {
+			return maxAttempts;
+		}
+
+		public void setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+
+		public Duration getBackoff() {
+			return backoff;
+		}
+
+		public void setBackoff(Duration backoff) {
+			this.backoff = backoff;
+		}
+
+		public Duration getMaxBackoff() {
+			return maxBackoff;
+		}
+
+		public void setMaxBackoff(Duration maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+
+		public String getFrom() {
+			return from;
+		}
+
+		public void setFrom(String from) {
+			this.from = from;
+		}
+
+		public String getTo() {
+			return to;
+		}
+
+		public void setTo(String to) {
+			this.to = to;
+		}
+
+		public String getSubject() {
+			return subject;
+		}
+
+		public void setSubject(String subject) {
+			this.subject = subject;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public void setText(String text) {
+			this.text = text;
+		}
+	}
+
+	public static class Dedup {
+
+		/* URLs the filter is sized for before it grows its first time. */
+		private long expectedUrls = 100_000;
+		/* Share of new URLs that still need a lookup in Mongo. */
+		private double falsePositiveRate = 0.01;
+		/* File the filter is written to at shutdown and read from at the next start. */
+		private String snapshot = "news-url-filter.bin";
+
+		public long getExpectedUrls() {
+			return expectedUrls;
+		}
+
+		public void setExpectedUrls(long expectedUrls) {
+			this.expectedUrls = expectedUrls;
+		}
+
+		public double getFalsePositiveRate() {
+			return falsePositiveRate;
+		}
+
+		public void setFalsePositiveRate(double falsePositiveRate) {
+			this.falsePositiveRate = falsePositiveRate;
+		}
+
+		public String getSnapshot() {
+			return snapshot;
+		}
+
+		public void setSnapshot(String snapshot) {
+			this.snapshot = snapshot;
+		}
+	}
+
+	public static class Outbox {
+
+		/* News events published but not yet delivered; a power of two. */
+		private int bufferSize = 4096;
+		/* Events handed to the NewsEventHandlers at once. */
+		private int batchSize = 256;
+		/* Time between two reads of the undelivered events from Mongo. */
+		private Duration sweepInterval = Duration.ofSeconds(10);
+		/* Age from which an event in an outbox is taken as undelivered. */
+		private Duration redeliveryDelay = Duration.ofSeconds(30);
+
+		public int getBufferSize() {
+			return bufferSize;
+		}
+
+		public void setBufferSize(int bufferSize) {
+			this.bufferSize = bufferSize;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public Duration getSweepInterval() {
+			return sweepInterval;
+		}
+
+		public void setSweepInterval(Duration sweepInterval) {
+			this.sweepInterval = sweepInterval;
+		}
+
+		public Duration getRedeliveryDelay() {
+			return redeliveryDelay;
+		}
+
+		public void setRedeliveryDelay(Duration redeliveryDelay) {
+			this.redeliveryDelay = redeliveryDelay;
+		}
+	}
+
+	public static class Trending {
+
+		/* Time over which the views of the trending news are counted. */
+		private Duration window = Duration.ofHours(1);
+		/* Parts of the window; the oldest part is dropped at once. */
+		private int buckets = 12;
+		/* Most viewed news kept, the upper bound for GET /api/v1/news/trending. */
+		private int capacity = 100;
+		/* Counters per row of the Count-Min Sketch of each bucket. */
+		private int sketchWidth = 4096;
+		/* Rows of the Count-Min Sketch of each bucket. */
+		private int sketchDepth = 4;
+		/* Time between two writes of the counted views to Mongo. */
+		private Duration flushInterval = Duration.ofSeconds(5);
+
+		public Duration getWindow() {
+			return window;
+		}
+
+		public void setWindow(Duration window) {
+			this.window = window;
+		}
+
+		public int getBuckets() {
+			return buckets;
+		}
+
+		public void setBuckets(int buckets) {
+			this.buckets = buckets;
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public void setCapacity(int capacity) {
+			this.capacity = capacity;
+		}
+
+		public int getSketchWidth() {
+			return sketchWidth;
+		}
+
+		public void setSketchWidth(int sketchWidth) {
+			this.sketchWidth = sketchWidth;
+		}
+
+		public int getSketchDepth() {
+			return sketchDepth;
+		}
+
+		public void setSketchDepth(int sketchDepth) {
+			this.sketchDepth = sketchDepth;
+		}
+
+		public Duration getFlushInterval() {
+			return flushInterval;
+		}
+
+		public void setFlushInterval(Duration flushInterval) {
+			this.flushInterval = flushInterval;
+		}
+	}
+
+	public static class Archive {
+
+		/* Age from which news are moved out of the UserNews documents. */
+		private Duration maxAge = Duration.ofDays(90);
+		/* Time between two runs of the NewsArchiver. */
+		private Duration interval = Duration.ofHours(1);
+		/* News per archive bucket document. */
+		private int bucketSize = 100;
+
+		public Duration getMaxAge() {
+			return maxAge;
+		}
+
+		public void setMaxAge(Duration maxAge) {
+			this.maxAge = maxAge;
+		}
+
+		public Duration getInterval() {
+			return interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public int getBucketSize() {
+			return bucketSize;
+		}
+
+		public void setBucketSize(int bucketSize) {
+			this.bucketSize = bucketSize;
+		}
+	}
+
+	public static class WriteBehind {
+
+		/* Buffers the updates of PUT /api/v1/news/{userId}/{newsId} in the NewsWriteBehind. */
+		private boolean enabled = false;
+		/* Time during which the updates of a news are merged into one write. */
+		private Duration window = Duration.ofMillis(500);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getWindow() {
+			return window;
+		}
+
+		public void setWindow(Duration window) {
+			this.window = window;
+		}
+	}
+
+	public static class Concurrency {
+
+		/* Attempts of a write that found the UserNews document changed since it was read. */
+		private int maxAttempts = 5;
+		/* Upper bound of the random pause before the second attempt, doubled for each further one. */
+		private Duration backoff = Duration.ofMillis(5);
+		private Duration maxBackoff = Duration.ofMillis(100);
+
+		public int getMaxAttempts() {
+			return maxAttempts;
+		}
+
+		public void setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+
+		public Duration getBackoff() {
+			return backoff;
+		}
+
+		public void setBackoff(Duration backoff) {
+			this.backoff = backoff;
+		}
+
+		public Duration getMaxBackoff() {
+			return maxBackoff;
+		}
+
+		public void setMaxBackoff(Duration maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+	}
+
+	public static class Content {
+
+		/* Length in characters above which the content of a news is kept in the newsContent collection. */
+		private int offloadThreshold = 16384;
+
+		public int getOffloadThreshold() {
+			return offloadThreshold;
+		}
+
+		public void setOffloadThreshold(int offloadThreshold) {
+			this.offloadThreshold = offloadThreshold;
+		}
+	}
+
+	public static class Ids {
+
+		/* Number of newsIds an instance reserves for a user with one write to newsIdSequence. */
+		private int blockSize = 100;
+		/* Number of users whose reserved newsIds are kept; the rest of an evicted block is skipped. */
+		private long maxUsers = 10000;
+
+		public int getBlockSize() {
+			return blockSize;
+		}
+
+		public void setBlockSize(int blockSize) {
+			this.blockSize = blockSize;
+		}
+
+		public long getMaxUsers() {
+			return maxUsers;
+		}
+
+		public void setMaxUsers(long maxUsers) {
+			this.maxUsers = maxUsers;
+		}
+	}
+
+	public static class Stats {
+
+		/*
+		 * Whether the NewsStatsReconciler counts the newsStats anew every interval.
+		 * Only used with news.storage=embedded.
+		 */
+		private boolean enabled = false;
+		private Duration interval = Duration.ofHours(6);
+		/* Number of users read at once while counting. */
+		private int batchSize = 500;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getInterval() {
+			return interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.stackroute.newz.config;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.newz.controller.NewsController;
+
+/*
+ * WebFlux setup of the "reactive" profile. The JSON encoder is registered with
+ * application/x-ndjson as a streaming media type, so a Flux is written one
+ * newline terminated value at a time instead of as a JSON array. Smile and CBOR
+ * are served as in the servlet stack, see BinaryFormats.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig implements WebFluxConfigurer {
+
+	private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(NewsController.APPLICATION_NDJSON_VALUE);
+
+	private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(BinaryFormats.APPLICATION_SMILE_VALUE);
+	private static final MediaType APPLICATION_CBOR = MediaType.parseMediaType(BinaryFormats.APPLICATION_CBOR_VALUE);
+
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	public ReactiveConfig(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+		Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON,
+				new MediaType("application", "*+json"), APPLICATION_NDJSON);
+		encoder.setStreamingMediaTypes(Arrays.asList(APPLICATION_NDJSON, MediaType.APPLICATION_STREAM_JSON));
+		configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+		// custom encoders are asked before the default ones, so JSON is repeated first
+		// to stay the format for clients that accept anything
+		configurer.customCodecs().encoder(encoder);
+		// the media types are given explicitly, without them these codecs claim the JSON ones
+		ObjectMapper smileMapper = BinaryFormats.smileMapper();
+		configurer.customCodecs().encoder(new Jackson2SmileEncoder(smileMapper, APPLICATION_SMILE));
+		configurer.customCodecs().decoder(new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE));
+		ObjectMapper cborMapper = BinaryFormats.cborMapper();
+		configurer.customCodecs().encoder(new Jackson2CborEncoder(cborMapper, APPLICATION_CBOR));
+		configurer.customCodecs().decoder(new Jackson2CborDecoder(cborMapper, APPLICATION_CBOR));
+	}
+}
@@ -0,0 +1,122 @@
+package com.stackroute.newz.content;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsContent;
+import com.stackroute.newz.service.NewsChangeListener;
+
+/*
+ * Keeps contents longer than news.content.offload-threshold out of the UserNews
+ * documents, in the newsContent collection. The news in the document keeps the
+ * id of its NewsContent instead, so reading, caching and saving the news of a
+ * user moves only the short fields, and long articles do not push a document
+ * towards the size limit of Mongo. The content is read back by load, for a
+ * single news.
+ *
+ * The content is written before the news that refers to it. A writer that fails
+ * to write the news removes it again with discard, and after replacing a content
+ * the writer removes the old one with remove. The contents of deleted news are
+ * removed by this NewsChangeListener.
+ */
+@Component
+public class NewsContentStore implements NewsChangeListener {
+
+	private MongoOperations mongoOperations;
+	private int threshold;
+
+	@Autowired
+	public NewsContentStore(MongoOperations mongoOperations, NewsProperties newsProperties) {
+		this.mongoOperations = mongoOperations;
+		this.threshold = newsProperties.getContent().getOffloadThreshold();
+	}
+
+	/*
+	 * Writes a long content to a new NewsContent and returns its id, or returns
+	 * null for a content that stays in the news.
+	 */
+	public String offload(String userId, Integer newsId, String content) {
+		if (!offloads(content)) {
+			return null;
+		}
+		return mongoOperations.insert(new NewsContent(userId, newsId, content)).getId();
+	}
+
+	/* Whether a content is long enough to be kept in the newsContent collection. */
+	public boolean offloads(String content) {
+		return content != null && content.length() > threshold;
+	}
+
+	/*
+	 * Returns the news as it is written to the UserNews document: the news itself
+	 * when its content is short, otherwise a copy that refers to the offloaded
+	 * content.
+	 */
+	public News stored(String userId, News news) {
+		return stored(news, offload(userId, news.getNewsId(), news.getContent()));
+	}
+
+	/* As stored, for a content that was already offloaded to the given id, if any. */
+	public News stored(News news, String contentId) {
+		if (contentId == null) {
+			news.setContentId(null);
+			return news;
+		}
+		News stored = copy(news);
+		stored.setContent(null);
+		stored.setContentId(contentId);
+		return stored;
+	}
+
+	/*
+	 * Returns the news with its content; a copy when the content is read from the
+	 * newsContent collection, so a cached news keeps referring to it.
+	 */
+	public News load(News news) {
+		if (news == null || news.getContentId() == null) {
+			return news;
+		}
+		NewsContent content = mongoOperations.findById(news.getContentId(), NewsContent.class);
+		News loaded = copy(news);
+		loaded.setContent(content == null ? null : content.getContent());
+		loaded.setContentId(null);
+		return loaded;
+	}
+
+	/* Removes the content a stored news refers to after its write failed. */
+	public void discard(News stored) {
+		if (stored != null) {
+			remove(stored.getContentId());
+		}
+	}
+
+	public void remove(String contentId) {
+		if (contentId != null) {
+			mongoOperations.remove(query(where("_id").is(contentId)), NewsContent.class);
+		}
+	}
+
+	@Override
+	public void newsDeleted(String userId, int newsId) {
+		mongoOperations.remove(query(where("userId").is(userId).and("newsId").is(newsId)), NewsContent.class);
+	}
+
+	@Override
+	public void userNewsDeleted(String userId) {
+		mongoOperations.remove(query(where("userId").is(userId)), NewsContent.class);
+	}
+
+	private static News copy(News news) {
+		News copy = new News(news.getNewsId(), news.getTitle(), news.getAuthor(), news.getDescription(),
+				news.getPublishedAt(), news.getContent(), news.getUrl(), news.getUrlToImage(), news.getReminder(),
+				news.getNewsSource());
+		copy.setContentId(news.getContentId());
+		return copy;
+	}
+}
@@ -1,24 +1,65 @@
 package com.stackroute.newz.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import com.stackroute.newz.config.NewsProperties;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItemResult;
+import com.stackroute.newz.model.NewsBatchReport;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.NewsStats;
+import com.stackroute.newz.model.TimelineCursor;
+import com.stackroute.newz.model.TrendingNews;
+import com.stackroute.newz.search.NearDuplicateIndex;
+import com.stackroute.newz.service.NewsIdAllocator;
 import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsTimeline;
+import com.stackroute.newz.service.NewsWriteBehind;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.trending.NewsViewCounter;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
 
 /*
  * As in this assignment, we are working with creating RESTful web service, hence annotate
@@ -27,21 +68,46 @@ import com.stackroute.newz.util.exception.NewsNotFoundException;
  * with @Controller annotation, it will return the data directly in a serialized 
  * format. Starting from Spring 4 and above, we can use @RestController annotation which 
  * is equivalent to using @Controller and @ResposeBody annotation
+ * 
+ * With the "reactive" profile ReactiveNewsController serves these URLs instead.
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/v1/news")
 public class NewsController {
 
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	public static final String NEAR_DUPLICATE_OF = "X-Near-Duplicate-Of";
+
 	/*
 	 * Autowiring should be implemented for the NewsService. (Use Constructor-based
 	 * autowiring) Please note that we should not create any object using the new
 	 * keyword
 	 */
 	private NewsService newsService;
+	private NewsProperties newsProperties;
+	private ObjectMapper objectMapper;
+	private NearDuplicateIndex nearDuplicateIndex;
+	private NewsViewCounter newsViewCounter;
+	private NewsTimeline newsTimeline;
+	private NewsWriteBehind newsWriteBehind;
+	private NewsIdAllocator newsIdAllocator;
+	private NewsStatsRollup newsStatsRollup;
 	
 	@Autowired
-	public NewsController(NewsService newsService) {
+	public NewsController(NewsService newsService, NewsProperties newsProperties, ObjectMapper objectMapper,
+			NearDuplicateIndex nearDuplicateIndex, NewsViewCounter newsViewCounter,
+			NewsTimeline newsTimeline, NewsWriteBehind newsWriteBehind, NewsIdAllocator newsIdAllocator,
+			NewsStatsRollup newsStatsRollup) {
 		this.newsService = newsService;
+		this.newsProperties = newsProperties;
+		this.objectMapper = objectMapper;
+		this.nearDuplicateIndex = nearDuplicateIndex;
+		this.newsViewCounter = newsViewCounter;
+		this.newsTimeline = newsTimeline;
+		this.newsWriteBehind = newsWriteBehind;
+		this.newsIdAllocator = newsIdAllocator;
+		this.newsStatsRollup = newsStatsRollup;
 	}
 	
 	private final Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -52,21 +118,81 @@ public class NewsController {
 	 * database.This handler method should return any one of the status messages
 	 * basis on different situations: 
 	 * 1. 201(CREATED) - If the news created successfully. 
-	 * 2. 409(CONFLICT) - If the newsId conflicts with any existing user.
+	 * 2. 409(CONFLICT) - If the newsId conflicts with any existing user, or with the
+	 * saved news in the body if the user already saved a news with this URL.
+	 * A created news that is a near duplicate of another news of the user is flagged
+	 * with the newsId of that news in the X-Near-Duplicate-Of header. A news without
+	 * newsId gets the next one of its author from the NewsIdAllocator.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news" using HTTP POST method
 	 */
 	@PostMapping
 	public ResponseEntity<News> createNews(@RequestBody News news){
+		News existing = newsService.getNewsByUrl(news.getAuthor(), news.getUrl());
+		if(existing != null) {
+			logger.info("In controller - {}", "News URL "+ news.getUrl() + " already saved as news ID " +existing.getNewsId()+ ".");
+			return new ResponseEntity<News>(existing, HttpStatus.CONFLICT);
+		}
+		newsIdAllocator.assign(news);
 		Boolean isNewsExists = newsService.addNews(news);
 		if(isNewsExists == true) {
 			logger.info("In controller - {}", "News created: " +news);
-			return new ResponseEntity<News>(news, HttpStatus.CREATED);
+			return new ResponseEntity<News>(news, nearDuplicateHeaders(news), HttpStatus.CREATED);
 		}
 		logger.info("In controller - {}", "News ID "+ news.getNewsId() + " already exists.");
 		return new ResponseEntity<News>(HttpStatus.CONFLICT);
 	}
 
+	/*
+	 * Define a handler method which will create many news from a JSON array in the
+	 * request body. The array is read with Jackson's streaming parser and written in
+	 * chunks of news.batch.chunk-size news, one bulk write per chunk, so the body is
+	 * never held in memory as a whole. The response is a report with the outcome of
+	 * every news (CREATED, CONFLICT or INVALID) in request order. News without
+	 * newsId get one as for a single news:
+	 * 1. 200(OK) - If the whole body was processed.
+	 * 2. 400(BAD REQUEST) - If the body is not a JSON array of news. The report
+	 * then lists the news that were processed before the error.
+	 * 
+	 * This handler method should map to the URL "/api/v1/news/batch" using HTTP POST method
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<NewsBatchReport> createNewsBatch(InputStream body) throws IOException {
+		NewsBatchReport report = new NewsBatchReport();
+		int chunkSize = newsProperties.getBatch().getChunkSize();
+		List<News> chunk = new ArrayList<>(chunkSize);
+		try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+			if(parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new JsonParseException(parser, "Expected a JSON array of news");
+			}
+			while(parser.nextToken() != JsonToken.END_ARRAY) {
+				chunk.add(objectMapper.readValue(parser, News.class));
+				if(chunk.size() == chunkSize) {
+					writeChunk(chunk, report);
+				}
+			}
+			writeChunk(chunk, report);
+		} catch (JsonProcessingException e) {
+			writeChunk(chunk, report);
+			report.setError(e.getOriginalMessage());
+			logger.info("In controller - {}", "Batch stopped after " +report.getItems().size()+ " news: " +e.getOriginalMessage());
+			return new ResponseEntity<NewsBatchReport>(report, HttpStatus.BAD_REQUEST);
+		}
+		logger.info("In controller - {}", "Batch processed: " +report);
+		return new ResponseEntity<NewsBatchReport>(report, HttpStatus.OK);
+	}
+
+	private void writeChunk(List<News> chunk, NewsBatchReport report) {
+		if(chunk.isEmpty()) {
+			return;
+		}
+		chunk.forEach(newsIdAllocator::assign);
+		for(NewsBatchItemResult result : newsService.addNewsBatch(chunk)) {
+			report.add(result);
+		}
+		chunk.clear();
+	}
+
 	/*
 	 * Define a handler method which will delete a news from a database.
 	 * This handler method should return any one of the status messages basis 
@@ -79,10 +205,15 @@ public class NewsController {
 	 * without {} and "newsId" should be replaced by a valid newsId 
 	 * without {}.
 	 * 
+	 * With If-Match the news is only deleted while the ETag of the user's news is
+	 * one of the given ones, otherwise 412(PRECONDITION FAILED) is returned.
 	 */
 	@DeleteMapping("/{userId}/{newsId}")
-	public ResponseEntity<News> deleteNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId){
-		Boolean isNewsDeleted = newsService.deleteNews(userId, newsId);
+	public ResponseEntity<News> deleteNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		Long expectedVersion = expectedVersion(userId, ifMatch);
+		newsWriteBehind.discard(userId, newsId);
+		Boolean isNewsDeleted = newsService.deleteNews(userId, newsId, expectedVersion);
 		if(isNewsDeleted == true) {
 			logger.info("In controller - {}", "News deleted for user ID: "+userId+ " and news ID: " +newsId);
 			return new ResponseEntity<News>(HttpStatus.OK);
@@ -110,6 +241,7 @@ public class NewsController {
 		try {
 			allNews = newsService.getAllNewsByUserId(userId);
 			if(allNews != null) {
+			newsWriteBehind.discard(userId);
 			newsService.deleteAllNews(userId);
 			logger.info("In controller - {}", "All News deleted for User ID - " +userId);
 			return new ResponseEntity<News>(HttpStatus.OK);
@@ -136,12 +268,25 @@ public class NewsController {
 	 * HTTP PUT method where "userId" should be replaced by a valid userId 
 	 * without {} and "newsid" should be replaced by a valid newsId without {}.
 	 * 
+	 * With news.write-behind.enabled the updates of a news in quick succession are
+	 * merged by the NewsWriteBehind and written once per news.write-behind.window.
+	 * An update with If-Match is written at once, and only while the ETag of the
+	 * user's news is one of the given ones, otherwise 412(PRECONDITION FAILED) is
+	 * returned.
 	 */
 	@PutMapping("/{userId}/{newsId}")
-	public ResponseEntity<News> updateNews(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId, @RequestBody News news) 
+	public ResponseEntity<News> updateNews(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId, @RequestBody News news,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) 
 		{
 		try {
-				News newsUpdated = newsService.updateNews(news, newsId, userId);
+				News newsUpdated;
+				if(ifMatch == null) {
+					newsUpdated = newsWriteBehind.updateNews(news, newsId, userId);
+				} else {
+					Long expectedVersion = expectedVersion(userId, ifMatch);
+					newsWriteBehind.release(userId, newsId);
+					newsUpdated = newsService.updateNews(news, newsId, userId, expectedVersion);
+				}
 				if(newsUpdated != null) {
 				logger.info("In controller - {}", "News updated for User ID: "+userId+ " and news ID: " +newsId + " is: " +news);
 				return new ResponseEntity<News>(newsUpdated, HttpStatus.OK);
@@ -154,12 +299,52 @@ public class NewsController {
 		return new ResponseEntity<News>(HttpStatus.NOT_FOUND);
 	}
 
+	/*
+	 * Define a handler method which will change only some fields of a specific news.
+	 * The request body is a JSON object with just the changed fields, a field sent
+	 * as null is cleared. The fields are written with one update of the stored news
+	 * and the whole news is returned. A buffered update of the news is written first.
+	 * With If-Match the news is only patched while the ETag of the user's news is
+	 * one of the given ones, otherwise 412(PRECONDITION FAILED) is returned.
+	 * This handler method should return any one of the status messages
+	 * basis on different situations: 
+	 * 1. 200(OK) - If the news patched successfully.
+	 * 2. 400(BAD REQUEST) - If the body names a field that can not be patched.
+	 * 3. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 
+	 * This handler method should map to the URL "/api/v1/news/{userId}/{newsId}" using 
+	 * HTTP PATCH method.
+	 */
+	@PatchMapping("/{userId}/{newsId}")
+	public ResponseEntity<News> patchNews(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId, @RequestBody NewsPatch patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		Long expectedVersion = expectedVersion(userId, ifMatch);
+		try {
+			newsWriteBehind.release(userId, newsId);
+			News patched = newsService.patchNews(userId, newsId, patch, expectedVersion);
+			if(patched != null) {
+				logger.info("In controller - {}", "News patched for User ID: "+userId+ " and news ID: " +newsId + " with: " +patch);
+				return new ResponseEntity<News>(patched, HttpStatus.OK);
+			}
+		} catch (NewsNotFoundException e) {
+			logger.info("In controller - {}", "News not found for User ID: "+userId+ " and news ID: " +newsId);
+			return new ResponseEntity<News>(HttpStatus.NOT_FOUND);
+		}
+		logger.info("In controller - {}", "News not found for User ID: "+userId+ " and news ID: " +newsId);
+		return new ResponseEntity<News>(HttpStatus.NOT_FOUND);
+	}
+
 	/*
 	 * Define a handler method which will get us the specific news by a userId.
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 
 	 * 1. 200(OK) - If the news found successfully. 
 	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 3. 304(NOT MODIFIED) - If If-None-Match holds the ETag of the user's news.
+	 * 4. 400(BAD REQUEST) - If "fields" names a field that News does not have.
+	 * A news with a buffered update is returned from the NewsWriteBehind, without
+	 * ETag, since the version of the user's news does not know the update yet.
+	 * "fields" lists the fields of the news to return, see NewsFields.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news/{userId}/{newsId}" 
 	 * using HTTP GET method where "userId" should be replaced by a valid userId 
@@ -167,13 +352,31 @@ public class NewsController {
 	 * 
 	 */
 	@GetMapping("/{userId}/{newsId}")
-	public ResponseEntity<News> getNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId){
+	public ResponseEntity<News> getNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId,
+			@RequestParam(value = "fields", required = false) String fields, WebRequest request){
+		NewsFields selected;
+		try {
+			selected = NewsFields.parse(fields);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", e.getMessage());
+			return new ResponseEntity<News>(HttpStatus.BAD_REQUEST);
+		}
+		News buffered = newsWriteBehind.pending(userId, newsId);
+		if(buffered != null) {
+			newsViewCounter.viewed(userId, newsId);
+			logger.info("In controller - {}", "The buffered news for User ID: "+userId+ " and news ID: " +newsId+ " is: "+buffered);
+			return new ResponseEntity<News>(selected == null ? buffered : selected.select(buffered), HttpStatus.OK);
+		}
+		String etag = etag(userId, selected, request);
+		if(etag != null && request.checkNotModified(etag)) {
+			return new ResponseEntity<News>(NewsETags.headers(etag), HttpStatus.NOT_MODIFIED);
+		}
 		News newsById;
 		try {
 			newsById = newsService.getNewsByNewsId(userId, newsId);
 			if(newsById != null) {
 				logger.info("In controller - {}", "The news for User ID: "+userId+ " and news ID: " +newsId+ " is: "+newsById);
-				return new ResponseEntity<News>(newsById, HttpStatus.OK);
+				return new ResponseEntity<News>(selected == null ? newsById : selected.select(newsById), NewsETags.headers(etag), HttpStatus.OK);
 			}
 		} catch (NewsNotFoundException e) {
 			logger.info("In controller - {}", "News ID "+newsId+ " not Found.");
@@ -189,16 +392,48 @@ public class NewsController {
 	 * different situations: 
 	 * 1. 200(OK) - If the news found successfully. 
 	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 3. 304(NOT MODIFIED) - If If-None-Match holds the ETag of the user's news.
 	 * This handler method should map to the URL "/api/v1/news/{userId}" using HTTP GET method
 	 * where "userId" should be replaced by a valid userId without {}.
+	 * The list only holds the news in the UserNews document; news moved to the
+	 * NewsArchive are only returned page by page, see NewsArchiver.
+	 * Requests carrying a "cursor" or "size" parameter are served page by page by
+	 * getNewsPage instead. With "collapse=true" only the first news of every group of
+	 * near duplicates is returned. "fields" lists the fields of the news to return,
+	 * see NewsFields; only these are read from the database, and an unknown field
+	 * is answered with 400(BAD REQUEST).
 	 * 
+	 * The ETag is the version of the user's news, which every change increments,
+	 * with the fields and the Accept header of the request, see NewsETags. The
+	 * version is read from Mongo before the news, so a response never carries a
+	 * newer version than its news, and a matching If-None-Match is answered
+	 * without loading them.
+	 * While news of the user have buffered updates in the NewsWriteBehind they are
+	 * returned in their place, without ETag.
 	 */
-	@GetMapping("/{userId}")
-	public ResponseEntity<List<News>> getAllNewsByUserId(@PathVariable("userId") String userId){
-		List<News> allNews = newsService.getAllNewsByUserId(userId);
+	@GetMapping(value = "/{userId}", params = {"!cursor", "!size"})
+	public ResponseEntity<List<News>> getAllNewsByUserId(@PathVariable("userId") String userId,
+			@RequestParam(value = "collapse", defaultValue = "false") boolean collapse,
+			@RequestParam(value = "fields", required = false) String fields, WebRequest request){
+		NewsFields selected;
+		try {
+			selected = NewsFields.parse(fields);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", e.getMessage());
+			return new ResponseEntity<List<News>>(HttpStatus.BAD_REQUEST);
+		}
+		String etag = newsWriteBehind.hasPending(userId) ? null : etag(userId, selected, request);
+		if(etag != null && request.checkNotModified(etag)) {
+			logger.info("In controller - {}", "News of User ID "+userId+ " not modified.");
+			return new ResponseEntity<List<News>>(NewsETags.headers(etag), HttpStatus.NOT_MODIFIED);
+		}
+		List<News> allNews = overlay(userId, newsService.getAllNewsByUserId(userId, selected), selected);
+		if(allNews != null && collapse) {
+			allNews = nearDuplicateIndex.collapse(userId, allNews);
+		}
 		if(allNews != null) {
-			logger.info("In controller - {}", "List of all news: "+allNews);
-			return new ResponseEntity<List<News>>(allNews, HttpStatus.OK);
+			logger.info("In controller - {}", "Number of news for User ID "+userId+ ": "+allNews.size());
+			return new ResponseEntity<List<News>>(allNews, NewsETags.headers(etag), HttpStatus.OK);
 		}
 		else {
 			logger.info("In controller - {}", "User ID "+userId+ " not Found.");
@@ -206,4 +441,225 @@ public class NewsController {
 		}
 	}
 
+	/*
+	 * Define a handler method which will stream all news created by a specific user
+	 * as newline delimited JSON, one News per line, when the client sends
+	 * "Accept: application/x-ndjson". Every News is written as soon as it is read
+	 * from the Mongo cursor, so memory use does not depend on the number of news.
+	 * Offloaded contents are loaded, so the export holds every content.
+	 * The response is always 200(OK); a user without news gets an empty body.
+	 * This handler method should map to the URL "/api/v1/news/{userId}" using HTTP GET method.
+	 */
+	@GetMapping(value = "/{userId}", params = {"!cursor", "!size"}, produces = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamAllNewsByUserId(@PathVariable("userId") String userId){
+		logger.info("In controller - {}", "Streaming all news for User ID " +userId);
+		StreamingResponseBody body = (OutputStream out) -> writeNdjson(userId, out);
+		return new ResponseEntity<StreamingResponseBody>(body, HttpStatus.OK);
+	}
+
+	private void writeNdjson(String userId, OutputStream out) throws IOException {
+		ObjectWriter writer = objectMapper.writerFor(News.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		try (Stream<News> allNews = newsService.streamAllNews(userId);
+				JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			Iterator<News> iterator = allNews.iterator();
+			while(iterator.hasNext()) {
+				writer.writeValue(generator, iterator.next());
+				generator.writeRaw('\n');
+			}
+		}
+	}
+
+	/*
+	 * Define a handler method which will show one page of the news created by a
+	 * specific user, newest first. "size" is the page size (news.page.default-size
+	 * when missing, capped by news.page.max-size) and "cursor" is the nextCursor of
+	 * the previous page. "collapse=true" drops the near duplicates of news earlier
+	 * on the same page. This handler method should return any one of the status
+	 * messages basis on different situations:
+	 * 1. 200(OK) - If the page was read successfully.
+	 * 2. 400(BAD REQUEST) - If the cursor or the fields are not valid.
+	 * 3. 404(NOT FOUND) - If the user has no news.
+	 * 4. 304(NOT MODIFIED) - If If-None-Match holds the ETag of the user's news.
+	 * Buffered updates of the NewsWriteBehind are shown, and "fields" selects the
+	 * fields of the news, as for all news of the user.
+	 * This handler method should map to the URL "/api/v1/news/{userId}?cursor=&size="
+	 * using HTTP GET method.
+	 */
+	@GetMapping("/{userId}")
+	public ResponseEntity<NewsPage> getNewsPage(@PathVariable("userId") String userId,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", required = false) Integer size,
+			@RequestParam(value = "collapse", defaultValue = "false") boolean collapse,
+			@RequestParam(value = "fields", required = false) String fields, WebRequest request){
+		NewsCursor after;
+		NewsFields selected;
+		try {
+			after = cursor == null ? null : NewsCursor.decode(cursor);
+			selected = NewsFields.parse(fields);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", e.getMessage());
+			return new ResponseEntity<NewsPage>(HttpStatus.BAD_REQUEST);
+		}
+		String etag = newsWriteBehind.hasPending(userId) ? null : etag(userId, selected, request);
+		if(etag != null && request.checkNotModified(etag)) {
+			return new ResponseEntity<NewsPage>(NewsETags.headers(etag), HttpStatus.NOT_MODIFIED);
+		}
+		NewsPage page = newsService.getNewsPage(userId, after, newsProperties.getPage().resolve(size), selected);
+		page.setNews(overlay(userId, page.getNews(), selected));
+		if(after == null && page.getNews().isEmpty()) {
+			logger.info("In controller - {}", "User ID "+userId+ " not Found.");
+			return new ResponseEntity<NewsPage>(HttpStatus.NOT_FOUND);
+		}
+		if(collapse) {
+			page.setNews(nearDuplicateIndex.collapse(userId, page.getNews()));
+		}
+		logger.info("In controller - {}", "Page of news for User ID "+userId+ ": " +page);
+		return new ResponseEntity<NewsPage>(page, NewsETags.headers(etag), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will show one page of the news of several users
+	 * merged into one timeline, newest first. "users" lists the users (at most
+	 * news.page.max-timeline-users), "size" is the page size as for a single user
+	 * and "cursor" is the nextCursor of the previous timeline page. This handler
+	 * method should return any one of the status messages basis on different
+	 * situations:
+	 * 1. 200(OK) - If the page was read successfully, even if it is empty.
+	 * 2. 400(BAD REQUEST) - If there are no or too many users, or the cursor is not valid.
+	 * This handler method should map to the URL
+	 * "/api/v1/news/timeline?users=&cursor=&size=" using HTTP GET method.
+	 */
+	@GetMapping("/timeline")
+	public ResponseEntity<NewsPage> getTimeline(@RequestParam("users") List<String> users,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", required = false) Integer size){
+		if(users.isEmpty() || users.size() > newsProperties.getPage().getMaxTimelineUsers()) {
+			logger.info("In controller - {}", "Timeline of " +users.size()+ " users refused");
+			return new ResponseEntity<NewsPage>(HttpStatus.BAD_REQUEST);
+		}
+		TimelineCursor after;
+		try {
+			after = cursor == null ? null : TimelineCursor.decode(cursor);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", "Invalid cursor " +cursor);
+			return new ResponseEntity<NewsPage>(HttpStatus.BAD_REQUEST);
+		}
+		NewsPage page = newsTimeline.getTimeline(users, after, newsProperties.getPage().resolve(size));
+		logger.info("In controller - {}", "Timeline of " +users.size()+ " users: " +page);
+		return new ResponseEntity<NewsPage>(page, HttpStatus.OK);
+	}
+
+	private HttpHeaders nearDuplicateHeaders(News news) {
+		HttpHeaders headers = new HttpHeaders();
+		Integer duplicateOf = news.getNewsId() == null ? null : nearDuplicateIndex.duplicateOf(news.getAuthor(), news.getNewsId());
+		if(duplicateOf != null) {
+			headers.set(NEAR_DUPLICATE_OF, duplicateOf.toString());
+		}
+		return headers;
+	}
+
+	/*
+	 * The version of the user's news that If-Match expects, null without one. The
+	 * NewsService compares it in the same write, so a write of another request in
+	 * between fails the precondition as well.
+	 */
+	private Long expectedVersion(String userId, String ifMatch) {
+		return ifMatch == null ? null : NewsETags.expectedVersion(ifMatch, () -> newsService.getNewsVersion(userId));
+	}
+
+	/*
+	 * A write whose If-Match names another version of the user's news than the
+	 * current one is answered with 412(PRECONDITION FAILED).
+	 */
+	@ExceptionHandler(NewsPreconditionFailedException.class)
+	public ResponseEntity<News> preconditionFailed(NewsPreconditionFailedException e) {
+		logger.info("In controller - {}", "If-Match failed: " +e.getMessage());
+		return new ResponseEntity<News>(HttpStatus.PRECONDITION_FAILED);
+	}
+
+	/*
+	 * A write that still found the user's news changed by other writes after
+	 * news.concurrency.max-attempts is answered with 409(CONFLICT).
+	 */
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<News> writeConflict(OptimisticLockingFailureException e) {
+		logger.info("In controller - {}", "Write conflict: " +e.getMessage());
+		return new ResponseEntity<News>(HttpStatus.CONFLICT);
+	}
+
+	/* Puts the buffered news in place of the read ones, cut down to the fields. */
+	private List<News> overlay(String userId, List<News> news, NewsFields fields) {
+		List<News> overlaid = newsWriteBehind.overlay(userId, news);
+		return fields == null ? overlaid : fields.select(overlaid);
+	}
+
+	/* The ETag of the user's news for the request, null if the user has none. */
+	private String etag(String userId, NewsFields fields, WebRequest request) {
+		Long version = newsService.getNewsVersion(userId);
+		return version == null ? null : NewsETags.of(version, fields, request.getHeader(HttpHeaders.ACCEPT));
+	}
+
+	/*
+	 * Define a handler method which will show how many news a specific user has,
+	 * in total, per newsSourceId and per day. The counts are read from the
+	 * NewsStats of the user, not from the news. This handler method should return
+	 * any one of the status messages basis on different situations:
+	 * 1. 200(OK) - If the user has stats.
+	 * 2. 404(NOT FOUND) - If the user has never had news.
+	 * This handler method should map to the URL "/api/v1/news/{userId}/stats"
+	 * using HTTP GET method.
+	 */
+	@GetMapping("/{userId}/stats")
+	public ResponseEntity<NewsStats> getNewsStats(@PathVariable("userId") String userId){
+		NewsStats stats = newsStatsRollup.get(userId);
+		if(stats == null) {
+			logger.info("In controller - {}", "No news stats for User ID " +userId);
+			return new ResponseEntity<NewsStats>(HttpStatus.NOT_FOUND);
+		}
+		logger.info("In controller - {}", "News stats: " +stats);
+		return new ResponseEntity<NewsStats>(stats, HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will search the news of a specific user by the
+	 * words of their title, description and content, best match first. "size" limits
+	 * the number of results in the same way as the page size. This handler method
+	 * should return any one of the status messages basis on different situations:
+	 * 1. 200(OK) - With the matching news, which may be none.
+	 * 2. 400(BAD REQUEST) - If the query is empty.
+	 * This handler method should map to the URL "/api/v1/news/{userId}/search?q=&size="
+	 * using HTTP GET method.
+	 */
+	@GetMapping("/{userId}/search")
+	public ResponseEntity<List<News>> searchNews(@PathVariable("userId") String userId,
+			@RequestParam("q") String query,
+			@RequestParam(value = "size", required = false) Integer size){
+		if(query.trim().isEmpty()) {
+			logger.info("In controller - {}", "Empty search query for User ID " +userId);
+			return new ResponseEntity<List<News>>(HttpStatus.BAD_REQUEST);
+		}
+		List<News> found = newsService.searchNews(userId, query, newsProperties.getPage().resolve(size));
+		logger.info("In controller - {}", "Search '" +query+ "' for User ID " +userId+ " found " +found.size()+ " news");
+		return new ResponseEntity<List<News>>(found, HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will return the most viewed news of all users
+	 * in the last news.trending.window, most viewed first. The views are estimated
+	 * and counted by this instance only. "size" is bounded by news.trending.capacity.
+	 * This handler method should return any one of the status messages basis on
+	 * different situations:
+	 * 1. 200(OK) - With the trending news, which may be none.
+	 * This handler method should map to the URL "/api/v1/news/trending?size=" using
+	 * HTTP GET method.
+	 */
+	@GetMapping("/trending")
+	public ResponseEntity<List<TrendingNews>> getTrendingNews(
+			@RequestParam(value = "size", defaultValue = "10") int size){
+		List<TrendingNews> trending = newsViewCounter.trending(Math.min(Math.max(size, 1), newsViewCounter.capacity()));
+		return new ResponseEntity<List<TrendingNews>>(trending, HttpStatus.OK);
+	}
+
 }
@@ -0,0 +1,90 @@
+package com.stackroute.newz.controller;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpHeaders;
+
+import com.stackroute.newz.model.NewsFields;
+
+/*
+ * Entity tags of the news endpoints, shared by the servlet and the reactive
+ * controller. A tag is the version of the user's news, see
+ * NewsService.getNewsVersion, followed by a hash of the selected fields and of
+ * the Accept header, since both change the body: "3" for all fields without
+ * Accept, "3-5d1c2a0e" otherwise. The responses name Accept in Vary.
+ */
+final class NewsETags {
+
+	/* A version that the news of no user have. */
+	static final Long NO_VERSION = -1L;
+
+	private NewsETags() {
+	}
+
+	static String of(long version, NewsFields fields, String accept) {
+		if (fields == null && accept == null) {
+			return "\"" + version + "\"";
+		}
+		String variant = String.join(",", fields == null ? Collections.<String>emptySet() : fields.getFields())
+				+ ";" + (accept == null ? "" : accept);
+		return "\"" + version + "-" + Integer.toHexString(variant.hashCode()) + "\"";
+	}
+
+	/* ETag and Vary headers of a response, none for a null tag. */
+	static HttpHeaders headers(String etag) {
+		HttpHeaders headers = new HttpHeaders();
+		if (etag != null) {
+			headers.setETag(etag);
+			headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT));
+		}
+		return headers;
+	}
+
+	/*
+	 * Returns the version of the user's news that a write with an If-Match header
+	 * expects, whatever the variants of its tags: null for "*", which matches any
+	 * version, and NO_VERSION if no tag names a version. Of several named versions
+	 * the current one is expected if it is among them; the current version is only
+	 * read then.
+	 */
+	static Long expectedVersion(String ifMatch, Supplier<Long> current) {
+		Set<Long> versions = new LinkedHashSet<>();
+		for (String tag : ifMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.equals("*")) {
+				return null;
+			}
+			Long version = version(tag);
+			if (version != null) {
+				versions.add(version);
+			}
+		}
+		if (versions.isEmpty()) {
+			return NO_VERSION;
+		}
+		if (versions.size() > 1) {
+			Long version = current.get();
+			if (versions.contains(version)) {
+				return version;
+			}
+		}
+		return versions.iterator().next();
+	}
+
+	/* The version named by a tag of this class, or null for any other tag. */
+	static Long version(String etag) {
+		if (etag.length() < 2 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+			return null;
+		}
+		String value = etag.substring(1, etag.length() - 1);
+		int variant = value.indexOf('-');
+		try {
+			return Long.valueOf(variant < 0 ? value : value.substring(0, variant));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
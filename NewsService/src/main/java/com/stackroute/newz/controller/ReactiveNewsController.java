@@ -0,0 +1,385 @@
+package com.stackroute.newz.controller;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.NewsStats;
+import com.stackroute.newz.model.TrendingNews;
+import com.stackroute.newz.search.NearDuplicateIndex;
+import com.stackroute.newz.service.NewsIdAllocator;
+import com.stackroute.newz.service.ReactiveNewsService;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.trending.NewsViewCounter;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/*
+ * WebFlux version of NewsController, active with the "reactive" profile. It serves
+ * the same /api/v1/news contract with the same status codes, except for
+ * POST /api/v1/news/batch and GET /api/v1/news/timeline which are only available
+ * on the servlet stack. The news of a user are answered with the same ETags,
+ * see NewsETags, and writes of a single news take the same If-Match.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/v1/news")
+public class ReactiveNewsController {
+
+	private ReactiveNewsService newsService;
+	private NewsProperties newsProperties;
+	private NearDuplicateIndex nearDuplicateIndex;
+	private NewsViewCounter newsViewCounter;
+	private NewsIdAllocator newsIdAllocator;
+	private NewsStatsRollup newsStatsRollup;
+
+	@Autowired
+	public ReactiveNewsController(ReactiveNewsService newsService, NewsProperties newsProperties,
+			NearDuplicateIndex nearDuplicateIndex, NewsViewCounter newsViewCounter, NewsIdAllocator newsIdAllocator,
+			NewsStatsRollup newsStatsRollup) {
+		this.newsService = newsService;
+		this.newsProperties = newsProperties;
+		this.nearDuplicateIndex = nearDuplicateIndex;
+		this.newsViewCounter = newsViewCounter;
+		this.newsIdAllocator = newsIdAllocator;
+		this.newsStatsRollup = newsStatsRollup;
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/*
+	 * 1. 201(CREATED) - If the news created successfully.
+	 * 2. 409(CONFLICT) - If the newsId conflicts with any existing user, or with the
+	 * saved news in the body if the user already saved a news with this URL.
+	 * Near duplicates are flagged as in NewsController. A news without newsId gets
+	 * one from the NewsIdAllocator, which may reserve a block on boundedElastic.
+	 */
+	@PostMapping
+	public Mono<ResponseEntity<News>> createNews(@RequestBody News news){
+		Mono<ResponseEntity<News>> duplicate = newsService.getNewsByUrl(news.getAuthor(), news.getUrl())
+				.map(existing -> {
+					logger.info("In controller - {}", "News URL "+ news.getUrl() + " already saved as news ID " +existing.getNewsId()+ ".");
+					return new ResponseEntity<News>(existing, HttpStatus.CONFLICT);
+				});
+		Mono<Void> assigned = Mono.fromRunnable(() -> newsIdAllocator.assign(news)).subscribeOn(Schedulers.boundedElastic()).then();
+		return duplicate.switchIfEmpty(assigned.then(Mono.defer(() -> newsService.addNews(news))).map(created -> {
+			if(created) {
+				logger.info("In controller - {}", "News created: " +news);
+				return new ResponseEntity<News>(news, nearDuplicateHeaders(news), HttpStatus.CREATED);
+			}
+			logger.info("In controller - {}", "News ID "+ news.getNewsId() + " already exists.");
+			return new ResponseEntity<News>(HttpStatus.CONFLICT);
+		}));
+	}
+
+	/*
+	 * 1. 200(OK) - If the news deleted successfully from database.
+	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 3. 412(PRECONDITION FAILED) - If If-Match names another version of the
+	 *    user's news, as in NewsController.
+	 */
+	@DeleteMapping("/{userId}/{newsId}")
+	public Mono<ResponseEntity<News>> deleteNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		return expectedVersion(userId, ifMatch).flatMap(expected -> newsService.deleteNews(userId, newsId, expected.orElse(null))).map(deleted -> {
+			if(deleted) {
+				logger.info("In controller - {}", "News deleted for user ID: "+userId+ " and news ID: " +newsId);
+				return new ResponseEntity<News>(HttpStatus.OK);
+			}
+			logger.info("In controller - {}", "News not found for user ID: "+userId+ " and news ID: " +newsId);
+			return new ResponseEntity<News>(HttpStatus.NOT_FOUND);
+		});
+	}
+
+	/*
+	 * 1. 200(OK) - If the news of the user deleted successfully from database.
+	 * 2. 404(NOT FOUND) - If the user is not found.
+	 */
+	@DeleteMapping("/{userId}")
+	public Mono<ResponseEntity<News>> deleteNews(@PathVariable("userId") String userId){
+		return newsService.deleteAllNews(userId)
+				.map(deleted -> {
+					logger.info("In controller - {}", "All News deleted for User ID - " +userId);
+					return new ResponseEntity<News>(HttpStatus.OK);
+				})
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "News not found for User ID - " +userId);
+					return Mono.just(new ResponseEntity<News>(HttpStatus.NOT_FOUND));
+				});
+	}
+
+	/*
+	 * 1. 200(OK) - If the news updated successfully.
+	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 3. 412(PRECONDITION FAILED) - If If-Match names another version of the
+	 *    user's news.
+	 */
+	@PutMapping("/{userId}/{newsId}")
+	public Mono<ResponseEntity<News>> updateNews(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId, @RequestBody News news,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		return expectedVersion(userId, ifMatch).flatMap(expected -> newsService.updateNews(news, newsId, userId, expected.orElse(null)))
+				.map(updated -> {
+					logger.info("In controller - {}", "News updated for User ID: "+userId+ " and news ID: " +newsId + " is: " +updated);
+					return new ResponseEntity<News>(updated, HttpStatus.OK);
+				})
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "News not found for User ID: "+userId+ " and news ID: " +newsId);
+					return Mono.just(new ResponseEntity<News>(HttpStatus.NOT_FOUND));
+				});
+	}
+
+	/*
+	 * 1. 200(OK) - If the news patched successfully.
+	 * 2. 400(BAD REQUEST) - If the body names a field that can not be patched.
+	 * 3. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 4. 412(PRECONDITION FAILED) - If If-Match names another version of the
+	 *    user's news.
+	 */
+	@PatchMapping("/{userId}/{newsId}")
+	public Mono<ResponseEntity<News>> patchNews(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId, @RequestBody NewsPatch patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		return expectedVersion(userId, ifMatch).flatMap(expected -> newsService.patchNews(userId, newsId, patch, expected.orElse(null)))
+				.map(patched -> {
+					logger.info("In controller - {}", "News patched for User ID: "+userId+ " and news ID: " +newsId + " with: " +patch);
+					return new ResponseEntity<News>(patched, HttpStatus.OK);
+				})
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "News not found for User ID: "+userId+ " and news ID: " +newsId);
+					return Mono.just(new ResponseEntity<News>(HttpStatus.NOT_FOUND));
+				});
+	}
+
+	/*
+	 * 1. 200(OK) - If the news found successfully.
+	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 3. 304(NOT MODIFIED) - If If-None-Match holds the ETag of the user's news.
+	 * 4. 400(BAD REQUEST) - If "fields" names a field that News does not have.
+	 * "fields" lists the fields of the news to return, see NewsFields.
+	 */
+	@GetMapping("/{userId}/{newsId}")
+	public Mono<ResponseEntity<News>> getNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId,
+			@RequestParam(value = "fields", required = false) String fields, ServerWebExchange exchange){
+		NewsFields selected;
+		try {
+			selected = NewsFields.parse(fields);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", e.getMessage());
+			return Mono.just(new ResponseEntity<News>(HttpStatus.BAD_REQUEST));
+		}
+		return conditional(userId, selected, exchange, headers -> newsService.getNewsByNewsId(userId, newsId)
+				.map(news -> new ResponseEntity<News>(selected == null ? news : selected.select(news), headers, HttpStatus.OK))
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "News ID "+newsId+ " not Found.");
+					return Mono.just(new ResponseEntity<News>(HttpStatus.NOT_FOUND));
+				}));
+	}
+
+	/*
+	 * 1. 200(OK) - If the news found successfully.
+	 * 2. 404(NOT FOUND) - If the user has no news.
+	 * 3. 304(NOT MODIFIED) - If If-None-Match holds the ETag of the user's news.
+	 * 4. 400(BAD REQUEST) - If "fields" names a field that News does not have.
+	 * "collapse=true" keeps only the first news of every group of near duplicates.
+	 * "fields" lists the fields of the news to return, see NewsFields; only these
+	 * are read from the database.
+	 */
+	@GetMapping(value = "/{userId}", params = {"!cursor", "!size"})
+	public Mono<ResponseEntity<List<News>>> getAllNewsByUserId(@PathVariable("userId") String userId,
+			@RequestParam(value = "collapse", defaultValue = "false") boolean collapse,
+			@RequestParam(value = "fields", required = false) String fields, ServerWebExchange exchange){
+		NewsFields selected;
+		try {
+			selected = NewsFields.parse(fields);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", e.getMessage());
+			return Mono.just(new ResponseEntity<List<News>>(HttpStatus.BAD_REQUEST));
+		}
+		return conditional(userId, selected, exchange, headers -> newsService.getAllNewsByUserId(userId, selected).collectList().map(allNews -> {
+			if(collapse) {
+				allNews = nearDuplicateIndex.collapse(userId, allNews);
+			}
+			if(allNews.isEmpty()) {
+				logger.info("In controller - {}", "User ID "+userId+ " not Found.");
+				return new ResponseEntity<List<News>>(HttpStatus.NOT_FOUND);
+			}
+			logger.info("In controller - {}", "Number of news for User ID "+userId+ ": "+allNews.size());
+			return new ResponseEntity<List<News>>(selected == null ? allNews : selected.select(allNews), headers, HttpStatus.OK);
+		}));
+	}
+
+	/*
+	 * Streams all news of the user as newline delimited JSON. Each News is encoded as
+	 * soon as it arrives from the Mongo cursor, with back pressure from the client.
+	 */
+	@GetMapping(value = "/{userId}", params = {"!cursor", "!size"}, produces = NewsController.APPLICATION_NDJSON_VALUE)
+	public Flux<News> streamAllNewsByUserId(@PathVariable("userId") String userId){
+		logger.info("In controller - {}", "Streaming all news for User ID " +userId);
+		return newsService.streamAllNews(userId);
+	}
+
+	/*
+	 * 1. 200(OK) - If the page was read successfully.
+	 * 2. 400(BAD REQUEST) - If the cursor or the fields are not valid.
+	 * 3. 404(NOT FOUND) - If the user has no news.
+	 * 4. 304(NOT MODIFIED) - If If-None-Match holds the ETag of the user's news.
+	 * "fields" selects the fields of the news, as for all news of the user.
+	 */
+	@GetMapping("/{userId}")
+	public Mono<ResponseEntity<NewsPage>> getNewsPage(@PathVariable("userId") String userId,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", required = false) Integer size,
+			@RequestParam(value = "collapse", defaultValue = "false") boolean collapse,
+			@RequestParam(value = "fields", required = false) String fields, ServerWebExchange exchange){
+		NewsCursor after;
+		NewsFields selected;
+		try {
+			after = cursor == null ? null : NewsCursor.decode(cursor);
+			selected = NewsFields.parse(fields);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", e.getMessage());
+			return Mono.just(new ResponseEntity<NewsPage>(HttpStatus.BAD_REQUEST));
+		}
+		return conditional(userId, selected, exchange, headers -> newsService.getNewsPage(userId, after, newsProperties.getPage().resolve(size), selected).map(page -> {
+			if(after == null && page.getNews().isEmpty()) {
+				logger.info("In controller - {}", "User ID "+userId+ " not Found.");
+				return new ResponseEntity<NewsPage>(HttpStatus.NOT_FOUND);
+			}
+			if(collapse) {
+				page.setNews(nearDuplicateIndex.collapse(userId, page.getNews()));
+			}
+			if(selected != null) {
+				page.setNews(selected.select(page.getNews()));
+			}
+			return new ResponseEntity<NewsPage>(page, headers, HttpStatus.OK);
+		}));
+	}
+
+	/*
+	 * 1. 200(OK) - If the user has stats.
+	 * 2. 404(NOT FOUND) - If the user has never had news.
+	 * The NewsStats are read by the NewsStatsRollup on boundedElastic.
+	 */
+	@GetMapping("/{userId}/stats")
+	public Mono<ResponseEntity<NewsStats>> getNewsStats(@PathVariable("userId") String userId){
+		return Mono.fromCallable(() -> newsStatsRollup.get(userId)).subscribeOn(Schedulers.boundedElastic())
+				.map(stats -> {
+					logger.info("In controller - {}", "News stats: " +stats);
+					return new ResponseEntity<NewsStats>(stats, HttpStatus.OK);
+				})
+				.defaultIfEmpty(new ResponseEntity<NewsStats>(HttpStatus.NOT_FOUND));
+	}
+
+	/*
+	 * 1. 200(OK) - With the matching news, which may be none.
+	 * 2. 400(BAD REQUEST) - If the query is empty.
+	 */
+	@GetMapping("/{userId}/search")
+	public Mono<ResponseEntity<List<News>>> searchNews(@PathVariable("userId") String userId,
+			@RequestParam("q") String query,
+			@RequestParam(value = "size", required = false) Integer size){
+		if(query.trim().isEmpty()) {
+			logger.info("In controller - {}", "Empty search query for User ID " +userId);
+			return Mono.just(new ResponseEntity<List<News>>(HttpStatus.BAD_REQUEST));
+		}
+		return newsService.searchNews(userId, query, newsProperties.getPage().resolve(size)).collectList()
+				.map(found -> new ResponseEntity<List<News>>(found, HttpStatus.OK));
+	}
+
+	/*
+	 * 1. 200(OK) - With the trending news, which may be none. Answered from memory.
+	 */
+	@GetMapping("/trending")
+	public Mono<ResponseEntity<List<TrendingNews>>> getTrendingNews(
+			@RequestParam(value = "size", defaultValue = "10") int size){
+		List<TrendingNews> trending = newsViewCounter.trending(Math.min(Math.max(size, 1), newsViewCounter.capacity()));
+		return Mono.just(new ResponseEntity<List<TrendingNews>>(trending, HttpStatus.OK));
+	}
+
+	/*
+	 * Answers with 304(NOT MODIFIED) when If-None-Match holds the ETag of the
+	 * user's news, and otherwise with the given response, which is passed the
+	 * ETag headers. Users without news get no ETag.
+	 */
+	private <T> Mono<ResponseEntity<T>> conditional(String userId, NewsFields fields, ServerWebExchange exchange,
+			Function<HttpHeaders, Mono<ResponseEntity<T>>> response) {
+		String accept = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT);
+		return newsService.getNewsVersion(userId)
+				.map(version -> Optional.of(NewsETags.of(version, fields, accept)))
+				.defaultIfEmpty(Optional.empty())
+				.flatMap(etag -> {
+					HttpHeaders headers = NewsETags.headers(etag.orElse(null));
+					if(etag.isPresent() && exchange.checkNotModified(etag.get())) {
+						return Mono.just(new ResponseEntity<T>(headers, HttpStatus.NOT_MODIFIED));
+					}
+					return response.apply(headers);
+				});
+	}
+
+	/*
+	 * The version of the user's news that If-Match expects, empty without one. The
+	 * ReactiveNewsService compares it in the same write. NewsETags only asks for
+	 * the current version when several tags are given, and then it is read
+	 * beforehand, as NewsETags asks for it without a Mono.
+	 */
+	private Mono<Optional<Long>> expectedVersion(String userId, String ifMatch) {
+		if(ifMatch == null) {
+			return Mono.just(Optional.empty());
+		}
+		if(!ifMatch.contains(",")) {
+			return Mono.just(Optional.ofNullable(NewsETags.expectedVersion(ifMatch, () -> null)));
+		}
+		return newsService.getNewsVersion(userId).defaultIfEmpty(0L)
+				.map(current -> Optional.ofNullable(NewsETags.expectedVersion(ifMatch, () -> current)));
+	}
+
+	/*
+	 * A write whose If-Match names another version of the user's news than the
+	 * current one is answered with 412(PRECONDITION FAILED).
+	 */
+	@ExceptionHandler(NewsPreconditionFailedException.class)
+	public ResponseEntity<News> preconditionFailed(NewsPreconditionFailedException e) {
+		logger.info("In controller - {}", "If-Match failed: " +e.getMessage());
+		return new ResponseEntity<News>(HttpStatus.PRECONDITION_FAILED);
+	}
+
+	private HttpHeaders nearDuplicateHeaders(News news) {
+		HttpHeaders headers = new HttpHeaders();
+		Integer duplicateOf = news.getNewsId() == null ? null : nearDuplicateIndex.duplicateOf(news.getAuthor(), news.getNewsId());
+		if(duplicateOf != null) {
+			headers.set(NewsController.NEAR_DUPLICATE_OF, duplicateOf.toString());
+		}
+		return headers;
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.stackroute.newz.dedup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.service.NewsChangeListener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Remembers the URL of every news saved by a user in a ScalableBloomFilter, so
+ * that the duplicate check of a new news only reads Mongo when its URL was
+ * possibly saved before. It is kept up to date as a NewsChangeListener. URLs of
+ * deleted or changed news stay in the filter and only cost an unneeded lookup.
+ *
+ * The filter is written to news.dedup.snapshot at shutdown and read back at the
+ * next start. The snapshot is deleted once it was read, so after a crash the
+ * filter is rebuilt from Mongo by the NewsUrlFilterLoader instead of trusting a
+ * snapshot that misses the news saved since. Until the filter is loaded every
+ * URL is reported as possibly saved. News saved by other instances are not seen
+ * before the next rebuild.
+ */
+@Component
+public class NewsUrlFilter implements NewsChangeListener, MeterBinder, InitializingBean, DisposableBean {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private NewsProperties.Dedup properties;
+	private volatile ScalableBloomFilter filter;
+	private volatile ScalableBloomFilter rebuilding;
+	private volatile boolean ready;
+	private Counter skipped;
+	private Counter checked;
+
+	@Autowired
+	public NewsUrlFilter(NewsProperties newsProperties) {
+		this.properties = newsProperties.getDedup();
+		this.filter = newFilter();
+	}
+
+	/*
+	 * Returns false if no news of the user was saved with this URL, true if one
+	 * possibly was.
+	 */
+	public boolean mightContain(String userId, String url) {
+		if (!ready) {
+			return true;
+		}
+		boolean mightContain = filter.mightContain(key(userId, url));
+		Counter counter = mightContain ? checked : skipped;
+		if (counter != null) {
+			counter.increment();
+		}
+		return mightContain;
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	/*
+	 * Replaces the filter with one built from the given news. URLs saved while it
+	 * is built are added to both filters.
+	 */
+	public void rebuild(Stream<NewsArticle> allNews) {
+		ScalableBloomFilter rebuilt = newFilter();
+		rebuilding = rebuilt;
+		try {
+			allNews.forEach(article -> put(rebuilt, article.getUserId(), article.getUrl()));
+			filter = rebuilt;
+			ready = true;
+		} finally {
+			rebuilding = null;
+		}
+	}
+
+	@Override
+	public void newsSaved(String userId, News news) {
+		put(filter, userId, news.getUrl());
+		ScalableBloomFilter next = rebuilding;
+		if (next != null) {
+			put(next, userId, news.getUrl());
+		}
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		Path snapshot = Paths.get(properties.getSnapshot());
+		if (!Files.exists(snapshot)) {
+			return;
+		}
+		try (InputStream in = Files.newInputStream(snapshot)) {
+			filter = ScalableBloomFilter.readFrom(new DataInputStream(new BufferedInputStream(in)));
+			ready = true;
+			logger.info("In dedup - {}", "Read " + filter.size() + " news URLs from " + snapshot + ".");
+		} catch (IOException e) {
+			logger.warn("In dedup - {}", "Ignoring unreadable snapshot " + snapshot + ": " + e.getMessage());
+		}
+		try {
+			Files.delete(snapshot);
+		} catch (IOException e) {
+			logger.warn("In dedup - {}", "Can not delete snapshot " + snapshot + ": " + e.getMessage());
+		}
+	}
+
+	/*
+	 * Writes the snapshot to a temporary file first, so that a crash while writing
+	 * never leaves a truncated snapshot behind.
+	 */
+	@Override
+	public void destroy() {
+		if (!ready) {
+			return;
+		}
+		Path snapshot = Paths.get(properties.getSnapshot()).toAbsolutePath();
+		try {
+			Path written = Files.createTempFile(snapshot.getParent(), snapshot.getFileName().toString(), ".tmp");
+			try (OutputStream out = Files.newOutputStream(written)) {
+				DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+				filter.writeTo(data);
+				data.flush();
+			}
+			Files.move(written, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			logger.info("In dedup - {}", "Wrote " + filter.size() + " news URLs to " + snapshot + ".");
+		} catch (IOException e) {
+			logger.warn("In dedup - {}", "Can not write snapshot " + snapshot + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("news.dedup.filter.urls", this, urlFilter -> urlFilter.filter.size()).register(registry);
+		Gauge.builder("news.dedup.filter.bytes", this, urlFilter -> urlFilter.filter.sizeInBytes()).register(registry);
+		skipped = Counter.builder("news.dedup.checks").tag("result", "new").register(registry);
+		checked = Counter.builder("news.dedup.checks").tag("result", "maybe").register(registry);
+	}
+
+	private ScalableBloomFilter newFilter() {
+		return new ScalableBloomFilter(properties.getExpectedUrls(), properties.getFalsePositiveRate());
+	}
+
+	private static void put(ScalableBloomFilter filter, String userId, String url) {
+		if (url != null) {
+			filter.put(key(userId, url));
+		}
+	}
+
+	private static String key(String userId, String url) {
+		return userId + '\n' + url;
+	}
+}
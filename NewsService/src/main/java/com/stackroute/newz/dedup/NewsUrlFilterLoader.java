@@ -0,0 +1,50 @@
+package com.stackroute.newz.dedup;
+
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.service.NewsService;
+
+/*
+ * Rebuilds the NewsUrlFilter from Mongo at startup when no snapshot was read,
+ * after any migration has run. Disabled with news.dedup.rebuild-on-startup=false,
+ * in which case every new news is checked in Mongo until the next clean restart.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "news.dedup.rebuild-on-startup", havingValue = "true", matchIfMissing = true)
+public class NewsUrlFilterLoader implements ApplicationRunner {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private NewsService newsService;
+	private NewsUrlFilter newsUrlFilter;
+
+	@Autowired
+	public NewsUrlFilterLoader(NewsService newsService, NewsUrlFilter newsUrlFilter) {
+		this.newsService = newsService;
+		this.newsUrlFilter = newsUrlFilter;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if (newsUrlFilter.isReady()) {
+			return;
+		}
+		long started = System.currentTimeMillis();
+		try (Stream<NewsArticle> allNews = newsService.streamNewsOfAllUsers()) {
+			newsUrlFilter.rebuild(allNews);
+		}
+		logger.info("In dedup - {}", "Rebuilt the news URL filter in " + (System.currentTimeMillis() - started) + " ms.");
+	}
+}
@@ -0,0 +1,213 @@
+package com.stackroute.newz.dedup;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Bloom filter that grows with the number of keys (Almeida et al., "Scalable
+ * Bloom Filters"). Keys are added to the newest stage; once it holds its
+ * capacity a stage with twice the capacity and half the false positive rate is
+ * appended, so the overall rate stays below the configured one however many
+ * keys are added. A key that was added is always reported as possibly present.
+ *
+ * Lookups do not lock. Additions are serialized, and a lookup running at the same
+ * time as the addition of the same key may still miss it.
+ */
+public class ScalableBloomFilter {
+
+	private static final int SNAPSHOT_FORMAT = 1;
+	private static final int GROWTH = 2;
+	private static final double TIGHTENING = 0.5;
+
+	private final long initialCapacity;
+	private final double falsePositiveRate;
+	private volatile Stage[] stages;
+
+	public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("initialCapacity must be positive");
+		}
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		}
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveRate = falsePositiveRate;
+		// the rates of all stages form a geometric series that sums up to falsePositiveRate
+		this.stages = new Stage[] { new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING)) };
+	}
+
+	private ScalableBloomFilter(long initialCapacity, double falsePositiveRate, Stage[] stages) {
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveRate = falsePositiveRate;
+		this.stages = stages;
+	}
+
+	/*
+	 * Returns false if the key was never added, true if it probably was.
+	 */
+	public boolean mightContain(String key) {
+		long hash1 = hash1(key);
+		long hash2 = hash2(hash1);
+		for (Stage stage : stages) {
+			if (stage.mightContain(hash1, hash2)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public synchronized void put(String key) {
+		long hash1 = hash1(key);
+		long hash2 = hash2(hash1);
+		Stage[] current = stages;
+		Stage last = current[current.length - 1];
+		if (last.count >= last.capacity) {
+			last = new Stage(last.capacity * GROWTH, last.falsePositiveRate * TIGHTENING);
+			Stage[] grown = Arrays.copyOf(current, current.length + 1);
+			grown[current.length] = last;
+			stages = grown;
+		}
+		last.put(hash1, hash2);
+	}
+
+	/* Number of keys added, counting keys added more than once every time. */
+	public long size() {
+		long size = 0;
+		for (Stage stage : stages) {
+			size += stage.count;
+		}
+		return size;
+	}
+
+	public long sizeInBytes() {
+		long bytes = 0;
+		for (Stage stage : stages) {
+			bytes += stage.bits.length() * 8L;
+		}
+		return bytes;
+	}
+
+	public int stageCount() {
+		return stages.length;
+	}
+
+	public synchronized void writeTo(DataOutput out) throws IOException {
+		out.writeInt(SNAPSHOT_FORMAT);
+		out.writeLong(initialCapacity);
+		out.writeDouble(falsePositiveRate);
+		out.writeInt(stages.length);
+		for (Stage stage : stages) {
+			out.writeLong(stage.capacity);
+			out.writeDouble(stage.falsePositiveRate);
+			out.writeLong(stage.count);
+			out.writeInt(stage.bits.length());
+			for (int i = 0; i < stage.bits.length(); i++) {
+				out.writeLong(stage.bits.get(i));
+			}
+		}
+	}
+
+	public static ScalableBloomFilter readFrom(DataInput in) throws IOException {
+		int format = in.readInt();
+		if (format != SNAPSHOT_FORMAT) {
+			throw new IOException("Unknown Bloom filter snapshot format " + format);
+		}
+		long initialCapacity = in.readLong();
+		double falsePositiveRate = in.readDouble();
+		Stage[] stages = new Stage[in.readInt()];
+		for (int s = 0; s < stages.length; s++) {
+			long capacity = in.readLong();
+			double stageRate = in.readDouble();
+			long count = in.readLong();
+			long[] words = new long[in.readInt()];
+			for (int i = 0; i < words.length; i++) {
+				words[i] = in.readLong();
+			}
+			stages[s] = new Stage(capacity, stageRate, count, new AtomicLongArray(words));
+		}
+		return new ScalableBloomFilter(initialCapacity, falsePositiveRate, stages);
+	}
+
+	/* 64 bit FNV-1a of the characters of the key, finished with the MurmurHash3 mixer. */
+	private static long hash1(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	/* An independent second hash, odd so that the probe sequence never stalls. */
+	private static long hash2(long hash1) {
+		return mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1L;
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/*
+	 * A plain Bloom filter sized for its capacity and rate, probed with double
+	 * hashing (Kirsch and Mitzenmacher).
+	 */
+	private static class Stage {
+
+		private final long capacity;
+		private final double falsePositiveRate;
+		private final int hashes;
+		private final long bitCount;
+		private final AtomicLongArray bits;
+		private volatile long count;
+
+		Stage(long capacity, double falsePositiveRate) {
+			this(capacity, falsePositiveRate, 0, new AtomicLongArray(words(capacity, falsePositiveRate)));
+		}
+
+		Stage(long capacity, double falsePositiveRate, long count, AtomicLongArray bits) {
+			this.capacity = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			this.count = count;
+			this.bits = bits;
+			this.bitCount = bits.length() * 64L;
+			this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+		}
+
+		private static int words(long capacity, double falsePositiveRate) {
+			double bits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+			return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(bits / 64));
+		}
+
+		boolean mightContain(long hash1, long hash2) {
+			long combined = hash1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = Long.remainderUnsigned(combined, bitCount);
+				if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+				combined += hash2;
+			}
+			return true;
+		}
+
+		void put(long hash1, long hash2) {
+			long combined = hash1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = Long.remainderUnsigned(combined, bitCount);
+				int word = (int) (bit >>> 6);
+				// only called under the lock of the filter, so no compare and set is needed
+				bits.set(word, bits.get(word) | (1L << bit));
+				combined += hash2;
+			}
+			count++;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.stackroute.newz.event;
+
+import java.util.List;
+
+import com.stackroute.newz.model.NewsEvent;
+
+/*
+ * Receives the changes to the news from the NewsOutbox, in batches and on the
+ * single outbox thread, never on a request thread. Delivery is at least once: a
+ * batch is delivered again, to every handler, when one of them throws or the
+ * delivered events could not be removed from the outbox, so handlers have to
+ * tolerate events they have already seen, for example by their eventId.
+ */
+public interface NewsEventHandler {
+
+	void onEvents(List<NewsEvent> events);
+
+}
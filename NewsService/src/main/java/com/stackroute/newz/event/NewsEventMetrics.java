@@ -0,0 +1,40 @@
+package com.stackroute.newz.event;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.NewsEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Counts the delivered news events by type as news.events. Redelivered events
+ * are counted again.
+ */
+@Component
+public class NewsEventMetrics implements NewsEventHandler, MeterBinder {
+
+	private final Map<NewsEvent.Type, Counter> counters = new EnumMap<>(NewsEvent.Type.class);
+
+	@Override
+	public void onEvents(List<NewsEvent> events) {
+		for (NewsEvent event : events) {
+			Counter counter = counters.get(event.getType());
+			if (counter != null) {
+				counter.increment();
+			}
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (NewsEvent.Type type : NewsEvent.Type.values()) {
+			counters.put(type, Counter.builder("news.events").tag("type", type.name()).register(registry));
+		}
+	}
+}
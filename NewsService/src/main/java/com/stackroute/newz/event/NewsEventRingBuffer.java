@@ -0,0 +1,98 @@
+package com.stackroute.newz.event;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.stackroute.newz.model.NewsEvent;
+
+/*
+ * Bounded multi-producer, single-consumer queue of NewsEvents in the style of the
+ * LMAX Disruptor. The slots are allocated once; producers claim a sequence with
+ * a compare and set, fill the slot of that sequence and mark it available, and
+ * the consumer drains all consecutive available slots in one batch. Nothing is
+ * locked and nothing is allocated per event.
+ *
+ * A producer never waits: when the consumer is a whole buffer behind, tryPublish
+ * returns false and the event is left to the outbox sweep.
+ */
+public class NewsEventRingBuffer {
+
+	private static final class Slot {
+		NewsEvent event;
+	}
+
+	private final Slot[] slots;
+	private final int mask;
+	/* sequence that was published into each slot last */
+	private final AtomicLongArray available;
+	/* last sequence claimed by a producer */
+	private final AtomicLong claimed = new AtomicLong(-1);
+	/* last sequence taken by the consumer */
+	private volatile long consumed = -1;
+
+	public NewsEventRingBuffer(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("capacity must be a power of two");
+		}
+		slots = new Slot[capacity];
+		available = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new Slot();
+			available.set(i, -1);
+		}
+		mask = capacity - 1;
+	}
+
+	/* Returns false, without publishing, when the buffer is full. */
+	public boolean tryPublish(NewsEvent event) {
+		long sequence;
+		do {
+			long current = claimed.get();
+			sequence = current + 1;
+			if (sequence - consumed > slots.length) {
+				return false;
+			}
+			if (claimed.compareAndSet(current, sequence)) {
+				break;
+			}
+		} while (true);
+		int index = (int) (sequence & mask);
+		slots[index].event = event;
+		// the volatile write makes the event visible to the consumer
+		available.set(index, sequence);
+		return true;
+	}
+
+	/*
+	 * Moves up to max events to the batch in publication order and returns their
+	 * number. Must only be called by the single consumer thread.
+	 */
+	public int drainTo(List<NewsEvent> batch, int max) {
+		long next = consumed + 1;
+		int drained = 0;
+		while (drained < max) {
+			int index = (int) (next & mask);
+			if (available.get(index) != next) {
+				break;
+			}
+			batch.add(slots[index].event);
+			slots[index].event = null;
+			next++;
+			drained++;
+		}
+		if (drained > 0) {
+			consumed = next - 1;
+		}
+		return drained;
+	}
+
+	/* Number of published events that were not drained yet. */
+	public int size() {
+		return (int) Math.max(0, claimed.get() - consumed);
+	}
+
+	public int capacity() {
+		return slots.length;
+	}
+}
@@ -0,0 +1,238 @@
+package com.stackroute.newz.event;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.UserNews;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Delivers the changes to the news to the NewsEventHandler beans. The
+ * NewsService writes every change together with its NewsEvent in the outbox of
+ * the UserNews document, so a change is never stored without its event, and
+ * then publishes the event here. Publishing only puts the event in a
+ * NewsEventRingBuffer and never waits; the single "news-outbox" thread takes up
+ * to news.outbox.batch-size events at a time, hands them to every handler and
+ * then removes them from the outboxes with one bulk $pull.
+ *
+ * Events that were not delivered, because the buffer was full, a handler threw
+ * or the instance stopped, stay in the outbox. Every news.outbox.sweep-interval
+ * the events older than news.outbox.redelivery-delay are read back with the
+ * outbox_idx index and published again, so every event is delivered at least
+ * once, by whichever instance sweeps it first.
+ */
+@Component
+public class NewsOutbox implements MeterBinder, ApplicationRunner, DisposableBean {
+
+	/* longest time the consumer sleeps before it looks at the buffer again */
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private MongoOperations mongoOperations;
+	private ObjectProvider<NewsEventHandler> handlers;
+	private NewsProperties.Outbox properties;
+
+	private final NewsEventRingBuffer buffer;
+	private final LongAdder delivered = new LongAdder();
+	private final LongAdder overflowed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private volatile Thread consumer;
+	private volatile boolean running;
+	private ScheduledExecutorService sweeper;
+
+	@Autowired
+	public NewsOutbox(MongoOperations mongoOperations, ObjectProvider<NewsEventHandler> handlers,
+			NewsProperties newsProperties) {
+		this.mongoOperations = mongoOperations;
+		this.handlers = handlers;
+		this.properties = newsProperties.getOutbox();
+		this.buffer = new NewsEventRingBuffer(properties.getBufferSize());
+	}
+
+	/*
+	 * Hands an event that was written to an outbox to the consumer. Returns false
+	 * when the buffer is full; the event is then delivered by the sweep.
+	 */
+	public boolean publish(NewsEvent event) {
+		if (!buffer.tryPublish(event)) {
+			overflowed.increment();
+			return false;
+		}
+		Thread waiting = consumer;
+		if (waiting != null) {
+			LockSupport.unpark(waiting);
+		}
+		return true;
+	}
+
+	/* Number of published events not yet taken by the consumer. */
+	public int pendingCount() {
+		return buffer.size();
+	}
+
+	public long deliveredCount() {
+		return delivered.sum();
+	}
+
+	/*
+	 * Starts the consumer and the sweep once the application is ready, so the
+	 * handlers never see events before all beans are initialized. Events
+	 * published before wait in the buffer.
+	 */
+	@Override
+	public void run(ApplicationArguments args) {
+		running = true;
+		Thread thread = new Thread(this::consume, "news-outbox");
+		thread.setDaemon(true);
+		consumer = thread;
+		thread.start();
+		long interval = properties.getSweepInterval().toMillis();
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread sweep = new Thread(runnable, "news-outbox-sweep");
+			sweep.setDaemon(true);
+			return sweep;
+		});
+		sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * Lets the consumer deliver what is in the buffer for a while. Whatever is left
+	 * stays in the outbox for the next sweep.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+		}
+		Thread thread = consumer;
+		if (thread == null) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(thread);
+		thread.join(TimeUnit.SECONDS.toMillis(5));
+		if (buffer.size() > 0) {
+			logger.warn("In outbox - {}", buffer.size() + " news events are left to the next sweep.");
+		}
+	}
+
+	/*
+	 * Publishes again the events that are longer in the outboxes than
+	 * news.outbox.redelivery-delay, until the buffer is full.
+	 */
+	public int sweep() {
+		LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRedeliveryDelay());
+		Query stale = query(where("outbox.occurredAt").lt(cutoff));
+		stale.fields().include("outbox");
+		int published = 0;
+		try (CloseableIterator<UserNews> userNews = mongoOperations.stream(stale, UserNews.class)) {
+			while (userNews.hasNext()) {
+				for (NewsEvent event : userNews.next().getOutbox()) {
+					if (event.getOccurredAt().isAfter(cutoff)) {
+						continue;
+					}
+					event.setRedelivered(true);
+					if (!publish(event)) {
+						return published;
+					}
+					published++;
+				}
+			}
+		} catch (RuntimeException e) {
+			logger.warn("In outbox - {}", "Could not sweep the outboxes: " + e.getMessage());
+		}
+		if (published > 0) {
+			logger.info("In outbox - {}", "Published " + published + " undelivered news events again.");
+		}
+		return published;
+	}
+
+	/*
+	 * Delivers one batch to every handler and removes it from the outboxes. Called
+	 * by the consumer thread only; returns false when the batch stays undelivered.
+	 */
+	public boolean deliver(List<NewsEvent> batch) {
+		try {
+			handlers.orderedStream().forEach(handler -> handler.onEvents(batch));
+			acknowledge(batch);
+		} catch (RuntimeException e) {
+			failed.add(batch.size());
+			logger.error("In outbox - {}", "Could not deliver " + batch.size() + " news events", e);
+			return false;
+		}
+		delivered.add(batch.size());
+		return true;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("news.outbox.pending", buffer, NewsEventRingBuffer::size).register(registry);
+		FunctionCounter.builder("news.outbox.delivered", delivered, LongAdder::sum).register(registry);
+		FunctionCounter.builder("news.outbox.overflowed", overflowed, LongAdder::sum).register(registry);
+		FunctionCounter.builder("news.outbox.failed", failed, LongAdder::sum).register(registry);
+	}
+
+	private void consume() {
+		List<NewsEvent> batch = new ArrayList<>(properties.getBatchSize());
+		while (running || buffer.size() > 0) {
+			if (buffer.drainTo(batch, properties.getBatchSize()) == 0) {
+				if (!running) {
+					return;
+				}
+				LockSupport.parkNanos(this, PARK_NANOS);
+				continue;
+			}
+			deliver(batch);
+			batch.clear();
+		}
+	}
+
+	/*
+	 * Pulls the delivered events from the outbox of each user with one bulk write.
+	 * Events of deleted users have no outbox left and match nothing.
+	 */
+	private void acknowledge(List<NewsEvent> batch) {
+		Map<String, List<String>> eventIds = new LinkedHashMap<>();
+		for (NewsEvent event : batch) {
+			eventIds.computeIfAbsent(event.getUserId(), userId -> new ArrayList<>()).add(event.getEventId());
+		}
+		BulkOperations bulk = mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class);
+		eventIds.forEach((userId, ids) -> bulk.updateOne(query(where("_id").is(userId)),
+				new Update().pull("outbox", new Document("eventId", new Document("$in", ids)))));
+		bulk.execute();
+	}
+}
@@ -0,0 +1,124 @@
+package com.stackroute.newz.migration;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.stackroute.newz.content.NewsContentStore;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.UserNews;
+
+/*
+ * One-off job that converts embedded UserNews documents into NewsArticle documents
+ * in the same database. It is enabled with news.migration.enabled=true together with
+ * news.storage=article, since the embedded layout still reads the UserNews documents
+ * it removes, and runs once at startup. Users are streamed one at a time and their articles are written in
+ * unordered bulk inserts of news.migration.batch-size, after which the UserNews
+ * document is removed. A content offloaded by the NewsContentStore is written into
+ * its article, and the NewsContent documents of the user are removed last. Articles that already exist are skipped, so an interrupted
+ * run can simply be restarted.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnExpression("${news.migration.enabled:false} and '${news.storage:embedded}' == 'article'")
+public class UserNewsMigration implements ApplicationRunner {
+
+	private static final int DUPLICATE_KEY = 11000;
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private MongoOperations mongoOperations;
+	private NewsContentStore newsContentStore;
+	private int batchSize;
+
+	@Autowired
+	public UserNewsMigration(MongoOperations mongoOperations, NewsContentStore newsContentStore,
+			@Value("${news.migration.batch-size:500}") int batchSize) {
+		this.mongoOperations = mongoOperations;
+		this.newsContentStore = newsContentStore;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		migrate();
+	}
+
+	/*
+	 * Migrates every UserNews document and returns the number of articles written.
+	 */
+	public long migrate() {
+		mongoOperations.indexOps(NewsArticle.class).ensureIndex(new Index()
+				.on("userId", Sort.Direction.ASC).on("newsId", Sort.Direction.ASC).unique().named("user_news_idx"));
+		long users = 0;
+		long articles = 0;
+		try (CloseableIterator<UserNews> cursor = mongoOperations.stream(new Query(), UserNews.class)) {
+			while (cursor.hasNext()) {
+				UserNews userNews = cursor.next();
+				articles += migrateUser(userNews);
+				mongoOperations.remove(query(where("_id").is(userNews.getUserId())), UserNews.class);
+				newsContentStore.userNewsDeleted(userNews.getUserId());
+				users++;
+			}
+		}
+		logger.info("In migration - {}", "Migrated " + articles + " news of " + users + " users to NewsArticle.");
+		return articles;
+	}
+
+	private long migrateUser(UserNews userNews) {
+		List<News> newsList = userNews.getNewslist();
+		if (newsList == null) {
+			return 0;
+		}
+		long inserted = 0;
+		for (int from = 0; from < newsList.size(); from += batchSize) {
+			List<News> chunk = newsList.subList(from, Math.min(from + batchSize, newsList.size()));
+			inserted += insertChunk(userNews.getUserId(), chunk);
+		}
+		return inserted;
+	}
+
+	private int insertChunk(String userId, List<News> chunk) {
+		BulkOperations bulk = mongoOperations.bulkOps(BulkMode.UNORDERED, NewsArticle.class);
+		for (News news : chunk) {
+			bulk.insert(new NewsArticle(userId, newsContentStore.load(news)));
+		}
+		try {
+			return bulk.execute().getInsertedCount();
+		} catch (DataIntegrityViolationException ex) {
+			if (!(ex.getCause() instanceof MongoBulkWriteException)) {
+				throw ex;
+			}
+			MongoBulkWriteException bulkException = (MongoBulkWriteException) ex.getCause();
+			for (BulkWriteError error : bulkException.getWriteErrors()) {
+				if (error.getCode() != DUPLICATE_KEY) {
+					throw ex;
+				}
+			}
+			return bulkException.getWriteResult().getInsertedCount();
+		}
+	}
+}
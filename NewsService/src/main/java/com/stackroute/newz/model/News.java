@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 
@@ -32,6 +33,13 @@ public class News {
 	private String urlToImage;
 	private Reminder reminder;
 	private NewsSource newsSource;
+	/*
+	 * Id of the NewsContent holding the content when it is too long for the
+	 * UserNews document; content is null then. Only shown to clients, who get the
+	 * content with the single news.
+	 */
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private String contentId;
 	
 	public News() {
 		this.publishedAt = LocalDateTime.now();
@@ -44,6 +52,7 @@ public class News {
 		this.title = title;
 		this.author = author;
 		this.description = description;
+		this.publishedAt = publishedAt;
 		this.content = content;
 		this.url = url;
 		this.urlToImage = urlToImage;
@@ -131,10 +140,18 @@ public class News {
 		this.newsSource = newsSource;
 	}
 
+	public String getContentId() {
+		return contentId;
+	}
+
+	public void setContentId(String contentId) {
+		this.contentId = contentId;
+	}
+
 	@Override
 	public String toString() {
 		return "News [newsId=" + newsId + ", title=" + title + ", author=" + author + ", description=" + description
 				+ ", publishedAt=" + publishedAt + ", content=" + content + ", url=" + url + ", urlToImage="
-				+ urlToImage + ", reminder=" + reminder + ", newsSource=" + newsSource + "]";
+				+ urlToImage + ", reminder=" + reminder + ", newsSource=" + newsSource + ", contentId=" + contentId + "]";
 	}
 }
@@ -0,0 +1,100 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Up to news.archive.bucket-size aged news of one user, moved out of the UserNews
+ * document by the NewsArchiver. content is the gzipped JSON array of the news,
+ * newest first; newsIds, newest and oldest stay readable so that a news or a
+ * page is found without unpacking other buckets. Buckets of one user do not
+ * overlap in time.
+ */
+@Document(collection = "newsArchive")
+@CompoundIndexes({
+	@CompoundIndex(name = "user_newest_idx", def = "{'userId': 1, 'newest': -1}"),
+	@CompoundIndex(name = "user_news_idx", def = "{'userId': 1, 'newsIds': 1}")
+})
+public class NewsArchiveBucket {
+
+	@Id
+	private String id;
+	private String userId;
+	private List<Integer> newsIds;
+	private LocalDateTime newest;
+	private LocalDateTime oldest;
+	private byte[] content;
+
+	public NewsArchiveBucket() {
+		super();
+	}
+
+	public NewsArchiveBucket(String userId, List<Integer> newsIds, LocalDateTime newest, LocalDateTime oldest,
+			byte[] content) {
+		super();
+		this.userId = userId;
+		this.newsIds = newsIds;
+		this.newest = newest;
+		this.oldest = oldest;
+		this.content = content;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public List<Integer> getNewsIds() {
+		return newsIds;
+	}
+
+	public void setNewsIds(List<Integer> newsIds) {
+		this.newsIds = newsIds;
+	}
+
+	public LocalDateTime getNewest() {
+		return newest;
+	}
+
+	public void setNewest(LocalDateTime newest) {
+		this.newest = newest;
+	}
+
+	public LocalDateTime getOldest() {
+		return oldest;
+	}
+
+	public void setOldest(LocalDateTime oldest) {
+		this.oldest = oldest;
+	}
+
+	public byte[] getContent() {
+		return content;
+	}
+
+	public void setContent(byte[] content) {
+		this.content = content;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsArchiveBucket [id=" + id + ", userId=" + userId + ", news=" + (newsIds == null ? 0 : newsIds.size())
+				+ ", newest=" + newest + ", oldest=" + oldest + ", bytes=" + (content == null ? 0 : content.length) + "]";
+	}
+}
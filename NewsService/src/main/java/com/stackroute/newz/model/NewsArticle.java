@@ -0,0 +1,165 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Storage document used when news.storage=article. Every News is kept in its own
+ * document keyed by (userId, newsId) instead of being embedded in the newslist of
+ * a single UserNews document, so that updates and deletes only touch one article.
+ */
+@Document(collection = "newsArticle")
+@CompoundIndexes({
+	@CompoundIndex(name = "user_news_idx", def = "{'userId': 1, 'newsId': 1}", unique = true),
+	@CompoundIndex(name = "user_published_idx", def = "{'userId': 1, 'publishedAt': -1, 'newsId': -1}"),
+	@CompoundIndex(name = "user_url_idx", def = "{'userId': 1, 'url': 1}")
+})
+public class NewsArticle {
+
+	@Id
+	private String id;
+	private String userId;
+	private Integer newsId;
+	private String title;
+	private String author;
+	private String description;
+	private LocalDateTime publishedAt;
+	private String content;
+	private String url;
+	private String urlToImage;
+	private Reminder reminder;
+	private NewsSource newsSource;
+
+	public NewsArticle() {
+		super();
+	}
+
+	public NewsArticle(String userId, News news) {
+		super();
+		this.userId = userId;
+		this.newsId = news.getNewsId();
+		this.title = news.getTitle();
+		this.author = news.getAuthor();
+		this.description = news.getDescription();
+		this.publishedAt = news.getPublishedAt();
+		this.content = news.getContent();
+		this.url = news.getUrl();
+		this.urlToImage = news.getUrlToImage();
+		this.reminder = news.getReminder();
+		this.newsSource = news.getNewsSource();
+	}
+
+	/*
+	 * Converts this article back to the News representation exposed by the API.
+	 */
+	public News toNews() {
+		return new News(newsId, title, author, description, publishedAt, content, url, urlToImage, reminder,
+				newsSource);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public void setAuthor(String author) {
+		this.author = author;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public LocalDateTime getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(LocalDateTime publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	public void setContent(String content) {
+		this.content = content;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	public String getUrlToImage() {
+		return urlToImage;
+	}
+
+	public void setUrlToImage(String urlToImage) {
+		this.urlToImage = urlToImage;
+	}
+
+	public Reminder getReminder() {
+		return reminder;
+	}
+
+	public void setReminder(Reminder reminder) {
+		this.reminder = reminder;
+	}
+
+	public NewsSource getNewsSource() {
+		return newsSource;
+	}
+
+	public void setNewsSource(NewsSource newsSource) {
+		this.newsSource = newsSource;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsArticle [id=" + id + ", userId=" + userId + ", newsId=" + newsId + ", title=" + title
+				+ ", publishedAt=" + publishedAt + "]";
+	}
+}
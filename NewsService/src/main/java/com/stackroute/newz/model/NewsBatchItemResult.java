@@ -0,0 +1,76 @@
+package com.stackroute.newz.model;
+
+/*
+ * Outcome of a single News of a batch ingest request. index is the position of
+ * the News in the request body.
+ */
+public class NewsBatchItemResult {
+
+	public enum Status {
+		CREATED, CONFLICT, INVALID, FAILED
+	}
+
+	private int index;
+	private String userId;
+	private Integer newsId;
+	private Status status;
+	private String message;
+
+	public NewsBatchItemResult() {
+		super();
+	}
+
+	public NewsBatchItemResult(String userId, Integer newsId, Status status, String message) {
+		super();
+		this.userId = userId;
+		this.newsId = newsId;
+		this.status = status;
+		this.message = message;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsBatchItemResult [index=" + index + ", userId=" + userId + ", newsId=" + newsId + ", status="
+				+ status + ", message=" + message + "]";
+	}
+}
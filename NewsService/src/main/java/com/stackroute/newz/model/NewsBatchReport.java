@@ -0,0 +1,51 @@
+package com.stackroute.newz.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Per-item report of a batch ingest request, in request order.
+ */
+public class NewsBatchReport {
+
+	private int created;
+	private int failed;
+	private String error;
+	private List<NewsBatchItemResult> items = new ArrayList<>();
+
+	public void add(NewsBatchItemResult item) {
+		item.setIndex(items.size());
+		items.add(item);
+		if (item.getStatus() == NewsBatchItemResult.Status.CREATED) {
+			created++;
+		} else {
+			failed++;
+		}
+	}
+
+	public int getCreated() {
+		return created;
+	}
+
+	public int getFailed() {
+		return failed;
+	}
+
+	/* Set when the request body could not be read to the end. */
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public List<NewsBatchItemResult> getItems() {
+		return items;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsBatchReport [created=" + created + ", failed=" + failed + ", error=" + error + "]";
+	}
+}
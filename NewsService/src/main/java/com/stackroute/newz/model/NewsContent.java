@@ -0,0 +1,71 @@
+package com.stackroute.newz.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * The content of a news that is too long to be kept in the UserNews document,
+ * see NewsContentStore. The news refers to it by its id in News.contentId. Every
+ * write of a long content adds a new NewsContent, so a write that fails or is
+ * retried never changes the content another news refers to.
+ */
+@Document(collection = "newsContent")
+@CompoundIndex(name = "user_news_idx", def = "{'userId': 1, 'newsId': 1}")
+public class NewsContent {
+
+	@Id
+	private String id;
+	private String userId;
+	private Integer newsId;
+	private String content;
+
+	public NewsContent() {
+		super();
+	}
+
+	public NewsContent(String userId, Integer newsId, String content) {
+		super();
+		this.userId = userId;
+		this.newsId = newsId;
+		this.content = content;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	public void setContent(String content) {
+		this.content = content;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsContent [id=" + id + ", userId=" + userId + ", newsId=" + newsId + ", length="
+				+ (content == null ? 0 : content.length()) + "]";
+	}
+}
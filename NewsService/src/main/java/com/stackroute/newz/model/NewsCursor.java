@@ -0,0 +1,74 @@
+package com.stackroute.newz.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Date;
+
+/*
+ * Keyset position inside a user's news ordered by (publishedAt desc, newsId desc).
+ * Clients only ever see the encoded form, which is an opaque URL safe token.
+ * News stored without publishedAt come after all others, as Mongo sorts null
+ * lowest; their cursor has a null publishedAt.
+ */
+public class NewsCursor {
+
+	private static final char SEPARATOR = '|';
+
+	private final LocalDateTime publishedAt;
+	private final int newsId;
+
+	public NewsCursor(LocalDateTime publishedAt, int newsId) {
+		this.publishedAt = publishedAt;
+		this.newsId = newsId;
+	}
+
+	public static NewsCursor of(News news) {
+		return new NewsCursor(news.getPublishedAt(), news.getNewsId());
+	}
+
+	/*
+	 * Decodes a token produced by encode(). Throws IllegalArgumentException for
+	 * anything that was not.
+	 */
+	public static NewsCursor decode(String token) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = value.lastIndexOf(SEPARATOR);
+			String publishedAt = value.substring(0, separator);
+			return new NewsCursor(publishedAt.isEmpty() ? null : LocalDateTime.parse(publishedAt),
+					Integer.parseInt(value.substring(separator + 1)));
+		} catch (DateTimeParseException | IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Invalid cursor: " + token, ex);
+		}
+	}
+
+	public String encode() {
+		String value = (publishedAt == null ? "" : publishedAt.toString()) + SEPARATOR + newsId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public LocalDateTime getPublishedAt() {
+		return publishedAt;
+	}
+
+	/*
+	 * publishedAt as Spring Data stores a LocalDateTime (a Date in the system time
+	 * zone), for use in queries that bypass the mapping layer such as untyped
+	 * aggregations.
+	 */
+	public Date getPublishedAtDate() {
+		return publishedAt == null ? null : Date.from(publishedAt.atZone(ZoneId.systemDefault()).toInstant());
+	}
+
+	public int getNewsId() {
+		return newsId;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsCursor [publishedAt=" + publishedAt + ", newsId=" + newsId + "]";
+	}
+}
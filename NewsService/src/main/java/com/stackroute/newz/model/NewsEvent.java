@@ -0,0 +1,126 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.data.annotation.Transient;
+
+/*
+ * A change to the news of one user, written to the outbox of its UserNews
+ * document by the same update that makes the change. news is the news as it was
+ * written; it is null for deletes and may be null for updates, see
+ * NewsServiceImpl.patchNews. redelivered marks the events that the sweep of the
+ * NewsOutbox read back from an outbox; it is not stored.
+ */
+public class NewsEvent {
+
+	public enum Type {
+		CREATED, UPDATED, DELETED, USER_DELETED
+	}
+
+	private String eventId;
+	private Type type;
+	private String userId;
+	private Integer newsId;
+	private News news;
+	private LocalDateTime occurredAt;
+	@Transient
+	private boolean redelivered;
+
+	public NewsEvent() {
+		super();
+	}
+
+	public NewsEvent(Type type, String userId, Integer newsId, News news) {
+		super();
+		this.eventId = UUID.randomUUID().toString();
+		this.type = type;
+		this.userId = userId;
+		this.newsId = newsId;
+		this.news = news;
+		this.occurredAt = LocalDateTime.now();
+	}
+
+	public static NewsEvent created(News news) {
+		return new NewsEvent(Type.CREATED, news.getAuthor(), news.getNewsId(), news);
+	}
+
+	public static NewsEvent updated(String userId, News news) {
+		return new NewsEvent(Type.UPDATED, userId, news.getNewsId(), news);
+	}
+
+	/* An update of some fields of a news, written without the news. */
+	public static NewsEvent updated(String userId, int newsId) {
+		return new NewsEvent(Type.UPDATED, userId, newsId, null);
+	}
+
+	public static NewsEvent deleted(String userId, int newsId) {
+		return new NewsEvent(Type.DELETED, userId, newsId, null);
+	}
+
+	public static NewsEvent userDeleted(String userId) {
+		return new NewsEvent(Type.USER_DELETED, userId, null, null);
+	}
+
+	public String getEventId() {
+		return eventId;
+	}
+
+	public void setEventId(String eventId) {
+		this.eventId = eventId;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public void setType(Type type) {
+		this.type = type;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public News getNews() {
+		return news;
+	}
+
+	public void setNews(News news) {
+		this.news = news;
+	}
+
+	public LocalDateTime getOccurredAt() {
+		return occurredAt;
+	}
+
+	public void setOccurredAt(LocalDateTime occurredAt) {
+		this.occurredAt = occurredAt;
+	}
+
+	public boolean isRedelivered() {
+		return redelivered;
+	}
+
+	public void setRedelivered(boolean redelivered) {
+		this.redelivered = redelivered;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsEvent [eventId=" + eventId + ", type=" + type + ", userId=" + userId + ", newsId=" + newsId
+				+ ", occurredAt=" + occurredAt + "]";
+	}
+}
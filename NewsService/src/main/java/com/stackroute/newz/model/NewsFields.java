@@ -0,0 +1,121 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * The fields of a News a client asked for with "fields", by their name in News.
+ * newsId and publishedAt are always part of it, as they identify a news and its
+ * position in a page; a news selected with content also keeps its contentId. The
+ * services read only these fields from Mongo, the other fields are null. The
+ * controllers answer with the news of select, which leave them out of the JSON.
+ */
+public class NewsFields {
+
+	private static final List<String> NAMES = Arrays.asList("newsId", "title", "author", "description",
+			"publishedAt", "content", "url", "urlToImage", "reminder", "newsSource");
+
+	private final Set<String> fields;
+
+	private NewsFields(Set<String> fields) {
+		this.fields = fields;
+	}
+
+	/*
+	 * Parses a comma separated list of field names. Returns null, meaning all
+	 * fields, for a missing or blank list, and throws IllegalArgumentException for
+	 * a name that is not a field of News.
+	 */
+	public static NewsFields parse(String names) {
+		if (names == null || names.trim().isEmpty()) {
+			return null;
+		}
+		Set<String> fields = new LinkedHashSet<>(Arrays.asList("newsId", "publishedAt"));
+		for (String name : names.split(",")) {
+			String field = name.trim();
+			if (!NAMES.contains(field)) {
+				throw new IllegalArgumentException("Unknown News field: " + field);
+			}
+			fields.add(field);
+		}
+		if (fields.contains("content")) {
+			fields.add("contentId");
+		}
+		return new NewsFields(fields);
+	}
+
+	public Set<String> getFields() {
+		return Collections.unmodifiableSet(fields);
+	}
+
+	/*
+	 * Returns a copy of the news with only these fields. The fields that were not
+	 * selected are left out of its JSON, where a full News shows them as null.
+	 */
+	public News select(News news) {
+		if (news == null) {
+			return null;
+		}
+		News selected = new Selected(news.getNewsId(), news.getPublishedAt());
+		for (String field : fields) {
+			switch (field) {
+			case "title":
+				selected.setTitle(news.getTitle());
+				break;
+			case "author":
+				selected.setAuthor(news.getAuthor());
+				break;
+			case "description":
+				selected.setDescription(news.getDescription());
+				break;
+			case "content":
+				selected.setContent(news.getContent());
+				break;
+			case "contentId":
+				selected.setContentId(news.getContentId());
+				break;
+			case "url":
+				selected.setUrl(news.getUrl());
+				break;
+			case "urlToImage":
+				selected.setUrlToImage(news.getUrlToImage());
+				break;
+			case "reminder":
+				selected.setReminder(news.getReminder());
+				break;
+			case "newsSource":
+				selected.setNewssource(news.getNewsSource());
+				break;
+			default:
+			}
+		}
+		return selected;
+	}
+
+	public List<News> select(List<News> news) {
+		if (news == null) {
+			return null;
+		}
+		return news.stream().map(this::select).collect(Collectors.toList());
+	}
+
+	@Override
+	public String toString() {
+		return "NewsFields " + fields;
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	static class Selected extends News {
+
+		Selected(Integer newsId, LocalDateTime publishedAt) {
+			super(newsId, null, null, null, publishedAt, null, null, null, null, null);
+		}
+	}
+}
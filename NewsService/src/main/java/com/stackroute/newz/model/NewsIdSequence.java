@@ -0,0 +1,47 @@
+package com.stackroute.newz.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * The highest newsId reserved for a user, see NewsIdAllocator. It only grows, by
+ * one block of newsIds for every reservation.
+ */
+@Document(collection = "newsIdSequence")
+public class NewsIdSequence {
+
+	@Id
+	private String userId;
+	private int hi;
+
+	public NewsIdSequence() {
+		super();
+	}
+
+	public NewsIdSequence(String userId, int hi) {
+		super();
+		this.userId = userId;
+		this.hi = hi;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public int getHi() {
+		return hi;
+	}
+
+	public void setHi(int hi) {
+		this.hi = hi;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsIdSequence [userId=" + userId + ", hi=" + hi + "]";
+	}
+}
@@ -0,0 +1,56 @@
+package com.stackroute.newz.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * One page of a user's news. nextCursor is null on the last page.
+ */
+public class NewsPage {
+
+	private List<News> news;
+	private String nextCursor;
+
+	public NewsPage() {
+		super();
+	}
+
+	public NewsPage(List<News> news, String nextCursor) {
+		super();
+		this.news = news;
+		this.nextCursor = nextCursor;
+	}
+
+	/*
+	 * Builds a page from a result that was fetched with a limit of size + 1. The
+	 * extra item only tells whether there is a next page and is not returned.
+	 */
+	public static NewsPage of(List<News> fetched, int size) {
+		if (fetched.size() <= size) {
+			return new NewsPage(fetched, null);
+		}
+		List<News> page = new ArrayList<>(fetched.subList(0, size));
+		return new NewsPage(page, NewsCursor.of(page.get(size - 1)).encode());
+	}
+
+	public List<News> getNews() {
+		return news;
+	}
+
+	public void setNews(List<News> news) {
+		this.news = news;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsPage [news=" + (news == null ? 0 : news.size()) + " items, nextCursor=" + nextCursor + "]";
+	}
+}
@@ -0,0 +1,121 @@
+package com.stackroute.newz.model;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/*
+ * The fields of a News sent with PATCH, by their name in News. Only the fields
+ * present in the request are kept, and a field sent as null is cleared. newsId and
+ * publishedAt can not be changed; any other name is rejected when the request is
+ * read, so a patch never reaches the database with an unknown field.
+ */
+@JsonDeserialize(using = NewsPatch.Deserializer.class)
+public class NewsPatch {
+
+	private static final Map<String, Class<?>> FIELDS = new LinkedHashMap<>();
+
+	static {
+		FIELDS.put("title", String.class);
+		FIELDS.put("author", String.class);
+		FIELDS.put("description", String.class);
+		FIELDS.put("content", String.class);
+		FIELDS.put("url", String.class);
+		FIELDS.put("urlToImage", String.class);
+		FIELDS.put("reminder", Reminder.class);
+		FIELDS.put("newsSource", NewsSource.class);
+	}
+
+	private final Map<String, Object> fields = new LinkedHashMap<>();
+
+	public NewsPatch set(String field, Object value) {
+		Class<?> type = FIELDS.get(field);
+		if (type == null) {
+			throw new IllegalArgumentException("News field " + field + " can not be patched");
+		}
+		if (value != null && !type.isInstance(value)) {
+			throw new IllegalArgumentException("News field " + field + " must be a " + type.getSimpleName());
+		}
+		fields.put(field, value);
+		return this;
+	}
+
+	public Map<String, Object> getFields() {
+		return Collections.unmodifiableMap(fields);
+	}
+
+	/* Sets the fields of this patch on a news. */
+	public void applyTo(News news) {
+		fields.forEach((field, value) -> {
+			switch (field) {
+			case "title":
+				news.setTitle((String) value);
+				break;
+			case "author":
+				news.setAuthor((String) value);
+				break;
+			case "description":
+				news.setDescription((String) value);
+				break;
+			case "content":
+				news.setContent((String) value);
+				break;
+			case "url":
+				news.setUrl((String) value);
+				break;
+			case "urlToImage":
+				news.setUrlToImage((String) value);
+				break;
+			case "reminder":
+				news.setReminder((Reminder) value);
+				break;
+			default:
+				news.setNewssource((NewsSource) value);
+			}
+		});
+	}
+
+	public boolean isEmpty() {
+		return fields.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "NewsPatch [fields=" + fields.keySet() + "]";
+	}
+
+	/*
+	 * Reads a JSON object into a NewsPatch, binding every value to the type of the
+	 * News field it replaces.
+	 */
+	public static class Deserializer extends JsonDeserializer<NewsPatch> {
+
+		@Override
+		public NewsPatch deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+			JsonNode body = parser.getCodec().readTree(parser);
+			if (!body.isObject()) {
+				context.reportInputMismatch(NewsPatch.class, "Expected a JSON object with the changed News fields");
+			}
+			NewsPatch patch = new NewsPatch();
+			Iterator<Map.Entry<String, JsonNode>> entries = body.fields();
+			while (entries.hasNext()) {
+				Map.Entry<String, JsonNode> entry = entries.next();
+				Class<?> type = FIELDS.get(entry.getKey());
+				if (type == null) {
+					context.reportInputMismatch(NewsPatch.class, "News field %s can not be patched", entry.getKey());
+				}
+				Object value = entry.getValue().isNull() ? null : parser.getCodec().treeToValue(entry.getValue(), type);
+				patch.set(entry.getKey(), value);
+			}
+			return patch;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Projection of the Reminder of one news, kept next to the news storage so that
+ * pending reminders can be loaded with an indexed query instead of reading every
+ * news. The id is "userId:newsId"; fired is set once the reminder went off. The
+ * title is the one of the news when the reminder was last scheduled.
+ */
+@Document(collection = "newsReminder")
+@CompoundIndex(name = "pending_idx", def = "{'fired': 1, 'schedule': 1}")
+public class NewsReminder {
+
+	@Id
+	private String id;
+	@Indexed
+	private String userId;
+	private Integer newsId;
+	private String reminderId;
+	private String title;
+	private LocalDateTime schedule;
+	private boolean fired;
+
+	public NewsReminder() {
+		super();
+	}
+
+	public NewsReminder(String userId, News news) {
+		super();
+		this.id = idOf(userId, news.getNewsId());
+		this.userId = userId;
+		this.newsId = news.getNewsId();
+		this.reminderId = news.getReminder().getReminderId();
+		this.title = news.getTitle();
+		this.schedule = news.getReminder().getSchedule();
+	}
+
+	public static String idOf(String userId, int newsId) {
+		return userId + ":" + newsId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public String getReminderId() {
+		return reminderId;
+	}
+
+	public void setReminderId(String reminderId) {
+		this.reminderId = reminderId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public LocalDateTime getSchedule() {
+		return schedule;
+	}
+
+	public void setSchedule(LocalDateTime schedule) {
+		this.schedule = schedule;
+	}
+
+	public boolean isFired() {
+		return fired;
+	}
+
+	public void setFired(boolean fired) {
+		this.fired = fired;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsReminder [id=" + id + ", reminderId=" + reminderId + ", schedule=" + schedule + ", fired="
+				+ fired + "]";
+	}
+}
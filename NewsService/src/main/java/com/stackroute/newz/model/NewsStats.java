@@ -0,0 +1,87 @@
+package com.stackroute.newz.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Number of news of one user, in total, per newsSourceId and per day of
+ * publishedAt. The NewsStatsRollup keeps it up to date with $inc on every write,
+ * the NewsStatsReconciler counts it anew from the news. News without source or
+ * publishedAt are counted under "none".
+ */
+@Document(collection = "newsStats")
+public class NewsStats {
+
+	public static final String NONE = "none";
+
+	@Id
+	private String userId;
+	private long total;
+	private Map<String, Long> bySource = new LinkedHashMap<>();
+	private Map<String, Long> byDay = new LinkedHashMap<>();
+
+	public NewsStats() {
+		super();
+	}
+
+	public NewsStats(String userId) {
+		super();
+		this.userId = userId;
+	}
+
+	public static String sourceOf(NewsSource newsSource) {
+		return newsSource == null ? NONE : String.valueOf(newsSource.getNewsSourceId());
+	}
+
+	public static String dayOf(News news) {
+		return news.getPublishedAt() == null ? NONE : news.getPublishedAt().toLocalDate().toString();
+	}
+
+	/* Counts a news. */
+	public void add(News news) {
+		total++;
+		bySource.merge(sourceOf(news.getNewsSource()), 1L, Long::sum);
+		byDay.merge(dayOf(news), 1L, Long::sum);
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public Map<String, Long> getBySource() {
+		return bySource;
+	}
+
+	public void setBySource(Map<String, Long> bySource) {
+		this.bySource = bySource;
+	}
+
+	public Map<String, Long> getByDay() {
+		return byDay;
+	}
+
+	public void setByDay(Map<String, Long> byDay) {
+		this.byDay = byDay;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsStats [userId=" + userId + ", total=" + total + ", bySource=" + bySource + ", byDay=" + byDay
+				+ "]";
+	}
+}
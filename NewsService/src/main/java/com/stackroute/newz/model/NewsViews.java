@@ -0,0 +1,78 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Number of times one news was read through GET /api/v1/news/{userId}/{newsId}.
+ * The id is "userId:newsId" as for NewsReminder. views is only ever raised with
+ * $inc by the NewsViewCounter, in batches.
+ */
+@Document(collection = "newsViews")
+public class NewsViews {
+
+	@Id
+	private String id;
+	@Indexed
+	private String userId;
+	private Integer newsId;
+	private long views;
+	private LocalDateTime lastViewedAt;
+
+	public NewsViews() {
+		super();
+	}
+
+	public static String idOf(String userId, int newsId) {
+		return userId + ":" + newsId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public long getViews() {
+		return views;
+	}
+
+	public void setViews(long views) {
+		this.views = views;
+	}
+
+	public LocalDateTime getLastViewedAt() {
+		return lastViewedAt;
+	}
+
+	public void setLastViewedAt(LocalDateTime lastViewedAt) {
+		this.lastViewedAt = lastViewedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsViews [id=" + id + ", userId=" + userId + ", newsId=" + newsId + ", views=" + views
+				+ ", lastViewedAt=" + lastViewedAt + "]";
+	}
+}
@@ -31,6 +31,7 @@ public class Reminder {
 	public Reminder(String reminderId, LocalDateTime schedule) {
 		super();
 		this.reminderId = reminderId;
+		this.schedule = schedule;
 	}
 
 	public String getReminderId() {
@@ -49,6 +50,10 @@ public class Reminder {
 		this.schedule = LocalDateTime.now();
 	}
 
+	public void setSchedule(LocalDateTime schedule) {
+		this.schedule = schedule;
+	}
+
 	@Override
 	public String toString() {
 		return "Reminder [reminderId=" + reminderId + ", schedule=" + schedule + "]";
@@ -0,0 +1,78 @@
+package com.stackroute.newz.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/*
+ * Position inside a timeline of several users' news ordered by (publishedAt
+ * desc, newsId desc, userId asc): the last news of the previous page and its
+ * user. Like NewsCursor it is an opaque URL safe token for clients, and news
+ * without publishedAt come last.
+ */
+public class TimelineCursor {
+
+	private static final char SEPARATOR = '|';
+
+	private final LocalDateTime publishedAt;
+	private final int newsId;
+	private final String userId;
+
+	public TimelineCursor(LocalDateTime publishedAt, int newsId, String userId) {
+		this.publishedAt = publishedAt;
+		this.newsId = newsId;
+		this.userId = userId;
+	}
+
+	/*
+	 * Decodes a token produced by encode(). Throws IllegalArgumentException for
+	 * anything that was not.
+	 */
+	public static TimelineCursor decode(String token) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int first = value.indexOf(SEPARATOR);
+			int second = value.indexOf(SEPARATOR, first + 1);
+			String publishedAt = value.substring(0, first);
+			return new TimelineCursor(publishedAt.isEmpty() ? null : LocalDateTime.parse(publishedAt),
+					Integer.parseInt(value.substring(first + 1, second)), value.substring(second + 1));
+		} catch (DateTimeParseException | IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Invalid cursor: " + token, ex);
+		}
+	}
+
+	public String encode() {
+		String value = (publishedAt == null ? "" : publishedAt.toString()) + SEPARATOR + newsId + SEPARATOR + userId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * Position in the news of one user from which that user's part of the timeline
+	 * continues. Users ordered after the cursor's user still have to show a news
+	 * with the cursor's publishedAt and newsId, so their position is just behind it.
+	 */
+	public NewsCursor after(String userId) {
+		if (userId.compareTo(this.userId) > 0) {
+			return new NewsCursor(publishedAt, newsId + 1);
+		}
+		return new NewsCursor(publishedAt, newsId);
+	}
+
+	public LocalDateTime getPublishedAt() {
+		return publishedAt;
+	}
+
+	public int getNewsId() {
+		return newsId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	@Override
+	public String toString() {
+		return "TimelineCursor [publishedAt=" + publishedAt + ", newsId=" + newsId + ", userId=" + userId + "]";
+	}
+}
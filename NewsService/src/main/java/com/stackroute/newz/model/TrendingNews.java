@@ -0,0 +1,52 @@
+package com.stackroute.newz.model;
+
+/*
+ * One entry of GET /api/v1/news/trending: a news and its estimated number of
+ * views in the trending window.
+ */
+public class TrendingNews {
+
+	private String userId;
+	private Integer newsId;
+	private long views;
+
+	public TrendingNews() {
+		super();
+	}
+
+	public TrendingNews(String userId, Integer newsId, long views) {
+		super();
+		this.userId = userId;
+		this.newsId = newsId;
+		this.views = views;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public long getViews() {
+		return views;
+	}
+
+	public void setViews(long views) {
+		this.views = views;
+	}
+
+	@Override
+	public String toString() {
+		return "TrendingNews [userId=" + userId + ", newsId=" + newsId + ", views=" + views + "]";
+	}
+}
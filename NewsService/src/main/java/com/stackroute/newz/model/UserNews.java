@@ -1,16 +1,23 @@
 package com.stackroute.newz.model;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.stackroute.newz.util.NewsIdIndex;
+
 /*
  * Please note that this class is annotated with @Document annotation
  * @Document identifies a domain object to be persisted to MongoDB.
  * 
  */
 @Document
+@CompoundIndex(name = "outbox_idx", def = "{'outbox.occurredAt': 1}", sparse = true)
 public class UserNews {
 
 	/*
@@ -22,6 +29,26 @@ public class UserNews {
 	@Id
 	private String userId;
 	private List<News> newslist;
+	/*
+	 * Changes not yet delivered to the NewsEventHandlers, see NewsOutbox. Written by
+	 * the same update as the change itself and removed once delivered.
+	 */
+	private List<NewsEvent> outbox;
+	/*
+	 * Incremented by every write of the news, so a document that is saved as a
+	 * whole is only written if nothing changed it since it was loaded. Documents
+	 * written before this field existed have none until their next change.
+	 */
+	@Version
+	private Long version;
+
+	/*
+	 * Built on the first lookup after the document was loaded. It is rebuilt when
+	 * the newslist changed size, or when a lookup finds another news at the indexed
+	 * position or no position at all, as a news may have been replaced in place.
+	 */
+	@Transient
+	private NewsIdIndex newsIdIndex;
 	
 	public UserNews() {
 		super();
@@ -47,11 +74,69 @@ public class UserNews {
 	
 	public void setNewslist(List<News> newslist) {
 		this.newslist = newslist;
+		this.newsIdIndex = null;
+	}
+
+	public List<NewsEvent> getOutbox() {
+		return outbox;
+	}
+
+	public void setOutbox(List<NewsEvent> outbox) {
+		this.outbox = outbox;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	/* Adds an event to the outbox, to be written with the next save of this document. */
+	public void addEvent(NewsEvent event) {
+		if (outbox == null) {
+			outbox = new ArrayList<>();
+		}
+		outbox.add(event);
+	}
+
+	/*
+	 * Returns the position of a news in the newslist, or -1 when the user has no news
+	 * with this newsId. Constant time once the index is built; a newsId that is not
+	 * found rebuilds it once before -1 is returned.
+	 */
+	public int indexOf(int newsId) {
+		if (newslist == null) {
+			return -1;
+		}
+		NewsIdIndex index = newsIdIndex;
+		if (index == null || index.size() != newslist.size()) {
+			index = NewsIdIndex.of(newslist);
+			newsIdIndex = index;
+		}
+		int position = index.get(newsId);
+		Integer found = position < 0 ? null : newslist.get(position).getNewsId();
+		if (found == null || found != newsId) {
+			// an element may have been replaced in place, the index is stale
+			index = NewsIdIndex.of(newslist);
+			newsIdIndex = index;
+			position = index.get(newsId);
+		}
+		return position;
+	}
+
+	/*
+	 * Returns the news with the given newsId, or null.
+	 */
+	public News findNews(int newsId) {
+		int position = indexOf(newsId);
+		return position < 0 ? null : newslist.get(position);
 	}
 	
 	@Override
 	public String toString() {
-		return "UserNews [userId=" + userId + ", newslist=" + newslist + "]";
+		return "UserNews [userId=" + userId + ", newslist=" + newslist + ", version=" + version + "]";
 	}
 }
 
@@ -0,0 +1,50 @@
+package com.stackroute.newz.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Version of the news of one user in the article layout, incremented on every
+ * change to them. It is kept in its own small document so that it can be read
+ * without the news; the embedded layout keeps its version in UserNews instead.
+ * The document is never removed, so a version is not reused after all news of a
+ * user were deleted.
+ */
+@Document(collection = "userNewsVersion")
+public class UserNewsVersion {
+
+	@Id
+	private String userId;
+	private long version;
+
+	public UserNewsVersion() {
+		super();
+	}
+
+	public UserNewsVersion(String userId, long version) {
+		super();
+		this.userId = userId;
+		this.version = version;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	@Override
+	public String toString() {
+		return "UserNewsVersion [userId=" + userId + ", version=" + version + "]";
+	}
+}
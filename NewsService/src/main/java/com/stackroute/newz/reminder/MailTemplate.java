@@ -0,0 +1,63 @@
+package com.stackroute.newz.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Text template with {name} placeholders. The template is split into literal and
+ * placeholder parts once, so rendering is a single pass that appends the parts
+ * without searching the text again. Placeholders without a value render empty; a
+ * brace that does not enclose a name is kept as it is.
+ */
+public class MailTemplate {
+
+	private final String[] literals;
+	private final String[] names;
+
+	private MailTemplate(String[] literals, String[] names) {
+		this.literals = literals;
+		this.names = names;
+	}
+
+	public static MailTemplate compile(String template) {
+		List<String> literals = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		int i = 0;
+		while (i < template.length()) {
+			int close = template.charAt(i) == '{' ? template.indexOf('}', i + 1) : -1;
+			if (close > i + 1 && isName(template, i + 1, close)) {
+				literals.add(literal.toString());
+				names.add(template.substring(i + 1, close));
+				literal.setLength(0);
+				i = close + 1;
+			} else {
+				literal.append(template.charAt(i++));
+			}
+		}
+		literals.add(literal.toString());
+		return new MailTemplate(literals.toArray(new String[0]), names.toArray(new String[0]));
+	}
+
+	public String render(Map<String, ?> values) {
+		StringBuilder out = new StringBuilder(64);
+		for (int i = 0; i < names.length; i++) {
+			out.append(literals[i]);
+			Object value = values.get(names[i]);
+			if (value != null) {
+				out.append(value);
+			}
+		}
+		return out.append(literals[names.length]).toString();
+	}
+
+	private static boolean isName(String template, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (!Character.isLetterOrDigit(template.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,13 @@
+package com.stackroute.newz.reminder;
+
+import com.stackroute.newz.model.NewsReminder;
+
+/*
+ * Called by the ReminderScheduler when a reminder comes due. Listeners run on the
+ * single scheduler thread and must hand slow work off to their own executor.
+ */
+public interface ReminderListener {
+
+	void reminderDue(NewsReminder reminder);
+
+}
@@ -0,0 +1,236 @@
+package com.stackroute.newz.reminder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.NewsReminder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Emails reminders when they come due. It is active when spring.mail.host is set,
+ * which is also when Spring Boot configures the JavaMailSender it uses.
+ *
+ * Due reminders are put on a bounded queue, so the scheduler thread only waits
+ * when the senders fall behind by news.reminder.mail.queue-capacity emails and
+ * request threads are never involved. news.reminder.mail.pool-size sender threads
+ * take from the queue and each keeps its own SMTP connection open for as long as
+ * there is mail to send, closing it after news.reminder.mail.keep-alive idle.
+ *
+ * A failed send closes the connection and is retried on a new one with
+ * exponential backoff and jitter, up to news.reminder.mail.max-attempts. Mails
+ * the server rejects for their recipients are not retried.
+ */
+@Component
+@ConditionalOnProperty(prefix = "spring.mail", name = "host")
+public class ReminderMailer implements ReminderListener, MeterBinder, InitializingBean, DisposableBean {
+
+	/* put once per sender at shutdown, after the mail still queued */
+	private static final NewsReminder STOP = new NewsReminder();
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private JavaMailSenderImpl mailSender;
+	private NewsProperties.Mail config;
+	private MailTemplate to;
+	private MailTemplate subject;
+	private MailTemplate text;
+
+	private final BlockingQueue<NewsReminder> queue;
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private ExecutorService senders;
+
+	@Autowired
+	public ReminderMailer(JavaMailSenderImpl mailSender, NewsProperties newsProperties) {
+		this.mailSender = mailSender;
+		this.config = newsProperties.getReminder().getMail();
+		this.to = MailTemplate.compile(config.getTo());
+		this.subject = MailTemplate.compile(config.getSubject());
+		this.text = MailTemplate.compile(config.getText());
+		this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		AtomicInteger count = new AtomicInteger();
+		senders = Executors.newFixedThreadPool(config.getPoolSize(), runnable -> {
+			Thread thread = new Thread(runnable, "reminder-mail-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < config.getPoolSize(); i++) {
+			senders.execute(this::send);
+		}
+	}
+
+	/*
+	 * Lets the senders finish the queued mail for a while before they are stopped.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		if (senders == null) {
+			return;
+		}
+		for (int i = 0; i < config.getPoolSize(); i++) {
+			queue.offer(STOP, 1, TimeUnit.SECONDS);
+		}
+		senders.shutdown();
+		if (!senders.awaitTermination(10, TimeUnit.SECONDS)) {
+			logger.warn("In reminder mail - {}", queue.size() + " reminder emails were not sent.");
+			senders.shutdownNow();
+		}
+	}
+
+	@Override
+	public void reminderDue(NewsReminder reminder) {
+		try {
+			queue.put(reminder);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public long sentCount() {
+		return sent.sum();
+	}
+
+	public long failedCount() {
+		return failed.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("news.reminder.mail.queued", queue, BlockingQueue::size).register(registry);
+		FunctionCounter.builder("news.reminder.mail.sent", sent, LongAdder::sum).register(registry);
+		FunctionCounter.builder("news.reminder.mail.failed", failed, LongAdder::sum).register(registry);
+	}
+
+	/*
+	 * Sender loop; the connection lives as long as mail keeps coming.
+	 */
+	private void send() {
+		Transport transport = null;
+		try {
+			while (true) {
+				NewsReminder reminder = queue.poll(config.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+				if (reminder == STOP) {
+					return;
+				}
+				if (reminder == null) {
+					transport = close(transport);
+				} else {
+					transport = deliver(transport, reminder);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			close(transport);
+		}
+	}
+
+	/*
+	 * Sends one reminder over the given connection, opening a new one when there is
+	 * none or it failed, and returns the connection to use for the next reminder.
+	 */
+	private Transport deliver(Transport transport, NewsReminder reminder) throws InterruptedException {
+		MimeMessage message;
+		try {
+			message = compose(reminder);
+		} catch (MessagingException e) {
+			logger.error("In reminder mail - {}", "Could not compose mail for " + reminder, e);
+			failed.increment();
+			return transport;
+		}
+		long backoff = config.getBackoff().toMillis();
+		for (int attempt = 1;; attempt++) {
+			try {
+				if (transport == null) {
+					transport = connect();
+				}
+				transport.sendMessage(message, message.getAllRecipients());
+				sent.increment();
+				return transport;
+			} catch (SendFailedException e) {
+				logger.error("In reminder mail - {}", "Recipients rejected for " + reminder, e);
+				failed.increment();
+				return transport;
+			} catch (MessagingException | IllegalStateException e) {
+				transport = close(transport);
+				if (attempt >= config.getMaxAttempts()) {
+					logger.error("In reminder mail - {}", "Giving up on " + reminder + " after " + attempt
+							+ " attempts.", e);
+					failed.increment();
+					return null;
+				}
+				Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+				backoff = Math.min(backoff * 2, config.getMaxBackoff().toMillis());
+			}
+		}
+	}
+
+	private MimeMessage compose(NewsReminder reminder) throws MessagingException {
+		Map<String, Object> values = new HashMap<>();
+		values.put("userId", reminder.getUserId());
+		values.put("newsId", reminder.getNewsId());
+		values.put("reminderId", reminder.getReminderId());
+		values.put("title", reminder.getTitle());
+		values.put("schedule", reminder.getSchedule());
+		MimeMessage message = mailSender.createMimeMessage();
+		MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+		helper.setFrom(config.getFrom());
+		helper.setTo(to.render(values));
+		helper.setSubject(subject.render(values));
+		helper.setText(text.render(values));
+		message.saveChanges();
+		return message;
+	}
+
+	private Transport connect() throws MessagingException {
+		String protocol = mailSender.getProtocol() == null ? JavaMailSenderImpl.DEFAULT_PROTOCOL
+				: mailSender.getProtocol();
+		Transport transport = mailSender.getSession().getTransport(protocol);
+		transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(),
+				mailSender.getPassword());
+		return transport;
+	}
+
+	private Transport close(Transport transport) {
+		if (transport != null) {
+			try {
+				transport.close();
+			} catch (MessagingException e) {
+				logger.debug("In reminder mail - {}", "Could not close connection", e);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,206 @@
+package com.stackroute.newz.reminder;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsReminder;
+import com.stackroute.newz.reminder.TimingWheel.Timeout;
+import com.stackroute.newz.service.NewsChangeListener;
+
+/*
+ * Fires news reminders at their schedule. Pending reminders live in a
+ * TimingWheel driven by one thread ticking every news.reminder.tick, so there are
+ * neither per-reminder timers nor polling queries.
+ *
+ * The newsReminder collection is the durable side: it is updated on every news
+ * write that changes a reminder, read once at startup with the pending_idx index,
+ * and a reminder is marked fired before its ReminderListeners are called. A
+ * reminder is fired by the instance that marks it, so it goes off once even with
+ * several instances; reminders due while no instance ran fire at the next start.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "news.reminder.enabled", havingValue = "true", matchIfMissing = true)
+public class ReminderScheduler implements NewsChangeListener, ApplicationRunner, DisposableBean {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private MongoOperations mongoOperations;
+	private ObjectProvider<ReminderListener> reminderListeners;
+	private long tickMillis;
+
+	private final TimingWheel<NewsReminder> wheel;
+	/* pending timeouts by NewsReminder id, guarded by the wheel */
+	private final Map<String, Timeout<NewsReminder>> pending = new HashMap<>();
+	private ScheduledExecutorService ticker;
+
+	@Autowired
+	public ReminderScheduler(MongoOperations mongoOperations, ObjectProvider<ReminderListener> reminderListeners,
+			NewsProperties newsProperties) {
+		this.mongoOperations = mongoOperations;
+		this.reminderListeners = reminderListeners;
+		this.tickMillis = newsProperties.getReminder().getTick().toMillis();
+		this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+	}
+
+	/*
+	 * Loads all pending reminders and starts the clock.
+	 */
+	@Override
+	public void run(ApplicationArguments args) {
+		int loaded = 0;
+		try (CloseableIterator<NewsReminder> reminders = mongoOperations.stream(query(where("fired").is(false)),
+				NewsReminder.class)) {
+			while (reminders.hasNext()) {
+				schedule(reminders.next());
+				loaded++;
+			}
+		}
+		logger.info("In reminder - {}", "Loaded " + loaded + " pending reminders.");
+		ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "reminder-wheel");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ticker.scheduleAtFixedRate(() -> fireDue(System.currentTimeMillis()), tickMillis, tickMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		if (ticker != null) {
+			ticker.shutdownNow();
+		}
+	}
+
+	/*
+	 * Advances the wheel to nowMillis and fires every reminder that came due.
+	 */
+	public void fireDue(long nowMillis) {
+		List<NewsReminder> due;
+		synchronized (wheel) {
+			due = wheel.advanceTo(nowMillis);
+			for (NewsReminder reminder : due) {
+				pending.remove(reminder.getId());
+			}
+		}
+		for (NewsReminder reminder : due) {
+			try {
+				fire(reminder);
+			} catch (RuntimeException e) {
+				logger.error("In reminder - {}", "Could not fire " + reminder, e);
+			}
+		}
+	}
+
+	public int pendingCount() {
+		synchronized (wheel) {
+			return wheel.size();
+		}
+	}
+
+	/*
+	 * Writes the reminder of a saved news to the projection when its schedule
+	 * changed. The upsert only matches a projection with another schedule; for an
+	 * unchanged one it collides with the existing id and nothing is rescheduled.
+	 */
+	@Override
+	public void newsSaved(String userId, News news) {
+		if (news.getReminder() == null || news.getReminder().getSchedule() == null) {
+			newsDeleted(userId, news.getNewsId());
+			return;
+		}
+		NewsReminder reminder = new NewsReminder(userId, news);
+		Update update = new Update()
+				.set("userId", reminder.getUserId())
+				.set("newsId", reminder.getNewsId())
+				.set("reminderId", reminder.getReminderId())
+				.set("title", reminder.getTitle())
+				.set("schedule", reminder.getSchedule())
+				.set("fired", false);
+		try {
+			mongoOperations.upsert(query(where("_id").is(reminder.getId()).and("schedule").ne(reminder.getSchedule())),
+					update, NewsReminder.class);
+		} catch (DuplicateKeyException e) {
+			return;
+		}
+		schedule(reminder);
+	}
+
+	@Override
+	public void newsDeleted(String userId, int newsId) {
+		String id = NewsReminder.idOf(userId, newsId);
+		cancel(id);
+		mongoOperations.remove(query(where("_id").is(id)), NewsReminder.class);
+	}
+
+	@Override
+	public void userNewsDeleted(String userId) {
+		for (NewsReminder reminder : mongoOperations.findAllAndRemove(query(where("userId").is(userId)),
+				NewsReminder.class)) {
+			cancel(reminder.getId());
+		}
+	}
+
+	private void schedule(NewsReminder reminder) {
+		long deadline = reminder.getSchedule().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		synchronized (wheel) {
+			Timeout<NewsReminder> previous = pending.put(reminder.getId(), wheel.schedule(reminder, deadline));
+			if (previous != null) {
+				wheel.cancel(previous);
+			}
+		}
+	}
+
+	private void cancel(String id) {
+		synchronized (wheel) {
+			Timeout<NewsReminder> timeout = pending.remove(id);
+			if (timeout != null) {
+				wheel.cancel(timeout);
+			}
+		}
+	}
+
+	/*
+	 * Marks the reminder fired unless it was rescheduled or fired elsewhere in the
+	 * meantime, and only then calls the listeners.
+	 */
+	private void fire(NewsReminder reminder) {
+		LocalDateTime schedule = reminder.getSchedule();
+		long marked = mongoOperations.updateFirst(
+				query(where("_id").is(reminder.getId()).and("schedule").is(schedule).and("fired").is(false)),
+				new Update().set("fired", true), NewsReminder.class).getModifiedCount();
+		if (marked == 0) {
+			return;
+		}
+		reminder.setFired(true);
+		reminderListeners.orderedStream().forEach(listener -> listener.reminderDue(reminder));
+	}
+}
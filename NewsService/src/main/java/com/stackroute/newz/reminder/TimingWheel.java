@@ -0,0 +1,187 @@
+package com.stackroute.newz.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Hierarchical hashed timing wheel (Varghese and Lauck). Time is cut into ticks of
+ * tickMillis. Level 0 has one bucket per tick for the next 64 ticks, level 1 one
+ * bucket per 64 ticks for the next 64 * 64 ticks, and so on for LEVELS levels.
+ * A timeout is put into the lowest level that can still tell its tick apart from
+ * the current one. When the clock enters a new bucket of a higher level, that
+ * bucket is cascaded: its timeouts are put into lower levels again.
+ *
+ * Buckets are intrusive doubly linked lists, so schedule and cancel are O(1) and
+ * advancing costs O(1) per tick plus the timeouts that fire or cascade. The wheel
+ * is not thread safe; ReminderScheduler guards it with a lock.
+ */
+public final class TimingWheel<T> {
+
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int MASK = SLOTS - 1;
+	/* 64^7 ticks of one second cover about 140 thousand years */
+	private static final int LEVELS = 7;
+
+	/*
+	 * A scheduled payload. The instance is the handle for cancel.
+	 */
+	public static final class Timeout<T> {
+
+		private final T payload;
+		private final long deadlineTick;
+		private Timeout<T> previous;
+		private Timeout<T> next;
+		private Bucket<T> bucket;
+
+		private Timeout(T payload, long deadlineTick) {
+			this.payload = payload;
+			this.deadlineTick = deadlineTick;
+		}
+
+		public T getPayload() {
+			return payload;
+		}
+
+		public boolean isPending() {
+			return bucket != null;
+		}
+	}
+
+	private static final class Bucket<T> {
+
+		private Timeout<T> head;
+
+		void add(Timeout<T> timeout) {
+			timeout.bucket = this;
+			timeout.next = head;
+			if (head != null) {
+				head.previous = timeout;
+			}
+			head = timeout;
+		}
+
+		void remove(Timeout<T> timeout) {
+			if (timeout.previous != null) {
+				timeout.previous.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.previous = timeout.previous;
+			}
+			timeout.previous = null;
+			timeout.next = null;
+			timeout.bucket = null;
+		}
+
+		/* Unlinks and returns the first timeout, or null. */
+		Timeout<T> poll() {
+			Timeout<T> first = head;
+			if (first != null) {
+				remove(first);
+			}
+			return first;
+		}
+	}
+
+	private final long tickMillis;
+	@SuppressWarnings("unchecked")
+	private final Bucket<T>[][] levels = new Bucket[LEVELS][SLOTS];
+	/* timeouts already due when they were scheduled */
+	private final Bucket<T> overdue = new Bucket<>();
+	private long currentTick;
+	private int size;
+
+	public TimingWheel(long tickMillis, long startMillis) {
+		this.tickMillis = tickMillis;
+		this.currentTick = startMillis / tickMillis;
+		for (Bucket<T>[] level : levels) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				level[slot] = new Bucket<>();
+			}
+		}
+	}
+
+	/*
+	 * Schedules the payload for the tick containing deadlineMillis. Deadlines in the
+	 * past fire on the next advance.
+	 */
+	public Timeout<T> schedule(T payload, long deadlineMillis) {
+		Timeout<T> timeout = new Timeout<>(payload, deadlineMillis / tickMillis);
+		place(timeout);
+		size++;
+		return timeout;
+	}
+
+	/* Returns false when the timeout already fired or was cancelled. */
+	public boolean cancel(Timeout<T> timeout) {
+		if (timeout.bucket == null) {
+			return false;
+		}
+		timeout.bucket.remove(timeout);
+		size--;
+		return true;
+	}
+
+	/*
+	 * Moves the clock to nowMillis and returns the payloads that came due, in
+	 * deadline order tick by tick.
+	 */
+	public List<T> advanceTo(long nowMillis) {
+		List<T> due = new ArrayList<>();
+		drain(overdue, due);
+		long targetTick = nowMillis / tickMillis;
+		while (currentTick < targetTick) {
+			currentTick++;
+			for (int level = highestCrossedLevel(currentTick); level > 0; level--) {
+				Bucket<T> bucket = levels[level][slot(currentTick, level)];
+				Timeout<T> timeout;
+				while ((timeout = bucket.poll()) != null) {
+					place(timeout);
+				}
+			}
+			drain(levels[0][slot(currentTick, 0)], due);
+			drain(overdue, due);
+		}
+		return due;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void place(Timeout<T> timeout) {
+		long deadline = timeout.deadlineTick;
+		if (deadline <= currentTick) {
+			overdue.add(timeout);
+			return;
+		}
+		int level = 0;
+		while (level < LEVELS - 1 && (deadline >>> (BITS * (level + 1))) != (currentTick >>> (BITS * (level + 1)))) {
+			level++;
+		}
+		levels[level][slot(deadline, level)].add(timeout);
+	}
+
+	private void drain(Bucket<T> bucket, List<T> due) {
+		Timeout<T> timeout;
+		while ((timeout = bucket.poll()) != null) {
+			due.add(timeout.payload);
+			size--;
+		}
+	}
+
+	/* Highest level whose bucket index changes when the clock reaches tick. */
+	private static int highestCrossedLevel(long tick) {
+		int level = 0;
+		while (level < LEVELS - 1 && (tick & ((1L << (BITS * (level + 1))) - 1)) == 0) {
+			level++;
+		}
+		return level;
+	}
+
+	private static int slot(long tick, int level) {
+		return (int) ((tick >>> (BITS * level)) & MASK);
+	}
+}
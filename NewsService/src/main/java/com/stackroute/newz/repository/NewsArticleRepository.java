@@ -0,0 +1,27 @@
+package com.stackroute.newz.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.newz.model.NewsArticle;
+
+/*
+ * Repository for the per-article storage layout. All lookups go through the
+ * unique (userId, newsId) index declared on NewsArticle, except the one by URL
+ * which uses the (userId, url) index.
+ */
+@Repository
+public interface NewsArticleRepository extends MongoRepository<NewsArticle, String> {
+
+	Optional<NewsArticle> findByUserIdAndNewsId(String userId, Integer newsId);
+
+	List<NewsArticle> findByUserId(String userId);
+
+	Optional<NewsArticle> findFirstByUserIdAndUrl(String userId, String url);
+
+	long deleteByUserId(String userId);
+
+}
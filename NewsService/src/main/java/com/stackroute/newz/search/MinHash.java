@@ -0,0 +1,98 @@
+package com.stackroute.newz.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * MinHash signatures of the word shingles of a text and their LSH band keys.
+ * The share of equal positions in two signatures estimates the Jaccard
+ * similarity of the shingle sets. Two texts with similarity s share at least
+ * one band key with probability 1 - (1 - s^ROWS)^BANDS, which is about 0.998 at
+ * s = 0.8, 0.92 at s = 0.7 and 0.015 at s = 0.3.
+ */
+final class MinHash {
+
+	static final int BANDS = 20;
+	static final int ROWS = 6;
+	static final int SIZE = BANDS * ROWS;
+	/* words per shingle */
+	private static final int SHINGLE = 3;
+
+	private static final long[] SEEDS = new long[SIZE];
+
+	static {
+		for (int i = 0; i < SIZE; i++) {
+			SEEDS[i] = mix((i + 1) * 0x9e3779b97f4a7c15L);
+		}
+	}
+
+	private MinHash() {
+	}
+
+	/*
+	 * Returns the signature of the terms, or null if there are none. Texts shorter
+	 * than a shingle are hashed as a single shingle.
+	 */
+	static int[] signature(List<String> terms) {
+		if (terms.isEmpty()) {
+			return null;
+		}
+		int[] signature = new int[SIZE];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+		int shingles = Math.max(1, terms.size() - SHINGLE + 1);
+		for (int start = 0; start < shingles; start++) {
+			long hash = shingleHash(terms, start, Math.min(terms.size(), start + SHINGLE));
+			for (int i = 0; i < SIZE; i++) {
+				// the high bits of the mixed value, made non-negative
+				int value = (int) (mix(hash ^ SEEDS[i]) >>> 33);
+				if (value < signature[i]) {
+					signature[i] = value;
+				}
+			}
+		}
+		return signature;
+	}
+
+	/* Estimated Jaccard similarity of the texts of two signatures. */
+	static double similarity(int[] first, int[] second) {
+		int equal = 0;
+		for (int i = 0; i < SIZE; i++) {
+			if (first[i] == second[i]) {
+				equal++;
+			}
+		}
+		return (double) equal / SIZE;
+	}
+
+	/* Key of one band of a signature, distinct for equal rows in different bands. */
+	static long bandKey(int[] signature, int band) {
+		long hash = band;
+		for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+			hash = hash * 31 + signature[i];
+		}
+		return mix(hash);
+	}
+
+	private static long shingleHash(List<String> terms, int from, int to) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = from; i < to; i++) {
+			String term = terms.get(i);
+			for (int c = 0; c < term.length(); c++) {
+				hash ^= term.charAt(c);
+				hash *= 0x100000001b3L;
+			}
+			hash ^= ' ';
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
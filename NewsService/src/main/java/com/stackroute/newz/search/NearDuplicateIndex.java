@@ -0,0 +1,111 @@
+package com.stackroute.newz.search;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsChangeListener;
+
+/*
+ * In-process near-duplicate detection over title and content of all news,
+ * partitioned by user. Every news gets a MinHash signature of its word triples
+ * and is compared, through LSH buckets, only with the news of the same user
+ * that are likely similar. News whose estimated similarity reaches
+ * news.search.near-duplicate-threshold form a group, so that syndicated copies
+ * of a story can be flagged when they are saved and collapsed when read.
+ *
+ * Like the NewsSearchIndex it is kept up to date as a NewsChangeListener, rebuilt
+ * by NewsSearchIndexLoader and only sees the writes of its own instance.
+ */
+@Component
+public class NearDuplicateIndex implements NewsChangeListener {
+
+	private final Map<String, UserDuplicateIndex> users = new ConcurrentHashMap<>();
+	private final double threshold;
+
+	@Autowired
+	public NearDuplicateIndex(NewsProperties newsProperties) {
+		this.threshold = newsProperties.getSearch().getNearDuplicateThreshold();
+	}
+
+	/* Adds a news, or replaces it when the user already has one with this newsId. */
+	public void index(String userId, News news) {
+		if (userId == null || news.getNewsId() == null) {
+			return;
+		}
+		int[] signature = MinHash.signature(NewsTokenizer.tokenize(news.getTitle(), news.getContent()));
+		if (signature == null) {
+			remove(userId, news.getNewsId());
+			return;
+		}
+		users.computeIfAbsent(userId, key -> new UserDuplicateIndex()).add(news.getNewsId(), signature, threshold);
+	}
+
+	@Override
+	public void newsSaved(String userId, News news) {
+		index(userId, news);
+	}
+
+	@Override
+	public void newsDeleted(String userId, int newsId) {
+		remove(userId, newsId);
+	}
+
+	@Override
+	public void userNewsDeleted(String userId) {
+		users.remove(userId);
+	}
+
+	public void remove(String userId, int newsId) {
+		UserDuplicateIndex userIndex = users.get(userId);
+		if (userIndex != null) {
+			userIndex.remove(newsId);
+		}
+	}
+
+	public void clear() {
+		users.clear();
+	}
+
+	/*
+	 * Returns the newsId of the news this news is a near duplicate of, or null if it
+	 * is the first of its kind or not indexed.
+	 */
+	public Integer duplicateOf(String userId, int newsId) {
+		Integer group = group(userId, newsId);
+		return group == null || group == newsId ? null : group;
+	}
+
+	/*
+	 * Returns the news without near duplicates, keeping the first news of every group
+	 * in the given order.
+	 */
+	public List<News> collapse(String userId, List<News> newsList) {
+		List<News> collapsed = new ArrayList<>(newsList.size());
+		Set<Integer> seen = new HashSet<>();
+		for (News news : newsList) {
+			Integer group = news.getNewsId() == null ? null : group(userId, news.getNewsId());
+			if (group == null || seen.add(group)) {
+				collapsed.add(news);
+			}
+		}
+		return collapsed;
+	}
+
+	public long size() {
+		return users.values().stream().mapToLong(UserDuplicateIndex::size).sum();
+	}
+
+	private Integer group(String userId, int newsId) {
+		UserDuplicateIndex userIndex = users.get(userId);
+		return userIndex == null ? null : userIndex.group(newsId);
+	}
+}
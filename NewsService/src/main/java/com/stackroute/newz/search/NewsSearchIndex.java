@@ -0,0 +1,80 @@
+package com.stackroute.newz.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsChangeListener;
+
+/*
+ * In-process full-text index over title, description and content of all news,
+ * partitioned by user so that a search only touches the postings of that user.
+ * It is kept up to date as a NewsChangeListener and rebuilt from Mongo at startup
+ * by NewsSearchIndexLoader.
+ *
+ * Each instance indexes only the writes it serves itself; other instances pick
+ * them up on their next restart.
+ */
+@Component
+public class NewsSearchIndex implements NewsChangeListener {
+
+	private final Map<String, UserSearchIndex> users = new ConcurrentHashMap<>();
+
+	/* Adds a news, or replaces it when the user already has one with this newsId. */
+	public void index(String userId, News news) {
+		if (userId == null || news.getNewsId() == null) {
+			return;
+		}
+		users.computeIfAbsent(userId, key -> new UserSearchIndex()).add(news);
+	}
+
+	@Override
+	public void newsSaved(String userId, News news) {
+		index(userId, news);
+	}
+
+	@Override
+	public void newsDeleted(String userId, int newsId) {
+		remove(userId, newsId);
+	}
+
+	@Override
+	public void userNewsDeleted(String userId) {
+		removeUser(userId);
+	}
+
+	public void remove(String userId, int newsId) {
+		UserSearchIndex userIndex = users.get(userId);
+		if (userIndex != null) {
+			userIndex.remove(newsId);
+		}
+	}
+
+	public void removeUser(String userId) {
+		users.remove(userId);
+	}
+
+	public void clear() {
+		users.clear();
+	}
+
+	/*
+	 * Returns the newsIds of at most limit news of the user matching the query,
+	 * best match first.
+	 */
+	public List<Integer> search(String userId, String query, int limit) {
+		UserSearchIndex userIndex = users.get(userId);
+		if (userIndex == null || limit <= 0) {
+			return new ArrayList<>();
+		}
+		return userIndex.search(query, limit);
+	}
+
+	public long size() {
+		return users.values().stream().mapToLong(UserSearchIndex::size).sum();
+	}
+}
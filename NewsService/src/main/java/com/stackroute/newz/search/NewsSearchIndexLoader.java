@@ -0,0 +1,58 @@
+package com.stackroute.newz.search;
+
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.service.NewsService;
+
+/*
+ * Rebuilds the NewsSearchIndex and the NearDuplicateIndex from Mongo at startup,
+ * in one pass and after any migration has run. Disabled with
+ * news.search.rebuild-on-startup=false.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "news.search.rebuild-on-startup", havingValue = "true", matchIfMissing = true)
+public class NewsSearchIndexLoader implements ApplicationRunner {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private NewsService newsService;
+	private NewsSearchIndex newsSearchIndex;
+	private NearDuplicateIndex nearDuplicateIndex;
+
+	@Autowired
+	public NewsSearchIndexLoader(NewsService newsService, NewsSearchIndex newsSearchIndex,
+			NearDuplicateIndex nearDuplicateIndex) {
+		this.newsService = newsService;
+		this.newsSearchIndex = newsSearchIndex;
+		this.nearDuplicateIndex = nearDuplicateIndex;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		long started = System.currentTimeMillis();
+		newsSearchIndex.clear();
+		nearDuplicateIndex.clear();
+		try (Stream<NewsArticle> allNews = newsService.streamNewsOfAllUsers()) {
+			allNews.forEach(article -> {
+				News news = article.toNews();
+				newsSearchIndex.index(article.getUserId(), news);
+				nearDuplicateIndex.index(article.getUserId(), news);
+			});
+		}
+		logger.info("In search - {}", "Indexed " + newsSearchIndex.size() + " news in "
+				+ (System.currentTimeMillis() - started) + " ms.");
+	}
+}
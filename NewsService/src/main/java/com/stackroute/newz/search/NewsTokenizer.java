@@ -0,0 +1,40 @@
+package com.stackroute.newz.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/*
+ * Splits text into lower case terms on everything that is not a letter or digit
+ * and drops common English stop words. Used for both news and queries.
+ */
+final class NewsTokenizer {
+
+	private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+			"a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+			"of", "on", "or", "that", "the", "to", "was", "with"));
+
+	private NewsTokenizer() {
+	}
+
+	static List<String> tokenize(String... texts) {
+		List<String> terms = new ArrayList<>();
+		for (String text : texts) {
+			if (text == null) {
+				continue;
+			}
+			for (String term : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+				if (!term.isEmpty() && !STOP_WORDS.contains(term)) {
+					terms.add(term);
+				}
+			}
+		}
+		return terms;
+	}
+}
@@ -0,0 +1,90 @@
+package com.stackroute.newz.search;
+
+import java.util.Arrays;
+
+/*
+ * Postings of one term: (docId, term frequency) pairs in increasing docId order,
+ * stored as variable-length integers with docIds delta encoded. Most deltas and
+ * frequencies fit in one byte, so a posting usually takes two bytes.
+ */
+final class PostingList {
+
+	interface PostingConsumer {
+		void accept(int docId, int termFrequency);
+	}
+
+	private byte[] data = new byte[8];
+	private int length;
+	private int lastDocId = -1;
+	/* live documents containing the term */
+	private int documentFrequency;
+
+	/* docIds must be appended in increasing order */
+	void append(int docId, int termFrequency) {
+		writeVarInt(docId - lastDocId);
+		writeVarInt(termFrequency);
+		lastDocId = docId;
+		documentFrequency++;
+	}
+
+	void forEach(PostingConsumer consumer) {
+		int position = 0;
+		int docId = -1;
+		while (position < length) {
+			int delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[position++];
+				delta |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			int termFrequency = 0;
+			shift = 0;
+			do {
+				b = data[position++];
+				termFrequency |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			docId += delta;
+			consumer.accept(docId, termFrequency);
+		}
+	}
+
+	/*
+	 * Re-encodes the postings with remapped docIds, dropping the ones mapped to -1.
+	 * The mapping must keep the docId order.
+	 */
+	PostingList remap(int[] newDocIds) {
+		PostingList remapped = new PostingList();
+		forEach((docId, termFrequency) -> {
+			if (newDocIds[docId] >= 0) {
+				remapped.append(newDocIds[docId], termFrequency);
+			}
+		});
+		return remapped;
+	}
+
+	void removeDocument() {
+		documentFrequency--;
+	}
+
+	int getDocumentFrequency() {
+		return documentFrequency;
+	}
+
+	int sizeInBytes() {
+		return length;
+	}
+
+	private void writeVarInt(int value) {
+		if (length + 5 > data.length) {
+			data = Arrays.copyOf(data, data.length * 2);
+		}
+		while ((value & ~0x7F) != 0) {
+			data[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[length++] = (byte) value;
+	}
+}
@@ -0,0 +1,84 @@
+package com.stackroute.newz.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * LSH buckets of the MinHash signatures of the news of one user. A new news is
+ * only compared with the news that share one of its band keys, never with all
+ * news of the user. Each news belongs to a group named by the newsId of the
+ * first news of it; a news that is not near any other forms its own group.
+ * All methods are synchronized on the instance.
+ */
+final class UserDuplicateIndex {
+
+	private final Map<Long, List<Integer>> buckets = new HashMap<>();
+	private final Map<Integer, int[]> signatures = new HashMap<>();
+	private final Map<Integer, Integer> groups = new HashMap<>();
+
+	/*
+	 * Adds a news, or replaces it when it is already indexed, and returns its group.
+	 * It joins the group of the most similar news if that reaches the threshold.
+	 */
+	synchronized int add(int newsId, int[] signature, double threshold) {
+		remove(newsId);
+		int group = newsId;
+		double best = threshold;
+		Set<Integer> compared = new HashSet<>();
+		for (int band = 0; band < MinHash.BANDS; band++) {
+			List<Integer> bucket = buckets.get(MinHash.bandKey(signature, band));
+			if (bucket == null) {
+				continue;
+			}
+			for (Integer candidate : bucket) {
+				if (compared.add(candidate)) {
+					double similarity = MinHash.similarity(signature, signatures.get(candidate));
+					if (similarity >= best) {
+						best = similarity;
+						group = groups.get(candidate);
+					}
+				}
+			}
+		}
+		for (int band = 0; band < MinHash.BANDS; band++) {
+			buckets.computeIfAbsent(MinHash.bandKey(signature, band), key -> new ArrayList<>(1)).add(newsId);
+		}
+		signatures.put(newsId, signature);
+		groups.put(newsId, group);
+		return group;
+	}
+
+	/*
+	 * Removes a news. News that joined its group keep the group, so they are still
+	 * recognized as near duplicates of each other.
+	 */
+	synchronized boolean remove(int newsId) {
+		int[] signature = signatures.remove(newsId);
+		if (signature == null) {
+			return false;
+		}
+		groups.remove(newsId);
+		for (int band = 0; band < MinHash.BANDS; band++) {
+			long key = MinHash.bandKey(signature, band);
+			List<Integer> bucket = buckets.get(key);
+			bucket.remove(Integer.valueOf(newsId));
+			if (bucket.isEmpty()) {
+				buckets.remove(key);
+			}
+		}
+		return true;
+	}
+
+	/* Returns the group of the news, or null if it is not indexed. */
+	synchronized Integer group(int newsId) {
+		return groups.get(newsId);
+	}
+
+	synchronized int size() {
+		return signatures.size();
+	}
+}
@@ -0,0 +1,156 @@
+package com.stackroute.newz.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.stackroute.newz.model.News;
+
+/*
+ * Inverted index over the news of one user. Documents get increasing docIds, so
+ * new postings are always appended. Removing a news only marks its docId as
+ * deleted; the postings are compacted once deleted documents outnumber live ones.
+ * All methods are synchronized on the instance.
+ */
+final class UserSearchIndex {
+
+	private static final float K1 = 1.2f;
+	private static final float B = 0.75f;
+	private static final int MIN_COMPACTION = 64;
+
+	private static final class Document {
+
+		final int newsId;
+		final int length;
+		final String[] terms;
+
+		Document(int newsId, int length, String[] terms) {
+			this.newsId = newsId;
+			this.length = length;
+			this.terms = terms;
+		}
+	}
+
+	private Map<String, PostingList> postings = new HashMap<>();
+	/* by docId, null once deleted */
+	private List<Document> documents = new ArrayList<>();
+	private final Map<Integer, Integer> docIdByNewsId = new HashMap<>();
+	private long totalLength;
+	private int deleted;
+
+	synchronized void add(News news) {
+		remove(news.getNewsId());
+		List<String> tokens = NewsTokenizer.tokenize(news.getTitle(), news.getDescription(), news.getContent());
+		Map<String, Integer> termFrequencies = new HashMap<>();
+		for (String token : tokens) {
+			termFrequencies.merge(token, 1, Integer::sum);
+		}
+		int docId = documents.size();
+		String[] terms = new String[termFrequencies.size()];
+		int i = 0;
+		for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+			postings.computeIfAbsent(entry.getKey(), term -> new PostingList()).append(docId, entry.getValue());
+			terms[i++] = entry.getKey();
+		}
+		documents.add(new Document(news.getNewsId(), tokens.size(), terms));
+		docIdByNewsId.put(news.getNewsId(), docId);
+		totalLength += tokens.size();
+	}
+
+	synchronized boolean remove(int newsId) {
+		Integer docId = docIdByNewsId.remove(newsId);
+		if (docId == null) {
+			return false;
+		}
+		Document document = documents.set(docId, null);
+		for (String term : document.terms) {
+			PostingList postingList = postings.get(term);
+			postingList.removeDocument();
+			if (postingList.getDocumentFrequency() == 0) {
+				postings.remove(term);
+			}
+		}
+		totalLength -= document.length;
+		deleted++;
+		if (deleted >= MIN_COMPACTION && deleted > docIdByNewsId.size()) {
+			compact();
+		}
+		return true;
+	}
+
+	synchronized int size() {
+		return docIdByNewsId.size();
+	}
+
+	/*
+	 * Returns the newsIds of the best matching news, best first, scored with BM25.
+	 */
+	synchronized List<Integer> search(String query, int limit) {
+		int liveDocuments = docIdByNewsId.size();
+		if (liveDocuments == 0) {
+			return new ArrayList<>();
+		}
+		float averageLength = Math.max(1f, (float) totalLength / liveDocuments);
+		float[] scores = new float[documents.size()];
+		for (String term : new LinkedHashSet<>(NewsTokenizer.tokenize(query))) {
+			PostingList postingList = postings.get(term);
+			if (postingList == null) {
+				continue;
+			}
+			int documentFrequency = postingList.getDocumentFrequency();
+			float idf = (float) Math.log(1 + (liveDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5));
+			postingList.forEach((docId, termFrequency) -> {
+				Document document = documents.get(docId);
+				if (document != null) {
+					float norm = K1 * (1 - B + B * document.length / averageLength);
+					scores[docId] += idf * termFrequency * (K1 + 1) / (termFrequency + norm);
+				}
+			});
+		}
+		PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+				(left, right) -> Float.compare(scores[left], scores[right]));
+		for (int docId = 0; docId < scores.length; docId++) {
+			if (scores[docId] > 0) {
+				best.add(docId);
+				if (best.size() > limit) {
+					best.poll();
+				}
+			}
+		}
+		Integer[] ranked = new Integer[best.size()];
+		for (int i = ranked.length - 1; i >= 0; i--) {
+			ranked[i] = documents.get(best.poll()).newsId;
+		}
+		List<Integer> newsIds = new ArrayList<>(ranked.length);
+		for (Integer newsId : ranked) {
+			newsIds.add(newsId);
+		}
+		return newsIds;
+	}
+
+	/* Drops deleted documents and renumbers the live ones in their original order. */
+	private void compact() {
+		int[] newDocIds = new int[documents.size()];
+		List<Document> live = new ArrayList<>(docIdByNewsId.size());
+		for (int docId = 0; docId < documents.size(); docId++) {
+			Document document = documents.get(docId);
+			if (document == null) {
+				newDocIds[docId] = -1;
+			} else {
+				newDocIds[docId] = live.size();
+				docIdByNewsId.put(document.newsId, live.size());
+				live.add(document);
+			}
+		}
+		Map<String, PostingList> remapped = new HashMap<>(postings.size() * 2);
+		for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+			remapped.put(entry.getKey(), entry.getValue().remap(newDocIds));
+		}
+		postings = remapped;
+		documents = live;
+		deleted = 0;
+	}
+}
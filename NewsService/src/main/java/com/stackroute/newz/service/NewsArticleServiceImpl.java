@@ -0,0 +1,346 @@
+package com.stackroute.newz.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.StreamUtils;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.newz.cache.UserNewsVersions;
+import com.stackroute.newz.dedup.NewsUrlFilter;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.NewsBatchItemResult;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.repository.NewsArticleRepository;
+import com.stackroute.newz.search.NewsSearchIndex;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.trending.NewsViewCounter;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
+
+/*
+ * NewsService implementation for the per-article storage layout (news.storage=article).
+ * Each News lives in its own NewsArticle document, so every write is a single-document
+ * operation on the (userId, newsId) index instead of a read-modify-write of the whole
+ * UserNews document. The version of a user's news is kept by the UserNewsVersions
+ * and incremented after every write. A write with an expected version increments
+ * it before the write instead, and only if it is still the expected one; if the
+ * news is then not found, the increment is taken back, so a 404 does not change
+ * the ETag of the user's news.
+ *
+ * As in the NewsServiceImpl, the NewsStatsRollup counts every created, deleted and
+ * moved news; the NewsStatsReconciler does not count articles.
+ */
+@Service
+@ConditionalOnProperty(name = "news.storage", havingValue = "article")
+public class NewsArticleServiceImpl implements NewsService {
+
+	private NewsArticleRepository articleRepo;
+	private MongoOperations mongoOperations;
+	private NewsSearchIndex newsSearchIndex;
+	private NewsChangeListeners newsChangeListeners;
+	private NewsUrlFilter newsUrlFilter;
+	private NewsViewCounter newsViewCounter;
+	private UserNewsVersions userNewsVersions;
+	private NewsStatsRollup newsStatsRollup;
+
+	@Autowired
+	public NewsArticleServiceImpl(NewsArticleRepository articleRepository, MongoOperations mongoOperations,
+			NewsSearchIndex newsSearchIndex, NewsChangeListeners newsChangeListeners, NewsUrlFilter newsUrlFilter,
+			NewsViewCounter newsViewCounter, UserNewsVersions userNewsVersions, NewsStatsRollup newsStatsRollup) {
+		this.articleRepo = articleRepository;
+		this.mongoOperations = mongoOperations;
+		this.newsSearchIndex = newsSearchIndex;
+		this.newsChangeListeners = newsChangeListeners;
+		this.newsUrlFilter = newsUrlFilter;
+		this.newsViewCounter = newsViewCounter;
+		this.userNewsVersions = userNewsVersions;
+		this.newsStatsRollup = newsStatsRollup;
+	}
+
+	/*
+	 * The unique (userId, newsId) index rejects duplicates, so no existence check is
+	 * needed before the insert.
+	 */
+	@Override
+	public boolean addNews(News news) {
+		try {
+			if (articleRepo.insert(new NewsArticle(news.getAuthor(), news)) == null) {
+				return false;
+			}
+			userNewsVersions.increment(news.getAuthor());
+			newsStatsRollup.added(news.getAuthor(), news);
+			newsChangeListeners.saved(news.getAuthor(), news);
+			return true;
+		} catch (DuplicateKeyException ex) {
+			return false;
+		}
+	}
+
+	/*
+	 * Removes the article with findAndRemove, so the removed news can be counted.
+	 */
+	@Override
+	public boolean deleteNews(String userId, int newsId, Long expectedVersion) {
+		expectVersion(userId, expectedVersion);
+		NewsArticle removed = mongoOperations.findAndRemove(query(where("userId").is(userId).and("newsId").is(newsId)),
+				NewsArticle.class);
+		if (removed == null) {
+			restoreVersion(userId, expectedVersion);
+			return false;
+		}
+		incrementVersion(userId, expectedVersion);
+		newsStatsRollup.removed(userId, removed.toNews());
+		newsChangeListeners.deleted(userId, newsId);
+		return true;
+	}
+
+	@Override
+	public boolean deleteAllNews(String userId) throws NewsNotFoundException {
+		if (articleRepo.deleteByUserId(userId) == 0) {
+			throw new NewsNotFoundException("Can not Delete the News. The news with user ID: " + userId
+					+ " does not exists in the database.");
+		}
+		userNewsVersions.increment(userId);
+		newsChangeListeners.userDeleted(userId);
+		return true;
+	}
+
+	@Override
+	public News updateNews(News news, int newsId, String userId, Long expectedVersion) throws NewsNotFoundException {
+		expectVersion(userId, expectedVersion);
+		Update update = new Update()
+				.set("author", news.getAuthor())
+				.set("content", news.getContent())
+				.set("description", news.getDescription())
+				.set("title", news.getTitle())
+				.set("url", news.getUrl())
+				.set("urlToImage", news.getUrlToImage())
+				.set("reminder", news.getReminder());
+		NewsArticle updated = mongoOperations.findAndModify(
+				query(where("userId").is(userId).and("newsId").is(newsId)), update,
+				FindAndModifyOptions.options().returnNew(true), NewsArticle.class);
+		if (updated == null) {
+			restoreVersion(userId, expectedVersion);
+			throw new NewsNotFoundException("Can not Update the News. The news with user ID: " + userId
+					+ " and news ID: " + newsId + " does not exists in the database.");
+		}
+		News updatedNews = updated.toNews();
+		incrementVersion(userId, expectedVersion);
+		newsChangeListeners.saved(userId, updatedNews);
+		return updatedNews;
+	}
+
+	/*
+	 * Sets only the patched fields of the article document. The article is returned
+	 * as it was before and patched here, so a changed source can be counted.
+	 */
+	@Override
+	public News patchNews(String userId, int newsId, NewsPatch patch, Long expectedVersion) throws NewsNotFoundException {
+		if (patch.isEmpty()) {
+			return getNewsByNewsId(userId, newsId);
+		}
+		expectVersion(userId, expectedVersion);
+		Update update = new Update();
+		patch.getFields().forEach(update::set);
+		NewsArticle previous = mongoOperations.findAndModify(
+				query(where("userId").is(userId).and("newsId").is(newsId)), update,
+				FindAndModifyOptions.options().returnNew(false), NewsArticle.class);
+		if (previous == null) {
+			restoreVersion(userId, expectedVersion);
+			throw new NewsNotFoundException("Can not Update the News. The news with user ID: " + userId
+					+ " and news ID: " + newsId + " does not exists in the database.");
+		}
+		News patchedNews = previous.toNews();
+		NewsSource previousSource = patchedNews.getNewsSource();
+		patch.applyTo(patchedNews);
+		incrementVersion(userId, expectedVersion);
+		if (patch.getFields().containsKey("newsSource")) {
+			newsStatsRollup.moved(userId, patchedNews, previousSource);
+		}
+		newsChangeListeners.saved(userId, patchedNews);
+		return patchedNews;
+	}
+
+	private void expectVersion(String userId, Long expectedVersion) {
+		if (expectedVersion != null && !userNewsVersions.increment(userId, expectedVersion)) {
+			throw new NewsPreconditionFailedException("The news of user ID: " + userId + " are not at version "
+					+ expectedVersion);
+		}
+	}
+
+	/* An expected version was incremented for a write that found no news. */
+	private void restoreVersion(String userId, Long expectedVersion) {
+		if (expectedVersion != null) {
+			userNewsVersions.restore(userId, expectedVersion);
+		}
+	}
+
+	/* A write with an expected version has incremented it already, see expectVersion. */
+	private void incrementVersion(String userId, Long expectedVersion) {
+		if (expectedVersion == null) {
+			userNewsVersions.increment(userId);
+		}
+	}
+
+	@Override
+	public News getNewsByNewsId(String userId, int newsId) throws NewsNotFoundException {
+		News news = articleRepo.findByUserIdAndNewsId(userId, newsId)
+				.map(NewsArticle::toNews)
+				.orElseThrow(() -> new NewsNotFoundException("Can not Retrieve the News. The news with user ID: "
+						+ userId + " and news  ID: " + newsId + " does not exists in the database."));
+		newsViewCounter.viewed(userId, newsId);
+		return news;
+	}
+
+	/*
+	 * Possible duplicates are looked up with the (userId, url) index.
+	 */
+	@Override
+	public News getNewsByUrl(String userId, String url) {
+		if (url == null || !newsUrlFilter.mightContain(userId, url)) {
+			return null;
+		}
+		return articleRepo.findFirstByUserIdAndUrl(userId, url).map(NewsArticle::toNews).orElse(null);
+	}
+
+	/*
+	 * Returns null when the user has no articles, which the controller maps to 404
+	 * in the same way as a missing UserNews document.
+	 */
+	@Override
+	public List<News> getAllNewsByUserId(String userId) {
+		List<NewsArticle> articles = articleRepo.findByUserId(userId);
+		if (articles.isEmpty()) {
+			return null;
+		}
+		return articles.stream().map(NewsArticle::toNews).collect(Collectors.toList());
+	}
+
+	/*
+	 * The version is kept per user, so one is returned even after the user's last
+	 * article was deleted.
+	 */
+	@Override
+	public Long getNewsVersion(String userId) {
+		return userNewsVersions.version(userId);
+	}
+
+	@Override
+	public List<News> getAllNewsByUserId(String userId, NewsFields fields) {
+		if (fields == null) {
+			return getAllNewsByUserId(userId);
+		}
+		List<NewsArticle> articles = mongoOperations.find(select(query(where("userId").is(userId)), fields),
+				NewsArticle.class);
+		if (articles.isEmpty()) {
+			return null;
+		}
+		return articles.stream().map(NewsArticle::toNews).collect(Collectors.toList());
+	}
+
+	/*
+	 * Served by the (userId, publishedAt, newsId) index: the keyset condition and the
+	 * sort both follow the index, so Mongo reads only size + 1 documents.
+	 */
+	@Override
+	public NewsPage getNewsPage(String userId, NewsCursor after, int size) {
+		return getNewsPage(userId, after, size, null);
+	}
+
+	@Override
+	public NewsPage getNewsPage(String userId, NewsCursor after, int size, NewsFields fields) {
+		Criteria criteria = where("userId").is(userId);
+		if (after != null) {
+			criteria.andOperator(UserNewsQueries.after(after.getPublishedAt(), "newsId", after.getNewsId()));
+		}
+		List<News> fetched = mongoOperations
+				.find(select(query(criteria), fields).with(Sort.by(Sort.Direction.DESC, "publishedAt", "newsId"))
+						.limit(size + 1), NewsArticle.class)
+				.stream().map(NewsArticle::toNews).collect(Collectors.toList());
+		return NewsPage.of(fetched, size);
+	}
+
+	@Override
+	public Stream<News> streamAllNews(String userId) {
+		return StreamUtils.createStreamFromIterator(
+				mongoOperations.stream(query(where("userId").is(userId)), NewsArticle.class))
+				.map(NewsArticle::toNews);
+	}
+
+	/*
+	 * Inserts the whole chunk with one unordered bulk; the unique (userId, newsId)
+	 * index turns existing news into per-item duplicate key errors.
+	 */
+	@Override
+	public List<NewsBatchItemResult> addNewsBatch(List<News> chunk) {
+		List<NewsBatchItemResult> results = NewsBatches.write(chunk,
+				mongoOperations.bulkOps(BulkMode.UNORDERED, NewsArticle.class),
+				(bulk, news) -> bulk.insert(new NewsArticle(news.getAuthor(), news)));
+		Set<String> authors = new LinkedHashSet<>();
+		List<News> created = new ArrayList<>();
+		for (int i = 0; i < chunk.size(); i++) {
+			if (results.get(i).getStatus() == NewsBatchItemResult.Status.CREATED) {
+				authors.add(chunk.get(i).getAuthor());
+				created.add(chunk.get(i));
+			}
+		}
+		userNewsVersions.increment(authors);
+		newsStatsRollup.added(created);
+		newsChangeListeners.created(chunk, results);
+		return results;
+	}
+
+	/*
+	 * Loads the matching articles with one query on the (userId, newsId) index and
+	 * returns them in the order of the search hits.
+	 */
+	@Override
+	public List<News> searchNews(String userId, String query, int size) {
+		List<Integer> newsIds = newsSearchIndex.search(userId, query, size);
+		if (newsIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Map<Integer, News> found = mongoOperations
+				.find(query(where("userId").is(userId).and("newsId").in(newsIds)), NewsArticle.class)
+				.stream().collect(Collectors.toMap(NewsArticle::getNewsId, NewsArticle::toNews));
+		return newsIds.stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+	@Override
+	public Stream<NewsArticle> streamNewsOfAllUsers() {
+		return StreamUtils.createStreamFromIterator(mongoOperations.stream(new Query(), NewsArticle.class));
+	}
+
+	/* Reads only the selected fields of the articles, or all for null. */
+	private static Query select(Query query, NewsFields fields) {
+		if (fields != null) {
+			fields.getFields().forEach(query.fields()::include);
+		}
+		return query;
+	}
+}
@@ -0,0 +1,100 @@
+package com.stackroute.newz.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItemResult;
+import com.stackroute.newz.model.NewsBatchItemResult.Status;
+
+/*
+ * Batch ingest shared by both storage layouts. A chunk is validated, grouped by
+ * author so that writes to the same user are adjacent, and written with a single
+ * unordered bulk operation. Duplicate key errors are reported per item as CONFLICT.
+ */
+final class NewsBatches {
+
+	private static final int DUPLICATE_KEY = 11000;
+
+	private NewsBatches() {
+	}
+
+	/*
+	 * Writes the chunk and returns one result per News in chunk order. addOperation
+	 * adds the write of a single News to the bulk.
+	 */
+	static List<NewsBatchItemResult> write(List<News> chunk, BulkOperations bulk,
+			BiConsumer<BulkOperations, News> addOperation) {
+		return write(chunk, bulk, news -> false, addOperation);
+	}
+
+	/*
+	 * As above, but the News for which exists holds are reported as CONFLICT
+	 * without being written.
+	 */
+	static List<NewsBatchItemResult> write(List<News> chunk, BulkOperations bulk, Predicate<News> exists,
+			BiConsumer<BulkOperations, News> addOperation) {
+		NewsBatchItemResult[] results = new NewsBatchItemResult[chunk.size()];
+		Map<String, List<Integer>> byAuthor = new LinkedHashMap<>();
+		for (int i = 0; i < chunk.size(); i++) {
+			News news = chunk.get(i);
+			if (news == null || news.getAuthor() == null || news.getNewsId() == null) {
+				results[i] = new NewsBatchItemResult(news == null ? null : news.getAuthor(),
+						news == null ? null : news.getNewsId(), Status.INVALID, "author and newsId are required");
+			} else if (exists.test(news)) {
+				results[i] = conflict(news);
+			} else {
+				byAuthor.computeIfAbsent(news.getAuthor(), author -> new ArrayList<>()).add(i);
+			}
+		}
+		List<Integer> positions = new ArrayList<>(chunk.size());
+		byAuthor.values().forEach(positions::addAll);
+		if (positions.isEmpty()) {
+			return Arrays.asList(results);
+		}
+		for (int position : positions) {
+			addOperation.accept(bulk, chunk.get(position));
+		}
+		try {
+			bulk.execute();
+		} catch (DataIntegrityViolationException ex) {
+			// Spring translates a bulk write with failed items into a DuplicateKeyException
+			// or DataIntegrityViolationException; the driver's exception lists the items.
+			if (!(ex.getCause() instanceof MongoBulkWriteException)) {
+				throw ex;
+			}
+			for (BulkWriteError error : ((MongoBulkWriteException) ex.getCause()).getWriteErrors()) {
+				int position = positions.get(error.getIndex());
+				News news = chunk.get(position);
+				if (error.getCode() == DUPLICATE_KEY) {
+					results[position] = conflict(news);
+				} else {
+					results[position] = new NewsBatchItemResult(news.getAuthor(), news.getNewsId(), Status.FAILED,
+							error.getMessage());
+				}
+			}
+		}
+		for (int position : positions) {
+			if (results[position] == null) {
+				News news = chunk.get(position);
+				results[position] = new NewsBatchItemResult(news.getAuthor(), news.getNewsId(), Status.CREATED, null);
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	private static NewsBatchItemResult conflict(News news) {
+		return new NewsBatchItemResult(news.getAuthor(), news.getNewsId(), Status.CONFLICT,
+				"News ID " + news.getNewsId() + " already exists.");
+	}
+}
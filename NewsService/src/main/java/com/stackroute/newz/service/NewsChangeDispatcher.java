@@ -0,0 +1,178 @@
+package com.stackroute.newz.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.content.NewsContentStore;
+import com.stackroute.newz.event.NewsEventHandler;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.UserNews;
+
+/*
+ * Hands the news events of the embedded layout to the NewsChangeListeners on the
+ * outbox thread, so the search indexes, the reminders, the view counters and the
+ * other derived state are updated off the request thread. Created news of one
+ * batch go to the listeners at once, the other events one by one in their order.
+ *
+ * Events published by the NewsService come straight from the ring buffer of the
+ * NewsOutbox and are handed on without reading Mongo. Only the events that the
+ * sweep redelivered, and deletions of all news of a user, are looked up in the
+ * outboxes, and skipped when they are no longer there: a redelivered event that
+ * was acknowledged since, or that a deletion of all news of its user replaced,
+ * never undoes a later change. An update written without its news is handed on
+ * with the news read back.
+ *
+ * The deletion of all news of a user must reach the listeners before news of
+ * that user are written again, or it would remove theirs as well. The writes of
+ * the NewsService do not match a user with a pending deletion and deliver it
+ * first, see deliverPendingDeletion. The events of that user still in the buffer
+ * then come after the deletion; the ones that occurred before it are skipped
+ * until its own event comes through.
+ */
+@Component
+@ConditionalOnProperty(name = "news.storage", havingValue = "embedded", matchIfMissing = true)
+public class NewsChangeDispatcher implements NewsEventHandler {
+
+	private MongoOperations mongoOperations;
+	private NewsChangeListeners newsChangeListeners;
+	private NewsContentStore newsContentStore;
+	/* when deliverPendingDeletion delivered the deletion of all news of a user */
+	private final Map<String, LocalDateTime> deliveredDeletions = new ConcurrentHashMap<>();
+
+	@Autowired
+	public NewsChangeDispatcher(MongoOperations mongoOperations, NewsChangeListeners newsChangeListeners,
+			NewsContentStore newsContentStore) {
+		this.mongoOperations = mongoOperations;
+		this.newsChangeListeners = newsChangeListeners;
+		this.newsContentStore = newsContentStore;
+	}
+
+	@Override
+	public void onEvents(List<NewsEvent> events) {
+		Set<String> pending = pendingEventIds(events);
+		List<News> created = new ArrayList<>();
+		for (NewsEvent event : events) {
+			if (deliveredBefore(event) || looksUp(event) && !pending.contains(event.getEventId())) {
+				continue;
+			}
+			if (event.getType() == NewsEvent.Type.CREATED) {
+				created.add(newsContentStore.load(event.getNews()));
+				continue;
+			}
+			newsChangeListeners.created(created);
+			created = new ArrayList<>();
+			switch (event.getType()) {
+			case UPDATED:
+				News news = event.getNews() != null ? event.getNews() : current(event.getUserId(), event.getNewsId());
+				if (news != null) {
+					newsChangeListeners.saved(event.getUserId(), newsContentStore.load(news));
+				}
+				break;
+			case DELETED:
+				newsChangeListeners.deleted(event.getUserId(), event.getNewsId());
+				break;
+			case USER_DELETED:
+				newsChangeListeners.userDeleted(event.getUserId());
+				break;
+			default:
+				break;
+			}
+		}
+		newsChangeListeners.created(created);
+	}
+
+	/*
+	 * Delivers the pending deletion of all news of a user right away and removes it
+	 * from the outbox. Returns false when no deletion of the user is pending.
+	 */
+	public boolean deliverPendingDeletion(String userId) {
+		Query pendingDeletion = query(where("_id").is(userId).and("outbox.type").is(NewsEvent.Type.USER_DELETED.name()));
+		pendingDeletion.fields().include("_id");
+		if (mongoOperations.findOne(pendingDeletion, UserNews.class) == null) {
+			return false;
+		}
+		newsChangeListeners.userDeleted(userId);
+		deliveredDeletions.put(userId, LocalDateTime.now());
+		mongoOperations.updateFirst(query(where("_id").is(userId)), new Update().pull("outbox",
+				new Document("type", NewsEvent.Type.USER_DELETED.name())), UserNews.class);
+		return true;
+	}
+
+	/* Delivers the pending deletions of the given users, see deliverPendingDeletion. */
+	public void deliverPendingDeletions(Collection<String> userIds) {
+		Query pendingDeletions = query(where("_id").in(userIds).and("outbox.type").is(NewsEvent.Type.USER_DELETED.name()));
+		pendingDeletions.fields().include("_id");
+		for (UserNews userNews : mongoOperations.find(pendingDeletions, UserNews.class)) {
+			deliverPendingDeletion(userNews.getUserId());
+		}
+	}
+
+	private boolean looksUp(NewsEvent event) {
+		return event.isRedelivered() || event.getType() == NewsEvent.Type.USER_DELETED;
+	}
+
+	/*
+	 * Whether the event occurred before a deletion of all news of its user that
+	 * deliverPendingDeletion delivered. That deletion is forgotten once its own
+	 * event, which occurred before the delivery too, comes through.
+	 */
+	private boolean deliveredBefore(NewsEvent event) {
+		LocalDateTime deliveredAt = deliveredDeletions.get(event.getUserId());
+		if (deliveredAt == null || event.getOccurredAt().isAfter(deliveredAt)) {
+			return false;
+		}
+		if (event.getType() == NewsEvent.Type.USER_DELETED) {
+			deliveredDeletions.remove(event.getUserId(), deliveredAt);
+		}
+		return true;
+	}
+
+	/*
+	 * The eventIds of the given events that are looked up and are still in the
+	 * outboxes of their users. Reads Mongo only when there are such events.
+	 */
+	private Set<String> pendingEventIds(List<NewsEvent> events) {
+		Set<String> userIds = new LinkedHashSet<>();
+		for (NewsEvent event : events) {
+			if (looksUp(event)) {
+				userIds.add(event.getUserId());
+			}
+		}
+		Set<String> pending = new HashSet<>();
+		if (userIds.isEmpty()) {
+			return pending;
+		}
+		Query outboxes = query(where("_id").in(userIds));
+		outboxes.fields().include("outbox.eventId");
+		for (UserNews userNews : mongoOperations.find(outboxes, UserNews.class)) {
+			if (userNews.getOutbox() != null) {
+				userNews.getOutbox().forEach(event -> pending.add(event.getEventId()));
+			}
+		}
+		return pending;
+	}
+
+	private News current(String userId, int newsId) {
+		UserNews userNews = mongoOperations.findOne(UserNewsQueries.newsById(userId, newsId), UserNews.class);
+		return userNews == null ? null : userNews.getNewslist().get(0);
+	}
+}
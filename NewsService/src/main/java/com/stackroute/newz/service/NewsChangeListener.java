@@ -0,0 +1,38 @@
+package com.stackroute.newz.service;
+
+import java.util.List;
+
+import com.stackroute.newz.model.News;
+
+/*
+ * Callback for components that keep derived state of the news in sync, such as
+ * the search index or the reminder scheduler. Every NewsChangeListener bean is
+ * called after a write to Mongo succeeded: in the embedded layout from the
+ * NewsOutbox thread by the NewsChangeDispatcher, which may repeat a change, in
+ * the article layout by the NewsArticleServiceImpl itself.
+ */
+public interface NewsChangeListener {
+
+	/* A news was created or updated. */
+	default void newsSaved(String userId, News news) {
+	}
+
+	/*
+	 * The news of a batch chunk that were created, each for its author. Listeners
+	 * that can handle them at once override this instead of receiving every news
+	 * through newsSaved.
+	 */
+	default void newsCreated(List<News> created) {
+		for (News news : created) {
+			newsSaved(news.getAuthor(), news);
+		}
+	}
+
+	default void newsDeleted(String userId, int newsId) {
+	}
+
+	/* All news of a user were deleted. */
+	default void userNewsDeleted(String userId) {
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.stackroute.newz.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItemResult;
+
+/*
+ * Notifies all NewsChangeListener beans in their @Order. The NewsService
+ * implementations depend on this single bean instead of the list of listeners.
+ */
+@Component
+public class NewsChangeListeners {
+
+	private final List<NewsChangeListener> listeners;
+
+	@Autowired
+	public NewsChangeListeners(List<NewsChangeListener> listeners) {
+		this.listeners = listeners;
+	}
+
+	public void saved(String userId, News news) {
+		for (NewsChangeListener listener : listeners) {
+			listener.newsSaved(userId, news);
+		}
+	}
+
+	/*
+	 * Reports the news of a batch chunk that were CREATED. The results are in chunk
+	 * order and every news is saved for its author.
+	 */
+	public void created(List<News> chunk, List<NewsBatchItemResult> results) {
+		List<News> created = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			if (results.get(i).getStatus() == NewsBatchItemResult.Status.CREATED) {
+				created.add(chunk.get(i));
+			}
+		}
+		created(created);
+	}
+
+	/* Reports created news, each for its author. */
+	public void created(List<News> created) {
+		if (created.isEmpty()) {
+			return;
+		}
+		for (NewsChangeListener listener : listeners) {
+			listener.newsCreated(created);
+		}
+	}
+
+	public void deleted(String userId, int newsId) {
+		for (NewsChangeListener listener : listeners) {
+			listener.newsDeleted(userId, newsId);
+		}
+	}
+
+	public void userDeleted(String userId) {
+		for (NewsChangeListener listener : listeners) {
+			listener.userNewsDeleted(userId);
+		}
+	}
+}
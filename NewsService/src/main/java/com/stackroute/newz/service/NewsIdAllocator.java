@@ -0,0 +1,130 @@
+package com.stackroute.newz.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsIdSequence;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Hands out the newsIds of news that are created without one. Every user has a
+ * NewsIdSequence in Mongo; an instance reserves news.ids.block-size newsIds of a
+ * user at once by incrementing it, and allocates them from memory afterwards.
+ * The increment is atomic, so instances never get the same block, and a restart
+ * or an evicted block only leaves a gap.
+ *
+ * The sequence of a user starts at the highest newsId the user has in the
+ * service or in the NewsArchive, so it does not hand out newsIds chosen by
+ * clients before or taken by archived news. newsIds that clients still choose themselves can
+ * collide with allocated ones and are reported as conflicts as before.
+ */
+@Component
+public class NewsIdAllocator implements MeterBinder {
+
+	private static final NewsFields NEWS_ID = NewsFields.parse("newsId");
+
+	private MongoOperations mongoOperations;
+	private NewsService newsService;
+	private NewsArchive newsArchive;
+	private int blockSize;
+
+	private final Cache<String, Block> blocks;
+	private final LongAdder reserved = new LongAdder();
+
+	@Autowired
+	public NewsIdAllocator(MongoOperations mongoOperations, NewsService newsService, NewsArchive newsArchive,
+			NewsProperties newsProperties) {
+		this.mongoOperations = mongoOperations;
+		this.newsService = newsService;
+		this.newsArchive = newsArchive;
+		this.blockSize = newsProperties.getIds().getBlockSize();
+		this.blocks = Caffeine.newBuilder().maximumSize(newsProperties.getIds().getMaxUsers()).build();
+	}
+
+	public int next(String userId) {
+		Block block = blocks.get(userId, key -> new Block());
+		synchronized (block) {
+			if (block.next > block.last) {
+				block.last = reserve(userId);
+				block.next = block.last - blockSize + 1;
+			}
+			return block.next++;
+		}
+	}
+
+	/* Gives a news without newsId the next newsId of its author. */
+	public void assign(News news) {
+		if (news.getNewsId() == null && news.getAuthor() != null) {
+			news.setNewsId(next(news.getAuthor()));
+		}
+	}
+
+	/* Reserves the next block of a user and returns its last newsId. */
+	private int reserve(String userId) {
+		Query sequence = query(where("_id").is(userId));
+		Update increment = new Update().inc("hi", blockSize);
+		FindAndModifyOptions returnNew = FindAndModifyOptions.options().returnNew(true);
+		NewsIdSequence reservedTo = mongoOperations.findAndModify(sequence, increment, returnNew, NewsIdSequence.class);
+		if (reservedTo == null) {
+			start(sequence, highestNewsId(userId));
+			reservedTo = mongoOperations.findAndModify(sequence, increment, returnNew, NewsIdSequence.class);
+		}
+		reserved.increment();
+		return reservedTo.getHi();
+	}
+
+	/*
+	 * Creates the sequence of a user. $max keeps a sequence that another instance
+	 * created and already incremented in the meantime.
+	 */
+	private void start(Query sequence, int hi) {
+		Update update = new Update().max("hi", hi);
+		try {
+			mongoOperations.upsert(sequence, update, NewsIdSequence.class);
+		} catch (DuplicateKeyException e) {
+			mongoOperations.upsert(sequence, update, NewsIdSequence.class);
+		}
+	}
+
+	private int highestNewsId(String userId) {
+		int archived = newsArchive.highestNewsId(userId);
+		List<News> news = newsService.getAllNewsByUserId(userId, NEWS_ID);
+		if (news == null) {
+			return archived;
+		}
+		return Math.max(archived, news.stream().map(News::getNewsId).filter(Objects::nonNull).mapToInt(Integer::intValue).max().orElse(0));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("news.ids.blocks", reserved, LongAdder::sum).register(registry);
+	}
+
+	/* The newsIds of a user reserved by this instance, from next to last. */
+	private static final class Block {
+
+		int next = 1;
+		int last = 0;
+	}
+}
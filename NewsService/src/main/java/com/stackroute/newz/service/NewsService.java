@@ -1,8 +1,15 @@
 package com.stackroute.newz.service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.NewsBatchItemResult;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
 
 public interface NewsService {
@@ -14,14 +21,90 @@ public interface NewsService {
 
 	boolean addNews(News news);
 
-	boolean deleteNews(String userId, int newsId);
+	default boolean deleteNews(String userId, int newsId) {
+		return deleteNews(userId, newsId, null);
+	}
+
+	/*
+	 * The writes of a single news with an expected version of the user's news, see
+	 * getNewsVersion, are only done while the news are at that version, checked in
+	 * the same step as the write; otherwise they throw the
+	 * NewsPreconditionFailedException. A null version writes at any version.
+	 */
+	boolean deleteNews(String userId, int newsId, Long expectedVersion);
 
 	boolean deleteAllNews(String userId) throws NewsNotFoundException;
 
-	News updateNews(News news, int id, String userId) throws NewsNotFoundException;
+	default News updateNews(News news, int id, String userId) throws NewsNotFoundException {
+		return updateNews(news, id, userId, null);
+	}
+
+	News updateNews(News news, int id, String userId, Long expectedVersion) throws NewsNotFoundException;
+
+	default News patchNews(String userId, int newsId, NewsPatch patch) throws NewsNotFoundException {
+		return patchNews(userId, newsId, patch, null);
+	}
+
+	/*
+	 * Changes only the fields in the patch with a single update of the stored news
+	 * and returns the news as it is afterwards. An empty patch changes nothing.
+	 */
+	News patchNews(String userId, int newsId, NewsPatch patch, Long expectedVersion) throws NewsNotFoundException;
 
 	News getNewsByNewsId(String userId, int newsId) throws NewsNotFoundException;
 
+	/*
+	 * Returns a news of the user saved with the given URL, or null if there is none.
+	 * Mongo is only asked when the NewsUrlFilter reports the URL as possibly saved.
+	 */
+	News getNewsByUrl(String userId, String url);
+
 	List<News> getAllNewsByUserId(String userId);
 
+	/*
+	 * Returns the version of the news of a user, which every write of them
+	 * changes, or null when the user has no news. It is read from Mongo, never from
+	 * a cache, and is the base of the ETags of the news endpoints.
+	 */
+	Long getNewsVersion(String userId);
+
+	/*
+	 * Returns at most size news of a user ordered by publishedAt and newsId, newest
+	 * first, starting after the given cursor (null for the first page).
+	 */
+	NewsPage getNewsPage(String userId, NewsCursor after, int size);
+
+	/*
+	 * As getAllNewsByUserId and getNewsPage, reading only the given fields of the
+	 * news from Mongo; the other fields are null. null fields read all fields.
+	 */
+	List<News> getAllNewsByUserId(String userId, NewsFields fields);
+
+	NewsPage getNewsPage(String userId, NewsCursor after, int size, NewsFields fields);
+
+	/*
+	 * Returns all news of a user backed by an open Mongo cursor, with their
+	 * contents even when they are offloaded by the NewsContentStore. The caller must
+	 * close the stream, preferably with try-with-resources.
+	 */
+	Stream<News> streamAllNews(String userId);
+
+	/*
+	 * Saves a chunk of news with one bulk write and returns one result per news in
+	 * the same order. News that already exist are reported as CONFLICT.
+	 */
+	List<NewsBatchItemResult> addNewsBatch(List<News> chunk);
+
+	/*
+	 * Returns at most size news of a user matching the query, best match first.
+	 */
+	List<News> searchNews(String userId, String query, int size);
+
+	/*
+	 * Returns the news of all users, each paired with its userId, backed by an open
+	 * Mongo cursor. Used to rebuild in-process indexes. The caller must close the
+	 * stream.
+	 */
+	Stream<NewsArticle> streamNewsOfAllUsers();
+
 }
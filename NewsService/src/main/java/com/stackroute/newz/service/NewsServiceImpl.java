@@ -1,16 +1,54 @@
 package com.stackroute.newz.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.StreamUtils;
 import org.springframework.stereotype.Service;
 
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.cache.UserNewsCache;
+import com.stackroute.newz.content.NewsContentStore;
+import com.stackroute.newz.dedup.NewsUrlFilter;
+import com.stackroute.newz.event.NewsOutbox;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.NewsBatchItemResult;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.model.UserNews;
 import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.search.NewsSearchIndex;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.trending.NewsViewCounter;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
 
 /*
 * Service classes are used here to implement additional business logic/validation 
@@ -20,9 +58,35 @@ import com.stackroute.newz.util.exception.NewsNotFoundException;
 * to use @Service over @Component in service-layer classes because it specifies intent 
 * better. Additionally, tool support and additional behavior might rely on it in the 
 * future.
+* 
+* This is the default (news.storage=embedded) implementation which keeps all news of a
+* user embedded in a single UserNews document. See NewsArticleServiceImpl for the
+* per-article layout.
+* 
+* News moved to the NewsArchive are still found by getNewsByNewsId and getNewsPage,
+* and updateNews, patchNews and deleteNews change them in their bucket, see
+* changeArchived. getAllNewsByUserId only returns the news in the UserNews document.
+* 
+* Long contents are kept by the NewsContentStore; the UserNews document, and so the
+* news of lists and pages, hold their contentId instead. getNewsByNewsId loads them.
+* 
+* The NewsStatsRollup counts every created, deleted and moved news.
+* 
+* Every write also adds a NewsEvent to the outbox of the UserNews document in the
+* same update and then publishes it to the NewsOutbox, whose NewsChangeDispatcher
+* hands it to the NewsChangeListeners off the request thread. Only the NewsUrlFilter
+* is told of saved news right away, as getNewsByUrl must not miss them. deleteAllNews
+* keeps the UserNews document, without news, as a tombstone for its event.
+* 
+* Every write increments the version of the UserNews document. updateNews and
+* deleteNews load and save the whole document, so their save only succeeds if the
+* version is unchanged and is otherwise run again by the OptimisticRetry. With an
+* expected version they compare it with the loaded one, so the save also ensures
+* that it is still the expected one; patchNews adds it to the query of its update.
 * */
 
 @Service
+@ConditionalOnProperty(name = "news.storage", havingValue = "embedded", matchIfMissing = true)
 public class NewsServiceImpl implements NewsService {
 
 	/*
@@ -31,20 +95,75 @@ public class NewsServiceImpl implements NewsService {
 	 * object using the new keyword.
 	 */
 	private NewsRepository newsRepo;
+	private MongoOperations mongoOperations;
+	private UserNewsCache userNewsCache;
+	private NewsSearchIndex newsSearchIndex;
+	private NewsChangeDispatcher newsChangeDispatcher;
+	private NewsUrlFilter newsUrlFilter;
+	private NewsViewCounter newsViewCounter;
+	private NewsArchive newsArchive;
+	private NewsOutbox newsOutbox;
+	private OptimisticRetry optimisticRetry;
+	private NewsContentStore newsContentStore;
+	private NewsStatsRollup newsStatsRollup;
 	
 	public NewsServiceImpl() {
 	}
 	
 	@Autowired
-	public NewsServiceImpl(NewsRepository newsRepository) {
+	public NewsServiceImpl(NewsRepository newsRepository, MongoOperations mongoOperations, UserNewsCache userNewsCache,
+			NewsSearchIndex newsSearchIndex, NewsChangeDispatcher newsChangeDispatcher, NewsUrlFilter newsUrlFilter,
+			NewsOutbox newsOutbox, NewsViewCounter newsViewCounter, NewsArchive newsArchive,
+			OptimisticRetry optimisticRetry, NewsContentStore newsContentStore, NewsStatsRollup newsStatsRollup) {
 		this.newsRepo = newsRepository;
+		this.mongoOperations = mongoOperations;
+		this.userNewsCache = userNewsCache;
+		this.newsSearchIndex = newsSearchIndex;
+		this.newsChangeDispatcher = newsChangeDispatcher;
+		this.newsUrlFilter = newsUrlFilter;
+		this.newsViewCounter = newsViewCounter;
+		this.newsOutbox = newsOutbox;
+		this.newsArchive = newsArchive;
+		this.optimisticRetry = optimisticRetry;
+		this.newsContentStore = newsContentStore;
+		this.newsStatsRollup = newsStatsRollup;
 	}
 
 	/*
-	 * This method should be used to save a new news.
+	 * This method should be used to save a new news. The news of an existing user
+	 * is appended to its newslist with a single $push, guarded so that a newsId
+	 * which already exists for the user is not added twice. A newsId of an archived
+	 * news is taken as well.
 	 */
 	@Override
 	public boolean addNews(News news){
+		try {
+			News stored = newsContentStore.stored(news.getAuthor(), news);
+			NewsEvent event = NewsEvent.created(stored);
+			boolean created = false;
+			try {
+				created = insertNews(stored, event);
+			} finally {
+				if(!created) {
+					newsContentStore.discard(stored);
+				}
+			}
+			if(created) {
+				newsStatsRollup.added(news.getAuthor(), news);
+				newsUrlFilter.newsSaved(news.getAuthor(), news);
+				event.setNews(news);
+				newsOutbox.publish(event);
+			}
+			return created;
+		} finally {
+			userNewsCache.invalidate(news.getAuthor());
+		}
+	}
+
+	private boolean insertNews(News news, NewsEvent event) {
+		if(isArchived(news)) {
+			return false;
+		}
 		Boolean isExistsUserNews = newsRepo.existsById(news.getAuthor());
 		if(isExistsUserNews == false) {
 			List<News> newsList = new ArrayList<News>();
@@ -52,55 +171,272 @@ public class NewsServiceImpl implements NewsService {
 				newsList.add(news);
 				userNews.setUserId(news.getAuthor());
 				userNews.setNewslist(newsList);
+				userNews.addEvent(event);
 				UserNews userAdded = newsRepo.insert(userNews);
 				if(userAdded != null)
 					return true;
 				else
 					return false;
 			}
-		return false;
+		Update push = new Update().push("newslist", news).push("outbox", event).inc("version", 1L);
+		if(mongoOperations.updateFirst(UserNewsQueries.newsAbsent(news), push, UserNews.class).getModifiedCount() == 1) {
+			return true;
+		}
+		return newsChangeDispatcher.deliverPendingDeletion(news.getAuthor())
+				&& mongoOperations.updateFirst(UserNewsQueries.newsAbsent(news), push, UserNews.class).getModifiedCount() == 1;
+	}
+
+	/*
+	 * This method should be used to save a chunk of news. Each news becomes an
+	 * upsert of its author's UserNews document which only matches when the newsId
+	 * is not yet in the newslist. For an existing newsId the upsert tries to insert
+	 * a second document with the same userId and fails with a duplicate key error,
+	 * which is reported as CONFLICT, as is a newsId of an archived news.
+	 */
+	public List<NewsBatchItemResult> addNewsBatch(List<News> chunk) {
+		try {
+			newsChangeDispatcher.deliverPendingDeletions(chunk.stream().map(News::getAuthor).distinct().collect(Collectors.toList()));
+			Map<String, Set<Integer>> archived = archivedNewsIds(chunk);
+			Map<News, NewsEvent> events = new IdentityHashMap<>();
+			Map<News, News> stored = new IdentityHashMap<>();
+			List<NewsBatchItemResult> results;
+			try {
+				results = NewsBatches.write(chunk, mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class),
+						news -> archived.getOrDefault(news.getAuthor(), Collections.emptySet()).contains(news.getNewsId()),
+						(bulk, news) -> {
+							News storedNews = newsContentStore.stored(news.getAuthor(), news);
+							NewsEvent event = NewsEvent.created(storedNews);
+							stored.put(news, storedNews);
+							events.put(news, event);
+							bulk.upsert(UserNewsQueries.newsAbsent(news), new Update().push("newslist", storedNews).push("outbox", event).inc("version", 1L));
+						});
+			} catch(RuntimeException e) {
+				stored.values().forEach(newsContentStore::discard);
+				throw e;
+			}
+			List<News> created = new ArrayList<News>();
+			for(int i = 0; i < chunk.size(); i++) {
+				News news = chunk.get(i);
+				if(results.get(i).getStatus() == NewsBatchItemResult.Status.CREATED) {
+					created.add(news);
+					newsUrlFilter.newsSaved(news.getAuthor(), news);
+					NewsEvent event = events.get(news);
+					event.setNews(news);
+					newsOutbox.publish(event);
+				} else {
+					newsContentStore.discard(stored.get(news));
+				}
+			}
+			newsStatsRollup.added(created);
+			return results;
+		} finally {
+			chunk.stream().map(News::getAuthor).distinct().forEach(userNewsCache::invalidate);
+		}
+	}
+
+	/*
+	 * newsIds of archived news are not in the newslist, so newsAbsent does not see
+	 * them; they are looked up in the NewsArchive before a news is added.
+	 */
+	private boolean isArchived(News news) {
+		return news.getNewsId() != null
+				&& !newsArchive.archivedNewsIds(news.getAuthor(), Collections.singleton(news.getNewsId())).isEmpty();
 	}
 
-	/* This method should be used to delete an existing news. */
+	/* The archived newsIds of the chunk by author. */
+	private Map<String, Set<Integer>> archivedNewsIds(List<News> chunk) {
+		Map<String, Set<Integer>> newsIds = chunk.stream()
+				.filter(news -> news != null && news.getAuthor() != null && news.getNewsId() != null)
+				.collect(Collectors.groupingBy(News::getAuthor, Collectors.mapping(News::getNewsId, Collectors.toSet())));
+		Map<String, Set<Integer>> archived = new HashMap<>();
+		newsIds.forEach((author, ids) -> archived.put(author, newsArchive.archivedNewsIds(author, ids)));
+		return archived;
+	}
+
+	/*
+	 * This method should be used to delete an existing news. Only the news is
+	 * removed from the newslist; the UserNews document itself is kept. A news that
+	 * is not in the newslist is removed from the archive.
+	 */
 	
-	public boolean deleteNews(String userId, int newsId) {
-		UserNews userNews = newsRepo.findById(userId).get();
-		List<News> newsList = userNews.getNewslist();
-		for(News newsWithId:newsList) {
-			if(newsWithId.getNewsId().equals(newsId)) {
-			newsRepo.deleteById(userNews.getUserId());
-			return true;
+	public boolean deleteNews(String userId, int newsId, Long expectedVersion) {
+		boolean deleted = optimisticRetry.run(() -> {
+			UserNews userNews = loadForWrite(userId);
+			expectVersion(userNews, expectedVersion);
+			int position = userNews.indexOf(newsId);
+			if(position < 0) {
+				return false;
 			}
+			News removed = userNews.getNewslist().remove(position);
+			NewsEvent event = NewsEvent.deleted(userId, newsId);
+			userNews.addEvent(event);
+			newsRepo.save(userNews);
+			userNewsCache.invalidate(userId);
+			newsStatsRollup.removed(userId, removed);
+			newsOutbox.publish(event);
+			return true;
+		});
+		return deleted || deleteArchived(userId, newsId, expectedVersion);
+	}
+
+	private boolean deleteArchived(String userId, int newsId, Long expectedVersion) {
+		NewsEvent event = NewsEvent.deleted(userId, newsId);
+		AtomicReference<News> removed = new AtomicReference<>();
+		if(!changeArchived(userId, newsId, expectedVersion, event, archived -> {
+			removed.set(archived);
+			return null;
+		})) {
+			return false;
 		}
-		return false;
+		newsStatsRollup.removed(userId, removed.get());
+		newsOutbox.publish(event);
+		return true;
 	}
 
-	/* This method should be used to delete all news for a  specific userId. */
+	/*
+	 * This method should be used to delete all news for a  specific userId. The
+	 * newslist is removed and the UserNews document is kept with the event in its
+	 * outbox, so the event is delivered even if the instance stops before.
+	 */
 	
 	public boolean deleteAllNews(String userId) throws NewsNotFoundException  {
+		NewsEvent event = NewsEvent.userDeleted(userId);
 		try {
-		UserNews userNews = newsRepo.findById(userId).get();
-		List<News> newsList = userNews.getNewslist();
-		if(newsList != null) {
-			newsRepo.delete(userNews);
-			return true;
-		}}
+			if(mongoOperations.updateFirst(UserNewsQueries.userNews(userId), UserNewsQueries.deleteAllNews(event), UserNews.class).getModifiedCount() == 0) {
+				throw new NewsNotFoundException("Can not Delete the News. The news with user ID: "+userId+ " does not exists in the database.");
+			}
+		} finally {
+			userNewsCache.invalidate(userId);
+		}
+		newsOutbox.publish(event);
+		return true;
+	}
+
+	/*
+	 * This method should be used to update a existing news. A news that is not in
+	 * the newslist is updated in the archive.
+	 */
+
+	public News updateNews(News news, int newsId, String userId, Long expectedVersion) throws NewsNotFoundException {
+		try {
+		News updated = optimisticRetry.run(() -> {
+			UserNews userNews = loadForWrite(userId);
+			expectVersion(userNews, expectedVersion);
+			News newsWithId = userNews.findNews(newsId);
+			if(newsWithId == null) {
+				return null;
+			}
+			newsWithId.setAuthor(news.getAuthor());
+			newsWithId.setContent(news.getContent());
+			newsWithId.setDescription(news.getDescription());
+			newsWithId.setTitle(news.getTitle());
+			newsWithId.setUrl(news.getUrl());
+			newsWithId.setUrlToImage(news.getUrlToImage());
+			newsWithId.setReminder(news.getReminder());
+			String previousContentId = newsWithId.getContentId();
+			News stored = newsContentStore.stored(userId, newsWithId);
+			newsWithId.setContentId(null);
+			userNews.getNewslist().set(userNews.indexOf(newsId), stored);
+			NewsEvent event = NewsEvent.updated(userId, stored);
+			userNews.addEvent(event);
+			try {
+				newsRepo.save(userNews);
+			} catch(RuntimeException e) {
+				newsContentStore.discard(stored);
+				throw e;
+			}
+			newsContentStore.remove(previousContentId);
+			userNewsCache.put(userNews);
+			newsUrlFilter.newsSaved(userId, newsWithId);
+			event.setNews(newsWithId);
+			newsOutbox.publish(event);
+			return newsWithId;
+		});
+		return updated != null ? updated : updateArchived(news, newsId, userId, expectedVersion);
+		}
 		catch(NoSuchElementException ex) {
-			throw new NewsNotFoundException("Can not Delete the News. The news with user ID: "+userId+ " does not exists in the database.");
+			throw new NewsNotFoundException("Can not Update the News. The news with user ID: "+userId+ " and news ID: "+newsId+" does not exists in the database.");
 		}
-		return false;
 	}
 
 	/*
-	 * This method should be used to update a existing news.
+	 * This method should be used to change some fields of an existing news. The
+	 * fields are set on the matching newslist element with the positional operator
+	 * and only that element is returned, so the UserNews document is neither read
+	 * nor written as a whole. The event in the outbox does not hold the news, only
+	 * the published one gets the patched news. The news is returned as it was
+	 * before and patched here, so a replaced offloaded content can be removed.
 	 */
 
-	public News updateNews(News news, int newsId, String userId) throws NewsNotFoundException {
+	public News patchNews(String userId, int newsId, NewsPatch patch, Long expectedVersion) throws NewsNotFoundException {
+		if(patch.isEmpty()) {
+			return getNewsByNewsId(userId, newsId);
+		}
+		NewsEvent event = NewsEvent.updated(userId, newsId);
+		boolean patchesContent = patch.getFields().containsKey("content");
+		String contentId = patchesContent ? newsContentStore.offload(userId, newsId, (String) patch.getFields().get("content")) : null;
+		UserNews previous = null;
 		try {
-		UserNews userNews = newsRepo.findById(userId).get();
-		List<News> newsList = userNews.getNewslist();
-		for(News newsWithId:newsList) {
-			if(newsWithId.getNewsId().equals(newsId)) {
+			previous = mongoOperations.findAndModify(UserNewsQueries.atVersion(UserNewsQueries.newsById(userId, newsId), expectedVersion), UserNewsQueries.patch(patch, contentId).push("outbox", event),
+					FindAndModifyOptions.options().returnNew(false), UserNews.class);
+		} catch(RuntimeException e) {
+			newsContentStore.remove(contentId);
+			throw e;
+		} finally {
+			userNewsCache.invalidate(userId);
+		}
+		AtomicReference<News> patched = new AtomicReference<>();
+		AtomicReference<NewsSource> previousSource = new AtomicReference<>();
+		AtomicReference<String> previousContentId = new AtomicReference<>();
+		UnaryOperator<News> applyPatch = news -> {
+			previousSource.set(news.getNewsSource());
+			previousContentId.set(news.getContentId());
+			patch.applyTo(news);
+			patched.set(news);
+			return patchesContent ? newsContentStore.stored(news, contentId) : news;
+		};
+		if(previous != null) {
+			applyPatch.apply(previous.getNewslist().get(0));
+		} else {
+			boolean archived = false;
+			try {
+				if(expectedVersion != null && mongoOperations.exists(UserNewsQueries.newsById(userId, newsId), UserNews.class)) {
+					throw new NewsPreconditionFailedException("The news of user ID: "+userId+ " are not at version "+expectedVersion);
+				}
+				archived = changeArchived(userId, newsId, expectedVersion, event, applyPatch);
+			} finally {
+				if(!archived) {
+					newsContentStore.remove(contentId);
+				}
+			}
+			if(!archived) {
+				throw new NewsNotFoundException("Can not Update the News. The news with user ID: "+userId+ " and news ID: "+newsId+" does not exists in the database.");
+			}
+		}
+		News patchedNews = patched.get();
+		if(patch.getFields().containsKey("newsSource")) {
+			newsStatsRollup.moved(userId, patchedNews, previousSource.get());
+		}
+		if(patchesContent) {
+			newsContentStore.remove(previousContentId.get());
+			patchedNews.setContentId(null);
+		}
+		patchedNews = newsContentStore.load(patchedNews);
+		newsUrlFilter.newsSaved(userId, patchedNews);
+		event.setNews(patchedNews);
+		newsOutbox.publish(event);
+		return patchedNews;
+	}
+
+	private News updateArchived(News news, int newsId, String userId, Long expectedVersion) {
+		String contentId = newsContentStore.offload(userId, newsId, news.getContent());
+		NewsEvent event = NewsEvent.updated(userId, newsId);
+		AtomicReference<News> updated = new AtomicReference<>();
+		AtomicReference<String> previousContentId = new AtomicReference<>();
+		boolean archived = false;
+		try {
+			archived = changeArchived(userId, newsId, expectedVersion, event, newsWithId -> {
+				previousContentId.set(newsWithId.getContentId());
 				newsWithId.setAuthor(news.getAuthor());
 				newsWithId.setContent(news.getContent());
 				newsWithId.setDescription(news.getDescription());
@@ -108,34 +444,88 @@ public class NewsServiceImpl implements NewsService {
 				newsWithId.setUrl(news.getUrl());
 				newsWithId.setUrlToImage(news.getUrlToImage());
 				newsWithId.setReminder(news.getReminder());
-				newsList.add(newsWithId);
-				userNews.setNewslist(newsList);
-				newsRepo.save(userNews);
-				return newsWithId;
+				updated.set(newsWithId);
+				return newsContentStore.stored(newsWithId, contentId);
+			});
+		} finally {
+			if(!archived) {
+				newsContentStore.remove(contentId);
 			}
-		}}
-		catch(NoSuchElementException ex) {
-			throw new NewsNotFoundException("Can not Update the News. The news with user ID: "+userId+ " and news ID: "+newsId+" does not exists in the database.");
 		}
-		return null;
+		if(!archived) {
+			return null;
+		}
+		News newsWithId = updated.get();
+		newsWithId.setContentId(null);
+		newsContentStore.remove(previousContentId.get());
+		newsUrlFilter.newsSaved(userId, newsWithId);
+		event.setNews(newsWithId);
+		newsOutbox.publish(event);
+		return newsWithId;
+	}
+
+	/*
+	 * Writes a change of an archived news in its bucket, see NewsArchive.change.
+	 * As for a news in the newslist, the version of the UserNews document is
+	 * compared with the expected one and incremented, in the update that adds the
+	 * event to its outbox, before the news is written. Returns false if the news is
+	 * not archived either.
+	 */
+	private boolean changeArchived(String userId, int newsId, Long expectedVersion, NewsEvent event,
+			UnaryOperator<News> change) {
+		if(newsArchive.find(userId, newsId) == null) {
+			return false;
+		}
+		Query document = UserNewsQueries.atVersion(query(where("_id").is(userId)), expectedVersion);
+		try {
+			if(mongoOperations.updateFirst(document, new Update().push("outbox", event).inc("version", 1L), UserNews.class).getModifiedCount() == 0) {
+				if(expectedVersion != null) {
+					throw new NewsPreconditionFailedException("The news of user ID: "+userId+ " are not at version "+expectedVersion);
+				}
+				return false;
+			}
+		} finally {
+			userNewsCache.invalidate(userId);
+		}
+		return newsArchive.change(userId, newsId, change);
 	}
 
 	/*
-	 * This method should be used to get a news by newsId created by specific user
+	 * This method should be used to get a news by newsId created by specific user.
+	 * A news that is not in the UserNews document is looked up in the archive, and
+	 * an offloaded content is loaded. Every news found counts as a view for the NewsViewCounter.
 	 */
 
 	public News getNewsByNewsId(String userId, int newsId) throws NewsNotFoundException {
 		try {
-		UserNews userNews = newsRepo.findById(userId).get();
-		List<News> newsList = userNews.getNewslist();
-		for(News newsWithId:newsList) {
-			if(newsWithId.getNewsId().equals(newsId)){
-			return newsWithId;
-			}}
+		News news = cachedUserNews(userId).filter(userNews -> userNews.getNewslist() != null).get().findNews(newsId);
+		if(news == null) {
+			news = newsArchive.find(userId, newsId);
+		}
+		if(news != null) {
+			newsViewCounter.viewed(userId, newsId);
+		}
+		return newsContentStore.load(news);
 		}catch(NoSuchElementException e) {
 			throw new NewsNotFoundException("Can not Retrieve the News. The news with user ID: "+userId+ " and news  ID: "+newsId +" does not exists in the database.");
 		}
-		return null;
+	}
+
+	/*
+	 * This method should be used to find an already saved news by its URL before a
+	 * new one is added. URLs that the NewsUrlFilter has never seen are answered
+	 * without reading Mongo.
+	 */
+
+	public News getNewsByUrl(String userId, String url) {
+		if(url == null || !newsUrlFilter.mightContain(userId, url)) {
+			return null;
+		}
+		UserNews userNews = mongoOperations.findOne(UserNewsQueries.newsByUrl(userId, url), UserNews.class);
+		if(userNews == null) {
+			return null;
+		}
+		return userNews.getNewslist().get(0);
 	}
 
 	/*
@@ -143,6 +533,137 @@ public class NewsServiceImpl implements NewsService {
 	 */
 
 	public List<News> getAllNewsByUserId(String userId) {
-		return newsRepo.findById(userId).get().getNewslist();
+		return cachedUserNews(userId).get().getNewslist();
+	}
+
+	/*
+	 * Only the version of the UserNews document is read. A cached document of
+	 * another version is dropped, so the news read after the version are at least
+	 * as new as it is.
+	 */
+
+	public Long getNewsVersion(String userId) {
+		Query versionOnly = query(where("_id").is(userId));
+		versionOnly.fields().include("version");
+		UserNews userNews = mongoOperations.findOne(versionOnly, UserNews.class);
+		userNewsCache.invalidateUnless(userId, userNews == null ? null : userNews.getVersion());
+		if(userNews == null) {
+			return null;
+		}
+		return userNews.getVersion() == null ? 0L : userNews.getVersion();
+	}
+
+	/*
+	 * The selected fields are projected by the aggregation, so unlike the full
+	 * news they are read from Mongo rather than from the UserNewsCache. Returns
+	 * null when the user has no news.
+	 */
+
+	public List<News> getAllNewsByUserId(String userId, NewsFields fields) {
+		if(fields == null) {
+			return getAllNewsByUserId(userId);
+		}
+		List<News> news = mongoOperations.aggregate(UserNewsQueries.allNews(userId, fields),
+				mongoOperations.getCollectionName(UserNews.class), News.class).getMappedResults();
+		return news.isEmpty() ? null : news;
+	}
+
+	/*
+	 * This method should be used to get one page of news for a specific userId.
+	 * The page is cut out of the embedded newslist by an aggregation on the server,
+	 * so only size + 1 news are ever sent to and materialized by this service.
+	 * Inside the array the news keep their newsId as _id. Archived news are older
+	 * than all news in the document, so a page that reaches its end is filled up
+	 * from the archive.
+	 */
+
+	public NewsPage getNewsPage(String userId, NewsCursor after, int size) {
+		return getNewsPage(userId, after, size, null);
+	}
+
+	/*
+	 * Only the selected fields are projected in the aggregation. The archived news
+	 * are read in full and cut down afterwards.
+	 */
+
+	public NewsPage getNewsPage(String userId, NewsCursor after, int size, NewsFields fields) {
+		List<News> fetched = mongoOperations.aggregate(UserNewsQueries.newsPage(userId, after, size, fields),
+				mongoOperations.getCollectionName(UserNews.class), News.class).getMappedResults();
+		if(fetched.size() <= size) {
+			NewsCursor archivedAfter = fetched.isEmpty() ? after : NewsCursor.of(fetched.get(fetched.size() - 1));
+			List<News> archived = newsArchive.newsAfter(userId, archivedAfter, size + 1 - fetched.size());
+			fetched = new ArrayList<News>(fetched);
+			fetched.addAll(fields == null ? archived : fields.select(archived));
+		}
+		return NewsPage.of(fetched, size);
+	}
+
+	/*
+	 * This method should be used to stream all news for a specific userId. The
+	 * newslist is unwound on the server and read through a cursor batch by batch.
+	 */
+
+	public Stream<News> streamAllNews(String userId) {
+		return StreamUtils.createStreamFromIterator(mongoOperations.aggregateStream(UserNewsQueries.allNews(userId),
+				mongoOperations.getCollectionName(UserNews.class), News.class))
+				.map(newsContentStore::load);
+	}
+
+	/*
+	 * This method should be used to search the news of a specific userId. The
+	 * matching newsIds come from the NewsSearchIndex and are resolved against the
+	 * cached UserNews.
+	 */
+
+	public List<News> searchNews(String userId, String query, int size) {
+		List<Integer> newsIds = newsSearchIndex.search(userId, query, size);
+		if(newsIds.isEmpty()) {
+			return new ArrayList<News>();
+		}
+		return cachedUserNews(userId)
+				.map(userNews -> newsIds.stream().map(userNews::findNews).filter(Objects::nonNull).collect(Collectors.toList()))
+				.orElseGet(ArrayList::new);
+	}
+
+	/*
+	 * This method should be used to read the news of all users, for example to
+	 * rebuild the search index. Offloaded contents are loaded.
+	 */
+
+	public Stream<NewsArticle> streamNewsOfAllUsers() {
+		return StreamUtils.createStreamFromIterator(mongoOperations.stream(new Query(), UserNews.class))
+				.filter(userNews -> userNews.getNewslist() != null)
+				.flatMap(userNews -> userNews.getNewslist().stream()
+						.map(news -> new NewsArticle(userNews.getUserId(), newsContentStore.load(news))));
+	}
+
+	/*
+	 * Loads the UserNews document to be saved as a whole. A document from before
+	 * the version field gets version 0 first, as save would insert it again
+	 * otherwise.
+	 */
+	private UserNews loadForWrite(String userId) {
+		UserNews userNews = newsRepo.findById(userId).get();
+		if(userNews.getVersion() == null) {
+			mongoOperations.updateFirst(query(where("_id").is(userId).and("version").exists(false)),
+					new Update().set("version", 0L), UserNews.class);
+			userNews = newsRepo.findById(userId).get();
+		}
+		return userNews;
+	}
+
+	private static void expectVersion(UserNews userNews, Long expectedVersion) {
+		long version = userNews.getVersion() == null ? 0L : userNews.getVersion();
+		if(expectedVersion != null && expectedVersion != version) {
+			throw new NewsPreconditionFailedException("The news of user ID: "+userNews.getUserId()+ " are not at version "+expectedVersion);
+		}
+	}
+
+	/*
+	 * Read paths go through the UserNewsCache. Write paths always load the document
+	 * from Mongo, so they never modify a cached instance.
+	 */
+	private Optional<UserNews> cachedUserNews(String userId) {
+		return userNewsCache.get(userId, newsRepo::findById);
 	}
 }
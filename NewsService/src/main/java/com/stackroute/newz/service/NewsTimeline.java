@@ -0,0 +1,124 @@
+package com.stackroute.newz.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.TimelineCursor;
+
+/*
+ * Builds one page of the merged news of several users, newest first, with a k-way
+ * merge. Each user is a source read page by page through
+ * NewsService.getNewsPage, which is already sorted by (publishedAt desc, newsId
+ * desc), and a heap holds the next news of every source. A source is first read
+ * for its share of the page and only read again when the merge took all its
+ * news, for as many news as it gave so far but no more than the rest of the page.
+ * So a source reads at most about twice the news it gives plus its share, and a
+ * page of size news reads at most about 3 * size + sources news, however long
+ * the timelines are.
+ */
+@Service
+public class NewsTimeline {
+
+	private static final Comparator<Source> NEWEST_FIRST = Comparator
+			.comparing((Source source) -> source.head().getPublishedAt(),
+					Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())).reversed()
+			.thenComparing(Comparator.comparing((Source source) -> source.head().getNewsId()).reversed())
+			.thenComparing(source -> source.userId);
+
+	private NewsService newsService;
+
+	@Autowired
+	public NewsTimeline(NewsService newsService) {
+		this.newsService = newsService;
+	}
+
+	/*
+	 * Returns up to size news of the users after the cursor, which is null for the
+	 * first page. nextCursor is a TimelineCursor.
+	 */
+	public NewsPage getTimeline(List<String> userIds, TimelineCursor after, int size) {
+		List<String> sources = new ArrayList<>(new LinkedHashSet<>(userIds));
+		if (sources.isEmpty()) {
+			return new NewsPage(new ArrayList<>(), null);
+		}
+		int share = Math.max(1, (size + sources.size() - 1) / sources.size());
+		PriorityQueue<Source> heads = new PriorityQueue<>(Math.max(1, sources.size()), NEWEST_FIRST);
+		for (String userId : sources) {
+			Source source = new Source(userId, after == null ? null : after.after(userId));
+			if (source.fill(share)) {
+				heads.add(source);
+			}
+		}
+		List<News> page = new ArrayList<>(size);
+		Source last = null;
+		while (page.size() < size && !heads.isEmpty()) {
+			last = heads.poll();
+			page.add(last.take());
+			if (last.fill(Math.min(size - page.size(), Math.max(share, last.taken)))) {
+				heads.add(last);
+			}
+		}
+		String nextCursor = null;
+		// the last source is only left out of the heap when the page is full
+		if (!heads.isEmpty() || (last != null && !last.exhausted)) {
+			News news = page.get(page.size() - 1);
+			nextCursor = new TimelineCursor(news.getPublishedAt(), news.getNewsId(), last.userId).encode();
+		}
+		return new NewsPage(page, nextCursor);
+	}
+
+	/*
+	 * The news of one user not yet merged, and where to read on.
+	 */
+	private final class Source {
+
+		final String userId;
+		final Deque<News> buffered = new ArrayDeque<>();
+		NewsCursor next;
+		boolean exhausted;
+		int taken;
+
+		Source(String userId, NewsCursor after) {
+			this.userId = userId;
+			this.next = after;
+		}
+
+		News head() {
+			return buffered.peekFirst();
+		}
+
+		News take() {
+			taken++;
+			return buffered.pollFirst();
+		}
+
+		/*
+		 * Reads up to wanted more news when none are buffered and returns whether
+		 * there is a news to merge.
+		 */
+		boolean fill(int wanted) {
+			if (buffered.isEmpty() && !exhausted && wanted > 0) {
+				NewsPage page = newsService.getNewsPage(userId, next, wanted);
+				buffered.addAll(page.getNews());
+				if (page.getNextCursor() == null) {
+					exhausted = true;
+				} else {
+					next = NewsCursor.decode(page.getNextCursor());
+				}
+			}
+			return !buffered.isEmpty();
+		}
+	}
+}
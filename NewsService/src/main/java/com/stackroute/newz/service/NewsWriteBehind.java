@@ -0,0 +1,299 @@
+package com.stackroute.newz.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Coalesces bursts of updates of the same news, such as the autosaves of an
+ * editor, when news.write-behind.enabled=true. The first update of a news is
+ * written through NewsService.updateNews and opens a window of
+ * news.write-behind.window. The updates that come in during the window are only
+ * applied to the buffered news; when the window ends the buffered news is written
+ * once and a new window opens, otherwise the news leaves the buffer. So a news
+ * is written at most once per window, and an update of an unknown news is still
+ * answered with NewsNotFoundException.
+ *
+ * The buffered news are returned by pending and overlay until they left the
+ * buffer, so a client reads its own updates. The number of buffered news of
+ * every user is counted as they enter and leave the buffer, so hasPending,
+ * which every read of a user's news asks, does not look at the buffer.
+ * Buffered updates are written before the instance stops; they are lost if it
+ * is killed. Writes of other paths must release or discard the buffered news
+ * first, see NewsController.
+ */
+@Service
+public class NewsWriteBehind implements MeterBinder, DisposableBean {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private NewsService newsService;
+	private NewsProperties.WriteBehind properties;
+
+	private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+	private final Map<String, Integer> pendingByUser = new ConcurrentHashMap<>();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder flushed = new LongAdder();
+	private final ScheduledExecutorService flusher;
+
+	@Autowired
+	public NewsWriteBehind(NewsService newsService, NewsProperties newsProperties) {
+		this.newsService = newsService;
+		this.properties = newsProperties.getWriteBehind();
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "news-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/*
+	 * Updates a news like NewsService.updateNews and returns the updated news, or
+	 * null if the news does not exist.
+	 */
+	public News updateNews(News news, int newsId, String userId) throws NewsNotFoundException {
+		if (!properties.isEnabled()) {
+			return newsService.updateNews(news, newsId, userId);
+		}
+		String key = keyOf(userId, newsId);
+		while (true) {
+			Pending entry = pending.computeIfAbsent(key, k -> {
+				pendingByUser.merge(userId, 1, Integer::sum);
+				return new Pending(userId, newsId);
+			});
+			synchronized (entry) {
+				if (entry.released) {
+					continue;
+				}
+				if (entry.news != null) {
+					apply(entry.news, news);
+					entry.dirty = true;
+					coalesced.increment();
+					return copy(entry.news);
+				}
+				News updated = null;
+				try {
+					updated = newsService.updateNews(news, newsId, userId);
+				} finally {
+					if (updated == null) {
+						release(key, entry);
+					}
+				}
+				if (updated == null) {
+					return null;
+				}
+				entry.news = copy(updated);
+				schedule(key, entry);
+				return updated;
+			}
+		}
+	}
+
+	/* Returns the buffered news, or null if the news is not buffered. */
+	public News pending(String userId, int newsId) {
+		Pending entry = pending.get(keyOf(userId, newsId));
+		if (entry == null) {
+			return null;
+		}
+		synchronized (entry) {
+			return entry.released || entry.news == null ? null : copy(entry.news);
+		}
+	}
+
+	public boolean hasPending(String userId) {
+		return pendingByUser.containsKey(userId);
+	}
+
+	/* Replaces the news of a user read from Mongo by their buffered versions. */
+	public List<News> overlay(String userId, List<News> news) {
+		if (news == null || !hasPending(userId)) {
+			return news;
+		}
+		List<News> overlaid = new ArrayList<>(news.size());
+		for (News each : news) {
+			News buffered = pending(userId, each.getNewsId());
+			overlaid.add(buffered == null ? each : buffered);
+		}
+		return overlaid;
+	}
+
+	/* Writes the buffered update of a news, if any, and removes it from the buffer. */
+	public void release(String userId, int newsId) {
+		String key = keyOf(userId, newsId);
+		Pending entry = pending.get(key);
+		if (entry != null) {
+			synchronized (entry) {
+				write(entry);
+				release(key, entry);
+			}
+		}
+	}
+
+	/* Drops the buffered update of a news that is deleted. */
+	public void discard(String userId, int newsId) {
+		String key = keyOf(userId, newsId);
+		Pending entry = pending.get(key);
+		if (entry != null) {
+			synchronized (entry) {
+				release(key, entry);
+			}
+		}
+	}
+
+	/* Drops the buffered updates of a user whose news are all deleted. */
+	public void discard(String userId) {
+		if (!hasPending(userId)) {
+			return;
+		}
+		for (Map.Entry<String, Pending> each : pending.entrySet()) {
+			if (each.getValue().userId.equals(userId)) {
+				synchronized (each.getValue()) {
+					release(each.getKey(), each.getValue());
+				}
+			}
+		}
+	}
+
+	/* Writes all buffered updates before the instance stops. */
+	@Override
+	public void destroy() throws InterruptedException {
+		flusher.shutdownNow();
+		flusher.awaitTermination(5, TimeUnit.SECONDS);
+		int written = 0;
+		for (Map.Entry<String, Pending> each : pending.entrySet()) {
+			synchronized (each.getValue()) {
+				if (write(each.getValue())) {
+					written++;
+				}
+				release(each.getKey(), each.getValue());
+			}
+		}
+		if (written > 0) {
+			logger.info("In write-behind - {}", "Wrote " + written + " buffered updates at shutdown.");
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("news.write-behind.pending", pending, Map::size).register(registry);
+		FunctionCounter.builder("news.write-behind.coalesced", coalesced, LongAdder::sum).register(registry);
+		FunctionCounter.builder("news.write-behind.flushed", flushed, LongAdder::sum).register(registry);
+	}
+
+	private void schedule(String key, Pending entry) {
+		flusher.schedule(() -> endWindow(key, entry), properties.getWindow().toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * Writes the buffered news and opens the next window, or removes the news from
+	 * the buffer when it was not updated during the window.
+	 */
+	private void endWindow(String key, Pending entry) {
+		synchronized (entry) {
+			if (entry.released) {
+				return;
+			}
+			if (!entry.dirty) {
+				release(key, entry);
+				return;
+			}
+			write(entry);
+			if (!entry.released) {
+				schedule(key, entry);
+			}
+		}
+	}
+
+	/*
+	 * Writes a dirty entry under its lock. A news that no longer exists leaves the
+	 * buffer; after a failed write the entry stays dirty for the next window.
+	 */
+	private boolean write(Pending entry) {
+		if (!entry.dirty || entry.released) {
+			return false;
+		}
+		try {
+			News updated = newsService.updateNews(copy(entry.news), entry.newsId, entry.userId);
+			if (updated == null) {
+				release(keyOf(entry.userId, entry.newsId), entry);
+				return false;
+			}
+			entry.dirty = false;
+			flushed.increment();
+			return true;
+		} catch (NewsNotFoundException e) {
+			release(keyOf(entry.userId, entry.newsId), entry);
+		} catch (RuntimeException e) {
+			logger.warn("In write-behind - {}", "Could not write news ID " + entry.newsId + " of User ID " + entry.userId
+					+ ": " + e.getMessage());
+		}
+		return false;
+	}
+
+	private void release(String key, Pending entry) {
+		entry.released = true;
+		if (pending.remove(key, entry)) {
+			pendingByUser.computeIfPresent(entry.userId, (userId, count) -> count == 1 ? null : count - 1);
+		}
+	}
+
+	/* The fields NewsService.updateNews takes from the update. */
+	private static void apply(News target, News update) {
+		target.setAuthor(update.getAuthor());
+		target.setContent(update.getContent());
+		target.setDescription(update.getDescription());
+		target.setTitle(update.getTitle());
+		target.setUrl(update.getUrl());
+		target.setUrlToImage(update.getUrlToImage());
+		target.setReminder(update.getReminder());
+	}
+
+	private static News copy(News news) {
+		News copy = new News(news.getNewsId(), null, null, null, news.getPublishedAt(), null, null, null, null,
+				news.getNewsSource());
+		apply(copy, news);
+		return copy;
+	}
+
+	private static String keyOf(String userId, int newsId) {
+		return userId + ":" + newsId;
+	}
+
+	/*
+	 * The buffered news of one news id, locked by the thread that updates, writes
+	 * or releases it.
+	 */
+	private static final class Pending {
+
+		final String userId;
+		final int newsId;
+		News news;
+		boolean dirty;
+		boolean released;
+
+		Pending(String userId, int newsId) {
+			this.userId = userId;
+			this.newsId = newsId;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.stackroute.newz.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.NewsProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Runs a read-modify-write of a versioned document again when its write failed
+ * because another write changed the document since it was read. Each attempt
+ * reads the document anew. Before the next attempt it pauses for a random time
+ * up to news.concurrency.backoff, doubled for every further attempt and capped
+ * by news.concurrency.max-backoff, so competing writers spread out instead of
+ * colliding again. After news.concurrency.max-attempts the
+ * OptimisticLockingFailureException is thrown to the caller.
+ */
+@Component
+public class OptimisticRetry implements MeterBinder {
+
+	private NewsProperties.Concurrency properties;
+
+	private final LongAdder conflicts = new LongAdder();
+	private final LongAdder exhausted = new LongAdder();
+
+	@Autowired
+	public OptimisticRetry(NewsProperties newsProperties) {
+		this.properties = newsProperties.getConcurrency();
+	}
+
+	public <T> T run(Supplier<T> attempt) {
+		for (int attempts = 1;; attempts++) {
+			try {
+				return attempt.get();
+			} catch (OptimisticLockingFailureException e) {
+				conflicts.increment();
+				if (attempts >= properties.getMaxAttempts()) {
+					exhausted.increment();
+					throw e;
+				}
+				pause(attempts, e);
+			}
+		}
+	}
+
+	private void pause(int attempts, OptimisticLockingFailureException conflict) {
+		long bound = properties.getBackoff().toMillis() << Math.min(attempts - 1, 20);
+		bound = Math.min(bound, properties.getMaxBackoff().toMillis());
+		if (bound <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw conflict;
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("news.write.conflicts", conflicts, LongAdder::sum).register(registry);
+		FunctionCounter.builder("news.write.conflicts.exhausted", exhausted, LongAdder::sum).register(registry);
+	}
+}
@@ -0,0 +1,89 @@
+package com.stackroute.newz.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Mono/Flux version of NewsService used by the "reactive" profile. Missing news are
+ * signalled with a NewsNotFoundException error instead of a thrown exception.
+ */
+public interface ReactiveNewsService {
+
+	Mono<Boolean> addNews(News news);
+
+	default Mono<Boolean> deleteNews(String userId, int newsId) {
+		return deleteNews(userId, newsId, null);
+	}
+
+	/*
+	 * Same expected version contract as NewsService.deleteNews; a write at another
+	 * version signals a NewsPreconditionFailedException error.
+	 */
+	Mono<Boolean> deleteNews(String userId, int newsId, Long expectedVersion);
+
+	Mono<Boolean> deleteAllNews(String userId);
+
+	default Mono<News> updateNews(News news, int newsId, String userId) {
+		return updateNews(news, newsId, userId, null);
+	}
+
+	Mono<News> updateNews(News news, int newsId, String userId, Long expectedVersion);
+
+	default Mono<News> patchNews(String userId, int newsId, NewsPatch patch) {
+		return patchNews(userId, newsId, patch, null);
+	}
+
+	/*
+	 * Same patch contract as NewsService.patchNews.
+	 */
+	Mono<News> patchNews(String userId, int newsId, NewsPatch patch, Long expectedVersion);
+
+	Mono<News> getNewsByNewsId(String userId, int newsId);
+
+	/*
+	 * Same contract as NewsService.getNewsByUrl; completes empty when the URL is new.
+	 */
+	Mono<News> getNewsByUrl(String userId, String url);
+
+	/*
+	 * Emits the news of a user one by one as they are read from the Mongo cursor.
+	 */
+	Flux<News> getAllNewsByUserId(String userId);
+
+	/*
+	 * As getAllNewsByUserId, with the offloaded contents loaded, for the export of
+	 * all news of a user.
+	 */
+	Flux<News> streamAllNews(String userId);
+
+	/*
+	 * Same contract as NewsService.getNewsVersion; completes empty for a user
+	 * without news.
+	 */
+	Mono<Long> getNewsVersion(String userId);
+
+	/*
+	 * Same paging contract as NewsService.getNewsPage.
+	 */
+	Mono<NewsPage> getNewsPage(String userId, NewsCursor after, int size);
+
+	/*
+	 * As getAllNewsByUserId and getNewsPage, reading only the given fields of the
+	 * news from Mongo like NewsService; null fields read all fields.
+	 */
+	Flux<News> getAllNewsByUserId(String userId, NewsFields fields);
+
+	Mono<NewsPage> getNewsPage(String userId, NewsCursor after, int size, NewsFields fields);
+
+	/*
+	 * Same search contract as NewsService.searchNews.
+	 */
+	Flux<News> searchNews(String userId, String query, int size);
+
+}
@@ -0,0 +1,369 @@
+package com.stackroute.newz.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.content.NewsContentStore;
+import com.stackroute.newz.dedup.NewsUrlFilter;
+import com.stackroute.newz.event.NewsOutbox;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsContent;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.repository.ReactiveNewsRepository;
+import com.stackroute.newz.search.NewsSearchIndex;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.trending.NewsViewCounter;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/*
+ * Reactive implementation on the embedded UserNews layout. Every operation is a
+ * single server-side update or query on the user's document, using the positional
+ * operator to touch or return only the matching element of the newslist.
+ * Like the NewsServiceImpl, every write adds its NewsEvent to the outbox of the
+ * document and publishes it to the NewsOutbox, which never blocks; the
+ * NewsChangeListeners get it from the NewsChangeDispatcher on the outbox thread.
+ * deleteAllNews keeps the document as a tombstone.
+ *
+ * Contents longer than news.content.offload-threshold go to the newsContent
+ * collection as in the NewsServiceImpl, see NewsContentStore; here they are
+ * inserted and removed with the reactive operations. A content is written before
+ * the news that refers to it and removed again if the news is not written, and a
+ * replaced content is removed after the write.
+ *
+ * The NewsStatsRollup counts every created, deleted and moved news as in the
+ * NewsServiceImpl. It writes with the blocking MongoOperations, so it is called on
+ * the bounded elastic scheduler.
+ */
+@Service
+@Profile("reactive")
+@ConditionalOnProperty(name = "news.storage", havingValue = "embedded", matchIfMissing = true)
+public class ReactiveNewsServiceImpl implements ReactiveNewsService {
+
+	private ReactiveNewsRepository newsRepo;
+	private ReactiveMongoOperations mongoOperations;
+	private NewsSearchIndex newsSearchIndex;
+	private NewsOutbox newsOutbox;
+	private NewsChangeDispatcher newsChangeDispatcher;
+	private NewsUrlFilter newsUrlFilter;
+	private NewsViewCounter newsViewCounter;
+	private NewsContentStore newsContentStore;
+	private NewsArchive newsArchive;
+	private NewsStatsRollup newsStatsRollup;
+
+	@Autowired
+	public ReactiveNewsServiceImpl(ReactiveNewsRepository newsRepository, ReactiveMongoOperations mongoOperations,
+			NewsSearchIndex newsSearchIndex, NewsOutbox newsOutbox, NewsChangeDispatcher newsChangeDispatcher,
+			NewsUrlFilter newsUrlFilter, NewsViewCounter newsViewCounter, NewsContentStore newsContentStore,
+			NewsArchive newsArchive, NewsStatsRollup newsStatsRollup) {
+		this.newsRepo = newsRepository;
+		this.mongoOperations = mongoOperations;
+		this.newsSearchIndex = newsSearchIndex;
+		this.newsOutbox = newsOutbox;
+		this.newsChangeDispatcher = newsChangeDispatcher;
+		this.newsUrlFilter = newsUrlFilter;
+		this.newsViewCounter = newsViewCounter;
+		this.newsContentStore = newsContentStore;
+		this.newsArchive = newsArchive;
+		this.newsStatsRollup = newsStatsRollup;
+	}
+
+	/*
+	 * Upserts the author's document while the newsId is not in its newslist. For an
+	 * existing newsId the upsert collides with the existing _id and emits false.
+	 * The upsert also collides while a deletion of all news of the author is
+	 * pending; that deletion is then delivered on the bounded elastic scheduler,
+	 * as it blocks, and the upsert is tried once more. A newsId of an archived news
+	 * is taken as well; the NewsArchive is asked on the same scheduler.
+	 */
+	@Override
+	public Mono<Boolean> addNews(News news) {
+		return isArchived(news).flatMap(archived -> archived ? Mono.just(false) : insertNews(news));
+	}
+
+	private Mono<Boolean> isArchived(News news) {
+		if (news.getNewsId() == null) {
+			return Mono.just(false);
+		}
+		return Mono.fromCallable(() -> !newsArchive.archivedNewsIds(news.getAuthor(),
+				Collections.singleton(news.getNewsId())).isEmpty())
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	private Mono<Boolean> insertNews(News news) {
+		return stored(news.getAuthor(), news).flatMap(stored -> {
+			NewsEvent event = NewsEvent.created(stored);
+			return insertNews(stored, event)
+					.onErrorResume(DuplicateKeyException.class, e -> Mono.fromCallable(() -> newsChangeDispatcher.deliverPendingDeletion(news.getAuthor()))
+							.subscribeOn(Schedulers.boundedElastic())
+							.flatMap(delivered -> delivered ? insertNews(stored, event) : Mono.just(false)))
+					.onErrorReturn(DuplicateKeyException.class, false)
+					.onErrorResume(e -> removeContent(stored.getContentId()).then(Mono.error(e)))
+					.flatMap(created -> created ? count(() -> newsStatsRollup.added(news.getAuthor(), news)).thenReturn(true)
+							: removeContent(stored.getContentId()).thenReturn(false))
+					.doOnNext(created -> {
+						if (created) {
+							newsUrlFilter.newsSaved(news.getAuthor(), news);
+							event.setNews(news);
+							newsOutbox.publish(event);
+						}
+					});
+		});
+	}
+
+	private Mono<Boolean> insertNews(News news, NewsEvent event) {
+		return mongoOperations.upsert(UserNewsQueries.newsAbsent(news),
+				new Update().push("newslist", news).push("outbox", event).inc("version", 1L), UserNews.class)
+				.map(result -> true);
+	}
+
+	/*
+	 * The news is pulled with findAndModify, which returns it as it was, so the
+	 * removed news can be counted. An expected version is part of its query, as in
+	 * the NewsServiceImpl.
+	 */
+	@Override
+	public Mono<Boolean> deleteNews(String userId, int newsId, Long expectedVersion) {
+		NewsEvent event = NewsEvent.deleted(userId, newsId);
+		return mongoOperations.findAndModify(UserNewsQueries.atVersion(UserNewsQueries.newsById(userId, newsId), expectedVersion),
+				new Update().pull("newslist", new Document("_id", newsId)).push("outbox", event).inc("version", 1L),
+				FindAndModifyOptions.options().returnNew(false), UserNews.class)
+				.map(ReactiveNewsServiceImpl::matchedNews)
+				.flatMap(removed -> count(() -> newsStatsRollup.removed(userId, removed)).thenReturn(true))
+				.switchIfEmpty(notAtVersion(userId, newsId, expectedVersion).thenReturn(false))
+				.doOnNext(deleted -> {
+					if (deleted) {
+						newsOutbox.publish(event);
+					}
+				});
+	}
+
+	@Override
+	public Mono<Boolean> deleteAllNews(String userId) {
+		NewsEvent event = NewsEvent.userDeleted(userId);
+		return mongoOperations.updateFirst(UserNewsQueries.userNews(userId), UserNewsQueries.deleteAllNews(event), UserNews.class)
+				.flatMap(result -> result.getModifiedCount() > 0 ? Mono.just(true)
+						: Mono.error(new NewsNotFoundException("Can not Delete the News. The news with user ID: "
+								+ userId + " does not exists in the database.")))
+				.doOnNext(deleted -> newsOutbox.publish(event));
+	}
+
+	/*
+	 * Sets the same fields as the NewsServiceImpl, written as a patch of all of them.
+	 */
+	@Override
+	public Mono<News> updateNews(News news, int newsId, String userId, Long expectedVersion) {
+		NewsPatch patch = new NewsPatch()
+				.set("author", news.getAuthor())
+				.set("content", news.getContent())
+				.set("description", news.getDescription())
+				.set("title", news.getTitle())
+				.set("url", news.getUrl())
+				.set("urlToImage", news.getUrlToImage())
+				.set("reminder", news.getReminder());
+		return patchNews(userId, newsId, patch, expectedVersion);
+	}
+
+	/*
+	 * As in the NewsServiceImpl the news is returned as it was before and patched
+	 * here, so a replaced offloaded content can be removed.
+	 */
+	@Override
+	public Mono<News> patchNews(String userId, int newsId, NewsPatch patch, Long expectedVersion) {
+		if (patch.isEmpty()) {
+			return getNewsByNewsId(userId, newsId);
+		}
+		NewsEvent event = NewsEvent.updated(userId, newsId);
+		Mono<Optional<String>> contentId = patch.getFields().containsKey("content")
+				? offload(userId, newsId, (String) patch.getFields().get("content")) : Mono.just(Optional.empty());
+		return contentId.flatMap(offloaded -> mongoOperations.findAndModify(
+				UserNewsQueries.atVersion(UserNewsQueries.newsById(userId, newsId), expectedVersion),
+				UserNewsQueries.patch(patch, offloaded.orElse(null)).push("outbox", event),
+				FindAndModifyOptions.options().returnNew(false), UserNews.class)
+				.onErrorResume(e -> removeContent(offloaded.orElse(null)).then(Mono.error(e)))
+				.switchIfEmpty(removeContent(offloaded.orElse(null)).then(Mono.empty())))
+				.map(ReactiveNewsServiceImpl::matchedNews)
+				.flatMap(previous -> patched(userId, previous, patch))
+				.doOnNext(patched -> saved(userId, patched, event))
+				.switchIfEmpty(notAtVersion(userId, newsId, expectedVersion)
+						.then(Mono.error(() -> new NewsNotFoundException("Can not Update the News. The news with user ID: "
+								+ userId + " and news ID: " + newsId + " does not exists in the database."))));
+	}
+
+	/*
+	 * After a write with an expected version found nothing, signals the
+	 * NewsPreconditionFailedException if the news exists at another version, and
+	 * completes empty otherwise.
+	 */
+	private Mono<Void> notAtVersion(String userId, int newsId, Long expectedVersion) {
+		if (expectedVersion == null) {
+			return Mono.empty();
+		}
+		return Mono.defer(() -> mongoOperations.exists(UserNewsQueries.newsById(userId, newsId), UserNews.class))
+				.flatMap(exists -> exists ? Mono.error(new NewsPreconditionFailedException("The news of user ID: "
+						+ userId + " are not at version " + expectedVersion)) : Mono.empty());
+	}
+
+	@Override
+	public Mono<News> getNewsByNewsId(String userId, int newsId) {
+		return mongoOperations.findOne(UserNewsQueries.newsById(userId, newsId), UserNews.class)
+				.map(ReactiveNewsServiceImpl::matchedNews)
+				.flatMap(this::withContent)
+				.doOnNext(news -> newsViewCounter.viewed(userId, newsId))
+				.switchIfEmpty(Mono.error(() -> new NewsNotFoundException("Can not Retrieve the News. The news with user ID: "
+						+ userId + " and news  ID: " + newsId + " does not exists in the database.")));
+	}
+
+	@Override
+	public Mono<News> getNewsByUrl(String userId, String url) {
+		if (url == null || !newsUrlFilter.mightContain(userId, url)) {
+			return Mono.empty();
+		}
+		return mongoOperations.findOne(UserNewsQueries.newsByUrl(userId, url), UserNews.class)
+				.map(ReactiveNewsServiceImpl::matchedNews);
+	}
+
+	@Override
+	public Flux<News> getAllNewsByUserId(String userId) {
+		return getAllNewsByUserId(userId, null);
+	}
+
+	@Override
+	public Flux<News> getAllNewsByUserId(String userId, NewsFields fields) {
+		return mongoOperations.aggregate(UserNewsQueries.allNews(userId, fields),
+				mongoOperations.getCollectionName(UserNews.class), News.class);
+	}
+
+	@Override
+	public Flux<News> streamAllNews(String userId) {
+		return getAllNewsByUserId(userId).concatMap(this::withContent);
+	}
+
+	@Override
+	public Mono<Long> getNewsVersion(String userId) {
+		Query versionOnly = query(where("_id").is(userId));
+		versionOnly.fields().include("version");
+		return mongoOperations.findOne(versionOnly, UserNews.class)
+				.map(userNews -> userNews.getVersion() == null ? 0L : userNews.getVersion());
+	}
+
+	@Override
+	public Mono<NewsPage> getNewsPage(String userId, NewsCursor after, int size) {
+		return getNewsPage(userId, after, size, null);
+	}
+
+	@Override
+	public Mono<NewsPage> getNewsPage(String userId, NewsCursor after, int size, NewsFields fields) {
+		return mongoOperations.aggregate(UserNewsQueries.newsPage(userId, after, size, fields),
+				mongoOperations.getCollectionName(UserNews.class), News.class)
+				.collectList()
+				.map(fetched -> NewsPage.of(fetched, size));
+	}
+
+	@Override
+	public Flux<News> searchNews(String userId, String query, int size) {
+		List<Integer> newsIds = newsSearchIndex.search(userId, query, size);
+		if (newsIds.isEmpty()) {
+			return Flux.empty();
+		}
+		return newsRepo.findById(userId)
+				.flatMapIterable(userNews -> newsIds.stream().map(userNews::findNews).filter(Objects::nonNull)
+						.collect(Collectors.toList()));
+	}
+
+	/* Publishes the event of a written news; the news it holds in the outbox is null. */
+	private void saved(String userId, News news, NewsEvent event) {
+		newsUrlFilter.newsSaved(userId, news);
+		event.setNews(news);
+		newsOutbox.publish(event);
+	}
+
+	/* The news as it is written to the document, see NewsContentStore.stored. */
+	private Mono<News> stored(String userId, News news) {
+		return offload(userId, news.getNewsId(), news.getContent())
+				.map(contentId -> newsContentStore.stored(news, contentId.orElse(null)));
+	}
+
+	/* Inserts a content the NewsContentStore offloads and emits its id, if any. */
+	private Mono<Optional<String>> offload(String userId, Integer newsId, String content) {
+		if (!newsContentStore.offloads(content)) {
+			return Mono.just(Optional.empty());
+		}
+		return mongoOperations.insert(new NewsContent(userId, newsId, content))
+				.map(inserted -> Optional.of(inserted.getId()));
+	}
+
+	private Mono<Void> removeContent(String contentId) {
+		if (contentId == null) {
+			return Mono.empty();
+		}
+		return mongoOperations.remove(query(where("_id").is(contentId)), NewsContent.class).then();
+	}
+
+	/*
+	 * Applies the patch to the news as it was before. A patched content replaces
+	 * the offloaded one, which is removed; otherwise the content is loaded.
+	 */
+	private Mono<News> patched(String userId, News news, NewsPatch patch) {
+		String previousContentId = news.getContentId();
+		NewsSource previousSource = news.getNewsSource();
+		patch.applyTo(news);
+		Mono<Void> moved = patch.getFields().containsKey("newsSource")
+				? count(() -> newsStatsRollup.moved(userId, news, previousSource)) : Mono.empty();
+		if (!patch.getFields().containsKey("content")) {
+			return moved.then(withContent(news));
+		}
+		news.setContentId(null);
+		return moved.then(removeContent(previousContentId)).thenReturn(news);
+	}
+
+	private Mono<Void> count(Runnable report) {
+		return Mono.fromRunnable(report).subscribeOn(Schedulers.boundedElastic()).then();
+	}
+
+	/* Loads the content of a news that was offloaded by the NewsContentStore. */
+	private Mono<News> withContent(News news) {
+		if (news.getContentId() == null) {
+			return Mono.just(news);
+		}
+		return mongoOperations.findById(news.getContentId(), NewsContent.class)
+				.map(content -> {
+					news.setContent(content.getContent());
+					news.setContentId(null);
+					return news;
+				})
+				.defaultIfEmpty(news);
+	}
+
+	private static News matchedNews(UserNews userNews) {
+		return userNews.getNewslist().get(0);
+	}
+}
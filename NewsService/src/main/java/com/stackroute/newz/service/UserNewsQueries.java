@@ -0,0 +1,190 @@
+package com.stackroute.newz.service;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.replaceRoot;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.unwind;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPatch;
+
+/*
+ * Queries on the embedded UserNews layout shared by the blocking and the reactive
+ * service. Inside the newslist array every News keeps its newsId as _id.
+ */
+final class UserNewsQueries {
+
+	private UserNewsQueries() {
+	}
+
+	/*
+	 * Matches the UserNews document of the news' author only while the newsId is
+	 * not yet in its newslist and no deletion of all its news is pending, see
+	 * NewsChangeDispatcher. newsIds of archived news are not in the newslist; the
+	 * writes look them up in the NewsArchive first.
+	 */
+	static Query newsAbsent(News news) {
+		return query(where("_id").is(news.getAuthor()).and("newslist._id").ne(news.getNewsId())
+				.and("outbox.type").ne(NewsEvent.Type.USER_DELETED.name()));
+	}
+
+	/*
+	 * Matches the UserNews document of the user while it has news, see
+	 * deleteAllNews.
+	 */
+	static Query userNews(String userId) {
+		return query(where("_id").is(userId).and("newslist").exists(true));
+	}
+
+	/*
+	 * Deletes all news of the user but keeps the document as a tombstone, with the
+	 * event as the only one in its outbox; the events before it are replaced by
+	 * it. The version keeps counting up, so the ETags of the user's news are never
+	 * used again, and the event is delivered at least once like any other.
+	 */
+	static Update deleteAllNews(NewsEvent event) {
+		return new Update().unset("newslist").set("outbox", Collections.singletonList(event)).inc("version", 1L);
+	}
+
+	/*
+	 * Matches the UserNews document holding the news and projects its newslist to
+	 * that one news, so only the news itself is sent back.
+	 */
+	static Query newsById(String userId, int newsId) {
+		Query query = query(where("_id").is(userId).and("newslist._id").is(newsId));
+		query.fields().position("newslist", 1);
+		return query;
+	}
+
+	/*
+	 * Restricts a query on a UserNews document to the expected version, if any. A
+	 * document written before the version field has version 0.
+	 */
+	static Query atVersion(Query query, Long expectedVersion) {
+		if (expectedVersion != null) {
+			query.addCriteria(expectedVersion == 0 ? where("version").in(0L, null) : where("version").is(expectedVersion));
+		}
+		return query;
+	}
+
+	/*
+	 * Matches the UserNews document of the user if one of its news has the URL and
+	 * projects its newslist to the first such news. The _id lookup selects the single
+	 * document, so no index on the URLs is needed.
+	 */
+	static Query newsByUrl(String userId, String url) {
+		Query query = query(where("_id").is(userId).and("newslist.url").is(url));
+		query.fields().position("newslist", 1);
+		return query;
+	}
+
+	/*
+	 * Sets the patched fields of the news matched by newsById with the positional
+	 * operator; the other news of the user are not touched. The version of the
+	 * document is incremented. A patched content replaces an offloaded one; with a
+	 * contentId it is itself offloaded, see NewsContentStore.
+	 */
+	static Update patch(NewsPatch patch, String contentId) {
+		Update update = new Update().inc("version", 1L);
+		patch.getFields().forEach((field, value) -> update.set("newslist.$." + field, value));
+		if (contentId != null) {
+			update.set("newslist.$.content", null).set("newslist.$.contentId", contentId);
+		} else if (patch.getFields().containsKey("content")) {
+			update.unset("newslist.$.contentId");
+		}
+		return update;
+	}
+
+	/*
+	 * Unwinds the newslist of one user on the server and returns the news as
+	 * top-level documents.
+	 */
+	static Aggregation allNews(String userId) {
+		return allNews(userId, null);
+	}
+
+	/* As allNews, with only the given fields of the news or all for null. */
+	static Aggregation allNews(String userId, NewsFields fields) {
+		return newAggregation(unwindNews(userId, fields));
+	}
+
+	/*
+	 * Returns size + 1 news of a user after the cursor, newest first. The extra news
+	 * only tells NewsPage whether there is a next page.
+	 *
+	 * The newslist is embedded in one document, so no index can serve this order:
+	 * every page unwinds and sorts all news of the user, O(n log n) in the length
+	 * of the newslist, and the keyset cursor only saves sending the earlier pages.
+	 * The newslist is not kept in publishedAt order, so a $slice can not cut a page
+	 * out of it either. The NewsArchiver moves old news out of the newslist, which
+	 * bounds n; the article layout pages with its user_published_idx index instead.
+	 */
+	static Aggregation newsPage(String userId, NewsCursor after, int size) {
+		return newsPage(userId, after, size, null);
+	}
+
+	/* As newsPage, with only the given fields of the news or all for null. */
+	static Aggregation newsPage(String userId, NewsCursor after, int size, NewsFields fields) {
+		List<AggregationOperation> pipeline = unwindNews(userId, fields);
+		if (after != null) {
+			// untyped aggregations bypass the mapping layer, so the date is converted here
+			pipeline.add(match(after(after.getPublishedAtDate(), "_id", after.getNewsId())));
+		}
+		pipeline.add(sort(Sort.Direction.DESC, "publishedAt", "_id"));
+		pipeline.add(limit(size + 1L));
+		return newAggregation(pipeline);
+	}
+
+	/*
+	 * The news after a cursor in (publishedAt desc, id desc) order. News without
+	 * publishedAt sort lowest, so they follow every dated news.
+	 */
+	static Criteria after(Object publishedAt, String idField, int newsId) {
+		if (publishedAt == null) {
+			return where("publishedAt").is(null).and(idField).lt(newsId);
+		}
+		return new Criteria().orOperator(
+				where("publishedAt").lt(publishedAt),
+				where("publishedAt").is(publishedAt).and(idField).lt(newsId),
+				where("publishedAt").is(null));
+	}
+
+	/*
+	 * The selected fields are projected before the newslist is unwound, so the
+	 * other fields are dropped while the document is read and never reach the
+	 * later stages.
+	 */
+	private static List<AggregationOperation> unwindNews(String userId, NewsFields fields) {
+		List<AggregationOperation> pipeline = new ArrayList<>();
+		pipeline.add(match(where("_id").is(userId)));
+		if (fields != null) {
+			Document projection = new Document("_id", 0);
+			for (String field : fields.getFields()) {
+				projection.append("newslist." + ("newsId".equals(field) ? "_id" : field), 1);
+			}
+			pipeline.add(context -> new Document("$project", projection));
+		}
+		pipeline.add(unwind("newslist"));
+		pipeline.add(replaceRoot("newslist"));
+		return pipeline;
+	}
+}
@@ -0,0 +1,143 @@
+package com.stackroute.newz.stats;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.NewsStats;
+import com.stackroute.newz.model.UserNews;
+
+/*
+ * Background job that counts the NewsStats of all users anew from their news,
+ * every news.stats.interval, to repair what the NewsStatsRollup missed. The
+ * users are read in batches of news.stats.batch-size ordered by userId, with
+ * only the source and publishedAt of their news, and archived news are counted
+ * as well. The stats of a user are replaced as a whole, so an increment written
+ * while they are counted can be lost until the next run. Stats of users that no
+ * longer have a UserNews document, or only its tombstone without news, are
+ * removed.
+ *
+ * It is enabled with news.stats.enabled=true and only runs on the embedded
+ * layout, as it counts the UserNews documents; with news.storage=article it would
+ * find no users and remove all stats.
+ */
+@Component
+@ConditionalOnExpression("${news.stats.enabled:false} and '${news.storage:embedded}' == 'embedded'")
+public class NewsStatsReconciler implements ApplicationRunner, DisposableBean {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private MongoOperations mongoOperations;
+	private NewsArchive newsArchive;
+	private NewsProperties.Stats properties;
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public NewsStatsReconciler(MongoOperations mongoOperations, NewsArchive newsArchive,
+			NewsProperties newsProperties) {
+		this.mongoOperations = mongoOperations;
+		this.newsArchive = newsArchive;
+		this.properties = newsProperties.getStats();
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "news-stats-reconciler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = properties.getInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				reconcile();
+			} catch (RuntimeException e) {
+				logger.error("In stats - {}", "Reconciling the news stats failed", e);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/* Counts the stats of all users and returns the number of users. */
+	public int reconcile() {
+		int users = 0;
+		String after = null;
+		List<UserNews> batch;
+		do {
+			batch = mongoOperations.find(batchAfter(after), UserNews.class);
+			List<UserNews> counted = new ArrayList<>(batch.size());
+			for (UserNews userNews : batch) {
+				if (userNews.getNewslist() != null) {
+					mongoOperations.save(count(userNews));
+					counted.add(userNews);
+				}
+			}
+			String last = batch.isEmpty() ? null : batch.get(batch.size() - 1).getUserId();
+			removeOrphans(after, last, counted);
+			after = last;
+			users += counted.size();
+		} while (!batch.isEmpty());
+		logger.info("In stats - {}", "Reconciled the news stats of " + users + " users.");
+		return users;
+	}
+
+	private Query batchAfter(String after) {
+		Query batch = after == null ? new Query() : query(where("_id").gt(after));
+		batch.with(Sort.by("_id")).limit(properties.getBatchSize());
+		batch.fields().include("newslist.publishedAt").include("newslist.newsSource.newsSourceId");
+		return batch;
+	}
+
+	private NewsStats count(UserNews userNews) {
+		NewsStats stats = new NewsStats(userNews.getUserId());
+		userNews.getNewslist().forEach(stats::add);
+		newsArchive.forEach(userNews.getUserId(), stats::add);
+		return stats;
+	}
+
+	/*
+	 * Removes the stats of the userIds from after up to the last one of the batch
+	 * that were not counted; after the empty last batch, all that follow.
+	 */
+	private void removeOrphans(String after, String last, List<UserNews> counted) {
+		if (after == null && last == null) {
+			mongoOperations.remove(new Query(), NewsStats.class);
+			return;
+		}
+		Criteria range = where("_id");
+		if (after != null) {
+			range.gt(after);
+		}
+		if (last != null) {
+			range.lte(last).nin(counted.stream().map(UserNews::getUserId).collect(Collectors.toList()));
+		}
+		mongoOperations.remove(query(range), NewsStats.class);
+	}
+}
@@ -0,0 +1,109 @@
+package com.stackroute.newz.stats;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.NewsStats;
+import com.stackroute.newz.service.NewsChangeListener;
+
+/*
+ * Keeps the NewsStats of the users up to date while their news are written. The
+ * NewsServiceImpl, the NewsArticleServiceImpl and the ReactiveNewsServiceImpl
+ * report every created, deleted and moved news after its write succeeded, and
+ * each report becomes a single upsert with $inc of the counters it changes, so
+ * the stats are read without looking at the news. A report that is lost, for
+ * example when the instance stops after the write, leaves the stats off until
+ * the NewsStatsReconciler counts them anew, which it only does in the embedded
+ * layout.
+ */
+@Component
+public class NewsStatsRollup implements NewsChangeListener {
+
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	public NewsStatsRollup(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	public NewsStats get(String userId) {
+		return mongoOperations.findById(userId, NewsStats.class);
+	}
+
+	public void added(String userId, News news) {
+		apply(userId, count(new LinkedHashMap<>(), news, 1L));
+	}
+
+	/* The news of a batch that were created, with one upsert per author. */
+	public void added(List<News> created) {
+		if (created.isEmpty()) {
+			return;
+		}
+		Map<String, Map<String, Long>> byUser = new LinkedHashMap<>();
+		for (News news : created) {
+			count(byUser.computeIfAbsent(news.getAuthor(), userId -> new LinkedHashMap<>()), news, 1L);
+		}
+		BulkOperations bulk = mongoOperations.bulkOps(BulkMode.UNORDERED, collection());
+		byUser.forEach((userId, counters) -> bulk.upsert(query(where("_id").is(userId)), increment(counters)));
+		bulk.execute();
+	}
+
+	public void removed(String userId, News news) {
+		apply(userId, count(new LinkedHashMap<>(), news, -1L));
+	}
+
+	/* The source of a news was changed from the given one. */
+	public void moved(String userId, News news, NewsSource from) {
+		String before = NewsStats.sourceOf(from);
+		String after = NewsStats.sourceOf(news.getNewsSource());
+		if (!before.equals(after)) {
+			Map<String, Long> counters = new LinkedHashMap<>();
+			counters.put("bySource." + before, -1L);
+			counters.put("bySource." + after, 1L);
+			apply(userId, counters);
+		}
+	}
+
+	@Override
+	public void userNewsDeleted(String userId) {
+		mongoOperations.remove(query(where("_id").is(userId)), NewsStats.class);
+	}
+
+	/*
+	 * The counters are written by their path in the document, which the mapping
+	 * layer must not interpret, so the updates go to the collection by name.
+	 */
+	private void apply(String userId, Map<String, Long> counters) {
+		mongoOperations.upsert(query(where("_id").is(userId)), increment(counters), collection());
+	}
+
+	private String collection() {
+		return mongoOperations.getCollectionName(NewsStats.class);
+	}
+
+	private static Map<String, Long> count(Map<String, Long> counters, News news, long delta) {
+		counters.merge("total", delta, Long::sum);
+		counters.merge("bySource." + NewsStats.sourceOf(news.getNewsSource()), delta, Long::sum);
+		counters.merge("byDay." + NewsStats.dayOf(news), delta, Long::sum);
+		return counters;
+	}
+
+	private static Update increment(Map<String, Long> counters) {
+		Update update = new Update();
+		counters.forEach(update::inc);
+		return update;
+	}
+}
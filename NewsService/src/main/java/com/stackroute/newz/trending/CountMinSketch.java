@@ -0,0 +1,50 @@
+package com.stackroute.newz.trending;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Count-Min Sketch of view counts: depth rows of width counters, one counter per
+ * row incremented for every key. The smallest of the counters of a key is never
+ * below its true count and exceeds it by more than e * total / width only with
+ * probability e^-depth. Counters are added without locks.
+ */
+final class CountMinSketch {
+
+	private final int width;
+	private final int depth;
+	private final AtomicLongArray counters;
+
+	CountMinSketch(int width, int depth) {
+		this.width = width;
+		this.depth = depth;
+		this.counters = new AtomicLongArray(width * depth);
+	}
+
+	void add(long hash, long count) {
+		for (int row = 0; row < depth; row++) {
+			counters.addAndGet(index(hash, row), count);
+		}
+	}
+
+	long estimate(long hash) {
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counters.get(index(hash, row)));
+		}
+		return estimate;
+	}
+
+	void clear() {
+		for (int i = 0; i < counters.length(); i++) {
+			counters.set(i, 0);
+		}
+	}
+
+	/*
+	 * Double hashing with the two halves of the key hash, as in ScalableBloomFilter.
+	 */
+	private int index(long hash, int row) {
+		int combined = (int) hash + row * ((int) (hash >>> 32) | 1);
+		return row * width + (combined & Integer.MAX_VALUE) % width;
+	}
+}
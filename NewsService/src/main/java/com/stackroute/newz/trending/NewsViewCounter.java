@@ -0,0 +1,185 @@
+package com.stackroute.newz.trending;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.NewsViews;
+import com.stackroute.newz.model.TrendingNews;
+import com.stackroute.newz.service.NewsChangeListener;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Counts the views of the news and knows the trending ones. A view only adds to
+ * a LongAdder of the news and to the TrendingTracker, so reading a news never
+ * waits for Mongo. Every news.trending.flush-interval the views counted since
+ * the last flush are added to the newsViews collection with one bulk $inc per
+ * news; counts of a failed flush are kept for the next one.
+ *
+ * Trending news come from the TrendingTracker over the last news.trending.window
+ * of this instance only.
+ */
+@Component
+public class NewsViewCounter implements NewsChangeListener, MeterBinder, ApplicationRunner, DisposableBean {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private MongoOperations mongoOperations;
+	private NewsProperties.Trending properties;
+
+	private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+	private final TrendingTracker tracker;
+	private final LongAdder recorded = new LongAdder();
+	private final LongAdder flushed = new LongAdder();
+	private ScheduledExecutorService flusher;
+
+	@Autowired
+	public NewsViewCounter(MongoOperations mongoOperations, NewsProperties newsProperties) {
+		this.mongoOperations = mongoOperations;
+		this.properties = newsProperties.getTrending();
+		this.tracker = new TrendingTracker(properties.getWindow().toMillis(), properties.getBuckets(),
+				properties.getCapacity(), properties.getSketchWidth(), properties.getSketchDepth());
+	}
+
+	public void viewed(String userId, int newsId) {
+		String id = NewsViews.idOf(userId, newsId);
+		LongAdder views = pending.get(id);
+		if (views == null) {
+			views = pending.computeIfAbsent(id, key -> new LongAdder());
+		}
+		views.increment();
+		recorded.increment();
+		tracker.record(id, System.currentTimeMillis());
+	}
+
+	/* Returns up to size news with the most views in the window, most viewed first. */
+	public List<TrendingNews> trending(int size) {
+		return tracker.top(size, System.currentTimeMillis()).stream()
+				.map(entry -> {
+					int separator = entry.getKey().lastIndexOf(':');
+					return new TrendingNews(entry.getKey().substring(0, separator),
+							Integer.valueOf(entry.getKey().substring(separator + 1)), entry.getValue());
+				})
+				.collect(Collectors.toList());
+	}
+
+	public int capacity() {
+		return tracker.capacity();
+	}
+
+	/*
+	 * Adds the counted views to newsViews and returns the number of news written.
+	 * A news without views since the last flush is dropped from the counters; a
+	 * view counted in the same instant may be lost.
+	 */
+	public int flush() {
+		List<String> ids = new ArrayList<>();
+		List<Long> counts = new ArrayList<>();
+		for (Map.Entry<String, LongAdder> entry : pending.entrySet()) {
+			long views = entry.getValue().sumThenReset();
+			if (views == 0) {
+				pending.remove(entry.getKey(), entry.getValue());
+			} else {
+				ids.add(entry.getKey());
+				counts.add(views);
+			}
+		}
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		LocalDateTime now = LocalDateTime.now();
+		BulkOperations bulk = mongoOperations.bulkOps(BulkMode.UNORDERED, NewsViews.class);
+		for (int i = 0; i < ids.size(); i++) {
+			String id = ids.get(i);
+			int separator = id.lastIndexOf(':');
+			bulk.upsert(query(where("_id").is(id)), new Update()
+					.inc("views", counts.get(i))
+					.set("userId", id.substring(0, separator))
+					.set("newsId", Integer.valueOf(id.substring(separator + 1)))
+					.set("lastViewedAt", now));
+		}
+		try {
+			bulk.execute();
+		} catch (RuntimeException e) {
+			for (int i = 0; i < ids.size(); i++) {
+				pending.computeIfAbsent(ids.get(i), key -> new LongAdder()).add(counts.get(i));
+			}
+			logger.warn("In trending - {}", "Could not write the views of " + ids.size() + " news: " + e.getMessage());
+			return 0;
+		}
+		counts.forEach(flushed::add);
+		return ids.size();
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		long interval = properties.getFlushInterval().toMillis();
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "news-views-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/* Writes the views counted since the last flush before the instance stops. */
+	@Override
+	public void destroy() throws InterruptedException {
+		if (flusher == null) {
+			return;
+		}
+		flusher.shutdown();
+		flusher.awaitTermination(5, TimeUnit.SECONDS);
+		flush();
+	}
+
+	@Override
+	public void newsDeleted(String userId, int newsId) {
+		String id = NewsViews.idOf(userId, newsId);
+		pending.remove(id);
+		tracker.remove(id::equals);
+		mongoOperations.remove(query(where("_id").is(id)), NewsViews.class);
+	}
+
+	@Override
+	public void userNewsDeleted(String userId) {
+		String prefix = userId + ":";
+		pending.keySet().removeIf(id -> id.startsWith(prefix));
+		tracker.remove(id -> id.startsWith(prefix));
+		mongoOperations.remove(query(where("userId").is(userId)), NewsViews.class);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("news.views.pending", pending, Map::size).register(registry);
+		FunctionCounter.builder("news.views.recorded", recorded, LongAdder::sum).register(registry);
+		FunctionCounter.builder("news.views.flushed", flushed, LongAdder::sum).register(registry);
+	}
+}
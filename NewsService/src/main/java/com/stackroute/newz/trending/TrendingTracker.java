@@ -0,0 +1,166 @@
+package com.stackroute.newz.trending;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/*
+ * Heavy hitters of a stream of keys over a sliding time window. The window is
+ * split into buckets of equal length, each counting its keys in a
+ * CountMinSketch; the count of a key in the window is the sum of its estimates
+ * in all buckets. When time moves past a bucket its sketch is cleared and reused,
+ * so memory does not grow with the number of keys.
+ *
+ * The capacity keys with the highest counts are kept as candidates in a min-heap.
+ * A recorded key replaces the smallest candidate once its count is higher, so
+ * the top keys are answered from the candidates alone. After a bucket expired the
+ * counts of the candidates are estimated again.
+ */
+public class TrendingTracker {
+
+	private static final class Candidate {
+		final String key;
+		final long hash;
+		long count;
+
+		Candidate(String key, long hash, long count) {
+			this.key = key;
+			this.hash = hash;
+			this.count = count;
+		}
+	}
+
+	private final CountMinSketch[] buckets;
+	private final long bucketMillis;
+	private final int capacity;
+	/* number of the newest bucket since the epoch, changed under the lock */
+	private volatile long current;
+
+	private final Map<String, Candidate> candidates = new HashMap<>();
+	private final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingLong(candidate -> candidate.count));
+
+	public TrendingTracker(long windowMillis, int bucketCount, int capacity, int width, int depth) {
+		this.buckets = new CountMinSketch[bucketCount];
+		for (int i = 0; i < bucketCount; i++) {
+			buckets[i] = new CountMinSketch(width, depth);
+		}
+		this.bucketMillis = Math.max(1, windowMillis / bucketCount);
+		this.capacity = capacity;
+	}
+
+	public void record(String key, long nowMillis) {
+		long bucket = advanceTo(nowMillis);
+		long hash = hash(key);
+		buckets[(int) (bucket % buckets.length)].add(hash, 1);
+		long count = estimate(hash);
+		synchronized (this) {
+			Candidate candidate = candidates.get(key);
+			if (candidate != null) {
+				// the heap does not notice a changed count, so the candidate is added again
+				heap.remove(candidate);
+				candidate.count = count;
+				heap.add(candidate);
+			} else if (heap.size() < capacity) {
+				add(new Candidate(key, hash, count));
+			} else if (count > heap.peek().count) {
+				candidates.remove(heap.poll().key);
+				add(new Candidate(key, hash, count));
+			}
+		}
+	}
+
+	/* Returns up to size keys with their count in the window, highest count first. */
+	public List<Map.Entry<String, Long>> top(int size, long nowMillis) {
+		advanceTo(nowMillis);
+		List<Map.Entry<String, Long>> top;
+		synchronized (this) {
+			top = new ArrayList<>(heap.size());
+			for (Candidate candidate : heap) {
+				top.add(new SimpleImmutableEntry<>(candidate.key, candidate.count));
+			}
+		}
+		return top.stream()
+				.sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+				.limit(size)
+				.collect(Collectors.toList());
+	}
+
+	/* Stops reporting the matching keys until they are recorded again. */
+	public synchronized void remove(Predicate<String> keys) {
+		List<Candidate> removed = candidates.values().stream()
+				.filter(candidate -> keys.test(candidate.key))
+				.collect(Collectors.toList());
+		for (Candidate candidate : removed) {
+			candidates.remove(candidate.key);
+			heap.remove(candidate);
+		}
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	private void add(Candidate candidate) {
+		candidates.put(candidate.key, candidate);
+		heap.add(candidate);
+	}
+
+	/*
+	 * Clears the buckets that left the window and returns the number of the
+	 * current bucket. A view recorded while its bucket is cleared may be lost.
+	 */
+	private long advanceTo(long nowMillis) {
+		long bucket = nowMillis / bucketMillis;
+		if (bucket <= current) {
+			return current;
+		}
+		synchronized (this) {
+			if (bucket <= current) {
+				return current;
+			}
+			long expired = Math.min(bucket - current, buckets.length);
+			for (long i = 1; i <= expired; i++) {
+				buckets[(int) ((current + i) % buckets.length)].clear();
+			}
+			current = bucket;
+			List<Candidate> rescored = new ArrayList<>(heap);
+			heap.clear();
+			candidates.clear();
+			for (Candidate candidate : rescored) {
+				candidate.count = estimate(candidate.hash);
+				if (candidate.count > 0) {
+					add(candidate);
+				}
+			}
+			return bucket;
+		}
+	}
+
+	private long estimate(long hash) {
+		long count = 0;
+		for (CountMinSketch bucket : buckets) {
+			count += bucket.estimate(hash);
+		}
+		return count;
+	}
+
+	private static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
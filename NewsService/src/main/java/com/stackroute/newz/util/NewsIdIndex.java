@@ -0,0 +1,93 @@
+package com.stackroute.newz.util;
+
+import java.util.List;
+
+import com.stackroute.newz.model.News;
+
+/*
+ * Immutable open-addressing hash map from newsId to the position of the news in a
+ * newslist. Keys and positions are kept in two int arrays with linear probing, so a
+ * lookup neither boxes the newsId nor allocates. The table is at most half full.
+ *
+ * When a newsId occurs more than once, the first position is kept, which is what a
+ * linear scan of the list would find.
+ */
+public final class NewsIdIndex {
+
+	private static final int ABSENT = -1;
+
+	private final int[] keys;
+	/* position + 1, 0 marks a free slot */
+	private final int[] slots;
+	private final int mask;
+	private final int size;
+
+	private NewsIdIndex(int size) {
+		int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+		this.keys = new int[capacity];
+		this.slots = new int[capacity];
+		this.mask = capacity - 1;
+		this.size = size;
+	}
+
+	/*
+	 * Indexes every news of the list that has a newsId.
+	 */
+	public static NewsIdIndex of(List<News> newsList) {
+		NewsIdIndex index = new NewsIdIndex(newsList.size());
+		for (int position = 0; position < newsList.size(); position++) {
+			Integer newsId = newsList.get(position).getNewsId();
+			if (newsId != null) {
+				index.putIfAbsent(newsId, position);
+			}
+		}
+		return index;
+	}
+
+	/*
+	 * Returns the position of the newsId in the indexed list, or -1.
+	 */
+	public int get(int newsId) {
+		int slot = mix(newsId) & mask;
+		while (slots[slot] != 0) {
+			if (keys[slot] == newsId) {
+				return slots[slot] - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return ABSENT;
+	}
+
+	/* Number of entries of the list this index was built from. */
+	public int size() {
+		return size;
+	}
+
+	private void putIfAbsent(int newsId, int position) {
+		int slot = mix(newsId) & mask;
+		while (slots[slot] != 0) {
+			if (keys[slot] == newsId) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = newsId;
+		slots[slot] = position + 1;
+	}
+
+	/* Murmur3 finalizer, spreads sequential ids over the whole table. */
+	private static int mix(int key) {
+		int h = key;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsIdIndex [size=" + size + ", capacity=" + keys.length + "]";
+	}
+}
@@ -0,0 +1,15 @@
+package com.stackroute.newz.util.exception;
+
+/*
+ * A conditional write found the news of the user at another version than the
+ * expected one. Unchecked like the OptimisticLockingFailureException of a
+ * conflicting write, and answered with 412(PRECONDITION FAILED) by the controller.
+ */
+public class NewsPreconditionFailedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public NewsPreconditionFailedException(String message) {
+		super(message);
+	}
+}
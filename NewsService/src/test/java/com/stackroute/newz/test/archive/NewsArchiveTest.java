@@ -0,0 +1,311 @@
+package com.stackroute.newz.test.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.archive.NewsArchiver;
+import com.stackroute.newz.cache.UserNewsCache;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArchiveBucket;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.service.OptimisticRetry;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+public class NewsArchiveTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2019, 12, 1, 10, 0);
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private UserNewsCache userNewsCache;
+
+    private NewsArchive newsArchive;
+    private List<News> aged;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getArchive().setBucketSize(2);
+        newsArchive = new NewsArchive(mongoOperations, Jackson2ObjectMapperBuilder.json().build(), newsProperties);
+        aged = new ArrayList<>();
+        for (int newsId = 1; newsId <= 5; newsId++) {
+            aged.add(new News(newsId, "IPLT20 Match - 0" + newsId, "Becky123", null, NOW.minusDays(200 - newsId),
+                    null, null, null, null, null));
+        }
+    }
+
+    @Test
+    public void archivedNewsAreFoundAgain() {
+        aged.get(2).setContentId("5e0a6a1c9d2b4f3a8c7d6e53");
+        List<NewsArchiveBucket> buckets = archive(aged);
+        assertEquals(3, buckets.size());
+        assertEquals(Arrays.asList(5, 4), buckets.get(0).getNewsIds());
+        assertEquals(NOW.minusDays(195), buckets.get(0).getNewest());
+        assertEquals(NOW.minusDays(196), buckets.get(0).getOldest());
+
+        when(mongoOperations.findOne(any(Query.class), eq(NewsArchiveBucket.class))).thenReturn(buckets.get(1));
+        News found = newsArchive.find("Becky123", 3);
+        assertEquals("IPLT20 Match - 03", found.getTitle());
+        assertEquals(NOW.minusDays(197), found.getPublishedAt());
+        assertEquals("5e0a6a1c9d2b4f3a8c7d6e53", found.getContentId());
+        assertNull(newsArchive.find("Becky123", 5));
+    }
+
+    @Test
+    public void newsAfterReadsBucketsUpToLimit() {
+        List<NewsArchiveBucket> buckets = archive(aged);
+        when(mongoOperations.stream(any(Query.class), eq(NewsArchiveBucket.class)))
+                .thenReturn(iterator(buckets.subList(0, 2)), iterator(buckets));
+
+        List<News> first = newsArchive.newsAfter("Becky123", null, 3);
+        assertEquals(Arrays.asList(5, 4, 3), newsIds(first));
+        List<News> rest = newsArchive.newsAfter("Becky123", NewsCursor.of(first.get(2)), 10);
+        assertEquals(Arrays.asList(2, 1), newsIds(rest));
+    }
+
+    @Test
+    public void archiveSkipsArchivedNews() {
+        NewsArchiveBucket archived = bucketOf(aged.subList(3, 5));
+        when(mongoOperations.find(any(Query.class), eq(NewsArchiveBucket.class)))
+                .thenReturn(Collections.singletonList(archived));
+        List<NewsArchiveBucket> buckets = archive(aged);
+        assertEquals(Arrays.asList(Arrays.asList(3, 2), Collections.singletonList(1)),
+                buckets.stream().map(NewsArchiveBucket::getNewsIds).collect(Collectors.toList()));
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(Update.class), eq(NewsArchiveBucket.class));
+    }
+
+    @Test
+    public void archiveReplacesOlderArchivedCopy() {
+        NewsArchiveBucket archived = bucketOf(aged.subList(3, 5));
+        archived.setId("5e0a6a1c9d2b4f3a8c7d6e60");
+        when(mongoOperations.find(any(Query.class), eq(NewsArchiveBucket.class)))
+                .thenReturn(Collections.singletonList(archived));
+        aged.get(4).setTitle("IPLT20 Match - 05, CSK won");
+
+        List<NewsArchiveBucket> buckets = archive(aged);
+        assertEquals(Arrays.asList(Arrays.asList(3, 2), Collections.singletonList(1)),
+                buckets.stream().map(NewsArchiveBucket::getNewsIds).collect(Collectors.toList()));
+        ArgumentCaptor<Update> rewritten = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(any(Query.class), rewritten.capture(), eq(NewsArchiveBucket.class));
+        archived.setContent((byte[]) ((Document) rewritten.getValue().getUpdateObject().get("$set")).get("content"));
+        when(mongoOperations.findOne(any(Query.class), eq(NewsArchiveBucket.class))).thenReturn(archived);
+        assertEquals("IPLT20 Match - 05, CSK won", newsArchive.find("Becky123", 5).getTitle());
+        assertEquals("IPLT20 Match - 04", newsArchive.find("Becky123", 4).getTitle());
+    }
+
+    @Test
+    public void changeRewritesTheBucketItRead() {
+        NewsArchiveBucket archived = bucketOf(aged.subList(3, 5));
+        archived.setId("5e0a6a1c9d2b4f3a8c7d6e60");
+        when(mongoOperations.findOne(any(Query.class), eq(NewsArchiveBucket.class))).thenReturn(archived);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(NewsArchiveBucket.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
+
+        assertTrue(newsArchive.change("Becky123", 5, news -> {
+            news.setTitle("IPLT20 Match - 05, CSK won");
+            return news;
+        }));
+        ArgumentCaptor<Query> bucket = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> rewritten = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, times(2)).updateFirst(bucket.capture(), rewritten.capture(), eq(NewsArchiveBucket.class));
+        assertEquals(archived.getContent(), bucket.getValue().getQueryObject().get("content"));
+        archived.setContent((byte[]) ((Document) rewritten.getValue().getUpdateObject().get("$set")).get("content"));
+        assertEquals("IPLT20 Match - 05, CSK won", newsArchive.find("Becky123", 5).getTitle());
+        assertEquals("IPLT20 Match - 04", newsArchive.find("Becky123", 4).getTitle());
+    }
+
+    @Test
+    public void changeRemovesNewsAndEmptyBucket() {
+        NewsArchiveBucket archived = bucketOf(aged.subList(4, 5));
+        archived.setId("5e0a6a1c9d2b4f3a8c7d6e60");
+        when(mongoOperations.findOne(any(Query.class), eq(NewsArchiveBucket.class))).thenReturn(archived, (NewsArchiveBucket) null);
+        when(mongoOperations.remove(any(Query.class), eq(NewsArchiveBucket.class)))
+                .thenReturn(DeleteResult.acknowledged(1));
+
+        assertTrue(newsArchive.change("Becky123", 5, news -> null));
+        assertFalse(newsArchive.change("Becky123", 5, news -> null));
+        verify(mongoOperations).remove(any(Query.class), eq(NewsArchiveBucket.class));
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(Update.class), eq(NewsArchiveBucket.class));
+    }
+
+    @Test
+    public void highestNewsIdIsTheLargestInTheBuckets() {
+        assertEquals(0, newsArchive.highestNewsId("Becky123"));
+        when(mongoOperations.findOne(any(Query.class), eq(NewsArchiveBucket.class)))
+                .thenReturn(new NewsArchiveBucket("Becky123", Arrays.asList(9, 12, 4), null, null, null));
+        assertEquals(12, newsArchive.highestNewsId("Becky123"));
+    }
+
+    @Test
+    public void archivedNewsIdsAreOnlyTheAskedOnes() {
+        when(mongoOperations.find(any(Query.class), eq(NewsArchiveBucket.class)))
+                .thenReturn(Collections.singletonList(new NewsArchiveBucket("Becky123", Arrays.asList(4, 5), null, null, null)));
+        assertEquals(Collections.singleton(5), newsArchive.archivedNewsIds("Becky123", Arrays.asList(5, 6)));
+    }
+
+    @Test
+    public void archiverMovesAgedNewsOutOfUserNews() {
+        News fresh = new News(6, "IPLT20 Match - 06", "Becky123", null, NOW, null, null, null, null, null);
+        List<News> newslist = new ArrayList<>(aged);
+        newslist.add(fresh);
+        UserNews userNews = new UserNews();
+        userNews.setUserId("Becky123");
+        userNews.setNewslist(newslist);
+        when(mongoOperations.stream(any(Query.class), eq(UserNews.class)))
+                .thenReturn(iterator(Collections.singletonList(userNews)));
+        when(mongoOperations.findById("Becky123", UserNews.class)).thenReturn(userNews);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        NewsArchiver archiver = new NewsArchiver(mongoOperations, newsArchive, userNewsCache,
+                new OptimisticRetry(newsProperties()), newsProperties());
+
+        assertEquals(5, archiver.archiveOlderThan(NOW.minusDays(90)));
+        ArgumentCaptor<Update> pull = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(any(Query.class), pull.capture(), eq(UserNews.class));
+        assertEquals(true, pull.getValue().toString().contains("$pull"));
+        verify(mongoOperations).insert(anyCollection(), eq(NewsArchiveBucket.class));
+        verify(userNewsCache).invalidate("Becky123");
+        assertEquals(true, pull.getValue().toString().contains("version"));
+    }
+
+    @Test
+    public void archiverPullsOnlyTheVersionItRead() {
+        UserNews read = userNews(new ArrayList<>(aged), 3L);
+        UserNews changed = userNews(new ArrayList<>(aged), 4L);
+        when(mongoOperations.stream(any(Query.class), eq(UserNews.class)))
+                .thenReturn(iterator(Collections.singletonList(read)));
+        when(mongoOperations.findById("Becky123", UserNews.class)).thenReturn(read, changed);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
+        NewsArchiver archiver = new NewsArchiver(mongoOperations, newsArchive, userNewsCache,
+                new OptimisticRetry(newsProperties()), newsProperties());
+
+        assertEquals(5, archiver.archiveOlderThan(NOW.minusDays(90)));
+        ArgumentCaptor<Query> pulled = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(2)).updateFirst(pulled.capture(), any(Update.class), eq(UserNews.class));
+        assertEquals(3L, pulled.getAllValues().get(0).getQueryObject().get("version"));
+        assertEquals(4L, pulled.getAllValues().get(1).getQueryObject().get("version"));
+        verify(userNewsCache, times(1)).invalidate("Becky123");
+    }
+
+    @Test
+    public void archiverLeavesUserThatKeepsChangingToNextRun() {
+        UserNews read = userNews(new ArrayList<>(aged), 3L);
+        when(mongoOperations.stream(any(Query.class), eq(UserNews.class)))
+                .thenReturn(iterator(Collections.singletonList(read)));
+        when(mongoOperations.findById("Becky123", UserNews.class)).thenReturn(read);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        NewsArchiver archiver = new NewsArchiver(mongoOperations, newsArchive, userNewsCache,
+                new OptimisticRetry(newsProperties()), newsProperties());
+
+        assertEquals(0, archiver.archiveOlderThan(NOW.minusDays(90)));
+        verify(mongoOperations, times(newsProperties().getConcurrency().getMaxAttempts()))
+                .updateFirst(any(Query.class), any(Update.class), eq(UserNews.class));
+        verify(userNewsCache, never()).invalidate("Becky123");
+    }
+
+    @Test
+    public void archiverLeavesFreshNews() {
+        when(mongoOperations.stream(any(Query.class), eq(UserNews.class)))
+                .thenReturn(iterator(Collections.<UserNews>emptyList()));
+        NewsArchiver archiver = new NewsArchiver(mongoOperations, newsArchive, userNewsCache,
+                new OptimisticRetry(newsProperties()), newsProperties());
+        assertEquals(0, archiver.archiveOlderThan(NOW.minusDays(90)));
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(Update.class), eq(UserNews.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NewsArchiveBucket> archive(List<News> news) {
+        assertEquals(news.stream().map(News::getNewsId).collect(Collectors.toList()),
+                newsArchive.archive("Becky123", news));
+        ArgumentCaptor<List<NewsArchiveBucket>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(mongoOperations).insert(inserted.capture(), eq(NewsArchiveBucket.class));
+        return inserted.getValue();
+    }
+
+    /* A bucket as another archiving wrote it. */
+    @SuppressWarnings("unchecked")
+    private static NewsArchiveBucket bucketOf(List<News> news) {
+        MongoOperations writer = mock(MongoOperations.class);
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getArchive().setBucketSize(news.size());
+        new NewsArchive(writer, Jackson2ObjectMapperBuilder.json().build(), newsProperties).archive("Becky123", news);
+        ArgumentCaptor<List<NewsArchiveBucket>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(writer).insert(inserted.capture(), eq(NewsArchiveBucket.class));
+        return inserted.getValue().get(0);
+    }
+
+    private static NewsProperties newsProperties() {
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getConcurrency().setBackoff(Duration.ZERO);
+        return newsProperties;
+    }
+
+    private static UserNews userNews(List<News> newslist, Long version) {
+        UserNews userNews = new UserNews("Becky123", newslist);
+        userNews.setVersion(version);
+        return userNews;
+    }
+
+    private static List<Integer> newsIds(List<News> news) {
+        return news.stream().map(News::getNewsId).collect(Collectors.toList());
+    }
+
+    private static <T> CloseableIterator<T> iterator(List<T> elements) {
+        Iterator<T> iterator = elements.iterator();
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
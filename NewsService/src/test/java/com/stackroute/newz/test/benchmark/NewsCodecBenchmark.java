@@ -0,0 +1,102 @@
+package com.stackroute.newz.test.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stackroute.newz.config.BinaryFormats;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.Reminder;
+
+/*
+ * Compares writing and reading a page of news as JSON, Smile and CBOR, with the
+ * mappers the endpoints use. The size of the payload of every format is printed
+ * once in the setup. Run from the NewsService directory:
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.stackroute.newz.test.benchmark.NewsCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NewsCodecBenchmark {
+
+	@Param({ "json", "smile", "cbor" })
+	private String format;
+
+	@Param({ "20" })
+	private int articles;
+
+	private List<News> newsList;
+	private ObjectWriter writer;
+	private ObjectReader reader;
+	private byte[] payload;
+
+	@Setup
+	public void setUp() throws IOException {
+		ObjectMapper mapper;
+		if ("smile".equals(format)) {
+			mapper = BinaryFormats.smileMapper();
+		} else if ("cbor".equals(format)) {
+			mapper = BinaryFormats.cborMapper();
+		} else {
+			mapper = Jackson2ObjectMapperBuilder.json().build();
+		}
+		LocalDateTime now = LocalDateTime.now();
+		newsList = new ArrayList<>(articles);
+		for (int i = 0; i < articles; i++) {
+			NewsSource newsSource = new NewsSource(i, "The Hindu", "National daily newspaper", "Becky123", now);
+			Reminder reminder = new Reminder("5b0509731764e3096984eae" + (i % 10), now.plusDays(1));
+			newsList.add(new News(i, "IPLT20 Match - " + i, "Becky123", "Ipl match " + i + " - CSK Vs RCB",
+					now.minusMinutes(i), "CSK vs RCB match scheduled for 4 PM at the Chepauk stadium in Chennai",
+					"https://www.thehindu.com/sport/cricket/" + i + ".html",
+					"https://www.thehindu.com/sport/cricket/" + i + ".png", reminder, newsSource));
+		}
+		writer = mapper.writerFor(new TypeReference<List<News>>() {
+		});
+		reader = mapper.readerFor(new TypeReference<List<News>>() {
+		});
+		payload = writer.writeValueAsBytes(newsList);
+		System.out.println(format + ": " + payload.length + " bytes for " + articles + " news");
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return writer.writeValueAsBytes(newsList);
+	}
+
+	@Benchmark
+	public List<News> deserialize() throws IOException {
+		return reader.readValue(payload);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(NewsCodecBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,88 @@
+package com.stackroute.newz.test.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.UserNews;
+
+/*
+ * Compares the newsId lookup of UserNews (NewsIdIndex) with the linear scan over
+ * the newslist that the service used before. jmh-generator-annprocess generates
+ * the benchmark classes when the tests are compiled. Run from the NewsService
+ * directory:
+ *
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test \
+ *     -Dmdep.outputFile=target/test.classpath
+ * java -cp target/test-classes:target/classes:$(cat target/test.classpath) \
+ *     com.stackroute.newz.test.benchmark.NewsIdLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NewsIdLookupBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	private int articles;
+
+	private UserNews userNews;
+	private int[] lookups;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		List<News> newsList = new ArrayList<>(articles);
+		for (int i = 0; i < articles; i++) {
+			News news = new News();
+			news.setNewsId(random.nextInt(Integer.MAX_VALUE));
+			newsList.add(news);
+		}
+		userNews = new UserNews("Becky123", newsList);
+		lookups = new int[1024];
+		for (int i = 0; i < lookups.length; i++) {
+			lookups[i] = newsList.get(random.nextInt(articles)).getNewsId();
+		}
+		userNews.indexOf(lookups[0]);
+	}
+
+	@Benchmark
+	public News linearScan() {
+		int newsId = lookups[next++ & (lookups.length - 1)];
+		for (News news : userNews.getNewslist()) {
+			if (news.getNewsId().equals(newsId)) {
+				return news;
+			}
+		}
+		return null;
+	}
+
+	@Benchmark
+	public News indexLookup() {
+		return userNews.findNews(lookups[next++ & (lookups.length - 1)]);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(NewsIdLookupBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,145 @@
+package com.stackroute.newz.test.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.OptimisticRetry;
+
+/*
+ * Throughput of updates of the news of one user by a growing number of writers.
+ * The UserNews document is simulated by an immutable snapshot with a version;
+ * the write replaces it only if the version is unchanged, as the versioned save
+ * of NewsServiceImpl does, and roundTripMicros stands for the time between read
+ * and write. versionedSave retries through the OptimisticRetry and counts the
+ * updates that gave up; blindSave is the former save that overwrites whatever
+ * was written in between and counts the updates it lost. Run from the NewsService
+ * directory:
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.stackroute.newz.test.benchmark.NewsUpdateContentionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NewsUpdateContentionBenchmark {
+
+	private static final int[] WRITERS = { 1, 2, 4, 8, 16 };
+
+	@Param({ "0", "200" })
+	private int roundTripMicros;
+
+	private final AtomicReference<Snapshot> document = new AtomicReference<>();
+	private OptimisticRetry optimisticRetry;
+
+	@Setup
+	public void setUp() {
+		List<News> newslist = new ArrayList<>();
+		for (int newsId = 1; newsId <= 50; newsId++) {
+			newslist.add(new News(newsId, "News " + newsId, "Becky123", null, null, "", null, null, null, null));
+		}
+		document.set(new Snapshot(0, newslist));
+		NewsProperties newsProperties = new NewsProperties();
+		newsProperties.getConcurrency().setBackoff(Duration.ofMillis(1));
+		newsProperties.getConcurrency().setMaxBackoff(Duration.ofMillis(20));
+		optimisticRetry = new OptimisticRetry(newsProperties);
+	}
+
+	/* Per thread counts reported next to the throughput. */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Outcomes {
+		public long gaveUp;
+		public long lost;
+	}
+
+	@Benchmark
+	public boolean versionedSave(Outcomes outcomes) {
+		try {
+			return optimisticRetry.run(() -> {
+				Snapshot read = document.get();
+				Snapshot written = read.update(ThreadLocalRandom.current().nextInt(50));
+				roundTrip();
+				if (!document.compareAndSet(read, written)) {
+					throw new OptimisticLockingFailureException("version " + read.version + " changed");
+				}
+				return true;
+			});
+		} catch (OptimisticLockingFailureException e) {
+			outcomes.gaveUp++;
+			return false;
+		}
+	}
+
+	@Benchmark
+	public boolean blindSave(Outcomes outcomes) {
+		Snapshot read = document.get();
+		Snapshot written = read.update(ThreadLocalRandom.current().nextInt(50));
+		roundTrip();
+		if (document.getAndSet(written) != read) {
+			outcomes.lost++;
+		}
+		return true;
+	}
+
+	private void roundTrip() {
+		if (roundTripMicros > 0) {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+		}
+	}
+
+	/* The UserNews document as loaded: its version and a copy of its newslist. */
+	private static final class Snapshot {
+
+		final long version;
+		final List<News> newslist;
+
+		Snapshot(long version, List<News> newslist) {
+			this.version = version;
+			this.newslist = newslist;
+		}
+
+		Snapshot update(int position) {
+			List<News> copy = new ArrayList<>(newslist);
+			News news = copy.get(position);
+			copy.set(position, new News(news.getNewsId(), news.getTitle(), news.getAuthor(), null, null,
+					"edit " + (version + 1), null, null, null, null));
+			return new Snapshot(version + 1, copy);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (int writers : WRITERS) {
+			new Runner(new OptionsBuilder()
+					.include(NewsUpdateContentionBenchmark.class.getSimpleName())
+					.threads(writers)
+					.build()).run();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.stackroute.newz.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.newz.cache.UserNewsVersions;
+import com.stackroute.newz.model.UserNewsVersion;
+
+public class UserNewsVersionsTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    private UserNewsVersions userNewsVersions;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        userNewsVersions = new UserNewsVersions(mongoOperations);
+    }
+
+    @Test
+    public void versionIsReadOnEveryCall() {
+        when(mongoOperations.findById("Becky123", UserNewsVersion.class)).thenReturn(new UserNewsVersion("Becky123", 7),
+                new UserNewsVersion("Becky123", 8));
+        assertEquals(7, userNewsVersions.version("Becky123"));
+        assertEquals(8, userNewsVersions.version("Becky123"));
+        verify(mongoOperations, times(2)).findById("Becky123", UserNewsVersion.class);
+        assertEquals(0, userNewsVersions.version("Unknown"));
+    }
+
+    @Test
+    public void changesIncrementVersion() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNewsVersion.class))).thenReturn(new UserNewsVersion("Becky123", 8));
+        assertEquals(8, userNewsVersions.increment("Becky123"));
+    }
+
+    @Test
+    public void expectedVersionIsIncrementedOnlyIfCurrent() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNewsVersion.class))).thenReturn(new UserNewsVersion("Becky123", 4))
+                .thenThrow(new DuplicateKeyException("version 4"));
+        assertTrue(userNewsVersions.increment("Becky123", 3L));
+        assertFalse(userNewsVersions.increment("Becky123", 3L));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(2)).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNewsVersion.class));
+        assertEquals(3L, query.getValue().getQueryObject().get("version"));
+    }
+
+    @Test
+    public void missingUserIsOnlyAtVersionZero() {
+        assertFalse(userNewsVersions.increment("Unknown", 5L));
+        assertFalse(userNewsVersions.increment("Unknown", -1L));
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoOperations, times(2)).findAndModify(any(Query.class), any(Update.class), options.capture(),
+                eq(UserNewsVersion.class));
+        assertFalse(options.getAllValues().get(0).isUpsert());
+        assertFalse(options.getAllValues().get(1).isUpsert());
+    }
+
+    @Test
+    public void versionZeroIsUpserted() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNewsVersion.class))).thenReturn(new UserNewsVersion("Unknown", 1));
+        assertTrue(userNewsVersions.increment("Unknown", 0L));
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoOperations).findAndModify(any(Query.class), any(Update.class), options.capture(),
+                eq(UserNewsVersion.class));
+        assertTrue(options.getValue().isUpsert());
+    }
+
+    @Test
+    public void restoreTakesBackTheIncrementOnly() {
+        userNewsVersions.restore("Becky123", 3L);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(query.capture(), update.capture(), eq(UserNewsVersion.class));
+        assertEquals(4L, query.getValue().getQueryObject().get("version"));
+        assertEquals(-1L, update.getValue().getUpdateObject().get("$inc", Document.class).get("version"));
+    }
+
+    @Test
+    public void batchIncrementsEachAuthorOnce() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, UserNewsVersion.class)).thenReturn(bulk);
+        userNewsVersions.increment(new LinkedHashSet<>(Arrays.asList("Becky123", "Becky123", "John")));
+        verify(bulk, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(bulk, times(1)).execute();
+    }
+}
@@ -0,0 +1,102 @@
+package com.stackroute.newz.test.content;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.content.NewsContentStore;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsContent;
+
+public class NewsContentStoreTest {
+
+    private static final String LONG_CONTENT = "CSK vs RCB match report, over by over";
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    private NewsContentStore newsContentStore;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getContent().setOffloadThreshold(16);
+        newsContentStore = new NewsContentStore(mongoOperations, newsProperties);
+        when(mongoOperations.insert(any(NewsContent.class))).thenAnswer(invocation -> {
+            NewsContent content = invocation.getArgument(0);
+            content.setId("5e0a6a1c9d2b4f3a8c7d6e51");
+            return content;
+        });
+    }
+
+    @Test
+    public void shortContentStaysInNews() {
+        News news = news("Match at 4 PM");
+        news.setContentId("5e0a6a1c9d2b4f3a8c7d6e50");
+        News stored = newsContentStore.stored("Becky123", news);
+        assertSame(news, stored);
+        assertNull(stored.getContentId());
+        verify(mongoOperations, never()).insert(any(NewsContent.class));
+    }
+
+    @Test
+    public void longContentIsOffloaded() {
+        News news = news(LONG_CONTENT);
+        News stored = newsContentStore.stored("Becky123", news);
+        assertNull(stored.getContent());
+        assertEquals("5e0a6a1c9d2b4f3a8c7d6e51", stored.getContentId());
+        assertEquals(LONG_CONTENT, news.getContent());
+
+        ArgumentCaptor<NewsContent> inserted = ArgumentCaptor.forClass(NewsContent.class);
+        verify(mongoOperations).insert(inserted.capture());
+        assertEquals("Becky123", inserted.getValue().getUserId());
+        assertEquals(1, inserted.getValue().getNewsId());
+        assertEquals(LONG_CONTENT, inserted.getValue().getContent());
+    }
+
+    @Test
+    public void loadReadsOffloadedContent() {
+        News stored = newsContentStore.stored("Becky123", news(LONG_CONTENT));
+        when(mongoOperations.findById("5e0a6a1c9d2b4f3a8c7d6e51", NewsContent.class))
+                .thenReturn(new NewsContent("Becky123", 1, LONG_CONTENT));
+        News loaded = newsContentStore.load(stored);
+        assertEquals(LONG_CONTENT, loaded.getContent());
+        assertNull(loaded.getContentId());
+        assertEquals("5e0a6a1c9d2b4f3a8c7d6e51", stored.getContentId());
+    }
+
+    @Test
+    public void loadLeavesInlineContent() {
+        News news = news("Match at 4 PM");
+        assertSame(news, newsContentStore.load(news));
+        verify(mongoOperations, never()).findById(any(), eq(NewsContent.class));
+    }
+
+    @Test
+    public void deletedNewsRemovesContent() {
+        newsContentStore.newsDeleted("Becky123", 1);
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).remove(removed.capture(), eq(NewsContent.class));
+        assertEquals("Becky123", removed.getValue().getQueryObject().get("userId"));
+        assertEquals(1, removed.getValue().getQueryObject().get("newsId"));
+    }
+
+    private static News news(String content) {
+        return new News(1, "IPLT20 Match - 01", "Becky123", null, null, content, null, null, null, null);
+    }
+}
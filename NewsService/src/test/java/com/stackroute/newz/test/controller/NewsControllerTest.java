@@ -9,28 +9,67 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.stackroute.newz.config.BinaryFormatConfig;
+import com.stackroute.newz.config.BinaryFormats;
+import com.stackroute.newz.config.NewsProperties;
 import com.stackroute.newz.controller.NewsController;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItemResult;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.NewsStats;
 import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.TrendingNews;
+import com.stackroute.newz.service.NewsIdAllocator;
 import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsTimeline;
+import com.stackroute.newz.service.NewsWriteBehind;
+import com.stackroute.newz.search.NearDuplicateIndex;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.trending.NewsViewCounter;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
@@ -48,6 +87,22 @@ class NewsControllerTest {
     private Reminder reminder;
     @MockBean
     private NewsService newsService;
+    @MockBean
+    private NewsViewCounter newsViewCounter;
+    @MockBean
+    private NewsTimeline newsTimeline;
+    @MockBean
+    private NewsIdAllocator newsIdAllocator;
+    @MockBean
+    private NewsStatsRollup newsStatsRollup;
+    @Spy
+    private ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    @Spy
+    private NewsProperties newsProperties = new NewsProperties();
+    @Spy
+    private NearDuplicateIndex nearDuplicateIndex = new NearDuplicateIndex(new NewsProperties());
+    @SpyBean
+    private NewsWriteBehind newsWriteBehind;
 
     @InjectMocks
     private NewsController newsController;
@@ -86,6 +141,7 @@ class NewsControllerTest {
         news.setReminder(reminder);
         news.setNewssource(newsSource);
 
+        when(newsService.getNewsVersion("Becky123")).thenReturn(3L);
         newsList = new ArrayList<>();
         newsList.add(news);
 
@@ -114,10 +170,37 @@ class NewsControllerTest {
     }
 
 
+    @Test
+    public void addNewsFlagsNearDuplicate() throws Exception {
+        nearDuplicateIndex.index("Becky123", new News(7, "IPLT20 Match - 01", "Becky123", null, null,
+                "CSK vs RCB match scheduled for 4 PM", null, null, null, null));
+        when(newsService.addNews(any())).thenAnswer(invocation -> {
+            nearDuplicateIndex.newsSaved("Becky123", invocation.getArgument(0));
+            return true;
+        });
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news").contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.header().string(NewsController.NEAR_DUPLICATE_OF, "7"));
+    }
+
+
+    @Test
+    public void addNewsWithSavedUrl() throws Exception {
+        when(newsService.getNewsByUrl("Becky123", "//CSKIndiansVcRCB.html")).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news").contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.newsId").value(1))
+                .andDo(MockMvcResultHandlers.print());
+        verify(newsService, never()).addNews(any());
+    }
+
+
     @Test
     public void deleteNewsSuccess() throws Exception {
 
-        when(newsService.deleteNews("Becky123", news.getNewsId())).thenReturn(true);
+        when(newsService.deleteNews("Becky123", news.getNewsId(), null)).thenReturn(true);
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/news/Becky123/1")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isOk())
@@ -128,7 +211,7 @@ class NewsControllerTest {
     @Test
     public void deleteNewsFailure() throws Exception {
 
-        when(newsService.deleteNews("Becky123", news.getNewsId())).thenReturn(false);
+        when(newsService.deleteNews("Becky123", news.getNewsId(), null)).thenReturn(false);
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/news/Becky123/1")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isNotFound())
@@ -185,6 +268,157 @@ class NewsControllerTest {
     }
 
 
+    @Test
+    public void updateNewsWithMatchingIfMatch() throws Exception {
+
+        when(newsService.updateNews(any(), eq(news.getNewsId()), eq("Becky123"), eq(3L))).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/news/Becky123/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    @Test
+    public void updateNewsWithStaleIfMatch() throws Exception {
+
+        when(newsService.updateNews(any(), eq(news.getNewsId()), eq("Becky123"), eq(2L)))
+                .thenThrow(new NewsPreconditionFailedException("version 3"));
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/news/Becky123/1")
+                .header("If-Match", "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test
+    public void updateNewsExpectsCurrentOfSeveralIfMatchVersions() throws Exception {
+
+        when(newsService.updateNews(any(), eq(news.getNewsId()), eq("Becky123"), eq(3L))).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/news/Becky123/1")
+                .header("If-Match", "\"2\", \"3-5d1c2a0e\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    @Test
+    public void updateNewsWithForeignIfMatch() throws Exception {
+
+        when(newsService.updateNews(any(), eq(news.getNewsId()), eq("Becky123"), eq(-1L)))
+                .thenThrow(new NewsPreconditionFailedException("version 3"));
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/news/Becky123/1")
+                .header("If-Match", "\"abc\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test
+    public void updateNewsWriteConflict() throws Exception {
+
+        when(newsService.updateNews(any(), eq(news.getNewsId()), eq("Becky123")))
+                .thenThrow(new OptimisticLockingFailureException("version 3 changed"));
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/news/Becky123/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
+    }
+
+    @Test
+    public void deleteNewsWithStaleIfMatch() throws Exception {
+
+        when(newsService.deleteNews("Becky123", 1, 2L)).thenThrow(new NewsPreconditionFailedException("version 3"));
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/news/Becky123/1")
+                .header("If-Match", "\"2\""))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test
+    public void patchNewsSuccess() throws Exception {
+
+        when(newsService.patchNews(eq("Becky123"), eq(1), any(NewsPatch.class), isNull())).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/v1/news/Becky123/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"content\":\"Match moved to 6 PM\",\"urlToImage\":null}"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print());
+        ArgumentCaptor<NewsPatch> patch = ArgumentCaptor.forClass(NewsPatch.class);
+        verify(newsService).patchNews(eq("Becky123"), eq(1), patch.capture(), isNull());
+        assertEquals("Match moved to 6 PM", patch.getValue().getFields().get("content"));
+        assertTrue(patch.getValue().getFields().containsKey("urlToImage"));
+        assertEquals(2, patch.getValue().getFields().size());
+    }
+
+    @Test
+    public void patchNewsFailure() throws Exception {
+
+        when(newsService.patchNews(eq("Becky123"), eq(1), any(NewsPatch.class), isNull())).thenThrow(NewsNotFoundException.class);
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/v1/news/Becky123/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"IPLT20 Final\"}"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void patchNewsRejectsReadOnlyField() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/v1/news/Becky123/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"newsId\":2}"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+        verify(newsService, times(0)).patchNews(any(), any(Integer.class), any(), any());
+    }
+
+    @Test
+    public void getNewsByIdAsSmile() throws Exception {
+
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(news);
+        MvcResult result = binaryMockMvc().perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/1")
+                .accept(BinaryFormats.APPLICATION_SMILE_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(BinaryFormats.APPLICATION_SMILE_VALUE))
+                .andReturn();
+        ObjectMapper smileMapper = BinaryFormats.smileMapper();
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertTrue(smileMapper.readTree(body).get("publishedAt").isIntegralNumber());
+        News fetched = smileMapper.readValue(body, News.class);
+        assertEquals(news.getTitle(), fetched.getTitle());
+        assertEquals(news.getPublishedAt().truncatedTo(ChronoUnit.MILLIS), fetched.getPublishedAt());
+    }
+
+    @Test
+    public void createNewsWithoutNewsId() throws Exception {
+
+        when(newsService.addNews(any())).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.<News>getArgument(0).setNewsId(8);
+            return null;
+        }).when(newsIdAllocator).assign(any(News.class));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"IPLT20 Match - 08\",\"author\":\"Becky123\"}"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.newsId").value(8));
+        ArgumentCaptor<News> added = ArgumentCaptor.forClass(News.class);
+        verify(newsService).addNews(added.capture());
+        assertEquals(Integer.valueOf(8), added.getValue().getNewsId());
+    }
+
+    @Test
+    public void createNewsFromCbor() throws Exception {
+
+        when(newsService.addNews(any())).thenReturn(true);
+        binaryMockMvc().perform(MockMvcRequestBuilders.post("/api/v1/news")
+                .contentType(BinaryFormats.APPLICATION_CBOR_VALUE)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(BinaryFormats.cborMapper().writeValueAsBytes(news)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value(news.getTitle()));
+    }
+
     @Test
     public void getNewsByIdSuccess() throws Exception {
 
@@ -196,6 +430,25 @@ class NewsControllerTest {
     }
 
 
+    @Test
+    public void getNewsByIdWithFields() throws Exception {
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/1").param("fields", "title"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.newsId").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value(news.getTitle()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content").doesNotExist());
+    }
+
+    @Test
+    public void getNewsByIdKeepsNullFields() throws Exception {
+        news.setUrl(null);
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(containsString("\"url\":null")));
+    }
+
     @Test
     public void getNewsByIdFailure() throws Exception {
 
@@ -206,24 +459,224 @@ class NewsControllerTest {
                 .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void getNewsByIdFromWriteBehind() throws Exception {
+
+        doReturn(news).when(newsWriteBehind).pending("Becky123", 1);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/1")
+                .header("If-None-Match", "\"3\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("ETag"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value(news.getTitle()));
+        verify(newsService, never()).getNewsByNewsId(any(), any(Integer.class));
+    }
+
+    @Test
+    public void getTrendingNews() throws Exception {
+        when(newsViewCounter.capacity()).thenReturn(100);
+        when(newsViewCounter.trending(5)).thenReturn(Arrays.asList(new TrendingNews("Becky123", 1, 42)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/trending?size=5")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].newsId").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].views").value(42))
+                .andDo(MockMvcResultHandlers.print());
+        verify(newsService, never()).getAllNewsByUserId(eq("trending"), any());
+    }
+
+    @Test
+    public void getTimelineSuccess() throws Exception {
+        when(newsTimeline.getTimeline(eq(Arrays.asList("Becky123", "John")), eq(null), eq(20)))
+                .thenReturn(new NewsPage(newsList, null));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/timeline?users=Becky123,John")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getTimelineWithInvalidCursor() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/timeline?users=Becky123&cursor=bm90LWEtY3Vyc29y")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
     @Test
     public void getAllNewsByUserIdSuccess() throws Exception {
-        when(newsService.getAllNewsByUserId("Becky123")).thenReturn(newsList);
+        when(newsService.getAllNewsByUserId("Becky123", null)).thenReturn(newsList);
         mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void getAllNewsByUserIdCollapsed() throws Exception {
+        News copy = new News(2, "IPLT20 Match - 01", "Becky123", null, null, "CSK vs RCB match scheduled  for 4 PM",
+                null, null, null, null);
+        nearDuplicateIndex.index("Becky123", news);
+        nearDuplicateIndex.index("Becky123", copy);
+        newsList.add(copy);
+        when(newsService.getAllNewsByUserId("Becky123", null)).thenReturn(newsList);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123").param("collapse", "true"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].newsId").value(1));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    public void getAllNewsByUserIdWithFields() throws Exception {
+        News projected = new News(1, "IPLT20 Match - 01", null, null, news.getPublishedAt(), null, null,
+                "//CSKVsRCB.png", null, null);
+        when(newsService.getAllNewsByUserId(eq("Becky123"), any(NewsFields.class)))
+                .thenReturn(Collections.singletonList(projected));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123").param("fields", "title,urlToImage"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("IPLT20 Match - 01"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].author").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].content").doesNotExist());
+        ArgumentCaptor<NewsFields> fields = ArgumentCaptor.forClass(NewsFields.class);
+        verify(newsService).getAllNewsByUserId(eq("Becky123"), fields.capture());
+        assertEquals(new HashSet<>(Arrays.asList("newsId", "publishedAt", "title", "urlToImage")),
+                fields.getValue().getFields());
+    }
+
+    @Test
+    public void getAllNewsByUserIdWithUnknownField() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123").param("fields", "title,password"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(newsService, never()).getAllNewsByUserId(any(), any());
+    }
+
+    @Test
+    public void getAllNewsByUserIdNotModified() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
+                .header("If-None-Match", "\"3\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"3\""))
+                .andDo(MockMvcResultHandlers.print());
+        verify(newsService, times(0)).getAllNewsByUserId(any(), any());
+    }
+
+    @Test
+    public void getAllNewsByUserIdETagOfVariant() throws Exception {
+        when(newsService.getAllNewsByUserId(eq("Becky123"), any(NewsFields.class))).thenReturn(newsList);
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123").param("fields", "title"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Vary", "Accept"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertTrue(etag.startsWith("\"3-"));
+        // the full news are another variant of the same version
+        when(newsService.getAllNewsByUserId("Becky123", null)).thenReturn(newsList);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
+                .header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"3\""));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123").param("fields", "title")
+                .header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+    }
+
+    @Test
+    public void getAllNewsByUserIdModifiedSinceETag() throws Exception {
+        when(newsService.getAllNewsByUserId("Becky123", null)).thenReturn(newsList);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
+                .header("If-None-Match", "\"2\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"3\""))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
     @Test
     public void getAllNewsByUserIdFailure() throws Exception {
-        when(newsService.getAllNewsByUserId("Becky123")).thenReturn(null);
+        when(newsService.getAllNewsByUserId("Becky123", null)).thenReturn(null);
         mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isNotFound())
                 .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void streamAllNewsByUserId() throws Exception {
+        when(newsService.streamAllNews("Becky123")).thenReturn(Stream.of(news, news));
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
+                .accept("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        String line = objectMapper.writeValueAsString(news);
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(line + "\n" + line + "\n"));
+    }
+
+    @Test
+    public void createNewsBatchInChunks() throws Exception {
+        newsProperties.getBatch().setChunkSize(2);
+        when(newsService.addNewsBatch(anyList())).thenAnswer(invocation -> {
+            List<NewsBatchItemResult> results = new ArrayList<>();
+            for (Object item : invocation.getArgument(0, List.class)) {
+                News created = (News) item;
+                results.add(new NewsBatchItemResult(created.getAuthor(), created.getNewsId(),
+                        NewsBatchItemResult.Status.CREATED, null));
+            }
+            return results;
+        });
+        newsList.add(news);
+        newsList.add(news);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(newsList)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[2].index").value(2));
+        verify(newsService, times(2)).addNewsBatch(anyList());
+    }
+
+    @Test
+    public void createNewsBatchRejectsNonArray() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void getNewsStats() throws Exception {
+        NewsStats stats = new NewsStats("Becky123");
+        stats.add(news);
+        when(newsStatsRollup.get("Becky123")).thenReturn(stats);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/stats"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.bySource.1").value(1));
+        verify(newsService, never()).getAllNewsByUserId(any(), any());
+    }
+
+    @Test
+    public void getNewsStatsNotFound() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/John/stats"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void searchNews() throws Exception {
+        when(newsService.searchNews("Becky123", "csk match", 20)).thenReturn(newsList);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/search").param("q", "csk match"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(newsList.size()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/search").param("q", " "))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private MockMvc binaryMockMvc() {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new MappingJackson2HttpMessageConverter());
+        new BinaryFormatConfig().extendMessageConverters(converters);
+        return MockMvcBuilders.standaloneSetup(newsController)
+                .setMessageConverters(converters.toArray(new HttpMessageConverter<?>[0])).build();
+    }
+
     private static String asJsonString(final Object obj) {
         try {
         	ObjectMapper objmapper = new ObjectMapper();
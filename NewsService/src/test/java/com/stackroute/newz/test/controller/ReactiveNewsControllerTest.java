@@ -0,0 +1,307 @@
+package com.stackroute.newz.test.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.newz.config.BinaryFormats;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.config.ReactiveConfig;
+import com.stackroute.newz.controller.ReactiveNewsController;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.NewsStats;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.search.NearDuplicateIndex;
+import com.stackroute.newz.trending.NewsViewCounter;
+import com.stackroute.newz.service.NewsIdAllocator;
+import com.stackroute.newz.service.ReactiveNewsService;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+
+class ReactiveNewsControllerTest {
+
+    private WebTestClient webTestClient;
+
+    private News news;
+    @Mock
+    private ReactiveNewsService newsService;
+    @Spy
+    private NewsProperties newsProperties = new NewsProperties();
+    @Spy
+    private NearDuplicateIndex nearDuplicateIndex = new NearDuplicateIndex(new NewsProperties());
+    @Mock
+    private NewsViewCounter newsViewCounter;
+    @Mock
+    private NewsIdAllocator newsIdAllocator;
+    @Mock
+    private NewsStatsRollup newsStatsRollup;
+    @InjectMocks
+    private ReactiveNewsController newsController;
+
+    private ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @BeforeEach
+    public void setUp() {
+
+        MockitoAnnotations.initMocks(this);
+        ReactiveConfig reactiveConfig = new ReactiveConfig(objectMapper);
+        webTestClient = WebTestClient.bindToController(newsController)
+                .httpMessageCodecs(reactiveConfig::configureHttpMessageCodecs)
+                .build();
+
+        Reminder reminder = new Reminder();
+        reminder.setReminderId("5b0509731764e3096984eae6");
+        reminder.setSchedule();
+
+        news = new News();
+        news.setNewsId(1);
+        news.setTitle("IPLT20 Match - 01");
+        news.setAuthor("Becky123");
+        news.setDescription("Ipl match 01 - CSK Vs RCB");
+        news.setPublishedAt();
+        news.setContent("CSK vs RCB match scheduled for 4 PM");
+        news.setUrl("//CSKVsRCB.html");
+        news.setUrlToImage("//CSKVsRCB.png");
+        news.setReminder(reminder);
+        when(newsService.getNewsByUrl(any(), any())).thenReturn(Mono.empty());
+        when(newsService.getNewsVersion(any())).thenReturn(Mono.empty());
+        when(newsService.getNewsVersion("Becky123")).thenReturn(Mono.just(3L));
+    }
+
+    @Test
+    public void getAllNewsByUserIdNotModified() {
+        webTestClient.get().uri("/api/v1/news/Becky123").header("If-None-Match", "\"3\"").exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", "\"3\"");
+        verify(newsService, never()).getAllNewsByUserId(any(), any());
+    }
+
+    @Test
+    public void getNewsByIdWithETag() {
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(Mono.just(news));
+        webTestClient.get().uri("/api/v1/news/Becky123/1").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("ETag", etag -> assertTrue(etag.startsWith("\"3-")))
+                .expectHeader().valueEquals("Vary", "Accept");
+    }
+
+    @Test
+    public void createNewsSuccess() {
+        when(newsService.addNews(any())).thenReturn(Mono.just(true));
+        webTestClient.post().uri("/api/v1/news").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(news).exchange()
+                .expectStatus().isCreated();
+    }
+
+    @Test
+    public void createNewsWithoutNewsIdGetsOne() {
+        news.setNewsId(null);
+        doAnswer(invocation -> {
+            invocation.<News>getArgument(0).setNewsId(8);
+            return null;
+        }).when(newsIdAllocator).assign(any(News.class));
+        when(newsService.addNews(any())).thenReturn(Mono.just(true));
+        webTestClient.post().uri("/api/v1/news").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(news).exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.newsId").isEqualTo(8);
+        ArgumentCaptor<News> added = ArgumentCaptor.forClass(News.class);
+        verify(newsService).addNews(added.capture());
+        assertEquals(Integer.valueOf(8), added.getValue().getNewsId());
+    }
+
+    @Test
+    public void createNewsFailure() {
+        when(newsService.addNews(any())).thenReturn(Mono.just(false));
+        webTestClient.post().uri("/api/v1/news").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(news).exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void createNewsWithSavedUrl() {
+        when(newsService.getNewsByUrl("Becky123", "//CSKVsRCB.html")).thenReturn(Mono.just(news));
+        webTestClient.post().uri("/api/v1/news").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(news).exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody().jsonPath("$.newsId").isEqualTo(1);
+        verify(newsService, never()).addNews(any());
+    }
+
+    @Test
+    public void deleteMissingNews() {
+        when(newsService.deleteNews(eq("Becky123"), eq(7), isNull())).thenReturn(Mono.just(false));
+        webTestClient.delete().uri("/api/v1/news/Becky123/7").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void deleteNewsAtVersion() {
+        when(newsService.deleteNews("Becky123", 1, 3L)).thenReturn(Mono.just(true));
+        webTestClient.delete().uri("/api/v1/news/Becky123/1").header("If-Match", "\"3\"").exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void deleteNewsAtStaleVersion() {
+        when(newsService.deleteNews("Becky123", 1, 2L))
+                .thenReturn(Mono.error(new NewsPreconditionFailedException("not at version 2")));
+        webTestClient.delete().uri("/api/v1/news/Becky123/1").header("If-Match", "\"2\"").exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    public void patchNewsWithForeignTag() {
+        when(newsService.patchNews(eq("Becky123"), eq(1), any(NewsPatch.class), eq(-1L)))
+                .thenReturn(Mono.error(new NewsPreconditionFailedException("not at version -1")));
+        webTestClient.patch().uri("/api/v1/news/Becky123/1").header("If-Match", "\"foreign\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"title\":\"IPLT20 Match - 01\"}").exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    public void updateNewsFailure() {
+        when(newsService.updateNews(any(), eq(1), eq("Becky123"), isNull()))
+                .thenReturn(Mono.error(new NewsNotFoundException("not found")));
+        webTestClient.put().uri("/api/v1/news/Becky123/1").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(news).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void patchNewsSuccess() {
+        when(newsService.patchNews(eq("Becky123"), eq(1), any(NewsPatch.class), isNull())).thenReturn(Mono.just(news));
+        webTestClient.patch().uri("/api/v1/news/Becky123/1").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"title\":\"IPLT20 Match - 01\"}").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("IPLT20 Match - 01");
+    }
+
+    @Test
+    public void getNewsByIdAsCbor() throws Exception {
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(Mono.just(news));
+        byte[] body = webTestClient.get().uri("/api/v1/news/Becky123/1")
+                .accept(MediaType.parseMediaType(BinaryFormats.APPLICATION_CBOR_VALUE)).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(BinaryFormats.APPLICATION_CBOR_VALUE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        JsonNode fetched = BinaryFormats.cborMapper().readTree(body);
+        assertEquals("IPLT20 Match - 01", fetched.get("title").asText());
+        assertTrue(fetched.get("publishedAt").isIntegralNumber());
+    }
+
+    @Test
+    public void getNewsStats() {
+        NewsStats stats = new NewsStats("Becky123");
+        stats.add(news);
+        when(newsStatsRollup.get("Becky123")).thenReturn(stats);
+        webTestClient.get().uri("/api/v1/news/Becky123/stats").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.total").isEqualTo(1);
+        webTestClient.get().uri("/api/v1/news/John/stats").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getNewsByIdSuccess() {
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(Mono.just(news));
+        webTestClient.get().uri("/api/v1/news/Becky123/1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("IPLT20 Match - 01");
+    }
+
+    @Test
+    public void getAllNewsByUserIdFailure() {
+        when(newsService.getAllNewsByUserId("Becky123", null)).thenReturn(Flux.empty());
+        webTestClient.get().uri("/api/v1/news/Becky123").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getAllNewsByUserIdWithFields() {
+        News selected = new News(1, "IPLT20 Match - 01", null, null, news.getPublishedAt(), null, null, null, null, null);
+        when(newsService.getAllNewsByUserId(eq("Becky123"), any(NewsFields.class))).thenReturn(Flux.just(selected));
+        webTestClient.get().uri("/api/v1/news/Becky123?fields=title").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("ETag", etag -> assertTrue(etag.startsWith("\"3-")))
+                .expectBody().jsonPath("$[0].title").isEqualTo("IPLT20 Match - 01")
+                .jsonPath("$[0].content").doesNotExist();
+        ArgumentCaptor<NewsFields> fields = ArgumentCaptor.forClass(NewsFields.class);
+        verify(newsService).getAllNewsByUserId(eq("Becky123"), fields.capture());
+        assertTrue(fields.getValue().getFields().contains("title"));
+        assertFalse(fields.getValue().getFields().contains("content"));
+    }
+
+    @Test
+    public void getNewsByIdSelectsFields() {
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(Mono.just(news));
+        webTestClient.get().uri("/api/v1/news/Becky123/1?fields=title").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("IPLT20 Match - 01")
+                .jsonPath("$.author").doesNotExist();
+    }
+
+    @Test
+    public void unknownFieldsAreRejected() {
+        webTestClient.get().uri("/api/v1/news/Becky123?fields=title,password").exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/v1/news/Becky123?size=20&fields=password").exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/v1/news/Becky123/1?fields=password").exchange()
+                .expectStatus().isBadRequest();
+        verify(newsService, never()).getNewsByNewsId(any(), any(Integer.class));
+    }
+
+    @Test
+    public void streamAllNewsByUserId() throws Exception {
+        when(newsService.streamAllNews("Becky123")).thenReturn(Flux.just(news, news));
+        String line = objectMapper.writeValueAsString(news);
+        webTestClient.get().uri("/api/v1/news/Becky123").accept(MediaType.parseMediaType("application/x-ndjson"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo(line + "\n" + line + "\n");
+    }
+
+    @Test
+    public void getNewsPageRejectsInvalidCursor() {
+        webTestClient.get().uri("/api/v1/news/Becky123?cursor=not-a-cursor").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void getNewsPageNotFound() {
+        when(newsService.getNewsPage("Becky123", null, 20, null)).thenReturn(Mono.just(new NewsPage(new ArrayList<>(), null)));
+        webTestClient.get().uri("/api/v1/news/Becky123?size=20").exchange()
+                .expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,86 @@
+package com.stackroute.newz.test.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.dedup.NewsUrlFilter;
+import com.stackroute.newz.dedup.ScalableBloomFilter;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+
+public class NewsUrlFilterTest {
+
+    @Test
+    public void growsWithoutFalseNegatives() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 20000; i++) {
+            filter.put("https://news.local/" + i);
+        }
+        assertTrue(filter.stageCount() > 1);
+        for (int i = 0; i < 20000; i++) {
+            assertTrue(filter.mightContain("https://news.local/" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 20000; i < 120000; i++) {
+            if (filter.mightContain("https://news.local/" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1000, falsePositives + " false positives in 100000 lookups");
+    }
+
+    @Test
+    public void snapshotKeepsAllKeys() throws Exception {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 500; i++) {
+            filter.put("https://news.local/" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        ScalableBloomFilter read = ScalableBloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(filter.size(), read.size());
+        assertEquals(filter.stageCount(), read.stageCount());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(read.mightContain("https://news.local/" + i));
+        }
+        read.put("https://news.local/new");
+        assertTrue(read.mightContain("https://news.local/new"));
+    }
+
+    @Test
+    public void snapshotIsReadOnceAfterShutdown(@TempDir Path directory) {
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getDedup().setSnapshot(directory.resolve("news-url-filter.bin").toString());
+        News news = new News();
+        news.setNewsId(1);
+        news.setUrl("//CSKVsRCB.html");
+
+        NewsUrlFilter filter = new NewsUrlFilter(newsProperties);
+        filter.afterPropertiesSet();
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain("Becky123", "//CSKVsRCB.html"));
+        filter.rebuild(Stream.of(new NewsArticle("Becky123", news)));
+        assertTrue(filter.mightContain("Becky123", "//CSKVsRCB.html"));
+        assertFalse(filter.mightContain("John", "//CSKVsRCB.html"));
+        filter.destroy();
+
+        NewsUrlFilter restarted = new NewsUrlFilter(newsProperties);
+        restarted.afterPropertiesSet();
+        assertTrue(restarted.isReady());
+        assertTrue(restarted.mightContain("Becky123", "//CSKVsRCB.html"));
+        assertFalse(Files.exists(directory.resolve("news-url-filter.bin")));
+    }
+}
@@ -0,0 +1,135 @@
+package com.stackroute.newz.test.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.event.NewsEventHandler;
+import com.stackroute.newz.event.NewsEventRingBuffer;
+import com.stackroute.newz.event.NewsOutbox;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.UserNews;
+
+public class NewsOutboxTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private BulkOperations bulkOperations;
+    @Mock
+    private ObjectProvider<NewsEventHandler> handlers;
+
+    private NewsEventHandler handler = mock(NewsEventHandler.class);
+    private NewsOutbox newsOutbox;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(handlers.orderedStream()).thenAnswer(invocation -> Stream.of(handler));
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class)).thenReturn(bulkOperations);
+        newsOutbox = new NewsOutbox(mongoOperations, handlers, new NewsProperties());
+    }
+
+    @Test
+    public void ringBufferKeepsOrderOfEachProducer() throws InterruptedException {
+        NewsEventRingBuffer buffer = new NewsEventRingBuffer(64);
+        int producers = 4;
+        int perProducer = 10000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String userId = "user" + p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    NewsEvent event = NewsEvent.deleted(userId, i);
+                    while (!buffer.tryPublish(event)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        int[] next = new int[producers];
+        List<NewsEvent> batch = new ArrayList<>();
+        int received = 0;
+        while (received < producers * perProducer) {
+            batch.clear();
+            received += buffer.drainTo(batch, 16);
+            for (NewsEvent event : batch) {
+                int producer = Integer.parseInt(event.getUserId().substring(4));
+                assertEquals(next[producer]++, event.getNewsId());
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void ringBufferRejectsWhenFull() {
+        NewsEventRingBuffer buffer = new NewsEventRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.tryPublish(NewsEvent.deleted("Becky123", i)));
+        }
+        assertFalse(buffer.tryPublish(NewsEvent.deleted("Becky123", 4)));
+        List<NewsEvent> batch = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(batch, 2));
+        assertTrue(buffer.tryPublish(NewsEvent.deleted("Becky123", 4)));
+        assertEquals(3, buffer.drainTo(batch, 10));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), Arrays.asList(batch.stream().map(NewsEvent::getNewsId).toArray()));
+    }
+
+    @Test
+    public void deliveredEventsArePulledPerUser() {
+        List<NewsEvent> batch = Arrays.asList(NewsEvent.deleted("Becky123", 1), NewsEvent.deleted("John", 2),
+                NewsEvent.deleted("Becky123", 3));
+        assertTrue(newsOutbox.deliver(batch));
+        verify(handler).onEvents(batch);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations).execute();
+        assertEquals(3, newsOutbox.deliveredCount());
+    }
+
+    @Test
+    public void failedBatchStaysInOutbox() {
+        doThrow(new IllegalStateException("handler down")).when(handler).onEvents(anyList());
+        assertFalse(newsOutbox.deliver(Arrays.asList(NewsEvent.userDeleted("Becky123"))));
+        verify(mongoOperations, never()).bulkOps(eq(BulkMode.UNORDERED), eq(UserNews.class));
+        assertEquals(0, newsOutbox.deliveredCount());
+    }
+}
@@ -0,0 +1,101 @@
+package com.stackroute.newz.test.reminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsReminder;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.reminder.MailTemplate;
+import com.stackroute.newz.reminder.ReminderMailer;
+
+public class ReminderMailerTest {
+
+    private GreenMail greenMail;
+    private NewsProperties newsProperties;
+    private ReminderMailer reminderMailer;
+
+    @BeforeEach
+    public void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        newsProperties = new NewsProperties();
+        newsProperties.getReminder().getMail().setBackoff(Duration.ofMillis(50));
+        newsProperties.getReminder().getMail().setMaxAttempts(20);
+        reminderMailer = new ReminderMailer(mailSender, newsProperties);
+        reminderMailer.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        reminderMailer.destroy();
+        greenMail.stop();
+    }
+
+    @Test
+    public void sendsRenderedReminders() throws Exception {
+        for (int i = 1; i <= 200; i++) {
+            reminderMailer.reminderDue(reminder(i));
+        }
+        assertTrue(greenMail.waitForIncomingEmail(10000, 200));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(200, received.length);
+        MimeMessage first = received[0];
+        assertEquals("Becky123@newz.local", first.getAllRecipients()[0].toString());
+        assertTrue(first.getSubject().startsWith("Reminder: IPLT20 Match - "));
+        // the sender counts a mail once the server acknowledged it, slightly after it arrived
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reminderMailer.sentCount() < 200 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(200, reminderMailer.sentCount());
+    }
+
+    @Test
+    public void retriesUntilServerAcceptsMail() throws Exception {
+        greenMail.stop();
+        reminderMailer.reminderDue(reminder(1));
+        Thread.sleep(300);
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        assertTrue(greenMail.waitForIncomingEmail(10000, 1));
+        assertEquals("Reminder: IPLT20 Match - 1", greenMail.getReceivedMessages()[0].getSubject());
+        assertEquals(0, reminderMailer.failedCount());
+    }
+
+    @Test
+    public void renderCompiledTemplate() {
+        MailTemplate template = MailTemplate.compile("Hi {userId}, {title} at {schedule} {not a name} {}");
+        Map<String, Object> values = new HashMap<>();
+        values.put("userId", "Becky123");
+        values.put("title", "IPLT20");
+        assertEquals("Hi Becky123, IPLT20 at  {not a name} {}", template.render(values));
+    }
+
+    private NewsReminder reminder(int newsId) {
+        News news = new News();
+        news.setNewsId(newsId);
+        news.setTitle("IPLT20 Match - " + newsId);
+        news.setReminder(new Reminder("5b0509731764e3096984eae6", LocalDateTime.now()));
+        return new NewsReminder("Becky123", news);
+    }
+}
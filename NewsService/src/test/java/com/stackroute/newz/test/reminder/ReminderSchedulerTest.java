@@ -0,0 +1,107 @@
+package com.stackroute.newz.test.reminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.UpdateResult;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsReminder;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.reminder.ReminderListener;
+import com.stackroute.newz.reminder.ReminderScheduler;
+
+public class ReminderSchedulerTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private ObjectProvider<ReminderListener> reminderListeners;
+
+    private ReminderListener reminderListener = mock(ReminderListener.class);
+    private ReminderScheduler reminderScheduler;
+    private News news;
+    private LocalDateTime schedule;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(reminderListeners.orderedStream()).thenAnswer(invocation -> Stream.of(reminderListener));
+        reminderScheduler = new ReminderScheduler(mongoOperations, reminderListeners, new NewsProperties());
+
+        schedule = LocalDateTime.now().plusMinutes(5);
+        news = new News();
+        news.setNewsId(1);
+        news.setAuthor("Becky123");
+        news.setReminder(new Reminder("5b0509731764e3096984eae6", schedule));
+    }
+
+    @Test
+    public void firesReminderWhenDue() {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(NewsReminder.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        reminderScheduler.newsSaved("Becky123", news);
+        assertEquals(1, reminderScheduler.pendingCount());
+
+        reminderScheduler.fireDue(millis(schedule.minusSeconds(2)));
+        verify(reminderListener, never()).reminderDue(any());
+        reminderScheduler.fireDue(millis(schedule.plusSeconds(1)));
+        verify(reminderListener, times(1)).reminderDue(any(NewsReminder.class));
+        assertEquals(0, reminderScheduler.pendingCount());
+    }
+
+    @Test
+    public void rescheduleReplacesPendingReminder() {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(NewsReminder.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        reminderScheduler.newsSaved("Becky123", news);
+        news.getReminder().setSchedule(schedule.plusHours(1));
+        reminderScheduler.newsSaved("Becky123", news);
+        assertEquals(1, reminderScheduler.pendingCount());
+
+        reminderScheduler.fireDue(millis(schedule.plusSeconds(1)));
+        verify(reminderListener, never()).reminderDue(any());
+        reminderScheduler.fireDue(millis(schedule.plusHours(1).plusSeconds(1)));
+        verify(reminderListener, times(1)).reminderDue(any(NewsReminder.class));
+    }
+
+    @Test
+    public void unchangedReminderIsNotRescheduled() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(NewsReminder.class)))
+                .thenThrow(new DuplicateKeyException("unchanged"));
+        reminderScheduler.newsSaved("Becky123", news);
+        assertEquals(0, reminderScheduler.pendingCount());
+    }
+
+    @Test
+    public void deleteCancelsReminder() {
+        reminderScheduler.newsSaved("Becky123", news);
+        reminderScheduler.newsDeleted("Becky123", 1);
+        assertEquals(0, reminderScheduler.pendingCount());
+        verify(mongoOperations).remove(any(Query.class), eq(NewsReminder.class));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,70 @@
+package com.stackroute.newz.test.reminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.stackroute.newz.reminder.TimingWheel;
+import com.stackroute.newz.reminder.TimingWheel.Timeout;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    public void firesAtDeadlineOnEveryLevel() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1000, START);
+        List<Long> deadlines = Arrays.asList(START + 3_000, START + 63_000, START + 64_000, START + 5_000_000,
+                START + 300_000_000L, START + 30_000_000_000L);
+        for (Long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        for (Long deadline : deadlines) {
+            assertEquals(Collections.emptyList(), wheel.advanceTo(deadline - 1000));
+            assertEquals(Collections.singletonList(deadline), wheel.advanceTo(deadline));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void firesRandomDeadlinesInOrder() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1000, START);
+        Random random = new Random(7);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = START + 1000L * random.nextInt(500_000);
+            wheel.schedule(deadline, deadline);
+            expected.add(deadline);
+        }
+        Collections.sort(expected);
+        List<Long> fired = new ArrayList<>();
+        for (long now = START; now < START + 500_000_000L + 37_000; now += 37_000) {
+            for (Long deadline : wheel.advanceTo(now)) {
+                assertTrue(deadline <= now && deadline > now - 37_000 - 1000);
+                fired.add(deadline);
+            }
+        }
+        Collections.sort(fired);
+        assertEquals(expected, fired);
+    }
+
+    @Test
+    public void cancelAndOverdue() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, START);
+        Timeout<String> cancelled = wheel.schedule("cancelled", START + 10_000);
+        wheel.schedule("overdue", START - 60_000);
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(Collections.singletonList("overdue"), wheel.advanceTo(START));
+        assertEquals(Collections.emptyList(), wheel.advanceTo(START + 20_000));
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,70 @@
+package com.stackroute.newz.test.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.search.NearDuplicateIndex;
+
+public class NearDuplicateIndexTest {
+
+    private static final String STORY = "Chennai Super Kings beat Royal Challengers Bangalore by six wickets in the "
+            + "opening match of the season at the Chepauk stadium on Saturday night. Chasing a target of seventy, "
+            + "the home side lost early wickets but Ambati Rayudu and Kedar Jadhav steadied the innings with a "
+            + "patient partnership. Harbhajan Singh and Imran Tahir took three wickets each as the visitors were "
+            + "bowled out for their lowest total against Chennai, and the pitch drew criticism from both captains "
+            + "after the game.";
+
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @BeforeEach
+    public void setUp() {
+        nearDuplicateIndex = new NearDuplicateIndex(new NewsProperties());
+        nearDuplicateIndex.index("Becky123", news(1, "CSK beat RCB in IPL opener", STORY));
+        nearDuplicateIndex.index("Becky123", news(2, "Budget 2020", "The union budget was presented in parliament "
+                + "by the finance minister on Saturday with changes to the income tax slabs."));
+    }
+
+    @Test
+    public void syndicatedCopyIsFlagged() {
+        nearDuplicateIndex.index("Becky123", news(3, "CSK beat RCB in the IPL opener",
+                STORY.replace("Saturday night", "Saturday evening")));
+        assertEquals(Integer.valueOf(1), nearDuplicateIndex.duplicateOf("Becky123", 3));
+        assertNull(nearDuplicateIndex.duplicateOf("Becky123", 1));
+        assertNull(nearDuplicateIndex.duplicateOf("Becky123", 2));
+        // other users never share groups
+        nearDuplicateIndex.index("John", news(3, "CSK beat RCB in IPL opener", STORY));
+        assertNull(nearDuplicateIndex.duplicateOf("John", 3));
+    }
+
+    @Test
+    public void collapseKeepsFirstOfEachGroup() {
+        News copy = news(3, "CSK beat RCB in IPL opener", STORY + " Chennai play Delhi next.");
+        News other = news(4, "Rain stops play", "The second match was abandoned without a ball bowled.");
+        nearDuplicateIndex.index("Becky123", copy);
+        nearDuplicateIndex.index("Becky123", other);
+        List<News> collapsed = nearDuplicateIndex.collapse("Becky123",
+                Arrays.asList(copy, news(1, null, null), other, news(2, null, null), news(5, "Not indexed", null)));
+        assertEquals(Arrays.asList(3, 4, 2, 5), Arrays.asList(collapsed.stream().map(News::getNewsId).toArray()));
+        nearDuplicateIndex.remove("Becky123", 1);
+        nearDuplicateIndex.index("Becky123", news(6, "CSK beat RCB in IPL opener", STORY));
+        assertEquals(Integer.valueOf(1), nearDuplicateIndex.duplicateOf("Becky123", 6));
+        assertEquals(4, nearDuplicateIndex.size());
+    }
+
+    private News news(int newsId, String title, String content) {
+        News news = new News();
+        news.setNewsId(newsId);
+        news.setAuthor("Becky123");
+        news.setTitle(title);
+        news.setContent(content);
+        return news;
+    }
+}
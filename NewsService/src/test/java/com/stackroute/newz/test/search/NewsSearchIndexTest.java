@@ -0,0 +1,66 @@
+package com.stackroute.newz.test.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.search.NewsSearchIndex;
+
+public class NewsSearchIndexTest {
+
+    private NewsSearchIndex newsSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        newsSearchIndex = new NewsSearchIndex();
+        newsSearchIndex.index("Becky123", news(1, "IPLT20 Match - 01", "CSK Vs RCB", "CSK vs RCB match scheduled for 4 PM"));
+        newsSearchIndex.index("Becky123", news(2, "IPLT20 Match - 02", "MI Vs KKR", "MI vs KKR match scheduled for 8 PM"));
+        newsSearchIndex.index("Becky123", news(3, "Budget 2020", "Union budget", "The budget was presented in parliament"));
+        newsSearchIndex.index("John", news(1, "CSK wins", "CSK", "CSK CSK CSK"));
+    }
+
+    @Test
+    public void searchRanksByRelevance() {
+        assertEquals(Arrays.asList(1), newsSearchIndex.search("Becky123", "csk", 10));
+        assertEquals(Arrays.asList(1, 2), newsSearchIndex.search("Becky123", "RCB match", 10));
+        assertEquals(Arrays.asList(3), newsSearchIndex.search("Becky123", "the BUDGET", 10));
+        assertEquals(Collections.emptyList(), newsSearchIndex.search("Becky123", "football", 10));
+        assertEquals(1, newsSearchIndex.search("Becky123", "match", 1).size());
+        assertEquals(Collections.emptyList(), newsSearchIndex.search("Unknown", "csk", 10));
+    }
+
+    @Test
+    public void updatesAndDeletesAreIncremental() {
+        newsSearchIndex.index("Becky123", news(1, "Match cancelled", null, "Rain"));
+        assertEquals(Collections.emptyList(), newsSearchIndex.search("Becky123", "csk", 10));
+        assertEquals(Arrays.asList(1), newsSearchIndex.search("Becky123", "rain", 10));
+        newsSearchIndex.remove("Becky123", 2);
+        assertEquals(Arrays.asList(1), newsSearchIndex.search("Becky123", "match", 10));
+        newsSearchIndex.removeUser("Becky123");
+        assertEquals(Collections.emptyList(), newsSearchIndex.search("Becky123", "budget", 10));
+        assertEquals(1, newsSearchIndex.size());
+    }
+
+    @Test
+    public void searchAfterCompaction() {
+        for (int newsId = 10; newsId < 1010; newsId++) {
+            newsSearchIndex.index("Becky123", news(newsId, "Match " + newsId, null, "filler text"));
+        }
+        for (int newsId = 10; newsId < 1000; newsId++) {
+            newsSearchIndex.remove("Becky123", newsId);
+        }
+        assertEquals(12, newsSearchIndex.search("Becky123", "match", 100).size());
+        assertEquals(Arrays.asList(1005), newsSearchIndex.search("Becky123", "1005", 100));
+        assertTrue(newsSearchIndex.search("Becky123", "1005 match", 100).get(0) == 1005);
+    }
+
+    private static News news(int newsId, String title, String description, String content) {
+        return new News(newsId, title, "Becky123", description, null, content, null, null, null, null);
+    }
+}
@@ -0,0 +1,283 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.cache.UserNewsVersions;
+import com.stackroute.newz.search.NewsSearchIndex;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.service.NewsChangeListeners;
+import com.stackroute.newz.trending.NewsViewCounter;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserNewsVersion;
+import com.stackroute.newz.repository.NewsArticleRepository;
+import com.stackroute.newz.service.NewsArticleServiceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+public class NewsArticleServiceImplTest {
+
+    private News news;
+    private NewsArticle article;
+    private NewsSource newsSource;
+    private Reminder reminder;
+    @Mock
+    private NewsArticleRepository articleRepository;
+    @Mock
+    private MongoOperations mongoOperations;
+    @Spy
+    private NewsSearchIndex newsSearchIndex = new NewsSearchIndex();
+    @Spy
+    private NewsChangeListeners newsChangeListeners = new NewsChangeListeners(Collections.singletonList(newsSearchIndex));
+    @Mock
+    private NewsViewCounter newsViewCounter;
+    @Mock
+    private UserNewsVersions userNewsVersions;
+    @Mock
+    private NewsStatsRollup newsStatsRollup;
+    @InjectMocks
+    private NewsArticleServiceImpl articleServiceImpl;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+
+        MockitoAnnotations.initMocks(this);
+
+        newsSource = new NewsSource();
+        newsSource.setNewsSourceId(1);
+        newsSource.setNewsSourceName("Cricket-Category");
+        newsSource.setNewsSourceDesc("All about IPL");
+        newsSource.setNewsSourceCreatedBy("Becky123");
+        newsSource.setNewsSourceCreationDate();
+
+        reminder = new Reminder();
+        reminder.setReminderId("5b0509731764e3096984eae6");
+        reminder.setSchedule();
+
+        news = new News();
+        news.setNewsId(1);
+        news.setTitle("IPLT20 Match - 01");
+        news.setAuthor("Becky123");
+        news.setDescription("Ipl match 01 - CSK Vs RCB");
+        news.setPublishedAt();
+        news.setContent("CSK vs RCB match scheduled for 4 PM");
+        news.setUrl("//CSKVsRCB.html");
+        news.setUrlToImage("//CSKVsRCB.png");
+        news.setReminder(reminder);
+        news.setNewssource(newsSource);
+
+        article = new NewsArticle("Becky123", news);
+    }
+
+    @Test
+    public void addNewsSuccess() {
+        when(articleRepository.insert((NewsArticle) any())).thenReturn(article);
+        assertEquals(true, articleServiceImpl.addNews(news));
+        verify(userNewsVersions).increment("Becky123");
+        verify(newsStatsRollup).added("Becky123", news);
+    }
+
+    @Test
+    public void addNewsFailure() {
+        when(articleRepository.insert((NewsArticle) any())).thenThrow(new DuplicateKeyException("duplicate"));
+        assertEquals(false, articleServiceImpl.addNews(news));
+    }
+
+    @Test
+    public void deleteNewsSuccess() {
+        when(mongoOperations.findAndRemove(any(Query.class), eq(NewsArticle.class))).thenReturn(article);
+        assertEquals(true, articleServiceImpl.deleteNews("Becky123", 1));
+        ArgumentCaptor<News> removed = ArgumentCaptor.forClass(News.class);
+        verify(newsStatsRollup).removed(eq("Becky123"), removed.capture());
+        assertEquals(news.getNewsSource(), removed.getValue().getNewsSource());
+    }
+
+    @Test
+    public void deleteNewsFailure() {
+        assertEquals(false, articleServiceImpl.deleteNews("Becky123", 1));
+        verify(newsStatsRollup, never()).removed(anyString(), any(News.class));
+    }
+
+    @Test
+    public void deleteNewsWithStaleVersion() {
+        when(userNewsVersions.increment("Becky123", 2L)).thenReturn(false);
+        assertThrows(NewsPreconditionFailedException.class, () -> articleServiceImpl.deleteNews("Becky123", 1, 2L));
+        verify(mongoOperations, never()).findAndRemove(any(Query.class), eq(NewsArticle.class));
+    }
+
+    @Test
+    public void deleteNewsWithCurrentVersionIncrementsItOnce() {
+        when(userNewsVersions.increment("Becky123", 3L)).thenReturn(true);
+        when(mongoOperations.findAndRemove(any(Query.class), eq(NewsArticle.class))).thenReturn(article);
+        assertEquals(true, articleServiceImpl.deleteNews("Becky123", 1, 3L));
+        verify(userNewsVersions, never()).increment("Becky123");
+    }
+
+    @Test
+    public void missingUserWithNamedVersionFails() {
+        NewsArticleServiceImpl service = new NewsArticleServiceImpl(articleRepository, mongoOperations, newsSearchIndex,
+                newsChangeListeners, null, newsViewCounter, new UserNewsVersions(mongoOperations), newsStatsRollup);
+        assertThrows(NewsPreconditionFailedException.class, () -> service.deleteNews("Unknown", 1, 5L));
+        assertThrows(NewsPreconditionFailedException.class, () -> service.patchNews("Unknown", 1,
+                new NewsPatch().set("title", "IPLT20 Match - 02"), -1L));
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoOperations, times(2)).findAndModify(any(Query.class), any(Update.class), options.capture(),
+                eq(UserNewsVersion.class));
+        assertTrue(options.getAllValues().stream().noneMatch(FindAndModifyOptions::isUpsert));
+        verify(mongoOperations, never()).findAndRemove(any(Query.class), eq(NewsArticle.class));
+    }
+
+    @Test
+    public void deleteMissingNewsRestoresVersion() {
+        when(userNewsVersions.increment("Becky123", 3L)).thenReturn(true);
+        assertEquals(false, articleServiceImpl.deleteNews("Becky123", 7, 3L));
+        verify(userNewsVersions).restore("Becky123", 3L);
+    }
+
+    @Test
+    public void updateMissingNewsRestoresVersion() {
+        when(userNewsVersions.increment("Becky123", 3L)).thenReturn(true);
+        assertThrows(NewsNotFoundException.class, () -> articleServiceImpl.updateNews(news, 7, "Becky123", 3L));
+        verify(userNewsVersions).restore("Becky123", 3L);
+    }
+
+    @Test
+    public void deleteAllNewsFailure() {
+        when(articleRepository.deleteByUserId("Becky123")).thenReturn(0L);
+        assertThrows(
+                NewsNotFoundException.class,
+                    () -> { articleServiceImpl.deleteAllNews("Becky123"); });
+    }
+
+    @Test
+    public void updateNewsSuccess() throws NewsNotFoundException {
+        news.setContent("Match cancelled");
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NewsArticle.class))).thenReturn(new NewsArticle("Becky123", news));
+        News updated = articleServiceImpl.updateNews(news, 1, "Becky123");
+        assertEquals("Match cancelled", updated.getContent());
+        assertEquals(news.getPublishedAt(), updated.getPublishedAt());
+    }
+
+    @Test
+    public void patchNewsSuccess() throws NewsNotFoundException {
+        news.setTitle("IPLT20 Final");
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NewsArticle.class))).thenReturn(new NewsArticle("Becky123", news), (NewsArticle) null);
+        News patched = articleServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("title", "IPLT20 Final"));
+        assertEquals("IPLT20 Final", patched.getTitle());
+        assertThrows(
+                NewsNotFoundException.class,
+                    () -> { articleServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("title", "IPLT20 Final")); });
+    }
+
+    @Test
+    public void patchedSourceIsCountedAsMoved() throws NewsNotFoundException {
+        NewsSource bbc = new NewsSource();
+        bbc.setNewsSourceId(2);
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NewsArticle.class))).thenReturn(article);
+        News patched = articleServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("newsSource", bbc));
+        assertEquals(2, patched.getNewsSource().getNewsSourceId());
+        ArgumentCaptor<NewsSource> from = ArgumentCaptor.forClass(NewsSource.class);
+        verify(newsStatsRollup).moved(eq("Becky123"), eq(patched), from.capture());
+        assertEquals(1, from.getValue().getNewsSourceId());
+    }
+
+    @Test
+    public void updateNewsFailure() {
+        assertThrows(
+                NewsNotFoundException.class,
+                    () -> { articleServiceImpl.updateNews(news, 1, "Becky123"); });
+    }
+
+    @Test
+    public void getNewsByNewsIdSuccess() throws NewsNotFoundException {
+        when(articleRepository.findByUserIdAndNewsId("Becky123", 1)).thenReturn(Optional.of(article));
+        News fetched = articleServiceImpl.getNewsByNewsId("Becky123", 1);
+        assertEquals(news.getTitle(), fetched.getTitle());
+        assertEquals(news.getNewsId(), fetched.getNewsId());
+    }
+
+    @Test
+    public void getNewsByNewsIdFailure() {
+        when(articleRepository.findByUserIdAndNewsId("Becky123", 1)).thenReturn(Optional.empty());
+        assertThrows(
+                NewsNotFoundException.class,
+                    () -> { articleServiceImpl.getNewsByNewsId("Becky123", 1); });
+    }
+
+    @Test
+    public void getAllNewsByUserId() {
+        List<NewsArticle> articles = new ArrayList<>();
+        articles.add(article);
+        when(articleRepository.findByUserId("Becky123")).thenReturn(articles);
+        assertEquals(1, articleServiceImpl.getAllNewsByUserId("Becky123").size());
+        assertNull(articleServiceImpl.getAllNewsByUserId("Unknown"));
+    }
+
+    @Test
+    public void getNewsPage() {
+        List<NewsArticle> articles = new ArrayList<>();
+        articles.add(article);
+        articles.add(new NewsArticle("Becky123", new News(2, "IPLT20 Match - 02", "Becky123", null,
+                news.getPublishedAt().minusDays(1), null, null, null, null, null)));
+        when(mongoOperations.find(any(Query.class), eq(NewsArticle.class))).thenReturn(articles);
+        NewsPage page = articleServiceImpl.getNewsPage("Becky123", null, 1);
+        assertEquals(1, page.getNews().size());
+        assertEquals(1, NewsCursor.decode(page.getNextCursor()).getNewsId());
+        page = articleServiceImpl.getNewsPage("Becky123", NewsCursor.decode(page.getNextCursor()), 5);
+        assertEquals(2, page.getNews().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void searchNewsAfterAddAndDelete() {
+        when(articleRepository.insert((NewsArticle) any())).thenReturn(article);
+        when(mongoOperations.find(any(Query.class), eq(NewsArticle.class))).thenReturn(Collections.singletonList(article));
+        articleServiceImpl.addNews(news);
+        assertEquals(news.getTitle(), articleServiceImpl.searchNews("Becky123", "CSK", 10).get(0).getTitle());
+        when(mongoOperations.findAndRemove(any(Query.class), eq(NewsArticle.class))).thenReturn(article);
+        articleServiceImpl.deleteNews("Becky123", 1);
+        assertEquals(0, articleServiceImpl.searchNews("Becky123", "CSK", 10).size());
+    }
+
+    @Test
+    public void decodeInvalidCursor() {
+        assertThrows(
+                IllegalArgumentException.class,
+                    () -> { NewsCursor.decode("not-a-cursor"); });
+        assertTrue(NewsCursor.decode(NewsCursor.of(news).encode()).getPublishedAt().equals(news.getPublishedAt()));
+    }
+}
@@ -0,0 +1,143 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.content.NewsContentStore;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.service.NewsChangeDispatcher;
+import com.stackroute.newz.service.NewsChangeListener;
+import com.stackroute.newz.service.NewsChangeListeners;
+
+public class NewsChangeDispatcherTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    private NewsChangeListener listener = mock(NewsChangeListener.class);
+    private NewsChangeDispatcher dispatcher;
+    private News news;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        dispatcher = new NewsChangeDispatcher(mongoOperations,
+                new NewsChangeListeners(Collections.singletonList(listener)),
+                new NewsContentStore(mongoOperations, new NewsProperties()));
+        news = new News();
+        news.setNewsId(1);
+        news.setAuthor("Becky123");
+        news.setTitle("IPLT20 Match - 01");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void createdNewsAreHandedOnTogetherInOrder() {
+        News second = new News();
+        second.setNewsId(2);
+        second.setAuthor("Becky123");
+        NewsEvent first = NewsEvent.created(news);
+        NewsEvent deleted = NewsEvent.deleted("Becky123", 1);
+        NewsEvent last = NewsEvent.created(second);
+        dispatcher.onEvents(Arrays.asList(first, deleted, last));
+        ArgumentCaptor<List<News>> created = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).newsCreated(created.capture());
+        inOrder.verify(listener).newsDeleted("Becky123", 1);
+        inOrder.verify(listener).newsCreated(created.capture());
+        assertEquals(Collections.singletonList(news), created.getAllValues().get(0));
+        assertEquals(Collections.singletonList(second), created.getAllValues().get(1));
+    }
+
+    @Test
+    public void publishedEventsAreHandedOnWithoutReadingTheOutbox() {
+        dispatcher.onEvents(Collections.singletonList(NewsEvent.updated("Becky123", news)));
+        verify(listener).newsSaved("Becky123", news);
+        verify(mongoOperations, never()).find(any(Query.class), eq(UserNews.class));
+    }
+
+    @Test
+    public void acknowledgedEventsAreSkipped() {
+        NewsEvent acknowledged = NewsEvent.updated("Becky123", news);
+        acknowledged.setRedelivered(true);
+        pending("Becky123");
+        dispatcher.onEvents(Collections.singletonList(acknowledged));
+        verify(listener, never()).newsSaved(anyString(), any(News.class));
+    }
+
+    @Test
+    public void eventsBeforeADeliveredDeletionAreSkipped() {
+        NewsEvent created = NewsEvent.created(news);
+        NewsEvent userDeleted = NewsEvent.userDeleted("Becky123");
+        when(mongoOperations.findOne(any(Query.class), eq(UserNews.class))).thenReturn(new UserNews("Becky123", null));
+        assertTrue(dispatcher.deliverPendingDeletion("Becky123"));
+        pending("Becky123");
+        dispatcher.onEvents(Arrays.asList(created, userDeleted));
+        verify(listener, never()).newsCreated(Collections.singletonList(news));
+        verify(listener).userNewsDeleted("Becky123");
+
+        NewsEvent createdAgain = NewsEvent.created(news);
+        createdAgain.setOccurredAt(created.getOccurredAt());
+        dispatcher.onEvents(Collections.singletonList(createdAgain));
+        verify(listener).newsCreated(Collections.singletonList(news));
+    }
+
+    @Test
+    public void updateWithoutNewsIsReadBack() {
+        NewsEvent patched = NewsEvent.updated("Becky123", 1);
+        when(mongoOperations.findOne(any(Query.class), eq(UserNews.class)))
+                .thenReturn(new UserNews("Becky123", Collections.singletonList(news)));
+        dispatcher.onEvents(Collections.singletonList(patched));
+        verify(listener).newsSaved("Becky123", news);
+    }
+
+    @Test
+    public void pendingDeletionIsDeliveredAndRemoved() {
+        when(mongoOperations.findOne(any(Query.class), eq(UserNews.class))).thenReturn(new UserNews("Becky123", null));
+        assertTrue(dispatcher.deliverPendingDeletion("Becky123"));
+        verify(listener).userNewsDeleted("Becky123");
+        verify(mongoOperations).updateFirst(any(Query.class), any(Update.class), eq(UserNews.class));
+    }
+
+    @Test
+    public void noPendingDeletion() {
+        assertFalse(dispatcher.deliverPendingDeletion("Becky123"));
+        verify(listener, never()).userNewsDeleted(anyString());
+        verify(listener, never()).newsCreated(anyList());
+    }
+
+    private void pending(String userId, NewsEvent... events) {
+        UserNews outbox = new UserNews(userId, null);
+        for (NewsEvent event : events) {
+            outbox.addEvent(event);
+        }
+        when(mongoOperations.find(any(Query.class), eq(UserNews.class))).thenReturn(Collections.singletonList(outbox));
+    }
+}
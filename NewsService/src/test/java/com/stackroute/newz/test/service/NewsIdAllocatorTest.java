@@ -0,0 +1,140 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsIdSequence;
+import com.stackroute.newz.service.NewsIdAllocator;
+import com.stackroute.newz.service.NewsService;
+
+public class NewsIdAllocatorTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private NewsService newsService;
+    @Mock
+    private NewsArchive newsArchive;
+
+    private NewsIdAllocator newsIdAllocator;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getIds().setBlockSize(10);
+        newsIdAllocator = new NewsIdAllocator(mongoOperations, newsService, newsArchive, newsProperties);
+    }
+
+    @Test
+    public void blockIsAllocatedFromMemory() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NewsIdSequence.class)))
+                .thenReturn(new NewsIdSequence("Becky123", 10), new NewsIdSequence("Becky123", 30));
+        for (int newsId = 1; newsId <= 10; newsId++) {
+            assertEquals(newsId, newsIdAllocator.next("Becky123"));
+        }
+        verify(mongoOperations, times(1)).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(NewsIdSequence.class));
+        // 11 to 20 went to another instance
+        assertEquals(21, newsIdAllocator.next("Becky123"));
+    }
+
+    @Test
+    public void sequenceStartsAboveExistingNewsIds() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NewsIdSequence.class))).thenReturn(null, new NewsIdSequence("Becky123", 17));
+        when(newsService.getAllNewsByUserId(eq("Becky123"), any(NewsFields.class))).thenReturn(Arrays.asList(
+                new News(3, null, null, null, null, null, null, null, null, null),
+                new News(7, null, null, null, null, null, null, null, null, null)));
+
+        News news = new News(null, "IPLT20 Match - 08", "Becky123", null, null, null, null, null, null, null);
+        newsIdAllocator.assign(news);
+        assertEquals(Integer.valueOf(8), news.getNewsId());
+        ArgumentCaptor<Update> start = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(any(Query.class), start.capture(), eq(NewsIdSequence.class));
+        assertEquals(new Document("hi", 7), start.getValue().getUpdateObject().get("$max"));
+    }
+
+    @Test
+    public void sequenceSkipsLegacyNewsWithoutNewsId() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NewsIdSequence.class))).thenReturn(null, new NewsIdSequence("Becky123", 15));
+        when(newsService.getAllNewsByUserId(eq("Becky123"), any(NewsFields.class))).thenReturn(Arrays.asList(
+                new News(null, null, null, null, null, null, null, null, null, null),
+                new News(5, null, null, null, null, null, null, null, null, null)));
+
+        assertEquals(6, newsIdAllocator.next("Becky123"));
+        ArgumentCaptor<Update> start = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(any(Query.class), start.capture(), eq(NewsIdSequence.class));
+        assertEquals(new Document("hi", 5), start.getValue().getUpdateObject().get("$max"));
+    }
+
+    @Test
+    public void sequenceStartsAboveArchivedNewsIds() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NewsIdSequence.class))).thenReturn(null, new NewsIdSequence("Becky123", 22));
+        when(newsService.getAllNewsByUserId(eq("Becky123"), any(NewsFields.class))).thenReturn(Arrays.asList(
+                new News(7, null, null, null, null, null, null, null, null, null)));
+        when(newsArchive.highestNewsId("Becky123")).thenReturn(12);
+
+        assertEquals(13, newsIdAllocator.next("Becky123"));
+        ArgumentCaptor<Update> start = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(any(Query.class), start.capture(), eq(NewsIdSequence.class));
+        assertEquals(new Document("hi", 12), start.getValue().getUpdateObject().get("$max"));
+    }
+
+    @Test
+    public void concurrentAllocationsAreUnique() throws Exception {
+        AtomicInteger hi = new AtomicInteger();
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NewsIdSequence.class))).thenAnswer(invocation -> new NewsIdSequence("Becky123", hi.addAndGet(10)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Integer>>> allocated = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            allocated.add(executor.submit(() -> {
+                List<Integer> newsIds = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    newsIds.add(newsIdAllocator.next("Becky123"));
+                }
+                return newsIds;
+            }));
+        }
+        Set<Integer> unique = new HashSet<>();
+        for (Future<List<Integer>> newsIds : allocated) {
+            unique.addAll(newsIds.get());
+        }
+        executor.shutdown();
+        assertEquals(4000, unique.size());
+        assertEquals(4000, hi.get());
+    }
+}
@@ -1,31 +1,78 @@
 package com.stackroute.newz.test.service;
 
+import com.stackroute.newz.search.NewsSearchIndex;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.service.NewsChangeDispatcher;
+import com.stackroute.newz.service.NewsChangeListeners;
+import com.stackroute.newz.trending.NewsViewCounter;
 
 import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.cache.UserNewsCache;
+import com.stackroute.newz.content.NewsContentStore;
+import com.stackroute.newz.dedup.NewsUrlFilter;
+import com.stackroute.newz.event.NewsOutbox;
+import com.stackroute.newz.config.NewsProperties;
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItemResult;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
 import com.stackroute.newz.model.UserNews;
 import com.stackroute.newz.model.Reminder;
 import com.stackroute.newz.repository.NewsRepository;
 import com.stackroute.newz.service.NewsServiceImpl;
+import com.stackroute.newz.service.OptimisticRetry;
 import java.util.Optional;
 
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.bson.Document;
+import org.bson.BsonDocument;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class NewsServiceImplTest {
 
@@ -36,6 +83,30 @@ public class NewsServiceImplTest {
     private Reminder reminder;
     @Mock
     private NewsRepository newsRepository;
+    @Mock
+    private MongoOperations mongoOperations;
+    @Spy
+    private NewsSearchIndex newsSearchIndex = new NewsSearchIndex();
+    @Spy
+    private NewsChangeListeners newsChangeListeners = new NewsChangeListeners(Collections.singletonList(newsSearchIndex));
+    @Spy
+    private UserNewsCache userNewsCache = new UserNewsCache(new NewsProperties());
+    @Spy
+    private NewsUrlFilter newsUrlFilter = new NewsUrlFilter(new NewsProperties());
+    @Mock
+    private NewsChangeDispatcher newsChangeDispatcher;
+    @Mock
+    private NewsOutbox newsOutbox;
+    @Mock
+    private NewsViewCounter newsViewCounter;
+    @Mock
+    private NewsArchive newsArchive;
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(new NewsProperties());
+    @Mock
+    private NewsStatsRollup newsStatsRollup;
+    @Spy
+    private NewsContentStore newsContentStore = new NewsContentStore(mock(MongoOperations.class), new NewsProperties());
     @InjectMocks
     private NewsServiceImpl newsServiceImpl;
     private List<News> newsList = null;
@@ -78,6 +149,7 @@ public class NewsServiceImplTest {
 
         userNews.setUserId("Becky123");
         userNews.setNewslist(newsList);
+        userNews.setVersion(3L);
 
         options = Optional.of(userNews);
         
@@ -89,6 +161,31 @@ public class NewsServiceImplTest {
         when(newsRepository.insert((UserNews) any())).thenReturn(userNews);
         boolean status = newsServiceImpl.addNews(news);
         assertEquals(true, status);
+        verify(newsStatsRollup).added("Becky123", news);
+    }
+
+    @Test
+    public void addNewsWritesEventToOutbox() {
+        when(newsRepository.existsById("Becky123")).thenReturn(true);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        assertEquals(true, newsServiceImpl.addNews(news));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(any(Query.class), update.capture(), eq(UserNews.class));
+        NewsEvent written = (NewsEvent) ((Document) update.getValue().getUpdateObject().get("$push")).get("outbox");
+        assertEquals(NewsEvent.Type.CREATED, written.getType());
+        assertEquals(news, written.getNews());
+        verify(newsOutbox).publish(written);
+    }
+
+    @Test
+    public void deleteNewsWritesEventToOutbox() {
+        when(newsRepository.findById(userNews.getUserId())).thenReturn(options);
+        assertEquals(true, newsServiceImpl.deleteNews("Becky123", news.getNewsId()));
+        NewsEvent written = userNews.getOutbox().get(0);
+        assertEquals(NewsEvent.Type.DELETED, written.getType());
+        assertEquals(1, written.getNewsId());
+        verify(newsOutbox).publish(written);
     }
 
     @Test
@@ -108,6 +205,40 @@ public class NewsServiceImplTest {
         assertEquals(true, flag);
     }
 
+    @Test
+    public void deleteNewsKeepsOtherNews() {
+        News other = new News(2, "IPLT20 Match - 02", "Becky123", null, null, null, null, null, null, null);
+        newsList.add(other);
+        when(newsRepository.findById(userNews.getUserId())).thenReturn(options);
+        assertEquals(true, newsServiceImpl.deleteNews("Becky123", news.getNewsId()));
+        assertEquals(false, newsServiceImpl.deleteNews("Becky123", news.getNewsId()));
+        assertEquals(Collections.singletonList(other), userNews.getNewslist());
+        verify(newsRepository, never()).deleteById("Becky123");
+        verify(newsStatsRollup, times(1)).removed("Becky123", news);
+    }
+
+    @Test
+    public void findNewsByIndex() {
+        for (int newsId = 2; newsId <= 1000; newsId++) {
+            newsList.add(new News(newsId * 7, "News " + newsId, "Becky123", null, null, null, null, null, null, null));
+        }
+        assertEquals(news, userNews.findNews(1));
+        assertEquals(7000, userNews.findNews(7000).getNewsId());
+        assertEquals(-1, userNews.indexOf(3));
+        newsList.set(0, new News(5, "Replaced", "Becky123", null, null, null, null, null, null, null));
+        assertNull(userNews.findNews(1));
+        assertEquals("Replaced", userNews.findNews(5).getTitle());
+    }
+
+    @Test
+    public void findReplacedNewsByIndex() {
+        newsList.add(new News(2, "News 2", "Becky123", null, null, null, null, null, null, null));
+        assertEquals(1, userNews.indexOf(2));
+        newsList.set(0, new News(5, "Replaced", "Becky123", null, null, null, null, null, null, null));
+        assertEquals("Replaced", userNews.findNews(5).getTitle());
+        assertNull(userNews.findNews(1));
+    }
+
     @Test
     public void deleteNewsFailure() {
         when(newsRepository.findById(userNews.getUserId())).thenReturn(null);
@@ -121,20 +252,135 @@ public class NewsServiceImplTest {
 
 
     @Test
-    public void deleteAllNewsSuccess() throws NewsNotFoundException {
+    public void archivedNewsAreChangedInTheirBucket() throws NewsNotFoundException {
+        News archived = new News(7, "IPLT20 Match - 07", "Becky123", null, news.getPublishedAt().minusDays(200),
+                null, null, null, null, null);
+        List<News> bucket = new ArrayList<>(Arrays.asList(archived));
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        when(newsArchive.find("Becky123", 7)).thenAnswer(invocation -> bucket.isEmpty() ? null : bucket.get(0));
+        when(newsArchive.change(eq("Becky123"), eq(7), any())).thenAnswer(invocation -> {
+            UnaryOperator<News> change = invocation.getArgument(2);
+            News changed = change.apply(bucket.get(0));
+            bucket.clear();
+            if (changed != null) {
+                bucket.add(changed);
+            }
+            return true;
+        });
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        assertEquals(archived, newsServiceImpl.getNewsByNewsId("Becky123", 7));
+
+        News updated = newsServiceImpl.updateNews(news, 7, "Becky123");
+        assertEquals(7, updated.getNewsId());
+        assertEquals("IPLT20 Match - 01", bucket.get(0).getTitle());
+        News patched = newsServiceImpl.patchNews("Becky123", 7, new NewsPatch().set("title", "IPLT20 Final"));
+        assertEquals("IPLT20 Final", patched.getTitle());
+        assertEquals("IPLT20 Final", bucket.get(0).getTitle());
+        assertEquals(true, newsServiceImpl.deleteNews("Becky123", 7));
+        assertEquals(0, bucket.size());
+        assertEquals(false, newsServiceImpl.deleteNews("Becky123", 7));
+
+        ArgumentCaptor<Update> versioned = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, times(3)).updateFirst(any(Query.class), versioned.capture(), eq(UserNews.class));
+        assertEquals(1L, ((Document) versioned.getValue().getUpdateObject().get("$inc")).get("version"));
+        verify(newsRepository, never()).save(any(UserNews.class));
+        verify(newsOutbox, times(3)).publish(any(NewsEvent.class));
+        verify(newsStatsRollup).removed(eq("Becky123"), any(News.class));
+    }
 
+    @Test
+    public void writesToArchivedNewsWithStaleVersionFail() {
+        News archived = new News(7, "IPLT20 Match - 07", "Becky123", null, news.getPublishedAt().minusDays(200),
+                null, null, null, null, null);
+        userNews.setVersion(3L);
         when(newsRepository.findById("Becky123")).thenReturn(options);
-        when(newsRepository.save(userNews)).thenReturn(userNews);
+        when(newsArchive.find("Becky123", 7)).thenReturn(archived);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        assertThrows(NewsPreconditionFailedException.class,
+                () -> newsServiceImpl.patchNews("Becky123", 7, new NewsPatch().set("title", "IPLT20 Final"), 2L));
+        verify(newsArchive, never()).change(anyString(), anyInt(), any());
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void writesToMissingNewsFail() throws NewsNotFoundException {
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        assertNull(newsServiceImpl.updateNews(news, 7, "Becky123"));
+        assertEquals(false, newsServiceImpl.deleteNews("Becky123", 7));
+        assertThrows(NewsNotFoundException.class,
+                () -> newsServiceImpl.patchNews("Becky123", 7, new NewsPatch().set("title", "IPLT20 Final")));
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(Update.class), eq(UserNews.class));
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void writesWithStaleVersionFail() {
+        userNews.setVersion(3L);
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        assertThrows(NewsPreconditionFailedException.class, () -> newsServiceImpl.deleteNews("Becky123", 1, 2L));
+        assertThrows(NewsPreconditionFailedException.class, () -> newsServiceImpl.updateNews(news, 1, "Becky123", 2L));
+        when(mongoOperations.exists(any(Query.class), eq(UserNews.class))).thenReturn(true);
+        assertThrows(NewsPreconditionFailedException.class,
+                () -> newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("title", "IPLT20 Final"), 2L));
+        ArgumentCaptor<Query> patched = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).findAndModify(patched.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class));
+        assertEquals(2L, patched.getValue().getQueryObject().get("version"));
+        verify(newsRepository, never()).save(any(UserNews.class));
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void writesWithCurrentVersionSucceed() throws NewsNotFoundException {
+        userNews.setVersion(3L);
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        assertEquals(true, newsServiceImpl.deleteNews("Becky123", 1, 3L));
+    }
+
+    @Test
+    public void deleteAllNewsSuccess() throws NewsNotFoundException {
+
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
         boolean flag = newsServiceImpl.deleteAllNews("Becky123");
         assertEquals(true, flag);
 
     }
 
-    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deleteAllNewsKeepsTombstoneWithEvent() throws NewsNotFoundException {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        newsServiceImpl.deleteAllNews("Becky123");
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(any(Query.class), update.capture(), eq(UserNews.class));
+        verify(newsRepository, never()).deleteById(anyString());
+        Document updateObject = update.getValue().getUpdateObject();
+        assertEquals(new Document("newslist", 1), updateObject.get("$unset"));
+        assertEquals(new Document("version", 1L), updateObject.get("$inc"));
+        NewsEvent written = ((List<NewsEvent>) ((Document) updateObject.get("$set")).get("outbox")).get(0);
+        assertEquals(NewsEvent.Type.USER_DELETED, written.getType());
+        verify(newsOutbox).publish(written);
+    }
+
+    @Test
+    public void addNewsDeliversPendingDeletionFirst() {
+        when(newsRepository.existsById("Becky123")).thenReturn(true);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
+        when(newsChangeDispatcher.deliverPendingDeletion("Becky123")).thenReturn(true);
+        assertEquals(true, newsServiceImpl.addNews(news));
+        verify(mongoOperations, times(2)).updateFirst(any(Query.class), any(Update.class), eq(UserNews.class));
+        verify(newsOutbox).publish(any(NewsEvent.class));
+    }
 
     @Test
     public void deleteAllNewsFailure() throws NewsNotFoundException {
-        when(newsRepository.findById("Becky123")).thenThrow(NoSuchElementException.class);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
         
         assertThrows(
         		NewsNotFoundException.class,
@@ -154,6 +400,59 @@ public class NewsServiceImplTest {
 
     }
 
+    @Test
+    public void updateNewsOffloadsLongContent() throws NewsNotFoundException {
+
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        news.setContentId("5e0a6a1c9d2b4f3a8c7d6e51");
+        doReturn("5e0a6a1c9d2b4f3a8c7d6e52").when(newsContentStore).offload(eq("Becky123"), eq(1), anyString());
+        News update = new News(1, "IPLT20 Match - 01", "Becky123", null, null, "Full match report", null, null, null, null);
+        News updated = newsServiceImpl.updateNews(update, 1, "Becky123");
+        assertEquals("Full match report", updated.getContent());
+        assertNull(updated.getContentId());
+        News stored = userNews.getNewslist().get(0);
+        assertNull(stored.getContent());
+        assertEquals("5e0a6a1c9d2b4f3a8c7d6e52", stored.getContentId());
+        verify(newsRepository).save(userNews);
+        verify(newsContentStore).remove("5e0a6a1c9d2b4f3a8c7d6e51");
+    }
+
+    @Test
+    public void updateNewsRetriesAfterConflict() throws NewsNotFoundException {
+
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        when(newsRepository.save(userNews))
+                .thenThrow(new OptimisticLockingFailureException("version 3 changed"))
+                .thenReturn(userNews);
+        news.setContent("Match cancelled");
+        assertEquals("Match cancelled", newsServiceImpl.updateNews(news, news.getNewsId(), "Becky123").getContent());
+        verify(newsRepository, times(2)).findById("Becky123");
+        verify(newsOutbox, times(1)).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void updateNewsGivesUpAfterMaxAttempts() {
+
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        when(newsRepository.save(userNews)).thenThrow(new OptimisticLockingFailureException("version 3 changed"));
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> newsServiceImpl.updateNews(news, news.getNewsId(), "Becky123"));
+        verify(newsRepository, times(5)).save(userNews);
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void updateNewsVersionsLegacyDocument() throws NewsNotFoundException {
+
+        UserNews legacy = new UserNews("Becky123", newsList);
+        when(newsRepository.findById("Becky123")).thenReturn(Optional.of(legacy), options);
+        newsServiceImpl.updateNews(news, news.getNewsId(), "Becky123");
+        ArgumentCaptor<Update> backfill = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(any(Query.class), backfill.capture(), eq(UserNews.class));
+        assertEquals(new Document("version", 0L), backfill.getValue().getUpdateObject().get("$set"));
+        verify(newsRepository).save(userNews);
+    }
+
     @Test
     public void updateNewsFailure() throws NewsNotFoundException {
 
@@ -167,11 +466,67 @@ public class NewsServiceImplTest {
 
     }
 
+    @Test
+    public void patchNewsSetsOnlyPatchedFields() throws NewsNotFoundException {
+
+        news.setContent("Match cancelled");
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(userNews);
+        News patched = newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("content", "Match cancelled"));
+        assertEquals("Match cancelled", patched.getContent());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(UserNews.class));
+        assertEquals(new Document("newslist.$.content", "Match cancelled"), update.getValue().getUpdateObject().get("$set"));
+        assertEquals(new Document("version", 1L), update.getValue().getUpdateObject().get("$inc"));
+        verify(newsRepository, never()).save(any());
+    }
+
+    @Test
+    public void patchNewsMovesNewsSourceInStats() throws NewsNotFoundException {
+
+        NewsSource other = new NewsSource();
+        other.setNewsSourceId(2);
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(userNews);
+        News patched = newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("newsSource", other));
+        verify(newsStatsRollup).moved("Becky123", patched, newsSource);
+        newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("title", "IPLT20 Final"));
+        verifyNoMoreInteractions(newsStatsRollup);
+    }
+
+    @Test
+    public void patchNewsFailure() {
+
+        assertThrows(
+        		NewsNotFoundException.class,
+                    () -> { newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("title", "IPLT20 Final")); });
+    }
+
     @Test
     public void getNewsByNewsIdSuccess() throws NewsNotFoundException {
         when(newsRepository.findById("Becky123")).thenReturn(options);
         News fetechedNews = newsServiceImpl.getNewsByNewsId("Becky123", news.getNewsId());
         assertEquals(news, fetechedNews);
+        verify(newsViewCounter).viewed("Becky123", 1);
+    }
+
+    @Test
+    public void getNewsByNewsIdLoadsOffloadedContent() throws NewsNotFoundException {
+        News loaded = new News(1, "IPLT20 Match - 01", "Becky123", null, null, "Full match report", null, null, null, null);
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        doReturn(loaded).when(newsContentStore).load(news);
+        assertEquals("Full match report", newsServiceImpl.getNewsByNewsId("Becky123", 1).getContent());
+    }
+
+    @Test
+    public void getNewsByNewsIdFromArchive() throws NewsNotFoundException {
+        News archived = new News(7, "IPLT20 Match - 07", "Becky123", null, news.getPublishedAt().minusYears(1),
+                null, null, null, null, null);
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        when(newsArchive.find("Becky123", 7)).thenReturn(archived);
+        assertEquals(archived, newsServiceImpl.getNewsByNewsId("Becky123", 7));
+        verify(newsViewCounter).viewed("Becky123", 7);
     }
 
     @Test
@@ -190,4 +545,191 @@ public class NewsServiceImplTest {
         List<News> newslist1 = newsServiceImpl.getAllNewsByUserId("Becky123");
         assertEquals(newsList, newslist1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchNewsAfterAdd() {
+        when(newsRepository.insert((UserNews) any())).thenReturn(userNews);
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        newsServiceImpl.addNews(news);
+        // the listeners get the published event on the outbox thread
+        ArgumentCaptor<NewsEvent> published = ArgumentCaptor.forClass(NewsEvent.class);
+        verify(newsOutbox).publish(published.capture());
+        UserNews outbox = new UserNews("Becky123", null);
+        outbox.addEvent(published.getValue());
+        when(mongoOperations.find(any(Query.class), eq(UserNews.class))).thenReturn(Collections.singletonList(outbox));
+        new NewsChangeDispatcher(mongoOperations, newsChangeListeners, newsContentStore)
+                .onEvents(Collections.singletonList(published.getValue()));
+        assertEquals(newsList, newsServiceImpl.searchNews("Becky123", "rcb", 10));
+        assertEquals(0, newsServiceImpl.searchNews("Becky123", "football", 10).size());
+    }
+
+    @Test
+    public void readsAreServedFromCache() throws NewsNotFoundException {
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        newsServiceImpl.getAllNewsByUserId("Becky123");
+        assertEquals(news, newsServiceImpl.getNewsByNewsId("Becky123", news.getNewsId()));
+        verify(newsRepository, times(1)).findById("Becky123");
+    }
+
+    @Test
+    public void writesInvalidateCache() throws NewsNotFoundException {
+        when(newsRepository.findById("Becky123")).thenReturn(options);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        newsServiceImpl.getAllNewsByUserId("Becky123");
+        newsServiceImpl.deleteAllNews("Becky123");
+        newsServiceImpl.getAllNewsByUserId("Becky123");
+        verify(userNewsCache, times(1)).invalidate("Becky123");
+        verify(newsRepository, times(2)).findById("Becky123");
+    }
+
+    @Test
+    public void getNewsPageWithNextCursor() {
+        News older = new News(2, "IPLT20 Match - 02", "Becky123", null, news.getPublishedAt().minusDays(1),
+                null, null, null, null, null);
+        List<News> fetched = new ArrayList<>();
+        fetched.add(news);
+        fetched.add(older);
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        when(mongoOperations.aggregate(any(Aggregation.class), anyString(), eq(News.class)))
+                .thenReturn(new AggregationResults<>(fetched, new Document()));
+        NewsPage page = newsServiceImpl.getNewsPage("Becky123", null, 1);
+        assertEquals(1, page.getNews().size());
+        assertEquals(news.getNewsId(), (Integer) NewsCursor.decode(page.getNextCursor()).getNewsId());
+    }
+
+    @Test
+    public void getNewsPageAfterNewsWithoutPublishedAt() {
+        News undated = new News(2, "IPLT20 Match - 02", "Becky123", null, null, null, null, null, null, null);
+        List<News> fetched = new ArrayList<>(Arrays.asList(undated, news));
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        when(mongoOperations.aggregate(any(Aggregation.class), anyString(), eq(News.class)))
+                .thenReturn(new AggregationResults<>(fetched, new Document()));
+        NewsCursor next = NewsCursor.decode(newsServiceImpl.getNewsPage("Becky123", null, 1).getNextCursor());
+        assertNull(next.getPublishedAt());
+        assertEquals(2, next.getNewsId());
+
+        newsServiceImpl.getNewsPage("Becky123", next, 1);
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoOperations, times(2)).aggregate(aggregation.capture(), eq("userNews"), eq(News.class));
+        Document match = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(3);
+        assertEquals(new Document("publishedAt", null).append("_id", new Document("$lt", 2)), match.get("$match"));
+    }
+
+    @Test
+    public void getNewsPageLastPage() {
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        when(mongoOperations.aggregate(any(Aggregation.class), anyString(), eq(News.class)))
+                .thenReturn(new AggregationResults<>(newsList, new Document()));
+        NewsPage page = newsServiceImpl.getNewsPage("Becky123", NewsCursor.of(news), 20);
+        assertEquals(newsList, page.getNews());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void getNewsPageProjectsSelectedFields() {
+        News archived = new News(7, "IPLT20 Match - 07", "Becky123", "Ipl match 07", news.getPublishedAt().minusYears(1),
+                "MI vs KKR", null, null, null, null);
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        when(mongoOperations.aggregate(any(Aggregation.class), anyString(), eq(News.class)))
+                .thenReturn(new AggregationResults<>(new ArrayList<>(), new Document()));
+        when(newsArchive.newsAfter("Becky123", null, 3)).thenReturn(Collections.singletonList(archived));
+        NewsPage page = newsServiceImpl.getNewsPage("Becky123", null, 2, NewsFields.parse("title,urlToImage"));
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoOperations).aggregate(aggregation.capture(), eq("userNews"), eq(News.class));
+        Document project = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(1);
+        assertEquals(new Document("_id", 0).append("newslist._id", 1).append("newslist.publishedAt", 1)
+                .append("newslist.title", 1).append("newslist.urlToImage", 1), project.get("$project"));
+        assertEquals("IPLT20 Match - 07", page.getNews().get(0).getTitle());
+        assertNull(page.getNews().get(0).getContent());
+        assertNull(page.getNews().get(0).getDescription());
+    }
+
+    @Test
+    public void getNewsPageContinuesInArchive() {
+        News archived = new News(7, "IPLT20 Match - 07", "Becky123", null, news.getPublishedAt().minusYears(1),
+                null, null, null, null, null);
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        when(mongoOperations.aggregate(any(Aggregation.class), anyString(), eq(News.class)))
+                .thenReturn(new AggregationResults<>(newsList, new Document()));
+        when(newsArchive.newsAfter(eq("Becky123"), any(NewsCursor.class), eq(2)))
+                .thenReturn(Collections.singletonList(archived));
+        NewsPage page = newsServiceImpl.getNewsPage("Becky123", null, 2);
+        assertEquals(Arrays.asList(news, archived), page.getNews());
+        assertNull(page.getNextCursor());
+        ArgumentCaptor<NewsCursor> after = ArgumentCaptor.forClass(NewsCursor.class);
+        verify(newsArchive).newsAfter(eq("Becky123"), after.capture(), eq(2));
+        assertEquals(news.getNewsId(), (Integer) after.getValue().getNewsId());
+    }
+
+    @Test
+    public void addNewsWithArchivedNewsIdFails() {
+        when(newsArchive.archivedNewsIds("Becky123", Collections.singleton(1))).thenReturn(Collections.singleton(1));
+        assertEquals(false, newsServiceImpl.addNews(news));
+        verify(newsRepository, never()).insert((UserNews) any());
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(Update.class), eq(UserNews.class));
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void addNewsBatchReportsArchivedNewsIdAsConflict() {
+        News other = new News(7, "Other user", "John", null, null, null, null, null, null, null);
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class)).thenReturn(bulk);
+        when(newsArchive.archivedNewsIds("Becky123", Collections.singleton(1))).thenReturn(Collections.singleton(1));
+
+        List<NewsBatchItemResult> results = newsServiceImpl.addNewsBatch(Arrays.asList(news, other));
+
+        assertEquals(NewsBatchItemResult.Status.CONFLICT, results.get(0).getStatus());
+        assertEquals(NewsBatchItemResult.Status.CREATED, results.get(1).getStatus());
+        verify(bulk, times(1)).upsert(any(Query.class), any(Update.class));
+        verify(newsStatsRollup).added(Collections.singletonList(other));
+    }
+
+    @Test
+    public void addNewsToExistingUser() {
+        when(newsRepository.existsById("Becky123")).thenReturn(true);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        assertEquals(true, newsServiceImpl.addNews(news));
+        verify(newsRepository, never()).insert((UserNews) any());
+    }
+
+    @Test
+    public void addNewsBatchReportsEachItem() {
+        News duplicate = new News(1, "IPLT20 Match - 01", "Becky123", null, null, null, null, null, null, null);
+        News invalid = new News(3, "No author", null, null, null, null, null, null, null, null);
+        News other = new News(7, "Other user", "John", null, null, null, null, null, null, null);
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class)).thenReturn(bulk);
+        // writes are grouped by author: news(0), duplicate(1), other(2)
+        BulkWriteError error = new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1);
+        when(bulk.execute()).thenThrow(new DuplicateKeyException("duplicate", new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), Collections.singletonList(error), null, new ServerAddress())));
+
+        List<NewsBatchItemResult> results = newsServiceImpl.addNewsBatch(Arrays.asList(news, other, invalid, duplicate));
+
+        assertEquals(NewsBatchItemResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(NewsBatchItemResult.Status.CREATED, results.get(1).getStatus());
+        assertEquals(NewsBatchItemResult.Status.INVALID, results.get(2).getStatus());
+        assertEquals(NewsBatchItemResult.Status.CONFLICT, results.get(3).getStatus());
+        verify(bulk, times(3)).upsert(any(Query.class), any(Update.class));
+        verify(newsStatsRollup).added(Arrays.asList(news, other));
+    }
+
+    @Test
+    public void getNewsByUrlSkipsMongoForNewUrls() {
+        newsUrlFilter.rebuild(Stream.empty());
+        assertNull(newsServiceImpl.getNewsByUrl("Becky123", "//CSKVsRCB.html"));
+        verify(mongoOperations, never()).findOne(any(Query.class), eq(UserNews.class));
+    }
+
+    @Test
+    public void getNewsByUrlLooksUpPossibleDuplicates() {
+        newsUrlFilter.rebuild(Stream.empty());
+        newsUrlFilter.newsSaved("Becky123", news);
+        when(mongoOperations.findOne(any(Query.class), eq(UserNews.class))).thenReturn(userNews);
+        assertEquals(1, newsServiceImpl.getNewsByUrl("Becky123", "//CSKVsRCB.html").getNewsId());
+    }
+}
@@ -0,0 +1,135 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.TimelineCursor;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsTimeline;
+
+public class NewsTimelineTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Mock
+    private NewsService newsService;
+    @InjectMocks
+    private NewsTimeline newsTimeline;
+
+    private Map<String, List<News>> newsByUser = new HashMap<>();
+    private int fetched;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        // a user's news newest first, paged like NewsService.getNewsPage
+        when(newsService.getNewsPage(anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            NewsCursor after = invocation.getArgument(1);
+            int size = invocation.getArgument(2);
+            List<News> newer = newsByUser.getOrDefault(invocation.getArgument(0), new ArrayList<>()).stream()
+                    .filter(news -> after == null || news.getPublishedAt().isBefore(after.getPublishedAt())
+                            || (news.getPublishedAt().equals(after.getPublishedAt()) && news.getNewsId() < after.getNewsId()))
+                    .limit(size + 1L)
+                    .collect(Collectors.toList());
+            NewsPage page = NewsPage.of(newer, size);
+            fetched += page.getNews().size();
+            return page;
+        });
+    }
+
+    @Test
+    public void mergesUsersNewestFirstAcrossPages() {
+        addNews("Becky123", 0, 3, 6, 9, 12, 15, 18);
+        addNews("John", 1, 2, 4, 8, 16);
+        addNews("Mary", 5, 6, 7);
+        List<String> users = Arrays.asList("Becky123", "John", "Mary", "Nobody");
+        List<String> seen = new ArrayList<>();
+        TimelineCursor after = null;
+        do {
+            NewsPage page = newsTimeline.getTimeline(users, after, 4);
+            assertTrue(page.getNews().size() <= 4);
+            page.getNews().forEach(news -> seen.add(news.getAuthor() + ":" + news.getNewsId()));
+            after = page.getNextCursor() == null ? null : TimelineCursor.decode(page.getNextCursor());
+        } while (after != null);
+
+        assertEquals(15, seen.size());
+        assertEquals(15, new HashSet<>(seen).size());
+        assertEquals(Arrays.asList("Becky123:18", "John:16", "Becky123:15", "Becky123:12"), seen.subList(0, 4));
+        // Becky123 and Mary both published at minute 6 with newsId 6
+        assertEquals(Arrays.asList("Becky123:6", "Mary:6"), seen.subList(seen.indexOf("Becky123:6"), seen.indexOf("Becky123:6") + 2));
+    }
+
+    @Test
+    public void readsNewsForThePageOnly() {
+        Set<String> users = new HashSet<>();
+        for (int user = 0; user < 10; user++) {
+            int[] minutes = new int[1000];
+            for (int i = 0; i < minutes.length; i++) {
+                minutes[i] = i * 10 + user;
+            }
+            addNews("user" + user, minutes);
+            users.add("user" + user);
+        }
+        NewsPage page = newsTimeline.getTimeline(new ArrayList<>(users), null, 20);
+        assertEquals(20, page.getNews().size());
+        assertEquals(START.plusMinutes(9999), page.getNews().get(0).getPublishedAt());
+        assertTrue(fetched <= 3 * 20 + 10, fetched + " news read");
+    }
+
+    @Test
+    public void readsBusyUserInGrowingSteps() {
+        int[] minutes = new int[1000];
+        for (int i = 0; i < minutes.length; i++) {
+            minutes[i] = i;
+        }
+        addNews("Becky123", minutes);
+        addNews("John", 0);
+        NewsPage page = newsTimeline.getTimeline(Arrays.asList("Becky123", "John"), null, 40);
+        assertEquals(40, page.getNews().size());
+        assertTrue(page.getNews().stream().allMatch(news -> news.getAuthor().equals("Becky123")));
+        assertTrue(fetched <= 3 * 40 + 2, fetched + " news read");
+    }
+
+    @Test
+    public void lastPageHasNoCursor() {
+        addNews("Becky123", 1, 2);
+        NewsPage page = newsTimeline.getTimeline(Arrays.asList("Becky123"), null, 2);
+        assertEquals(2, page.getNews().size());
+        assertNull(page.getNextCursor());
+    }
+
+    /* news of a user published at the given minutes, with the minute as newsId */
+    private void addNews(String userId, int... minutes) {
+        List<News> news = new ArrayList<>();
+        for (int minute : minutes) {
+            news.add(new News(minute, "News " + minute, userId, null, START.plusMinutes(minute), null, null, null, null, null));
+        }
+        news.sort(Comparator.comparing(News::getPublishedAt).thenComparing(News::getNewsId).reversed());
+        newsByUser.put(userId, news);
+    }
+}
@@ -0,0 +1,130 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsWriteBehind;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+
+public class NewsWriteBehindTest {
+
+    @Mock
+    private NewsService newsService;
+
+    private NewsProperties newsProperties;
+    private NewsWriteBehind newsWriteBehind;
+
+    @BeforeEach
+    public void setUp() throws NewsNotFoundException {
+        MockitoAnnotations.initMocks(this);
+        newsProperties = new NewsProperties();
+        newsProperties.getWriteBehind().setEnabled(true);
+        newsProperties.getWriteBehind().setWindow(Duration.ofMinutes(1));
+        newsWriteBehind = new NewsWriteBehind(newsService, newsProperties);
+        when(newsService.updateNews(any(News.class), eq(1), eq("Becky123")))
+                .thenAnswer(invocation -> edit(invocation.<News>getArgument(0).getContent()));
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        newsWriteBehind.destroy();
+    }
+
+    @Test
+    public void burstIsWrittenOnce() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            assertEquals("draft " + i, newsWriteBehind.updateNews(edit("draft " + i), 1, "Becky123").getContent());
+        }
+        verify(newsService, times(1)).updateNews(any(News.class), eq(1), eq("Becky123"));
+        assertEquals("draft 5", newsWriteBehind.pending("Becky123", 1).getContent());
+        List<News> overlaid = newsWriteBehind.overlay("Becky123", Collections.singletonList(edit("stored")));
+        assertEquals("draft 5", overlaid.get(0).getContent());
+
+        newsWriteBehind.destroy();
+        ArgumentCaptor<News> written = ArgumentCaptor.forClass(News.class);
+        verify(newsService, times(2)).updateNews(written.capture(), eq(1), eq("Becky123"));
+        assertEquals("draft 5", written.getValue().getContent());
+        assertNull(newsWriteBehind.pending("Becky123", 1));
+    }
+
+    @Test
+    public void hasPendingCountsBufferedNewsOfUser() throws Exception {
+        when(newsService.updateNews(any(News.class), eq(2), eq("Becky123"))).thenAnswer(invocation -> edit("stored"));
+        newsWriteBehind.updateNews(edit("draft 1"), 1, "Becky123");
+        newsWriteBehind.updateNews(edit("draft 2"), 2, "Becky123");
+        assertTrue(newsWriteBehind.hasPending("Becky123"));
+        assertFalse(newsWriteBehind.hasPending("John"));
+
+        newsWriteBehind.release("Becky123", 1);
+        assertTrue(newsWriteBehind.hasPending("Becky123"));
+        newsWriteBehind.discard("Becky123", 2);
+        assertFalse(newsWriteBehind.hasPending("Becky123"));
+        // an unknown news never stays in the buffer
+        assertNull(newsWriteBehind.updateNews(edit("draft"), 3, "Becky123"));
+        assertFalse(newsWriteBehind.hasPending("Becky123"));
+    }
+
+    @Test
+    public void windowEndWritesMergedUpdate() throws Exception {
+        newsProperties.getWriteBehind().setWindow(Duration.ofMillis(50));
+        newsWriteBehind.updateNews(edit("draft 1"), 1, "Becky123");
+        newsWriteBehind.updateNews(edit("draft 2"), 1, "Becky123");
+        newsWriteBehind.updateNews(edit("draft 3"), 1, "Becky123");
+        ArgumentCaptor<News> written = ArgumentCaptor.forClass(News.class);
+        verify(newsService, timeout(2000).times(2)).updateNews(written.capture(), eq(1), eq("Becky123"));
+        assertEquals("draft 3", written.getValue().getContent());
+    }
+
+    @Test
+    public void unknownNewsIsNotBuffered() throws Exception {
+        when(newsService.updateNews(any(News.class), eq(2), eq("Becky123"))).thenThrow(NewsNotFoundException.class);
+        assertThrows(NewsNotFoundException.class, () -> newsWriteBehind.updateNews(edit("draft"), 2, "Becky123"));
+        assertNull(newsWriteBehind.pending("Becky123", 2));
+    }
+
+    @Test
+    public void discardedUpdateIsNotWritten() throws Exception {
+        newsWriteBehind.updateNews(edit("draft 1"), 1, "Becky123");
+        newsWriteBehind.updateNews(edit("draft 2"), 1, "Becky123");
+        newsWriteBehind.discard("Becky123", 1);
+        assertNull(newsWriteBehind.pending("Becky123", 1));
+        newsWriteBehind.destroy();
+        verify(newsService, times(1)).updateNews(any(News.class), eq(1), eq("Becky123"));
+    }
+
+    @Test
+    public void disabledWritesThrough() throws Exception {
+        newsProperties.getWriteBehind().setEnabled(false);
+        newsWriteBehind.updateNews(edit("draft 1"), 1, "Becky123");
+        newsWriteBehind.updateNews(edit("draft 2"), 1, "Becky123");
+        verify(newsService, times(2)).updateNews(any(News.class), eq(1), eq("Becky123"));
+        assertNull(newsWriteBehind.pending("Becky123", 1));
+    }
+
+    private static News edit(String content) {
+        return new News(1, "IPLT20 Match - 01", "Becky123", null, null, content, null, null, null, null);
+    }
+}
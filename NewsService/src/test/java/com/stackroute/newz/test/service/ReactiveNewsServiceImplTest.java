@@ -0,0 +1,373 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.search.NewsSearchIndex;
+import com.stackroute.newz.stats.NewsStatsRollup;
+import com.stackroute.newz.service.NewsChangeDispatcher;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.content.NewsContentStore;
+import com.stackroute.newz.dedup.NewsUrlFilter;
+import com.stackroute.newz.event.NewsOutbox;
+import com.stackroute.newz.trending.NewsViewCounter;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsPreconditionFailedException;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsContent;
+import com.stackroute.newz.model.NewsEvent;
+import com.stackroute.newz.model.NewsFields;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsPatch;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.repository.ReactiveNewsRepository;
+import com.stackroute.newz.service.ReactiveNewsServiceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DuplicateKeyException;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.UpdateResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ReactiveNewsServiceImplTest {
+
+    private static final String LONG_CONTENT = "CSK vs RCB match report, over by over, from the toss to the last ball";
+    private static final String CONTENT_ID = "5e0a6a1c9d2b4f3a8c7d6e51";
+
+    private News news;
+    private UserNews userNews;
+    @Mock
+    private ReactiveNewsRepository newsRepository;
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
+    @Spy
+    private NewsSearchIndex newsSearchIndex = new NewsSearchIndex();
+    @Mock
+    private NewsOutbox newsOutbox;
+    @Mock
+    private NewsChangeDispatcher newsChangeDispatcher;
+    @Spy
+    private NewsUrlFilter newsUrlFilter = new NewsUrlFilter(new NewsProperties());
+    @Mock
+    private NewsViewCounter newsViewCounter;
+    @Spy
+    private NewsContentStore newsContentStore = new NewsContentStore(mock(MongoOperations.class), offloadAbove(40));
+    @Mock
+    private NewsArchive newsArchive;
+    @Mock
+    private NewsStatsRollup newsStatsRollup;
+    @InjectMocks
+    private ReactiveNewsServiceImpl newsServiceImpl;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+
+        MockitoAnnotations.initMocks(this);
+
+        news = new News();
+        news.setNewsId(1);
+        news.setTitle("IPLT20 Match - 01");
+        news.setAuthor("Becky123");
+        news.setDescription("Ipl match 01 - CSK Vs RCB");
+        news.setPublishedAt();
+        news.setContent("CSK vs RCB match scheduled for 4 PM");
+
+        List<News> newsList = new ArrayList<>();
+        newsList.add(news);
+        userNews = new UserNews();
+        userNews.setUserId("Becky123");
+        userNews.setNewslist(newsList);
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+    }
+
+    @Test
+    public void addNewsSuccess() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        StepVerifier.create(newsServiceImpl.addNews(news)).expectNext(true).verifyComplete();
+        verify(newsStatsRollup).added("Becky123", news);
+    }
+
+    @Test
+    public void addNewsFailure() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+        StepVerifier.create(newsServiceImpl.addNews(news)).expectNext(false).verifyComplete();
+        verify(newsStatsRollup, never()).added(anyString(), any(News.class));
+    }
+
+    @Test
+    public void addNewsWithArchivedNewsIdFails() {
+        when(newsArchive.archivedNewsIds("Becky123", Collections.singleton(1))).thenReturn(Collections.singleton(1));
+        StepVerifier.create(newsServiceImpl.addNews(news)).expectNext(false).verifyComplete();
+        verify(mongoOperations, never()).upsert(any(Query.class), any(Update.class), eq(UserNews.class));
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void deleteNewsFailure() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.empty());
+        StepVerifier.create(newsServiceImpl.deleteNews("Becky123", 1)).expectNext(false).verifyComplete();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class));
+        assertEquals(1, query.getValue().getQueryObject().get("newslist._id"));
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+        verify(newsStatsRollup, never()).removed(anyString(), any(News.class));
+    }
+
+    @Test
+    public void deleteNewsCountsRemovedNews() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.just(userNews));
+        StepVerifier.create(newsServiceImpl.deleteNews("Becky123", 1)).expectNext(true).verifyComplete();
+        verify(newsStatsRollup).removed("Becky123", news);
+        verify(newsOutbox).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void deleteNewsAtStaleVersion() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.empty());
+        when(mongoOperations.exists(any(Query.class), eq(UserNews.class))).thenReturn(Mono.just(true), Mono.just(false));
+        StepVerifier.create(newsServiceImpl.deleteNews("Becky123", 1, 2L))
+                .expectError(NewsPreconditionFailedException.class).verify();
+        StepVerifier.create(newsServiceImpl.deleteNews("Becky123", 7, 2L)).expectNext(false).verifyComplete();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(2)).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class));
+        assertEquals(2L, query.getValue().getQueryObject().get("version"));
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void patchNewsAtStaleVersion() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.empty());
+        when(mongoOperations.exists(any(Query.class), eq(UserNews.class))).thenReturn(Mono.just(true), Mono.just(false));
+        StepVerifier.create(newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("title", "IPLT20 Final"), 2L))
+                .expectError(NewsPreconditionFailedException.class).verify();
+        StepVerifier.create(newsServiceImpl.patchNews("Becky123", 7, new NewsPatch().set("title", "IPLT20 Final"), 2L))
+                .expectError(NewsNotFoundException.class).verify();
+    }
+
+    @Test
+    public void addNewsPublishesEvent() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        StepVerifier.create(newsServiceImpl.addNews(news)).expectNext(true).verifyComplete();
+        ArgumentCaptor<NewsEvent> published = ArgumentCaptor.forClass(NewsEvent.class);
+        verify(newsOutbox).publish(published.capture());
+        assertEquals(NewsEvent.Type.CREATED, published.getValue().getType());
+        verify(newsUrlFilter).newsSaved("Becky123", news);
+    }
+
+    @Test
+    public void addNewsDeliversPendingDeletionFirst() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate")),
+                        Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        when(newsChangeDispatcher.deliverPendingDeletion("Becky123")).thenReturn(true);
+        StepVerifier.create(newsServiceImpl.addNews(news)).expectNext(true).verifyComplete();
+        verify(newsOutbox).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void deleteAllNewsKeepsTombstone() {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        StepVerifier.create(newsServiceImpl.deleteAllNews("Becky123")).expectNext(true).verifyComplete();
+        verify(newsRepository, never()).deleteById(anyString());
+        verify(newsOutbox).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void deleteAllNewsFailure() {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        StepVerifier.create(newsServiceImpl.deleteAllNews("Becky123"))
+                .expectError(NewsNotFoundException.class).verify();
+        verify(newsOutbox, never()).publish(any(NewsEvent.class));
+    }
+
+    @Test
+    public void updateNewsSuccess() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.just(userNews));
+        StepVerifier.create(newsServiceImpl.updateNews(news, 1, "Becky123")).expectNext(news).verifyComplete();
+    }
+
+    @Test
+    public void patchNews() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.just(userNews), Mono.empty());
+        StepVerifier.create(newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("title", "IPLT20 Final")))
+                .expectNext(news).verifyComplete();
+        StepVerifier.create(newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("title", "IPLT20 Final")))
+                .expectError(NewsNotFoundException.class).verify();
+    }
+
+    @Test
+    public void patchedSourceIsCountedAsMoved() {
+        NewsSource cnn = new NewsSource();
+        cnn.setNewsSourceId(1);
+        news.setNewssource(cnn);
+        NewsSource bbc = new NewsSource();
+        bbc.setNewsSourceId(2);
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.just(userNews));
+        StepVerifier.create(newsServiceImpl.patchNews("Becky123", 1, new NewsPatch().set("newsSource", bbc)))
+                .expectNext(news).verifyComplete();
+        verify(newsStatsRollup).moved("Becky123", news, cnn);
+    }
+
+    @Test
+    public void addNewsOffloadsLongContent() {
+        news.setContent(LONG_CONTENT);
+        when(mongoOperations.insert(any(NewsContent.class))).thenAnswer(this::insertedContent);
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        StepVerifier.create(newsServiceImpl.addNews(news)).expectNext(true).verifyComplete();
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(any(Query.class), update.capture(), eq(UserNews.class));
+        News stored = (News) ((Document) update.getValue().getUpdateObject().get("$push")).get("newslist");
+        assertNull(stored.getContent());
+        assertEquals(CONTENT_ID, stored.getContentId());
+        assertEquals(LONG_CONTENT, news.getContent());
+    }
+
+    @Test
+    public void addNewsWithoutNewsIdOffloadsLongContent() {
+        news.setNewsId(null);
+        news.setContent(LONG_CONTENT);
+        ArgumentCaptor<NewsContent> content = ArgumentCaptor.forClass(NewsContent.class);
+        when(mongoOperations.insert(content.capture())).thenAnswer(this::insertedContent);
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        StepVerifier.create(newsServiceImpl.addNews(news)).expectNext(true).verifyComplete();
+        assertNull(content.getValue().getNewsId());
+    }
+
+    @Test
+    public void addNewsFailureRemovesOffloadedContent() {
+        news.setContent(LONG_CONTENT);
+        when(mongoOperations.insert(any(NewsContent.class))).thenAnswer(this::insertedContent);
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+        when(mongoOperations.remove(any(Query.class), eq(NewsContent.class))).thenReturn(Mono.empty());
+        StepVerifier.create(newsServiceImpl.addNews(news)).expectNext(false).verifyComplete();
+        verify(mongoOperations).remove(any(Query.class), eq(NewsContent.class));
+    }
+
+    @Test
+    public void updateNewsRemovesReplacedContent() {
+        News previous = new News(1, "IPLT20 Match - 01", "Becky123", null, null, null, null, null, null, null);
+        previous.setContentId(CONTENT_ID);
+        userNews.getNewslist().set(0, previous);
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.just(userNews));
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.remove(removed.capture(), eq(NewsContent.class))).thenReturn(Mono.empty());
+        StepVerifier.create(newsServiceImpl.updateNews(news, 1, "Becky123"))
+                .assertNext(updated -> {
+                    assertEquals(news.getContent(), updated.getContent());
+                    assertNull(updated.getContentId());
+                }).verifyComplete();
+        assertEquals(CONTENT_ID, removed.getValue().getQueryObject().get("_id"));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(UserNews.class));
+        assertEquals(new Document("newslist.$.contentId", 1), update.getValue().getUpdateObject().get("$unset"));
+    }
+
+    @Test
+    public void updateOfMissingNewsRemovesOffloadedContent() {
+        news.setContent(LONG_CONTENT);
+        when(mongoOperations.insert(any(NewsContent.class))).thenAnswer(this::insertedContent);
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UserNews.class))).thenReturn(Mono.empty());
+        when(mongoOperations.remove(any(Query.class), eq(NewsContent.class))).thenReturn(Mono.empty());
+        StepVerifier.create(newsServiceImpl.updateNews(news, 1, "Becky123"))
+                .expectError(NewsNotFoundException.class).verify();
+        verify(mongoOperations).remove(any(Query.class), eq(NewsContent.class));
+    }
+
+    @Test
+    public void streamAllNewsLoadsOffloadedContent() {
+        news.setContent(null);
+        news.setContentId(CONTENT_ID);
+        when(mongoOperations.aggregate(any(Aggregation.class), eq("userNews"), eq(News.class))).thenReturn(Flux.just(news));
+        when(mongoOperations.findById(CONTENT_ID, NewsContent.class))
+                .thenReturn(Mono.just(new NewsContent("Becky123", 1, LONG_CONTENT)));
+        StepVerifier.create(newsServiceImpl.streamAllNews("Becky123"))
+                .assertNext(streamed -> assertEquals(LONG_CONTENT, streamed.getContent())).verifyComplete();
+    }
+
+    private Mono<NewsContent> insertedContent(InvocationOnMock invocation) {
+        NewsContent content = invocation.getArgument(0);
+        content.setId(CONTENT_ID);
+        return Mono.just(content);
+    }
+
+    private static NewsProperties offloadAbove(int threshold) {
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getContent().setOffloadThreshold(threshold);
+        return newsProperties;
+    }
+
+    @Test
+    public void getNewsByNewsIdFailure() {
+        when(mongoOperations.findOne(any(Query.class), eq(UserNews.class))).thenReturn(Mono.empty());
+        StepVerifier.create(newsServiceImpl.getNewsByNewsId("Becky123", 1))
+                .expectError(NewsNotFoundException.class).verify();
+    }
+
+    @Test
+    public void getNewsPage() {
+        when(mongoOperations.aggregate(any(Aggregation.class), anyString(), eq(News.class))).thenReturn(Flux.just(news));
+        NewsPage page = newsServiceImpl.getNewsPage("Becky123", null, 1).block();
+        assertEquals(1, page.getNews().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void getAllNewsProjectsSelectedFields() {
+        when(mongoOperations.aggregate(any(Aggregation.class), anyString(), eq(News.class))).thenReturn(Flux.just(news));
+        StepVerifier.create(newsServiceImpl.getAllNewsByUserId("Becky123", NewsFields.parse("title"))).expectNext(news)
+                .verifyComplete();
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoOperations).aggregate(aggregation.capture(), anyString(), eq(News.class));
+        assertEquals(new Document("$project", new Document("_id", 0).append("newslist._id", 1)
+                .append("newslist.publishedAt", 1).append("newslist.title", 1)),
+                aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(1));
+    }
+}
@@ -0,0 +1,168 @@
+package com.stackroute.newz.test.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.newz.archive.NewsArchive;
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.NewsStats;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.stats.NewsStatsReconciler;
+import com.stackroute.newz.stats.NewsStatsRollup;
+
+public class NewsStatsRollupTest {
+
+    private static final LocalDateTime PUBLISHED = LocalDateTime.of(2019, 12, 1, 10, 0);
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private NewsArchive newsArchive;
+
+    private NewsStatsRollup newsStatsRollup;
+    private NewsSource cnn;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mongoOperations.getCollectionName(NewsStats.class)).thenReturn("newsStats");
+        newsStatsRollup = new NewsStatsRollup(mongoOperations);
+        cnn = new NewsSource();
+        cnn.setNewsSourceId(1);
+    }
+
+    @Test
+    public void addedNewsIncrementsCounters() {
+        newsStatsRollup.added("Becky123", news(1, "Becky123", cnn));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(any(Query.class), update.capture(), eq("newsStats"));
+        assertEquals(new Document("total", 1L).append("bySource.1", 1L).append("byDay.2019-12-01", 1L),
+                update.getValue().getUpdateObject().get("$inc"));
+    }
+
+    @Test
+    public void batchIsCountedOncePerUser() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, "newsStats")).thenReturn(bulk);
+        newsStatsRollup.added(Arrays.asList(news(1, "Becky123", cnn), news(2, "Becky123", null), news(3, "John", cnn)));
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).upsert(any(Query.class), updates.capture());
+        assertEquals(new Document("total", 2L).append("bySource.1", 1L).append("byDay.2019-12-01", 2L)
+                .append("bySource.none", 1L), updates.getAllValues().get(0).getUpdateObject().get("$inc"));
+        verify(bulk).execute();
+    }
+
+    @Test
+    public void movedNewsChangesSourceCounters() {
+        NewsSource bbc = new NewsSource();
+        bbc.setNewsSourceId(2);
+        newsStatsRollup.moved("Becky123", news(1, "Becky123", bbc), cnn);
+        newsStatsRollup.moved("Becky123", news(1, "Becky123", bbc), bbc);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, times(1)).upsert(any(Query.class), update.capture(), eq("newsStats"));
+        assertEquals(new Document("bySource.1", -1L).append("bySource.2", 1L),
+                update.getValue().getUpdateObject().get("$inc"));
+    }
+
+    @Test
+    public void reconcilerCountsUsersInBatches() {
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getStats().setBatchSize(1);
+        NewsStatsReconciler reconciler = new NewsStatsReconciler(mongoOperations, newsArchive, newsProperties);
+        UserNews becky = userNews("Becky123", news(1, "Becky123", cnn), news(2, "Becky123", cnn));
+        UserNews john = userNews("John", news(3, "John", null));
+        when(mongoOperations.find(any(Query.class), eq(UserNews.class)))
+                .thenReturn(Collections.singletonList(becky), Collections.singletonList(john), Collections.emptyList());
+
+        assertEquals(2, reconciler.reconcile());
+        ArgumentCaptor<NewsStats> saved = ArgumentCaptor.forClass(NewsStats.class);
+        verify(mongoOperations, times(2)).save(saved.capture());
+        NewsStats stats = saved.getAllValues().get(0);
+        assertEquals("Becky123", stats.getUserId());
+        assertEquals(2, stats.getTotal());
+        assertEquals(Long.valueOf(2), stats.getBySource().get("1"));
+        assertEquals(Long.valueOf(2), stats.getByDay().get("2019-12-01"));
+        assertEquals(Long.valueOf(1), saved.getAllValues().get(1).getBySource().get(NewsStats.NONE));
+
+        ArgumentCaptor<Query> batches = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(3)).find(batches.capture(), eq(UserNews.class));
+        assertEquals(new Document("_id", new Document("$gt", "Becky123")), batches.getAllValues().get(1).getQueryObject());
+        assertEquals(1, batches.getAllValues().get(0).getLimit());
+        // stats of users after the last one are removed
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(3)).remove(removed.capture(), eq(NewsStats.class));
+        assertEquals(new Document("_id", new Document("$gt", "John")), removed.getAllValues().get(2).getQueryObject());
+        verify(mongoOperations, never()).remove(any(Query.class), eq(UserNews.class));
+    }
+
+    @Test
+    public void reconcilerRemovesStatsOfUsersWithoutNews() {
+        NewsProperties newsProperties = new NewsProperties();
+        newsProperties.getStats().setBatchSize(3);
+        NewsStatsReconciler reconciler = new NewsStatsReconciler(mongoOperations, newsArchive, newsProperties);
+        UserNews becky = userNews("Becky123", news(1, "Becky123", cnn));
+        // deleteAllNews keeps the document without news as a tombstone
+        UserNews deleted = new UserNews("Deleted", null);
+        UserNews john = userNews("John", news(3, "John", null));
+        when(mongoOperations.find(any(Query.class), eq(UserNews.class)))
+                .thenReturn(Arrays.asList(becky, deleted, john), Collections.emptyList());
+
+        assertEquals(2, reconciler.reconcile());
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(2)).remove(removed.capture(), eq(NewsStats.class));
+        // stats of users missing up to the last one of the batch, and of the tombstone
+        assertEquals(new Document("_id", new Document("$lte", "John").append("$nin", Arrays.asList("Becky123", "John"))),
+                removed.getAllValues().get(0).getQueryObject());
+        // stats of users after the last one
+        assertEquals(new Document("_id", new Document("$gt", "John")), removed.getAllValues().get(1).getQueryObject());
+    }
+
+    @Test
+    public void reconcilerRemovesAllStatsWithoutUsers() {
+        NewsStatsReconciler reconciler = new NewsStatsReconciler(mongoOperations, newsArchive, new NewsProperties());
+        when(mongoOperations.find(any(Query.class), eq(UserNews.class))).thenReturn(Collections.emptyList());
+
+        assertEquals(0, reconciler.reconcile());
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).remove(removed.capture(), eq(NewsStats.class));
+        assertEquals(new Document(), removed.getValue().getQueryObject());
+        verify(mongoOperations, never()).save(any(NewsStats.class));
+    }
+
+    private static News news(int newsId, String author, NewsSource newsSource) {
+        return new News(newsId, "IPLT20 Match - 0" + newsId, author, null, PUBLISHED, null, null, null, null, newsSource);
+    }
+
+    private static UserNews userNews(String userId, News... news) {
+        UserNews userNews = new UserNews();
+        userNews.setUserId(userId);
+        List<News> newslist = Arrays.asList(news);
+        userNews.setNewslist(newslist);
+        return userNews;
+    }
+}
@@ -0,0 +1,114 @@
+package com.stackroute.newz.test.trending;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.newz.config.NewsProperties;
+import com.stackroute.newz.model.NewsViews;
+import com.stackroute.newz.model.TrendingNews;
+import com.stackroute.newz.trending.NewsViewCounter;
+import com.stackroute.newz.trending.TrendingTracker;
+
+public class NewsViewCounterTest {
+
+    private static final long MINUTE = 60_000;
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private NewsViewCounter newsViewCounter;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, NewsViews.class)).thenReturn(bulkOperations);
+        newsViewCounter = new NewsViewCounter(mongoOperations, new NewsProperties());
+    }
+
+    @Test
+    public void findsHeavyHittersAmongManyKeys() {
+        TrendingTracker tracker = new TrendingTracker(60 * MINUTE, 12, 10, 1024, 4);
+        Random random = new Random(7);
+        long now = 1_000 * MINUTE;
+        for (int i = 0; i < 50000; i++) {
+            tracker.record("Becky123:" + random.nextInt(5000), now);
+            if (i % 10 == 0) {
+                tracker.record("Becky123:hot" + (i % 30) / 10, now);
+            }
+        }
+        List<Map.Entry<String, Long>> top = tracker.top(3, now);
+        assertEquals(3, top.size());
+        for (Map.Entry<String, Long> entry : top) {
+            assertTrue(entry.getKey().startsWith("Becky123:hot"), top.toString());
+            assertTrue(entry.getValue() >= 1666, top.toString());
+        }
+    }
+
+    @Test
+    public void viewsLeaveTheWindow() {
+        TrendingTracker tracker = new TrendingTracker(60 * MINUTE, 12, 10, 1024, 4);
+        long start = 1_000 * MINUTE;
+        for (int i = 0; i < 100; i++) {
+            tracker.record("Becky123:1", start);
+        }
+        tracker.record("Becky123:2", start + 30 * MINUTE);
+        assertEquals("Becky123:1", tracker.top(1, start + 30 * MINUTE).get(0).getKey());
+        List<Map.Entry<String, Long>> later = tracker.top(10, start + 61 * MINUTE);
+        assertEquals(1, later.size());
+        assertEquals("Becky123:2", later.get(0).getKey());
+        assertEquals(1L, later.get(0).getValue());
+    }
+
+    @Test
+    public void viewsAreFlushedOncePerNews() {
+        for (int i = 0; i < 3; i++) {
+            newsViewCounter.viewed("Becky123", 1);
+        }
+        newsViewCounter.viewed("Becky123", 2);
+        List<TrendingNews> trending = newsViewCounter.trending(10);
+        assertEquals(1, trending.get(0).getNewsId());
+        assertEquals(3, trending.get(0).getViews());
+
+        assertEquals(2, newsViewCounter.flush());
+        verify(bulkOperations, times(2)).upsert(any(Query.class), any(Update.class));
+        assertEquals(0, newsViewCounter.flush());
+    }
+
+    @Test
+    public void failedFlushKeepsViews() {
+        doThrow(new DataAccessResourceFailureException("Mongo down")).when(bulkOperations).execute();
+        newsViewCounter.viewed("Becky123", 1);
+        assertEquals(0, newsViewCounter.flush());
+        newsViewCounter.viewed("Becky123", 1);
+        doReturn(null).when(bulkOperations).execute();
+        assertEquals(1, newsViewCounter.flush());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).upsert(any(Query.class), update.capture());
+        assertEquals(new Document("views", 2L), update.getValue().getUpdateObject().get("$inc"));
+    }
+}
@@ -0,0 +1,25 @@
+package com.stackroute.newz.config;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/*
+ * Adds Smile and CBOR to the formats of the news source endpoints, for request bodies
+ * as well as for responses to clients that ask for them in their Accept header.
+ * The converters are appended after the JSON one, so JSON stays the format for
+ * clients that accept anything.
+ */
+@Configuration
+public class BinaryFormatConfig implements WebMvcConfigurer {
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(new MappingJackson2SmileHttpMessageConverter(BinaryFormats.smileMapper()));
+		converters.add(new MappingJackson2CborHttpMessageConverter(BinaryFormats.cborMapper()));
+	}
+}
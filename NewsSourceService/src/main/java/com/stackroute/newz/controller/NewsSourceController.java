@@ -14,9 +14,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.NewsSourceFields;
 import com.stackroute.newz.service.NewsSourceService;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
 
@@ -137,21 +139,31 @@ public class NewsSourceController {
 	 * different situations: 
 	 * 1. 200(OK) - If the newssource found successfully. 
 	 * 2. 404(NOT FOUND) - If the newssource with specified newsId is not found.
+	 * 3. 400(BAD REQUEST) - If "fields" names a field that can not be selected.
 	 * 
 	 * This handler method should map to the URL "/api/v1/newssource/{userId}/{newssourceId}" 
 	 * using HTTP GET method where "userId" should be replaced by a valid userId 
 	 * without {} and "newssourceId" should be replaced by a valid newsId without {}.
 	 * 
+	 * "fields" lists the fields of the newssource to return, see NewsSourceFields.
 	 */
 	@GetMapping("/newssource/{userId}/{newssourceId}")
-	public ResponseEntity<NewsSource> getNewsSource(@PathVariable("newssourceId") int newssourceId, @PathVariable("userId") String userId){
+	public ResponseEntity<NewsSource> getNewsSource(@PathVariable("newssourceId") int newssourceId, @PathVariable("userId") String userId,
+			@RequestParam(value = "fields", required = false) String fields){
 		
+		NewsSourceFields selected;
+		try {
+			selected = NewsSourceFields.parse(fields);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", e.getMessage());
+			return new ResponseEntity<NewsSource>(HttpStatus.BAD_REQUEST);
+		}
 		NewsSource newsSourceById;
 		try {
-			newsSourceById = newsSourceService.getNewsSourceById(userId, newssourceId);
+			newsSourceById = newsSourceService.getNewsSourceById(userId, newssourceId, selected);
 			if(newsSourceById != null) {
 				logger.info("In controller - {}", "News Source Retrieved: " +newsSourceById);
-				return new ResponseEntity<NewsSource>(HttpStatus.OK);
+				return new ResponseEntity<NewsSource>(newsSourceById, HttpStatus.OK);
 			}
 		} catch (NewsSourceNotFoundException e) {
 			return new ResponseEntity<NewsSource>(HttpStatus.NOT_FOUND);
@@ -166,19 +178,29 @@ public class NewsSourceController {
 	 * different situations: 
 	 * 1. 200(OK) - If the newssource found successfully. 
 	 * 2. 404(NOT FOUND) - If the newssource with specified newsId is not found.
+	 * 3. 400(BAD REQUEST) - If "fields" names a field that can not be selected.
 	 * This handler method should map to the URL "/api/v1/newssource/{userId}" using HTTP GET method
 	 * where "userId" should be replaced by a valid userId without {}.
 	 * 
+	 * "fields" lists the fields of the newssources to return, see NewsSourceFields.
 	 */
 	@GetMapping("/newssource/{userId}")
-	public ResponseEntity<List<NewsSource>> getAllNewsSource(@PathVariable("userId") String userId){
+	public ResponseEntity<List<NewsSource>> getAllNewsSource(@PathVariable("userId") String userId,
+			@RequestParam(value = "fields", required = false) String fields){
 		
+		NewsSourceFields selected;
+		try {
+			selected = NewsSourceFields.parse(fields);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", e.getMessage());
+			return new ResponseEntity<List<NewsSource>>(HttpStatus.BAD_REQUEST);
+		}
 		List<NewsSource> allNewsSource;
 		try {
-			allNewsSource = newsSourceService.getAllNewsSourceByUserId(userId);
+			allNewsSource = newsSourceService.getAllNewsSourceByUserId(userId, selected);
 			if(allNewsSource != null) {
 				logger.info("In controller - {}", "News Sources Retrieved: " +allNewsSource);
-				return new ResponseEntity<List<NewsSource>>(HttpStatus.OK);
+				return new ResponseEntity<List<NewsSource>>(allNewsSource, HttpStatus.OK);
 			}
 		} catch (Exception e) {
 			return new ResponseEntity<List<NewsSource>>(HttpStatus.NOT_FOUND);
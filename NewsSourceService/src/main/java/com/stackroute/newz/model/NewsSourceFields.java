@@ -0,0 +1,100 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * The fields of a NewsSource a client asked for with "fields", by their name in
+ * NewsSource. Only the names of this allow-list are accepted, and newsSourceId is
+ * always part of it. The service reads only these fields from Mongo, the other
+ * fields are null. The controller answers with the news sources of select, which
+ * leave them out of the JSON.
+ */
+public class NewsSourceFields {
+
+	private static final List<String> NAMES = Arrays.asList("newsSourceId", "newsSourceName", "newsSourceDesc",
+			"newsSourceCreatedBy", "newsSourceCreationDate");
+
+	private final Set<String> fields;
+
+	private NewsSourceFields(Set<String> fields) {
+		this.fields = fields;
+	}
+
+	/*
+	 * Parses a comma separated list of field names. Returns null, meaning all
+	 * fields, for a missing or blank list, and throws IllegalArgumentException for
+	 * a name that is not on the allow-list.
+	 */
+	public static NewsSourceFields parse(String names) {
+		if (names == null || names.trim().isEmpty()) {
+			return null;
+		}
+		Set<String> fields = new LinkedHashSet<>(Collections.singletonList("newsSourceId"));
+		for (String name : names.split(",")) {
+			String field = name.trim();
+			if (!NAMES.contains(field)) {
+				throw new IllegalArgumentException("Unknown NewsSource field: " + field);
+			}
+			fields.add(field);
+		}
+		return new NewsSourceFields(fields);
+	}
+
+	public Set<String> getFields() {
+		return Collections.unmodifiableSet(fields);
+	}
+
+	/* Includes only these fields in the documents the query reads. */
+	public Query applyTo(Query query) {
+		fields.forEach(query.fields()::include);
+		return query;
+	}
+
+	/*
+	 * Returns a copy of a news source with only these fields, whose JSON leaves out
+	 * the fields that were not selected. NewsSource() stamps the current date, so a
+	 * news source read without its creation date is copied without one.
+	 */
+	public NewsSource select(NewsSource read) {
+		if (read == null) {
+			return null;
+		}
+		return new Selected(read.getNewsSourceId(),
+				fields.contains("newsSourceName") ? read.getNewsSourceName() : null,
+				fields.contains("newsSourceDesc") ? read.getNewsSourceDesc() : null,
+				fields.contains("newsSourceCreatedBy") ? read.getNewsSourceCreatedBy() : null,
+				fields.contains("newsSourceCreationDate") ? read.getNewsSourceCreationDate() : null);
+	}
+
+	@Override
+	public String toString() {
+		return "NewsSourceFields " + fields;
+	}
+
+	/* The constructor of NewsSource does not take the creation date, so it is kept here. */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	static class Selected extends NewsSource {
+
+		private final LocalDateTime creationDate;
+
+		Selected(int newsSourceId, String newsSourceName, String newsSourceDesc, String newsSourceCreatedBy,
+				LocalDateTime newsSourceCreationDate) {
+			super(newsSourceId, newsSourceName, newsSourceDesc, newsSourceCreatedBy, null);
+			this.creationDate = newsSourceCreationDate;
+		}
+
+		@Override
+		public LocalDateTime getNewsSourceCreationDate() {
+			return creationDate;
+		}
+	}
+}
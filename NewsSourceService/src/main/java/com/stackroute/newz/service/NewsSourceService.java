@@ -3,6 +3,7 @@ package com.stackroute.newz.service;
 import java.util.List;
 
 import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.NewsSourceFields;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
 
 public interface NewsSourceService {
@@ -21,5 +22,13 @@ public interface NewsSourceService {
 	NewsSource getNewsSourceById(String userId,int newsSourceId) throws NewsSourceNotFoundException;
 
 	List<NewsSource> getAllNewsSourceByUserId(String userId);
+
+	/*
+	 * As getNewsSourceById and getAllNewsSourceByUserId, reading only the given
+	 * fields from Mongo; the other fields are null. null fields read all fields.
+	 */
+	NewsSource getNewsSourceById(String userId, int newsSourceId, NewsSourceFields fields) throws NewsSourceNotFoundException;
+
+	List<NewsSource> getAllNewsSourceByUserId(String userId, NewsSourceFields fields);
 	
 }
@@ -1,12 +1,19 @@
 package com.stackroute.newz.service;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.NewsSourceFields;
 import com.stackroute.newz.repository.NewsSourceRepository;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
 
@@ -29,9 +36,11 @@ public class NewsSourceServiceImpl implements NewsSourceService {
 	 * object using the new keyword.
 	 */
 	private NewsSourceRepository newsSourceRepo;
+	private MongoOperations mongoOperations;
 	@Autowired
-	public NewsSourceServiceImpl(NewsSourceRepository newsSourceRepository) {
+	public NewsSourceServiceImpl(NewsSourceRepository newsSourceRepository, MongoOperations mongoOperations) {
 		this.newsSourceRepo = newsSourceRepository;
+		this.mongoOperations = mongoOperations;
 	}
 	/*
 	 * This method should be used to save a newsSource.
@@ -102,4 +111,31 @@ public class NewsSourceServiceImpl implements NewsSourceService {
 	public List<NewsSource> getAllNewsSourceByUserId(String createdBy) {
 		return newsSourceRepo.findAllNewsSourceByNewsSourceCreatedBy(createdBy);
 	}
+
+	/*
+	 * The selected fields are projected by Mongo, so only they are read and sent.
+	 * The news source is matched on its creator and id in the query.
+	 */
+	@Override
+	public NewsSource getNewsSourceById(String userId, int newsSourceId, NewsSourceFields fields) throws NewsSourceNotFoundException {
+		if(fields == null) {
+			return getNewsSourceById(userId, newsSourceId);
+		}
+		Query query = query(where("newsSourceCreatedBy").is(userId).and("newsSourceId").is(newsSourceId));
+		NewsSource newsSource = mongoOperations.findOne(fields.applyTo(query), NewsSource.class);
+		if(newsSource == null) {
+			throw new NewsSourceNotFoundException("News Source not Found in DB.");
+		}
+		return fields.select(newsSource);
+	}
+
+	@Override
+	public List<NewsSource> getAllNewsSourceByUserId(String createdBy, NewsSourceFields fields) {
+		if(fields == null) {
+			return getAllNewsSourceByUserId(createdBy);
+		}
+		Query query = query(where("newsSourceCreatedBy").is(createdBy));
+		return mongoOperations.find(fields.applyTo(query), NewsSource.class).stream()
+				.map(fields::select).collect(Collectors.toList());
+	}
 }
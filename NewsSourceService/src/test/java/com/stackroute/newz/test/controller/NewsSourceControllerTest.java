@@ -9,9 +9,11 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.stackroute.newz.controller.NewsSourceController;
 import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.NewsSourceFields;
 import com.stackroute.newz.service.NewsSourceService;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,10 +30,17 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
@@ -134,17 +143,49 @@ public class NewsSourceControllerTest {
 
     @Test
     public void getNewssourceByIdSuccess() throws Exception {
-        when(newssourceService.getNewsSourceById(newsSource.getNewsSourceCreatedBy(),newsSource.getNewsSourceId())).thenReturn(newsSource);
+        when(newssourceService.getNewsSourceById(eq(newsSource.getNewsSourceCreatedBy()), eq(newsSource.getNewsSourceId()), isNull())).thenReturn(newsSource);
         mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource/Becky123/1")
                 .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(MockMvcResultMatchers.status().isOk());
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.newsSourceName").value("CNN"));
+    }
+
+    @Test
+    public void getNewssourceByIdWithFields() throws Exception {
+        NewsSource selected = NewsSourceFields.parse("newsSourceName").select(newsSource);
+        when(newssourceService.getNewsSourceById(eq("Becky123"), eq(1), any(NewsSourceFields.class))).thenReturn(selected);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource/Becky123/1").param("fields", "newsSourceName"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.newsSourceName").value("CNN"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.newsSourceDesc").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.newsSourceCreationDate").doesNotExist());
+        ArgumentCaptor<NewsSourceFields> fields = ArgumentCaptor.forClass(NewsSourceFields.class);
+        verify(newssourceService).getNewsSourceById(eq("Becky123"), eq(1), fields.capture());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("newsSourceId", "newsSourceName")), fields.getValue().getFields());
+    }
+
+    @Test
+    public void getAllNewssourceWithFields() throws Exception {
+        when(newssourceService.getAllNewsSourceByUserId(eq("Becky123"), any(NewsSourceFields.class)))
+                .thenReturn(Collections.singletonList(NewsSourceFields.parse("newsSourceName").select(newsSource)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource/Becky123").param("fields", "newsSourceName"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].newsSourceName").value("CNN"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].newsSourceCreatedBy").doesNotExist());
+    }
+
+    @Test
+    public void getAllNewssourceRejectsUnknownField() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource/Becky123").param("fields", "newsSourceName,password"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(newssourceService, never()).getAllNewsSourceByUserId(any(), any());
     }
 
 
     @Test
     public void getNewssourceByIdFailure() throws Exception {
     	int newssourceId = newsSource.getNewsSourceId();
-        when(newssourceService.getNewsSourceById(newsSource.getNewsSourceCreatedBy(),newssourceId)).thenThrow(NewsSourceNotFoundException.class);
+        when(newssourceService.getNewsSourceById(eq(newsSource.getNewsSourceCreatedBy()), eq(newssourceId), isNull())).thenThrow(NewsSourceNotFoundException.class);
         mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource/Becky123/1")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
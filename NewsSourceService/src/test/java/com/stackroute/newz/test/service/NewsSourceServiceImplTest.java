@@ -4,21 +4,33 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import org.bson.Document;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
 
 import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.NewsSourceFields;
 import com.stackroute.newz.repository.NewsSourceRepository;
 import com.stackroute.newz.service.NewsSourceServiceImpl;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -29,6 +41,8 @@ public class NewsSourceServiceImplTest {
     private NewsSource newsSource;
     @Mock
     private NewsSourceRepository newsSourceRepository;
+    @Mock
+    private MongoOperations mongoOperations;
     @InjectMocks
     private NewsSourceServiceImpl newsSourceServiceImpl;
     private List<NewsSource> allNewssource = null;
@@ -136,4 +150,44 @@ public class NewsSourceServiceImplTest {
         assertThat(fetchedNewssource, is(allNewssource));
 
     }
+
+    @Test
+    public void getAllNewssourceReadsOnlySelectedFields() {
+        NewsSource read = new NewsSource();
+        read.setNewsSourceId(1);
+        read.setNewsSourceName("Cricket-Category");
+        when(mongoOperations.find(any(Query.class), eq(NewsSource.class))).thenReturn(Collections.singletonList(read));
+
+        List<NewsSource> fetchedNewssource = newsSourceServiceImpl.getAllNewsSourceByUserId("Becky123",
+                NewsSourceFields.parse("newsSourceName"));
+        assertThat(fetchedNewssource.get(0).getNewsSourceName(), is("Cricket-Category"));
+        assertNull(fetchedNewssource.get(0).getNewsSourceCreationDate());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).find(query.capture(), eq(NewsSource.class));
+        assertThat(query.getValue().getQueryObject().get("newsSourceCreatedBy"), is("Becky123"));
+        assertThat(query.getValue().getFieldsObject(), is(new Document("newsSourceId", 1).append("newsSourceName", 1)));
+        verify(newsSourceRepository, never()).findAllNewsSourceByNewsSourceCreatedBy(any());
+    }
+
+    @Test
+    public void getNewssourceByIdReadsOnlySelectedFields() throws NewsSourceNotFoundException {
+        when(mongoOperations.findOne(any(Query.class), eq(NewsSource.class))).thenReturn(newsSource, (NewsSource) null);
+
+        NewsSourceFields fields = NewsSourceFields.parse("newsSourceName,newsSourceCreationDate");
+        NewsSource selected = newsSourceServiceImpl.getNewsSourceById("Becky123", 1, fields);
+        assertThat(selected.getNewsSourceName(), is(newsSource.getNewsSourceName()));
+        assertThat(selected.getNewsSourceCreationDate(), is(newsSource.getNewsSourceCreationDate()));
+        assertNull(selected.getNewsSourceDesc());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).findOne(query.capture(), eq(NewsSource.class));
+        assertThat(query.getValue().getQueryObject().get("newsSourceId"), is(1));
+        assertThat(query.getValue().getFieldsObject().keySet(), containsInAnyOrder("newsSourceId", "newsSourceName", "newsSourceCreationDate"));
+        assertThrows(NewsSourceNotFoundException.class, () -> newsSourceServiceImpl.getNewsSourceById("Becky123", 1, fields));
+    }
+
+    @Test
+    public void unknownFieldsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> NewsSourceFields.parse("newsSourceName,password"));
+        assertNull(NewsSourceFields.parse(" "));
+    }
 }
\ No newline at end of file